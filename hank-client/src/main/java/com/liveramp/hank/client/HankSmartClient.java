@@ -42,6 +42,7 @@ import com.liveramp.hank.coordinator.RingGroup;
 import com.liveramp.hank.coordinator.RingGroupDataLocationChangeListener;
 import com.liveramp.hank.generated.HankBulkResponse;
 import com.liveramp.hank.generated.HankException;
+import com.liveramp.hank.generated.HankRangeResponse;
 import com.liveramp.hank.generated.HankResponse;
 import com.liveramp.hank.util.AtomicLongCollection;
 import com.liveramp.hank.util.Bytes;
@@ -59,6 +60,7 @@ public class HankSmartClient implements HankSmartClientIface, RingGroupDataLocat
   private static final HankResponse NO_SUCH_DOMAIN = HankResponse.xception(HankException.no_such_domain(true));
   private static final HankBulkResponse NO_SUCH_DOMAIN_BULK = HankBulkResponse.xception(HankException.no_such_domain(true));
   private static final HankResponse NO_REPLICA = HankResponse.xception(HankException.no_replica(true));
+  private static final HankRangeResponse NO_REPLICA_RANGE = HankRangeResponse.xception(HankException.no_replica(true));
 
   private static final long GET_TASK_EXECUTOR_THREAD_KEEP_ALIVE_TIME = 1;
   private static final TimeUnit GET_TASK_EXECUTOR_THREAD_KEEP_ALIVE_TIME_UNIT = TimeUnit.MINUTES;
@@ -80,6 +82,7 @@ public class HankSmartClient implements HankSmartClientIface, RingGroupDataLocat
   private final int establishConnectionTimeoutMs;
   private final int queryTimeoutMs;
   private final int bulkQueryTimeoutMs;
+  private final int rangeChunkSize;
 
   private final SynchronizedMemoryBoundCacheExpiring<DomainAndKey, HankResponseManagedBytes> responseCache;
   // 0: num queries
@@ -157,6 +160,7 @@ public class HankSmartClient implements HankSmartClientIface, RingGroupDataLocat
     this.establishConnectionTimeoutMs = options.getEstablishConnectionTimeoutMs();
     this.queryTimeoutMs = options.getQueryTimeoutMs();
     this.bulkQueryTimeoutMs = options.getBulkQueryTimeoutMs();
+    this.rangeChunkSize = options.getRangeChunkSize();
     this.responseCache = new SynchronizedMemoryBoundCacheExpiring<DomainAndKey, HankResponseManagedBytes>(
         options.getResponseCacheEnabled(),
         options.getResponseCacheNumBytesCapacity(),
@@ -444,6 +448,52 @@ public class HankSmartClient implements HankSmartClientIface, RingGroupDataLocat
     return result;
   }
 
+  // Scan the keys of [startKey, endKey) in increasing (unsigned lexicographic) order, in chunks of
+  // rangeChunkSize entries per partition. A null startKey means from the first key, and a null endKey
+  // means up to the last key. The domain must be stored in key order (e.g. with the Sorted engine).
+  public RangeIterator getRange(String domainName, ByteBuffer startKey, ByteBuffer endKey) throws IOException {
+    final Domain domain = coordinator.getDomain(domainName);
+    if (domain == null) {
+      throw new IOException("No such Domain: " + domainName);
+    }
+    return new RangeIterator(new RangeIterator.ChunkFetcher() {
+      @Override
+      public HankRangeResponse getRange(int partitionNumber, ByteBuffer startKey, ByteBuffer endKey, int maxNumResults) {
+        return _getRange(domain, partitionNumber, startKey, endKey, maxNumResults);
+      }
+    }, domain.getNumParts(), startKey, endKey, rangeChunkSize);
+  }
+
+  // Scan the keys that start with the given prefix, in increasing order
+  public RangeIterator getPrefix(String domainName, ByteBuffer prefix) throws IOException {
+    return getRange(domainName, prefix, RangeIterator.getPrefixEndKey(prefix));
+  }
+
+  private HankRangeResponse _getRange(Domain domain,
+                                      int partition,
+                                      ByteBuffer startKey,
+                                      ByteBuffer endKey,
+                                      int maxNumResults) {
+    Map<Integer, HostConnectionPool> partitionToConnectionPool;
+    synchronized (connectionCacheLock) {
+      partitionToConnectionPool = domainToPartitionToConnectionPool.get(domain.getId());
+    }
+    if (partitionToConnectionPool == null) {
+      LOG.error(getLogPrefix() + String.format("Could not find domain to partition map for domain %s (id: %d)", domain.getName(), domain.getId()));
+      return NO_REPLICA_RANGE;
+    }
+    HostConnectionPool hostConnectionPool = partitionToConnectionPool.get(partition);
+    if (hostConnectionPool == null) {
+      LOG.error(getLogPrefix() + String.format("Could not find list of hosts for domain %s (id: %d) when looking for partition %d", domain.getName(), domain.getId(), partition));
+      return NO_REPLICA_RANGE;
+    }
+    HankRangeResponse response = hostConnectionPool.getRange(domain.getId(), partition, startKey, endKey, maxNumResults, queryMaxNumTries);
+    if (response.is_set_xception()) {
+      LOG.error(getLogPrefix() + "Failed to perform get range: domain " + domain.getName() + ", partition " + partition + ", response: " + response);
+    }
+    return response;
+  }
+
   private FutureGet _concurrentGet(Domain domain, ByteBuffer key) {
     FutureGet futureGet = new FutureGet(new GetTaskRunnable(domain, key));
     getTaskExecutor.execute(futureGet);
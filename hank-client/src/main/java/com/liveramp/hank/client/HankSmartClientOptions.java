@@ -29,6 +29,7 @@ public class HankSmartClientOptions {
   private long responseCacheNumBytesCapacity = 0;
   private int responseCacheNumItemsCapacity = 0;
   private long responseCacheExpirationSeconds = 0;
+  private int rangeChunkSize = 1000;
 
   public int getNumConnectionsPerHost() {
     return numConnectionsPerHost;
@@ -128,4 +129,14 @@ public class HankSmartClientOptions {
     this.responseCacheExpirationSeconds = responseCacheExpirationSeconds;
     return this;
   }
+
+  public int getRangeChunkSize() {
+    return rangeChunkSize;
+  }
+
+  // Maximum number of entries fetched from a partition at once by range scans
+  public HankSmartClientOptions setRangeChunkSize(int rangeChunkSize) {
+    this.rangeChunkSize = rangeChunkSize;
+    return this;
+  }
 }
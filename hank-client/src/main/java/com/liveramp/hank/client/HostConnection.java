@@ -19,6 +19,7 @@ package com.liveramp.hank.client;
 import com.liveramp.hank.coordinator.Host;
 import com.liveramp.hank.coordinator.HostState;
 import com.liveramp.hank.generated.HankBulkResponse;
+import com.liveramp.hank.generated.HankRangeResponse;
 import com.liveramp.hank.generated.HankResponse;
 import com.liveramp.hank.generated.PartitionServer;
 import com.liveramp.hank.zookeeper.WatchedNodeListener;
@@ -195,6 +196,50 @@ public class HostConnection implements WatchedNodeListener<HostState> {
     }
   }
 
+  public HankRangeResponse getRange(int domainId,
+                                    int partitionNumber,
+                                    ByteBuffer startKey,
+                                    ByteBuffer endKey,
+                                    int maxNumResults) throws IOException {
+    // Lock the connection only if needed
+    if (!lock.isHeldByCurrentThread()) {
+      // Try to lock within a given timeframe
+      if (!tryLockWithTimeout()) {
+        throw new IOException("Exceeded timeout while trying to lock the host connection.");
+      }
+    }
+    try {
+      // Check availability
+      if (!isServing() && !isOffline()) {
+        throw new IOException("Connection to host is not available (host is not serving).");
+      }
+      // Connect if necessary
+      if (isDisconnected()) {
+        connect();
+      }
+      try {
+        // Scans take as long as bulk queries
+        setSocketTimeout(bulkQueryTimeoutMs);
+        // Perform query
+        HankRangeResponse result = client.getRange(domainId, partitionNumber, startKey, endKey, maxNumResults);
+        if (result.is_set_xception()) {
+          throw new IOException("Server failed to execute GET RANGE: " + result.get_xception());
+        } else {
+          return result;
+        }
+      } finally {
+        // Set socket timeout back to regular mode
+        setSocketTimeout(queryTimeoutMs);
+      }
+    } catch (TException e) {
+      // Disconnect and give up
+      disconnect();
+      throw new IOException("Failed to execute GET RANGE", e);
+    } finally {
+      unlock();
+    }
+  }
+
   public void disconnect() {
     if (transport != null) {
       transport.close();
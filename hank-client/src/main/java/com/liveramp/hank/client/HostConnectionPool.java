@@ -20,6 +20,7 @@ import com.liveramp.hank.coordinator.Domain;
 import com.liveramp.hank.coordinator.Host;
 import com.liveramp.hank.generated.HankBulkResponse;
 import com.liveramp.hank.generated.HankException;
+import com.liveramp.hank.generated.HankRangeResponse;
 import com.liveramp.hank.generated.HankResponse;
 import com.liveramp.hank.util.Bytes;
 import org.apache.log4j.Logger;
@@ -75,6 +76,8 @@ public class HostConnectionPool {
       = HankResponse.xception(HankException.no_connection_available(true));
   private static final HankBulkResponse NO_CONNECTION_AVAILABLE_BULK_RESPONSE
       = HankBulkResponse.xception(HankException.no_connection_available(true));
+  private static final HankRangeResponse NO_CONNECTION_AVAILABLE_RANGE_RESPONSE
+      = HankRangeResponse.xception(HankException.no_connection_available(true));
 
   static class HostConnectionAndHostIndex implements Comparable<HostConnectionAndHostIndex> {
 
@@ -321,6 +324,50 @@ public class HostConnectionPool {
     }
   }
 
+  public HankRangeResponse getRange(int domainId,
+                                    int partitionNumber,
+                                    ByteBuffer startKey,
+                                    ByteBuffer endKey,
+                                    int maxNumResults,
+                                    int maxNumTries) {
+    HostConnectionAndHostIndex connectionAndHostIndex = null;
+    int numTries = 0;
+    while (true) {
+      // Either get a connection to an arbitrary host, or get a connection skipping the
+      // previous host used (since it failed)
+      if (connectionAndHostIndex == null) {
+        connectionAndHostIndex = getConnectionToUse();
+      } else {
+        connectionAndHostIndex = getNextConnectionToUse(connectionAndHostIndex.hostIndex);
+      }
+      // If we couldn't find any available connection, return corresponding error response
+      if (connectionAndHostIndex == null) {
+        LOG.error("No connection is available. Giving up. Partition = " + partitionNumber);
+        return NO_CONNECTION_AVAILABLE_RANGE_RESPONSE;
+      } else {
+        // Perform query
+        try {
+          return connectionAndHostIndex.hostConnection.getRange(domainId, partitionNumber, startKey, endKey, maxNumResults);
+        } catch (IOException e) {
+          // In case of error, keep count of the number of times we retry
+          ++numTries;
+          if (numTries < maxNumTries) {
+            // Simply log the error and retry
+            LOG.error("Failed to perform query with host #" + connectionAndHostIndex.hostIndex
+                + ". Retrying. Try " + numTries + "/" + maxNumTries
+                + ", Partition = " + partitionNumber, e);
+          } else {
+            // If we have exhausted tries, return an exception response
+            LOG.error("Failed to perform query with host #" + connectionAndHostIndex.hostIndex
+                + ". Giving up. Try " + numTries + "/" + maxNumTries
+                + ", Partition = " + partitionNumber, e);
+            return HankRangeResponse.xception(HankException.failed_retries(maxNumTries));
+          }
+        }
+      }
+    }
+  }
+
   public static Integer getHostListShuffleSeed(Integer domainId, Integer partitionId) {
     return (domainId + 1) * (partitionId + 1);
   }
@@ -0,0 +1,178 @@
+/**
+ *  Copyright 2013 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.hank.client;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import com.liveramp.hank.generated.HankRangeResponse;
+import com.liveramp.hank.util.Bytes;
+
+/**
+ * Streams the entries of a key range of a domain in increasing key order.
+ * Keys are only ordered within partitions, so each partition is scanned
+ * separately, in chunks fetched lazily from its servers, and partition
+ * streams are merged on the client.
+ */
+public class RangeIterator {
+
+  // Fetches a chunk of the range of a given partition
+  interface ChunkFetcher {
+
+    public HankRangeResponse getRange(int partitionNumber,
+                                      ByteBuffer startKey,
+                                      ByteBuffer endKey,
+                                      int maxNumResults) throws IOException;
+  }
+
+  private static final Comparator<PartitionStream> PARTITION_STREAM_COMPARATOR = new Comparator<PartitionStream>() {
+    @Override
+    public int compare(PartitionStream a, PartitionStream b) {
+      return Bytes.compareLexicographicUnsigned(a.getKey(), b.getKey());
+    }
+  };
+
+  private final ChunkFetcher fetcher;
+  private final ByteBuffer endKey;
+  private final int chunkSize;
+  private final List<PartitionStream> partitionStreams;
+  private final PriorityQueue<PartitionStream> queue;
+  private boolean initialized = false;
+  private PartitionStream current = null;
+
+  private class PartitionStream {
+
+    private final int partitionNumber;
+    private ByteBuffer nextStartKey;
+    private List<ByteBuffer> keys = Collections.emptyList();
+    private List<ByteBuffer> values = Collections.emptyList();
+    private int index = -1;
+    private boolean exhausted = false;
+
+    private PartitionStream(int partitionNumber, ByteBuffer startKey) {
+      this.partitionNumber = partitionNumber;
+      this.nextStartKey = startKey;
+    }
+
+    // Move to the next entry, fetching the next chunk if needed. Return false when there is none left.
+    private boolean next() throws IOException {
+      if (++index < keys.size()) {
+        return true;
+      }
+      if (exhausted) {
+        return false;
+      }
+      HankRangeResponse response = fetcher.getRange(partitionNumber, nextStartKey, endKey, chunkSize);
+      if (response.is_set_xception()) {
+        throw new IOException("Failed to get range of partition " + partitionNumber + ": " + response.get_xception());
+      }
+      keys = response.get_range().get_keys();
+      values = response.get_range().get_values();
+      index = 0;
+      // A partial chunk is the last one
+      if (keys.size() < chunkSize) {
+        exhausted = true;
+      }
+      if (keys.isEmpty()) {
+        return false;
+      }
+      nextStartKey = getSuccessor(keys.get(keys.size() - 1));
+      return true;
+    }
+
+    private ByteBuffer getKey() {
+      return keys.get(index);
+    }
+
+    private ByteBuffer getValue() {
+      return values.get(index);
+    }
+  }
+
+  // Scan [startKey, endKey) of the given partitions. A null startKey means from the first key,
+  // and a null endKey means up to the last key.
+  RangeIterator(ChunkFetcher fetcher, int numPartitions, ByteBuffer startKey, ByteBuffer endKey, int chunkSize) {
+    if (chunkSize <= 0) {
+      throw new IllegalArgumentException("Range chunk size must be positive: " + chunkSize);
+    }
+    this.fetcher = fetcher;
+    this.endKey = endKey;
+    this.chunkSize = chunkSize;
+    this.partitionStreams = new ArrayList<PartitionStream>(numPartitions);
+    for (int partitionNumber = 0; partitionNumber < numPartitions; ++partitionNumber) {
+      partitionStreams.add(new PartitionStream(partitionNumber, startKey));
+    }
+    this.queue = new PriorityQueue<PartitionStream>(Math.max(1, numPartitions), PARTITION_STREAM_COMPARATOR);
+  }
+
+  // Move to the next entry. Return false when there is none left.
+  public boolean next() throws IOException {
+    if (!initialized) {
+      // Fetch the first chunk of every partition
+      for (PartitionStream partitionStream : partitionStreams) {
+        if (partitionStream.next()) {
+          queue.add(partitionStream);
+        }
+      }
+      initialized = true;
+    } else if (current != null && current.next()) {
+      queue.add(current);
+    }
+    current = queue.poll();
+    return current != null;
+  }
+
+  public ByteBuffer getKey() {
+    return current == null ? null : current.getKey();
+  }
+
+  public ByteBuffer getValue() {
+    return current == null ? null : current.getValue();
+  }
+
+  // Smallest key that is greater than the given key: the key followed by a zero byte
+  static ByteBuffer getSuccessor(ByteBuffer key) {
+    ByteBuffer result = ByteBuffer.allocate(key.remaining() + 1);
+    result.put(key.duplicate());
+    result.put((byte) 0);
+    result.flip();
+    return result;
+  }
+
+  // Smallest key that is greater than all keys starting with the given prefix,
+  // or null if there is none (the prefix is made of 0xff bytes only)
+  static ByteBuffer getPrefixEndKey(ByteBuffer prefix) {
+    for (int i = prefix.remaining() - 1; i >= 0; --i) {
+      byte b = prefix.get(prefix.position() + i);
+      if (b != (byte) 0xff) {
+        ByteBuffer result = ByteBuffer.allocate(i + 1);
+        ByteBuffer head = prefix.duplicate();
+        head.limit(prefix.position() + i);
+        result.put(head);
+        result.put((byte) (b + 1));
+        result.flip();
+        return result;
+      }
+    }
+    return null;
+  }
+}
@@ -49,6 +49,8 @@ import com.liveramp.hank.coordinator.mock.MockDomain;
 import com.liveramp.hank.coordinator.mock.MockDomainGroup;
 import com.liveramp.hank.generated.HankBulkResponse;
 import com.liveramp.hank.generated.HankException;
+import com.liveramp.hank.generated.HankRange;
+import com.liveramp.hank.generated.HankRangeResponse;
 import com.liveramp.hank.generated.HankResponse;
 import com.liveramp.hank.generated.PartitionServer;
 import com.liveramp.hank.test.BaseTestCase;
@@ -116,6 +118,13 @@ public class TestHankSmartClient extends BaseTestCase {
       return bulkResponse;
     }
 
+    @Override
+    public HankRangeResponse getRange(int domainId, int partitionNumber, ByteBuffer startKey, ByteBuffer endKey, int maxNumResults) throws TException {
+      applyMode();
+      ++numRequests;
+      return HankRangeResponse.range(new HankRange(new ArrayList<ByteBuffer>(), new ArrayList<ByteBuffer>()));
+    }
+
     public int getNumRequests() {
       return numRequests;
     }
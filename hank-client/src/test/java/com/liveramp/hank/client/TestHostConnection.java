@@ -34,6 +34,8 @@ import com.liveramp.hank.coordinator.Host;
 import com.liveramp.hank.coordinator.HostState;
 import com.liveramp.hank.coordinator.PartitionServerAddress;
 import com.liveramp.hank.generated.HankBulkResponse;
+import com.liveramp.hank.generated.HankRange;
+import com.liveramp.hank.generated.HankRangeResponse;
 import com.liveramp.hank.generated.HankResponse;
 import com.liveramp.hank.partition_server.IfaceWithShutdown;
 import com.liveramp.hank.test.BaseTestCase;
@@ -54,6 +56,8 @@ public class TestHostConnection extends BaseTestCase {
 
   private static final HankResponse RESPONSE_1 = HankResponse.value(KEY_1);
   private static final HankBulkResponse RESPONSE_BULK_1 = HankBulkResponse.responses(Collections.singletonList(HankResponse.value(KEY_1)));
+  private static final HankRangeResponse RESPONSE_RANGE_1 = HankRangeResponse.range(
+      new HankRange(Collections.singletonList(KEY_1), Collections.singletonList(KEY_1)));
   private static final IfaceWithShutdown mockIface = new IfaceWithShutdown() {
     @Override
     public void shutDown() throws InterruptedException {
@@ -68,6 +72,11 @@ public class TestHostConnection extends BaseTestCase {
     public HankBulkResponse getBulk(int domain_id, List<ByteBuffer> keys) throws TException {
       return RESPONSE_BULK_1;
     }
+
+    @Override
+    public HankRangeResponse getRange(int domain_id, int partition_number, ByteBuffer start_key, ByteBuffer end_key, int max_num_results) throws TException {
+      return RESPONSE_RANGE_1;
+    }
   };
 
   private Thread mockPartitionServerThread;
@@ -124,6 +133,7 @@ public class TestHostConnection extends BaseTestCase {
     startMockPartitionServerThread(mockIface, 1);
     assertEquals(RESPONSE_1, connection.get(0, KEY_1));
     assertEquals(RESPONSE_BULK_1, connection.getBulk(0, Collections.singletonList(KEY_1)));
+    assertEquals(RESPONSE_RANGE_1, connection.getRange(0, 0, KEY_1, null, 10));
 
     // Should try to query an "offline" host only if that is the only option
     mockHost.setState(HostState.OFFLINE);
@@ -159,6 +169,11 @@ public class TestHostConnection extends BaseTestCase {
         }
         return null;
       }
+
+      @Override
+      public HankRangeResponse getRange(int domain_id, int partition_number, ByteBuffer start_key, ByteBuffer end_key, int max_num_results) throws TException {
+        return null;
+      }
     };
 
     // Start server
@@ -23,6 +23,7 @@ import com.liveramp.hank.coordinator.PartitionServerAddress;
 import com.liveramp.hank.coordinator.mock.MockDomain;
 import com.liveramp.hank.generated.HankBulkResponse;
 import com.liveramp.hank.generated.HankException;
+import com.liveramp.hank.generated.HankRangeResponse;
 import com.liveramp.hank.generated.HankResponse;
 import com.liveramp.hank.partition_server.IfaceWithShutdown;
 import com.liveramp.hank.test.BaseTestCase;
@@ -89,6 +90,11 @@ public class TestHostConnectionPool extends BaseTestCase {
     public HankBulkResponse getBulk(int domain_id, List<ByteBuffer> keys) throws TException {
       return null;
     }
+
+    @Override
+    public HankRangeResponse getRange(int domain_id, int partition_number, ByteBuffer start_key, ByteBuffer end_key, int max_num_results) throws TException {
+      return null;
+    }
   }
 
   private static class Response1Iface extends MockIface {
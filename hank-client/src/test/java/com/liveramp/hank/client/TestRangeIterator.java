@@ -0,0 +1,132 @@
+/**
+ *  Copyright 2013 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.hank.client;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.liveramp.hank.generated.HankException;
+import com.liveramp.hank.generated.HankRange;
+import com.liveramp.hank.generated.HankRangeResponse;
+import com.liveramp.hank.test.BaseTestCase;
+import com.liveramp.hank.util.Bytes;
+
+public class TestRangeIterator extends BaseTestCase {
+
+  private static ByteBuffer bytes(String s) {
+    return ByteBuffer.wrap(s.getBytes());
+  }
+
+  // Serves ranges of in memory partitions, and counts fetched chunks
+  private static class MockChunkFetcher implements RangeIterator.ChunkFetcher {
+
+    private final List<TreeMap<String, String>> partitions = new ArrayList<TreeMap<String, String>>();
+    private int numChunks = 0;
+    private boolean failing = false;
+
+    private MockChunkFetcher(int numPartitions, String... keys) {
+      for (int i = 0; i < numPartitions; ++i) {
+        partitions.add(new TreeMap<String, String>());
+      }
+      for (String key : keys) {
+        partitions.get(Math.abs(key.hashCode()) % numPartitions).put(key, "v" + key);
+      }
+    }
+
+    @Override
+    public HankRangeResponse getRange(int partitionNumber, ByteBuffer startKey, ByteBuffer endKey, int maxNumResults) throws IOException {
+      ++numChunks;
+      if (failing) {
+        return HankRangeResponse.xception(HankException.internal_error("failing"));
+      }
+      List<ByteBuffer> keys = new ArrayList<ByteBuffer>();
+      List<ByteBuffer> values = new ArrayList<ByteBuffer>();
+      for (Map.Entry<String, String> entry : partitions.get(partitionNumber).entrySet()) {
+        ByteBuffer key = bytes(entry.getKey());
+        if ((startKey == null || Bytes.compareLexicographicUnsigned(key, startKey) >= 0)
+            && (endKey == null || Bytes.compareLexicographicUnsigned(key, endKey) < 0)
+            && keys.size() < maxNumResults) {
+          keys.add(key);
+          values.add(bytes(entry.getValue()));
+        }
+      }
+      return HankRangeResponse.range(new HankRange(keys, values));
+    }
+  }
+
+  private static List<String> scan(RangeIterator iterator) throws IOException {
+    List<String> result = new ArrayList<String>();
+    while (iterator.next()) {
+      String key = new String(iterator.getKey().array(), iterator.getKey().arrayOffset() + iterator.getKey().position(),
+          iterator.getKey().remaining());
+      assertEquals(bytes("v" + key), iterator.getValue());
+      result.add(key);
+    }
+    return result;
+  }
+
+  private static void assertKeys(List<String> actual, String... expected) {
+    assertEquals(expected.length, actual.size());
+    for (int i = 0; i < expected.length; ++i) {
+      assertEquals(expected[i], actual.get(i));
+    }
+  }
+
+  public void testMergePartitions() throws IOException {
+    MockChunkFetcher fetcher = new MockChunkFetcher(3, "a", "ab", "abc", "abd", "b", "ba", "c", "d", "e");
+    assertKeys(scan(new RangeIterator(fetcher, 3, null, null, 2)), "a", "ab", "abc", "abd", "b", "ba", "c", "d", "e");
+    assertKeys(scan(new RangeIterator(fetcher, 3, bytes("ab"), bytes("c"), 1)), "ab", "abc", "abd", "b", "ba");
+    assertKeys(scan(new RangeIterator(fetcher, 3, bytes("f"), null, 10)));
+  }
+
+  public void testChunks() throws IOException {
+    MockChunkFetcher fetcher = new MockChunkFetcher(1, "a", "b", "c", "d", "e");
+    // Three chunks of 2, the last one being partial
+    assertEquals(5, scan(new RangeIterator(fetcher, 1, null, null, 2)).size());
+    assertEquals(3, fetcher.numChunks);
+    // Nothing is fetched until the first call to next()
+    fetcher.numChunks = 0;
+    new RangeIterator(fetcher, 1, null, null, 2);
+    assertEquals(0, fetcher.numChunks);
+  }
+
+  public void testPrefix() throws IOException {
+    MockChunkFetcher fetcher = new MockChunkFetcher(2, "a", "ab", "abc", "abd", "ac", "b");
+    assertKeys(scan(new RangeIterator(fetcher, 2, bytes("ab"), RangeIterator.getPrefixEndKey(bytes("ab")), 10)),
+        "ab", "abc", "abd");
+
+    assertEquals(bytes("ac"), RangeIterator.getPrefixEndKey(bytes("ab")));
+    assertEquals(ByteBuffer.wrap(new byte[]{1, 3}), RangeIterator.getPrefixEndKey(ByteBuffer.wrap(new byte[]{1, 2, (byte) 0xff})));
+    assertNull(RangeIterator.getPrefixEndKey(ByteBuffer.wrap(new byte[]{(byte) 0xff, (byte) 0xff})));
+    assertNull(RangeIterator.getPrefixEndKey(ByteBuffer.wrap(new byte[0])));
+  }
+
+  public void testFailure() throws IOException {
+    MockChunkFetcher fetcher = new MockChunkFetcher(1, "a");
+    fetcher.failing = true;
+    try {
+      new RangeIterator(fetcher, 1, null, null, 10).next();
+      fail("Should fail");
+    } catch (IOException e) {
+      // expected
+    }
+  }
+}
@@ -166,6 +166,42 @@ public abstract class YamlConfigurator implements Serializable {
     }
   }
 
+  // Accepts both Integer and Long options, since the YAML parser picks the smallest type that fits
+  protected Long getRequiredLong(String... optionPath) throws InvalidConfigurationException {
+    Object option = getRequiredOption(optionPath);
+    if (option != null && !(option instanceof Integer) && !(option instanceof Long)) {
+      throw new InvalidConfigurationException("Option '" + Arrays.toString(optionPath) + "' must be of type Long in configuration '" + contentSource + "'");
+    }
+    if (option == null) {
+      return null;
+    }
+    return ((Number) option).longValue();
+  }
+
+  protected Long getOptionalLong(String... optionPath) {
+    try {
+      return getRequiredLong(optionPath);
+    } catch (InvalidConfigurationException e) {
+      return null;
+    }
+  }
+
+  protected Boolean getRequiredBoolean(String... optionPath) throws InvalidConfigurationException {
+    Object option = getRequiredOption(optionPath);
+    if (option != null && !(option instanceof Boolean)) {
+      throw new InvalidConfigurationException("Option '" + Arrays.toString(optionPath) + "' must be of type Boolean in configuration '" + contentSource + "'");
+    }
+    return (Boolean) option;
+  }
+
+  protected Boolean getOptionalBoolean(String... optionPath) {
+    try {
+      return getRequiredBoolean(optionPath);
+    } catch (InvalidConfigurationException e) {
+      return null;
+    }
+  }
+
   protected List<String> getRequiredStringList(String... optionPath) throws InvalidConfigurationException {
     Object option = getRequiredOption(optionPath);
     if (option != null && !(option instanceof List)) {
@@ -18,5 +18,6 @@ package com.liveramp.hank.coordinator;
 public enum HostCommand {
   SERVE_DATA,
   GO_TO_IDLE,
-  EXECUTE_UPDATE
+  EXECUTE_UPDATE,
+  EXECUTE_LIVE_UPDATE
 }
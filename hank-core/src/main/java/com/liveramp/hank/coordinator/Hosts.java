@@ -30,6 +30,7 @@ public final class Hosts {
   private static final String UPDATE_ETA_STATISTIC_KEY = "update_eta";
   private static final String FILESYSTEM_STATISTICS_KEY = "filesystem_statistics";
   private static final String RUNTIME_STATISTICS_KEY = "runtime_statistics";
+  private static final String PREFETCH_PROGRESS_STATISTIC_KEY = "prefetch_progress";
 
   private Hosts() {
   }
@@ -211,6 +212,28 @@ public final class Hosts {
     }
   }
 
+  public static void setPrefetchProgress(Host host, PrefetchProgress prefetchProgress) throws IOException {
+    host.setEphemeralStatistic(PREFETCH_PROGRESS_STATISTIC_KEY, prefetchProgress.toString());
+  }
+
+  // Return null if the host is not prefetching
+  public static PrefetchProgress computePrefetchProgress(Host host) {
+    try {
+      String prefetchProgress = host.getStatistic(PREFETCH_PROGRESS_STATISTIC_KEY);
+      if (prefetchProgress != null) {
+        return PrefetchProgress.parse(prefetchProgress);
+      } else {
+        return null;
+      }
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  public static void deletePrefetchProgress(Host host) throws IOException {
+    host.deleteStatistic(PREFETCH_PROGRESS_STATISTIC_KEY);
+  }
+
   public static Map<String, FilesystemStatisticsAggregator> computeFilesystemStatistics(Host host) throws IOException {
     String filesystemsStatistics = host.getStatistic(FILESYSTEM_STATISTICS_KEY);
 
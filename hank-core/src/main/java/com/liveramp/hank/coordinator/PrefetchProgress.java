@@ -0,0 +1,60 @@
+/**
+ *  Copyright 2013 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.hank.coordinator;
+
+public class PrefetchProgress {
+
+  private final int numPartitions;
+  private final int numPartitionsPrefetched;
+  private final long numBytesFetched;
+
+  public PrefetchProgress(int numPartitions, int numPartitionsPrefetched, long numBytesFetched) {
+    this.numPartitions = numPartitions;
+    this.numPartitionsPrefetched = numPartitionsPrefetched;
+    this.numBytesFetched = numBytesFetched;
+  }
+
+  public int getNumPartitions() {
+    return numPartitions;
+  }
+
+  public int getNumPartitionsPrefetched() {
+    return numPartitionsPrefetched;
+  }
+
+  public long getNumBytesFetched() {
+    return numBytesFetched;
+  }
+
+  public float getPrefetchProgress() {
+    if (numPartitions <= 0) {
+      return 0;
+    } else {
+      return (float) numPartitionsPrefetched / (float) numPartitions;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return numPartitions + " " + numPartitionsPrefetched + " " + numBytesFetched;
+  }
+
+  public static PrefetchProgress parse(String str) {
+    String[] tokens = str.split(" ");
+    return new PrefetchProgress(Integer.parseInt(tokens[0]), Integer.parseInt(tokens[1]), Long.parseLong(tokens[2]));
+  }
+}
@@ -355,15 +355,15 @@ public class DomainGroupMetadata implements org.apache.thrift.TBase<DomainGroupM
           case 1: // DOMAIN_VERSIONS
             if (schemeField.type == org.apache.thrift.protocol.TType.MAP) {
               {
-                org.apache.thrift.protocol.TMap _map18 = iprot.readMapBegin();
-                struct.domain_versions = new HashMap<Integer,Integer>(2*_map18.size);
-                for (int _i19 = 0; _i19 < _map18.size; ++_i19)
+                org.apache.thrift.protocol.TMap _map34 = iprot.readMapBegin();
+                struct.domain_versions = new HashMap<Integer,Integer>(2*_map34.size);
+                for (int _i35 = 0; _i35 < _map34.size; ++_i35)
                 {
-                  int _key20; // required
-                  int _val21; // required
-                  _key20 = iprot.readI32();
-                  _val21 = iprot.readI32();
-                  struct.domain_versions.put(_key20, _val21);
+                  int _key36; // required
+                  int _val37; // required
+                  _key36 = iprot.readI32();
+                  _val37 = iprot.readI32();
+                  struct.domain_versions.put(_key36, _val37);
                 }
                 iprot.readMapEnd();
               }
@@ -391,10 +391,10 @@ public class DomainGroupMetadata implements org.apache.thrift.TBase<DomainGroupM
         oprot.writeFieldBegin(DOMAIN_VERSIONS_FIELD_DESC);
         {
           oprot.writeMapBegin(new org.apache.thrift.protocol.TMap(org.apache.thrift.protocol.TType.I32, org.apache.thrift.protocol.TType.I32, struct.domain_versions.size()));
-          for (Map.Entry<Integer, Integer> _iter22 : struct.domain_versions.entrySet())
+          for (Map.Entry<Integer, Integer> _iter38 : struct.domain_versions.entrySet())
           {
-            oprot.writeI32(_iter22.getKey());
-            oprot.writeI32(_iter22.getValue());
+            oprot.writeI32(_iter38.getKey());
+            oprot.writeI32(_iter38.getValue());
           }
           oprot.writeMapEnd();
         }
@@ -419,10 +419,10 @@ public class DomainGroupMetadata implements org.apache.thrift.TBase<DomainGroupM
       TTupleProtocol oprot = (TTupleProtocol) prot;
       {
         oprot.writeI32(struct.domain_versions.size());
-        for (Map.Entry<Integer, Integer> _iter23 : struct.domain_versions.entrySet())
+        for (Map.Entry<Integer, Integer> _iter39 : struct.domain_versions.entrySet())
         {
-          oprot.writeI32(_iter23.getKey());
-          oprot.writeI32(_iter23.getValue());
+          oprot.writeI32(_iter39.getKey());
+          oprot.writeI32(_iter39.getValue());
         }
       }
     }
@@ -431,15 +431,15 @@ public class DomainGroupMetadata implements org.apache.thrift.TBase<DomainGroupM
     public void read(org.apache.thrift.protocol.TProtocol prot, DomainGroupMetadata struct) throws org.apache.thrift.TException {
       TTupleProtocol iprot = (TTupleProtocol) prot;
       {
-        org.apache.thrift.protocol.TMap _map24 = new org.apache.thrift.protocol.TMap(org.apache.thrift.protocol.TType.I32, org.apache.thrift.protocol.TType.I32, iprot.readI32());
-        struct.domain_versions = new HashMap<Integer,Integer>(2*_map24.size);
-        for (int _i25 = 0; _i25 < _map24.size; ++_i25)
+        org.apache.thrift.protocol.TMap _map40 = new org.apache.thrift.protocol.TMap(org.apache.thrift.protocol.TType.I32, org.apache.thrift.protocol.TType.I32, iprot.readI32());
+        struct.domain_versions = new HashMap<Integer,Integer>(2*_map40.size);
+        for (int _i41 = 0; _i41 < _map40.size; ++_i41)
         {
-          int _key26; // required
-          int _val27; // required
-          _key26 = iprot.readI32();
-          _val27 = iprot.readI32();
-          struct.domain_versions.put(_key26, _val27);
+          int _key42; // required
+          int _val43; // required
+          _key42 = iprot.readI32();
+          _val43 = iprot.readI32();
+          struct.domain_versions.put(_key42, _val43);
         }
       }
       struct.set_domain_versions_isSet(true);
@@ -618,16 +618,16 @@ public class DomainVersionMetadata implements org.apache.thrift.TBase<DomainVers
           case 2: // PARTITIONS
             if (schemeField.type == org.apache.thrift.protocol.TType.MAP) {
               {
-                org.apache.thrift.protocol.TMap _map8 = iprot.readMapBegin();
-                struct.partitions = new HashMap<Integer,PartitionMetadata>(2*_map8.size);
-                for (int _i9 = 0; _i9 < _map8.size; ++_i9)
+                org.apache.thrift.protocol.TMap _map24 = iprot.readMapBegin();
+                struct.partitions = new HashMap<Integer,PartitionMetadata>(2*_map24.size);
+                for (int _i25 = 0; _i25 < _map24.size; ++_i25)
                 {
-                  int _key10; // required
-                  PartitionMetadata _val11; // optional
-                  _key10 = iprot.readI32();
-                  _val11 = new PartitionMetadata();
-                  _val11.read(iprot);
-                  struct.partitions.put(_key10, _val11);
+                  int _key26; // required
+                  PartitionMetadata _val27; // optional
+                  _key26 = iprot.readI32();
+                  _val27 = new PartitionMetadata();
+                  _val27.read(iprot);
+                  struct.partitions.put(_key26, _val27);
                 }
                 iprot.readMapEnd();
               }
@@ -682,10 +682,10 @@ public class DomainVersionMetadata implements org.apache.thrift.TBase<DomainVers
         oprot.writeFieldBegin(PARTITIONS_FIELD_DESC);
         {
           oprot.writeMapBegin(new org.apache.thrift.protocol.TMap(org.apache.thrift.protocol.TType.I32, org.apache.thrift.protocol.TType.STRUCT, struct.partitions.size()));
-          for (Map.Entry<Integer, PartitionMetadata> _iter12 : struct.partitions.entrySet())
+          for (Map.Entry<Integer, PartitionMetadata> _iter28 : struct.partitions.entrySet())
           {
-            oprot.writeI32(_iter12.getKey());
-            _iter12.getValue().write(oprot);
+            oprot.writeI32(_iter28.getKey());
+            _iter28.getValue().write(oprot);
           }
           oprot.writeMapEnd();
         }
@@ -716,10 +716,10 @@ public class DomainVersionMetadata implements org.apache.thrift.TBase<DomainVers
       TTupleProtocol oprot = (TTupleProtocol) prot;
       {
         oprot.writeI32(struct.partitions.size());
-        for (Map.Entry<Integer, PartitionMetadata> _iter13 : struct.partitions.entrySet())
+        for (Map.Entry<Integer, PartitionMetadata> _iter29 : struct.partitions.entrySet())
         {
-          oprot.writeI32(_iter13.getKey());
-          _iter13.getValue().write(oprot);
+          oprot.writeI32(_iter29.getKey());
+          _iter29.getValue().write(oprot);
         }
       }
       oprot.writeBool(struct.defunct);
@@ -738,16 +738,16 @@ public class DomainVersionMetadata implements org.apache.thrift.TBase<DomainVers
     public void read(org.apache.thrift.protocol.TProtocol prot, DomainVersionMetadata struct) throws org.apache.thrift.TException {
       TTupleProtocol iprot = (TTupleProtocol) prot;
       {
-        org.apache.thrift.protocol.TMap _map14 = new org.apache.thrift.protocol.TMap(org.apache.thrift.protocol.TType.I32, org.apache.thrift.protocol.TType.STRUCT, iprot.readI32());
-        struct.partitions = new HashMap<Integer,PartitionMetadata>(2*_map14.size);
-        for (int _i15 = 0; _i15 < _map14.size; ++_i15)
+        org.apache.thrift.protocol.TMap _map30 = new org.apache.thrift.protocol.TMap(org.apache.thrift.protocol.TType.I32, org.apache.thrift.protocol.TType.STRUCT, iprot.readI32());
+        struct.partitions = new HashMap<Integer,PartitionMetadata>(2*_map30.size);
+        for (int _i31 = 0; _i31 < _map30.size; ++_i31)
         {
-          int _key16; // required
-          PartitionMetadata _val17; // optional
-          _key16 = iprot.readI32();
-          _val17 = new PartitionMetadata();
-          _val17.read(iprot);
-          struct.partitions.put(_key16, _val17);
+          int _key32; // required
+          PartitionMetadata _val33; // optional
+          _key32 = iprot.readI32();
+          _val33 = new PartitionMetadata();
+          _val33.read(iprot);
+          struct.partitions.put(_key32, _val33);
         }
       }
       struct.set_partitions_isSet(true);
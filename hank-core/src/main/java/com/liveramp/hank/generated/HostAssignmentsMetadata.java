@@ -355,16 +355,16 @@ public class HostAssignmentsMetadata implements org.apache.thrift.TBase<HostAssi
           case 1: // DOMAINS
             if (schemeField.type == org.apache.thrift.protocol.TType.MAP) {
               {
-                org.apache.thrift.protocol.TMap _map38 = iprot.readMapBegin();
-                struct.domains = new HashMap<Integer,HostDomainMetadata>(2*_map38.size);
-                for (int _i39 = 0; _i39 < _map38.size; ++_i39)
+                org.apache.thrift.protocol.TMap _map54 = iprot.readMapBegin();
+                struct.domains = new HashMap<Integer,HostDomainMetadata>(2*_map54.size);
+                for (int _i55 = 0; _i55 < _map54.size; ++_i55)
                 {
-                  int _key40; // required
-                  HostDomainMetadata _val41; // optional
-                  _key40 = iprot.readI32();
-                  _val41 = new HostDomainMetadata();
-                  _val41.read(iprot);
-                  struct.domains.put(_key40, _val41);
+                  int _key56; // required
+                  HostDomainMetadata _val57; // optional
+                  _key56 = iprot.readI32();
+                  _val57 = new HostDomainMetadata();
+                  _val57.read(iprot);
+                  struct.domains.put(_key56, _val57);
                 }
                 iprot.readMapEnd();
               }
@@ -392,10 +392,10 @@ public class HostAssignmentsMetadata implements org.apache.thrift.TBase<HostAssi
         oprot.writeFieldBegin(DOMAINS_FIELD_DESC);
         {
           oprot.writeMapBegin(new org.apache.thrift.protocol.TMap(org.apache.thrift.protocol.TType.I32, org.apache.thrift.protocol.TType.STRUCT, struct.domains.size()));
-          for (Map.Entry<Integer, HostDomainMetadata> _iter42 : struct.domains.entrySet())
+          for (Map.Entry<Integer, HostDomainMetadata> _iter58 : struct.domains.entrySet())
           {
-            oprot.writeI32(_iter42.getKey());
-            _iter42.getValue().write(oprot);
+            oprot.writeI32(_iter58.getKey());
+            _iter58.getValue().write(oprot);
           }
           oprot.writeMapEnd();
         }
@@ -420,10 +420,10 @@ public class HostAssignmentsMetadata implements org.apache.thrift.TBase<HostAssi
       TTupleProtocol oprot = (TTupleProtocol) prot;
       {
         oprot.writeI32(struct.domains.size());
-        for (Map.Entry<Integer, HostDomainMetadata> _iter43 : struct.domains.entrySet())
+        for (Map.Entry<Integer, HostDomainMetadata> _iter59 : struct.domains.entrySet())
         {
-          oprot.writeI32(_iter43.getKey());
-          _iter43.getValue().write(oprot);
+          oprot.writeI32(_iter59.getKey());
+          _iter59.getValue().write(oprot);
         }
       }
     }
@@ -432,16 +432,16 @@ public class HostAssignmentsMetadata implements org.apache.thrift.TBase<HostAssi
     public void read(org.apache.thrift.protocol.TProtocol prot, HostAssignmentsMetadata struct) throws org.apache.thrift.TException {
       TTupleProtocol iprot = (TTupleProtocol) prot;
       {
-        org.apache.thrift.protocol.TMap _map44 = new org.apache.thrift.protocol.TMap(org.apache.thrift.protocol.TType.I32, org.apache.thrift.protocol.TType.STRUCT, iprot.readI32());
-        struct.domains = new HashMap<Integer,HostDomainMetadata>(2*_map44.size);
-        for (int _i45 = 0; _i45 < _map44.size; ++_i45)
+        org.apache.thrift.protocol.TMap _map60 = new org.apache.thrift.protocol.TMap(org.apache.thrift.protocol.TType.I32, org.apache.thrift.protocol.TType.STRUCT, iprot.readI32());
+        struct.domains = new HashMap<Integer,HostDomainMetadata>(2*_map60.size);
+        for (int _i61 = 0; _i61 < _map60.size; ++_i61)
         {
-          int _key46; // required
-          HostDomainMetadata _val47; // optional
-          _key46 = iprot.readI32();
-          _val47 = new HostDomainMetadata();
-          _val47.read(iprot);
-          struct.domains.put(_key46, _val47);
+          int _key62; // required
+          HostDomainMetadata _val63; // optional
+          _key62 = iprot.readI32();
+          _val63 = new HostDomainMetadata();
+          _val63.read(iprot);
+          struct.domains.put(_key62, _val63);
         }
       }
       struct.set_domains_isSet(true);
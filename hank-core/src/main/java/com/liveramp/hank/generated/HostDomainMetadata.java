@@ -355,16 +355,16 @@ public class HostDomainMetadata implements org.apache.thrift.TBase<HostDomainMet
           case 1: // PARTITIONS
             if (schemeField.type == org.apache.thrift.protocol.TType.MAP) {
               {
-                org.apache.thrift.protocol.TMap _map28 = iprot.readMapBegin();
-                struct.partitions = new HashMap<Integer,HostDomainPartitionMetadata>(2*_map28.size);
-                for (int _i29 = 0; _i29 < _map28.size; ++_i29)
+                org.apache.thrift.protocol.TMap _map44 = iprot.readMapBegin();
+                struct.partitions = new HashMap<Integer,HostDomainPartitionMetadata>(2*_map44.size);
+                for (int _i45 = 0; _i45 < _map44.size; ++_i45)
                 {
-                  int _key30; // required
-                  HostDomainPartitionMetadata _val31; // required
-                  _key30 = iprot.readI32();
-                  _val31 = new HostDomainPartitionMetadata();
-                  _val31.read(iprot);
-                  struct.partitions.put(_key30, _val31);
+                  int _key46; // required
+                  HostDomainPartitionMetadata _val47; // required
+                  _key46 = iprot.readI32();
+                  _val47 = new HostDomainPartitionMetadata();
+                  _val47.read(iprot);
+                  struct.partitions.put(_key46, _val47);
                 }
                 iprot.readMapEnd();
               }
@@ -392,10 +392,10 @@ public class HostDomainMetadata implements org.apache.thrift.TBase<HostDomainMet
         oprot.writeFieldBegin(PARTITIONS_FIELD_DESC);
         {
           oprot.writeMapBegin(new org.apache.thrift.protocol.TMap(org.apache.thrift.protocol.TType.I32, org.apache.thrift.protocol.TType.STRUCT, struct.partitions.size()));
-          for (Map.Entry<Integer, HostDomainPartitionMetadata> _iter32 : struct.partitions.entrySet())
+          for (Map.Entry<Integer, HostDomainPartitionMetadata> _iter48 : struct.partitions.entrySet())
           {
-            oprot.writeI32(_iter32.getKey());
-            _iter32.getValue().write(oprot);
+            oprot.writeI32(_iter48.getKey());
+            _iter48.getValue().write(oprot);
           }
           oprot.writeMapEnd();
         }
@@ -420,10 +420,10 @@ public class HostDomainMetadata implements org.apache.thrift.TBase<HostDomainMet
       TTupleProtocol oprot = (TTupleProtocol) prot;
       {
         oprot.writeI32(struct.partitions.size());
-        for (Map.Entry<Integer, HostDomainPartitionMetadata> _iter33 : struct.partitions.entrySet())
+        for (Map.Entry<Integer, HostDomainPartitionMetadata> _iter49 : struct.partitions.entrySet())
         {
-          oprot.writeI32(_iter33.getKey());
-          _iter33.getValue().write(oprot);
+          oprot.writeI32(_iter49.getKey());
+          _iter49.getValue().write(oprot);
         }
       }
     }
@@ -432,16 +432,16 @@ public class HostDomainMetadata implements org.apache.thrift.TBase<HostDomainMet
     public void read(org.apache.thrift.protocol.TProtocol prot, HostDomainMetadata struct) throws org.apache.thrift.TException {
       TTupleProtocol iprot = (TTupleProtocol) prot;
       {
-        org.apache.thrift.protocol.TMap _map34 = new org.apache.thrift.protocol.TMap(org.apache.thrift.protocol.TType.I32, org.apache.thrift.protocol.TType.STRUCT, iprot.readI32());
-        struct.partitions = new HashMap<Integer,HostDomainPartitionMetadata>(2*_map34.size);
-        for (int _i35 = 0; _i35 < _map34.size; ++_i35)
+        org.apache.thrift.protocol.TMap _map50 = new org.apache.thrift.protocol.TMap(org.apache.thrift.protocol.TType.I32, org.apache.thrift.protocol.TType.STRUCT, iprot.readI32());
+        struct.partitions = new HashMap<Integer,HostDomainPartitionMetadata>(2*_map50.size);
+        for (int _i51 = 0; _i51 < _map50.size; ++_i51)
         {
-          int _key36; // required
-          HostDomainPartitionMetadata _val37; // required
-          _key36 = iprot.readI32();
-          _val37 = new HostDomainPartitionMetadata();
-          _val37.read(iprot);
-          struct.partitions.put(_key36, _val37);
+          int _key52; // required
+          HostDomainPartitionMetadata _val53; // required
+          _key52 = iprot.readI32();
+          _val53 = new HostDomainPartitionMetadata();
+          _val53.read(iprot);
+          struct.partitions.put(_key52, _val53);
         }
       }
       struct.set_partitions_isSet(true);
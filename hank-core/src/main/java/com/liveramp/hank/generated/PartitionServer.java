@@ -39,6 +39,8 @@ public class PartitionServer {
 
     public HankBulkResponse getBulk(int domain_id, List<ByteBuffer> keys) throws org.apache.thrift.TException;
 
+    public HankRangeResponse getRange(int domain_id, int partition_number, ByteBuffer start_key, ByteBuffer end_key, int max_num_results) throws org.apache.thrift.TException;
+
   }
 
   public interface AsyncIface {
@@ -47,6 +49,8 @@ public class PartitionServer {
 
     public void getBulk(int domain_id, List<ByteBuffer> keys, org.apache.thrift.async.AsyncMethodCallback<AsyncClient.getBulk_call> resultHandler) throws org.apache.thrift.TException;
 
+    public void getRange(int domain_id, int partition_number, ByteBuffer start_key, ByteBuffer end_key, int max_num_results, org.apache.thrift.async.AsyncMethodCallback<AsyncClient.getRange_call> resultHandler) throws org.apache.thrift.TException;
+
   }
 
   public static class Client extends org.apache.thrift.TServiceClient implements Iface {
@@ -117,6 +121,33 @@ public class PartitionServer {
       throw new org.apache.thrift.TApplicationException(org.apache.thrift.TApplicationException.MISSING_RESULT, "getBulk failed: unknown result");
     }
 
+    public HankRangeResponse getRange(int domain_id, int partition_number, ByteBuffer start_key, ByteBuffer end_key, int max_num_results) throws org.apache.thrift.TException
+    {
+      send_getRange(domain_id, partition_number, start_key, end_key, max_num_results);
+      return recv_getRange();
+    }
+
+    public void send_getRange(int domain_id, int partition_number, ByteBuffer start_key, ByteBuffer end_key, int max_num_results) throws org.apache.thrift.TException
+    {
+      getRange_args args = new getRange_args();
+      args.set_domain_id(domain_id);
+      args.set_partition_number(partition_number);
+      args.set_start_key(start_key);
+      args.set_end_key(end_key);
+      args.set_max_num_results(max_num_results);
+      sendBase("getRange", args);
+    }
+
+    public HankRangeResponse recv_getRange() throws org.apache.thrift.TException
+    {
+      getRange_result result = new getRange_result();
+      receiveBase(result, "getRange");
+      if (result.is_set_success()) {
+        return result.success;
+      }
+      throw new org.apache.thrift.TApplicationException(org.apache.thrift.TApplicationException.MISSING_RESULT, "getRange failed: unknown result");
+    }
+
   }
   public static class AsyncClient extends org.apache.thrift.async.TAsyncClient implements AsyncIface {
     public static class Factory implements org.apache.thrift.async.TAsyncClientFactory<AsyncClient> {
@@ -205,6 +236,50 @@ public class PartitionServer {
       }
     }
 
+    public void getRange(int domain_id, int partition_number, ByteBuffer start_key, ByteBuffer end_key, int max_num_results, org.apache.thrift.async.AsyncMethodCallback<getRange_call> resultHandler) throws org.apache.thrift.TException {
+      checkReady();
+      getRange_call method_call = new getRange_call(domain_id, partition_number, start_key, end_key, max_num_results, resultHandler, this, ___protocolFactory, ___transport);
+      this.___currentMethod = method_call;
+      ___manager.call(method_call);
+    }
+
+    public static class getRange_call extends org.apache.thrift.async.TAsyncMethodCall {
+      private int domain_id;
+      private int partition_number;
+      private ByteBuffer start_key;
+      private ByteBuffer end_key;
+      private int max_num_results;
+      public getRange_call(int domain_id, int partition_number, ByteBuffer start_key, ByteBuffer end_key, int max_num_results, org.apache.thrift.async.AsyncMethodCallback<getRange_call> resultHandler, org.apache.thrift.async.TAsyncClient client, org.apache.thrift.protocol.TProtocolFactory protocolFactory, org.apache.thrift.transport.TNonblockingTransport transport) throws org.apache.thrift.TException {
+        super(client, protocolFactory, transport, resultHandler, false);
+        this.domain_id = domain_id;
+        this.partition_number = partition_number;
+        this.start_key = start_key;
+        this.end_key = end_key;
+        this.max_num_results = max_num_results;
+      }
+
+      public void write_args(org.apache.thrift.protocol.TProtocol prot) throws org.apache.thrift.TException {
+        prot.writeMessageBegin(new org.apache.thrift.protocol.TMessage("getRange", org.apache.thrift.protocol.TMessageType.CALL, 0));
+        getRange_args args = new getRange_args();
+        args.set_domain_id(domain_id);
+        args.set_partition_number(partition_number);
+        args.set_start_key(start_key);
+        args.set_end_key(end_key);
+        args.set_max_num_results(max_num_results);
+        args.write(prot);
+        prot.writeMessageEnd();
+      }
+
+      public HankRangeResponse getResult() throws org.apache.thrift.TException {
+        if (getState() != org.apache.thrift.async.TAsyncMethodCall.State.RESPONSE_READ) {
+          throw new IllegalStateException("Method call not finished!");
+        }
+        org.apache.thrift.transport.TMemoryInputTransport memoryTransport = new org.apache.thrift.transport.TMemoryInputTransport(getFrameBuffer().array());
+        org.apache.thrift.protocol.TProtocol prot = client.getProtocolFactory().getProtocol(memoryTransport);
+        return (new Client(prot)).recv_getRange();
+      }
+    }
+
   }
 
   public static class Processor<I extends Iface> extends org.apache.thrift.TBaseProcessor<I> implements org.apache.thrift.TProcessor {
@@ -220,6 +295,7 @@ public class PartitionServer {
     private static <I extends Iface> Map<String,  org.apache.thrift.ProcessFunction<I, ? extends  org.apache.thrift.TBase>> getProcessMap(Map<String,  org.apache.thrift.ProcessFunction<I, ? extends  org.apache.thrift.TBase>> processMap) {
       processMap.put("get", new get());
       processMap.put("getBulk", new getBulk());
+      processMap.put("getRange", new getRange());
       return processMap;
     }
 
@@ -263,6 +339,26 @@ public class PartitionServer {
       }
     }
 
+    public static class getRange<I extends Iface> extends org.apache.thrift.ProcessFunction<I, getRange_args> {
+      public getRange() {
+        super("getRange");
+      }
+
+      public getRange_args getEmptyArgsInstance() {
+        return new getRange_args();
+      }
+
+      protected boolean isOneway() {
+        return false;
+      }
+
+      public getRange_result getResult(I iface, getRange_args args) throws org.apache.thrift.TException {
+        getRange_result result = new getRange_result();
+        result.success = iface.getRange(args.domain_id, args.partition_number, args.start_key, args.end_key, args.max_num_results);
+        return result;
+      }
+    }
+
   }
 
   public static class get_args implements org.apache.thrift.TBase<get_args, get_args._Fields>, java.io.Serializable, Cloneable   {
@@ -1511,13 +1607,13 @@ public class PartitionServer {
             case 2: // KEYS
               if (schemeField.type == org.apache.thrift.protocol.TType.LIST) {
                 {
-                  org.apache.thrift.protocol.TList _list58 = iprot.readListBegin();
-                  struct.keys = new ArrayList<ByteBuffer>(_list58.size);
-                  for (int _i59 = 0; _i59 < _list58.size; ++_i59)
+                  org.apache.thrift.protocol.TList _list74 = iprot.readListBegin();
+                  struct.keys = new ArrayList<ByteBuffer>(_list74.size);
+                  for (int _i75 = 0; _i75 < _list74.size; ++_i75)
                   {
-                    ByteBuffer _elem60; // optional
-                    _elem60 = iprot.readBinary();
-                    struct.keys.add(_elem60);
+                    ByteBuffer _elem76; // optional
+                    _elem76 = iprot.readBinary();
+                    struct.keys.add(_elem76);
                   }
                   iprot.readListEnd();
                 }
@@ -1548,9 +1644,9 @@ public class PartitionServer {
           oprot.writeFieldBegin(KEYS_FIELD_DESC);
           {
             oprot.writeListBegin(new org.apache.thrift.protocol.TList(org.apache.thrift.protocol.TType.STRING, struct.keys.size()));
-            for (ByteBuffer _iter61 : struct.keys)
+            for (ByteBuffer _iter77 : struct.keys)
             {
-              oprot.writeBinary(_iter61);
+              oprot.writeBinary(_iter77);
             }
             oprot.writeListEnd();
           }
@@ -1587,9 +1683,9 @@ public class PartitionServer {
         if (struct.is_set_keys()) {
           {
             oprot.writeI32(struct.keys.size());
-            for (ByteBuffer _iter62 : struct.keys)
+            for (ByteBuffer _iter78 : struct.keys)
             {
-              oprot.writeBinary(_iter62);
+              oprot.writeBinary(_iter78);
             }
           }
         }
@@ -1605,13 +1701,13 @@ public class PartitionServer {
         }
         if (incoming.get(1)) {
           {
-            org.apache.thrift.protocol.TList _list63 = new org.apache.thrift.protocol.TList(org.apache.thrift.protocol.TType.STRING, iprot.readI32());
-            struct.keys = new ArrayList<ByteBuffer>(_list63.size);
-            for (int _i64 = 0; _i64 < _list63.size; ++_i64)
+            org.apache.thrift.protocol.TList _list79 = new org.apache.thrift.protocol.TList(org.apache.thrift.protocol.TType.STRING, iprot.readI32());
+            struct.keys = new ArrayList<ByteBuffer>(_list79.size);
+            for (int _i80 = 0; _i80 < _list79.size; ++_i80)
             {
-              ByteBuffer _elem65; // optional
-              _elem65 = iprot.readBinary();
-              struct.keys.add(_elem65);
+              ByteBuffer _elem81; // optional
+              _elem81 = iprot.readBinary();
+              struct.keys.add(_elem81);
             }
           }
           struct.set_keys_isSet(true);
@@ -1984,4 +2080,1156 @@ public class PartitionServer {
 
   }
 
+  public static class getRange_args implements org.apache.thrift.TBase<getRange_args, getRange_args._Fields>, java.io.Serializable, Cloneable   {
+    private static final org.apache.thrift.protocol.TStruct STRUCT_DESC = new org.apache.thrift.protocol.TStruct("getRange_args");
+
+    private static final org.apache.thrift.protocol.TField DOMAIN_ID_FIELD_DESC = new org.apache.thrift.protocol.TField("domain_id", org.apache.thrift.protocol.TType.I32, (short)1);
+    private static final org.apache.thrift.protocol.TField PARTITION_NUMBER_FIELD_DESC = new org.apache.thrift.protocol.TField("partition_number", org.apache.thrift.protocol.TType.I32, (short)2);
+    private static final org.apache.thrift.protocol.TField START_KEY_FIELD_DESC = new org.apache.thrift.protocol.TField("start_key", org.apache.thrift.protocol.TType.STRING, (short)3);
+    private static final org.apache.thrift.protocol.TField END_KEY_FIELD_DESC = new org.apache.thrift.protocol.TField("end_key", org.apache.thrift.protocol.TType.STRING, (short)4);
+    private static final org.apache.thrift.protocol.TField MAX_NUM_RESULTS_FIELD_DESC = new org.apache.thrift.protocol.TField("max_num_results", org.apache.thrift.protocol.TType.I32, (short)5);
+
+    private static final Map<Class<? extends IScheme>, SchemeFactory> schemes = new HashMap<Class<? extends IScheme>, SchemeFactory>();
+    static {
+      schemes.put(StandardScheme.class, new getRange_argsStandardSchemeFactory());
+      schemes.put(TupleScheme.class, new getRange_argsTupleSchemeFactory());
+    }
+
+    public int domain_id; // required
+    public int partition_number; // required
+    public ByteBuffer start_key; // required
+    public ByteBuffer end_key; // required
+    public int max_num_results; // required
+
+    /** The set of fields this struct contains, along with convenience methods for finding and manipulating them. */
+    public enum _Fields implements org.apache.thrift.TFieldIdEnum {
+      DOMAIN_ID((short)1, "domain_id"),
+      PARTITION_NUMBER((short)2, "partition_number"),
+      START_KEY((short)3, "start_key"),
+      END_KEY((short)4, "end_key"),
+      MAX_NUM_RESULTS((short)5, "max_num_results");
+
+      private static final Map<String, _Fields> byName = new HashMap<String, _Fields>();
+
+      static {
+        for (_Fields field : EnumSet.allOf(_Fields.class)) {
+          byName.put(field.getFieldName(), field);
+        }
+      }
+
+      /**
+       * Find the _Fields constant that matches fieldId, or null if its not found.
+       */
+      public static _Fields findByThriftId(int fieldId) {
+        switch(fieldId) {
+          case 1: // DOMAIN_ID
+            return DOMAIN_ID;
+          case 2: // PARTITION_NUMBER
+            return PARTITION_NUMBER;
+          case 3: // START_KEY
+            return START_KEY;
+          case 4: // END_KEY
+            return END_KEY;
+          case 5: // MAX_NUM_RESULTS
+            return MAX_NUM_RESULTS;
+          default:
+            return null;
+        }
+      }
+
+      /**
+       * Find the _Fields constant that matches fieldId, throwing an exception
+       * if it is not found.
+       */
+      public static _Fields findByThriftIdOrThrow(int fieldId) {
+        _Fields fields = findByThriftId(fieldId);
+        if (fields == null) throw new IllegalArgumentException("Field " + fieldId + " doesn't exist!");
+        return fields;
+      }
+
+      /**
+       * Find the _Fields constant that matches name, or null if its not found.
+       */
+      public static _Fields findByName(String name) {
+        return byName.get(name);
+      }
+
+      private final short _thriftId;
+      private final String _fieldName;
+
+      _Fields(short thriftId, String fieldName) {
+        _thriftId = thriftId;
+        _fieldName = fieldName;
+      }
+
+      public short getThriftFieldId() {
+        return _thriftId;
+      }
+
+      public String getFieldName() {
+        return _fieldName;
+      }
+    }
+
+    // isset id assignments
+    private static final int __DOMAIN_ID_ISSET_ID = 0;
+    private static final int __PARTITION_NUMBER_ISSET_ID = 1;
+    private static final int __MAX_NUM_RESULTS_ISSET_ID = 2;
+    private byte __isset_bitfield = 0;
+    public static final Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> metaDataMap;
+    static {
+      Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> tmpMap = new EnumMap<_Fields, org.apache.thrift.meta_data.FieldMetaData>(_Fields.class);
+      tmpMap.put(_Fields.DOMAIN_ID, new org.apache.thrift.meta_data.FieldMetaData("domain_id", org.apache.thrift.TFieldRequirementType.DEFAULT, 
+          new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.I32)));
+      tmpMap.put(_Fields.PARTITION_NUMBER, new org.apache.thrift.meta_data.FieldMetaData("partition_number", org.apache.thrift.TFieldRequirementType.DEFAULT, 
+          new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.I32)));
+      tmpMap.put(_Fields.START_KEY, new org.apache.thrift.meta_data.FieldMetaData("start_key", org.apache.thrift.TFieldRequirementType.DEFAULT, 
+          new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.STRING          , true)));
+      tmpMap.put(_Fields.END_KEY, new org.apache.thrift.meta_data.FieldMetaData("end_key", org.apache.thrift.TFieldRequirementType.DEFAULT, 
+          new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.STRING          , true)));
+      tmpMap.put(_Fields.MAX_NUM_RESULTS, new org.apache.thrift.meta_data.FieldMetaData("max_num_results", org.apache.thrift.TFieldRequirementType.DEFAULT, 
+          new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.I32)));
+      metaDataMap = Collections.unmodifiableMap(tmpMap);
+      org.apache.thrift.meta_data.FieldMetaData.addStructMetaDataMap(getRange_args.class, metaDataMap);
+    }
+
+    public getRange_args() {
+    }
+
+    public getRange_args(
+      int domain_id,
+      int partition_number,
+      ByteBuffer start_key,
+      ByteBuffer end_key,
+      int max_num_results)
+    {
+      this();
+      this.domain_id = domain_id;
+      set_domain_id_isSet(true);
+      this.partition_number = partition_number;
+      set_partition_number_isSet(true);
+      this.start_key = start_key;
+      this.end_key = end_key;
+      this.max_num_results = max_num_results;
+      set_max_num_results_isSet(true);
+    }
+
+    /**
+     * Performs a deep copy on <i>other</i>.
+     */
+    public getRange_args(getRange_args other) {
+      __isset_bitfield = other.__isset_bitfield;
+      this.domain_id = other.domain_id;
+      this.partition_number = other.partition_number;
+      if (other.is_set_start_key()) {
+        this.start_key = org.apache.thrift.TBaseHelper.copyBinary(other.start_key);
+;
+      }
+      if (other.is_set_end_key()) {
+        this.end_key = org.apache.thrift.TBaseHelper.copyBinary(other.end_key);
+;
+      }
+      this.max_num_results = other.max_num_results;
+    }
+
+    public getRange_args deepCopy() {
+      return new getRange_args(this);
+    }
+
+    @Override
+    public void clear() {
+      set_domain_id_isSet(false);
+      this.domain_id = 0;
+      set_partition_number_isSet(false);
+      this.partition_number = 0;
+      this.start_key = null;
+      this.end_key = null;
+      set_max_num_results_isSet(false);
+      this.max_num_results = 0;
+    }
+
+    public int get_domain_id() {
+      return this.domain_id;
+    }
+
+    public getRange_args set_domain_id(int domain_id) {
+      this.domain_id = domain_id;
+      set_domain_id_isSet(true);
+      return this;
+    }
+
+    public void unset_domain_id() {
+      __isset_bitfield = EncodingUtils.clearBit(__isset_bitfield, __DOMAIN_ID_ISSET_ID);
+    }
+
+    /** Returns true if field domain_id is set (has been assigned a value) and false otherwise */
+    public boolean is_set_domain_id() {
+      return EncodingUtils.testBit(__isset_bitfield, __DOMAIN_ID_ISSET_ID);
+    }
+
+    public void set_domain_id_isSet(boolean value) {
+      __isset_bitfield = EncodingUtils.setBit(__isset_bitfield, __DOMAIN_ID_ISSET_ID, value);
+    }
+
+    public int get_partition_number() {
+      return this.partition_number;
+    }
+
+    public getRange_args set_partition_number(int partition_number) {
+      this.partition_number = partition_number;
+      set_partition_number_isSet(true);
+      return this;
+    }
+
+    public void unset_partition_number() {
+      __isset_bitfield = EncodingUtils.clearBit(__isset_bitfield, __PARTITION_NUMBER_ISSET_ID);
+    }
+
+    /** Returns true if field partition_number is set (has been assigned a value) and false otherwise */
+    public boolean is_set_partition_number() {
+      return EncodingUtils.testBit(__isset_bitfield, __PARTITION_NUMBER_ISSET_ID);
+    }
+
+    public void set_partition_number_isSet(boolean value) {
+      __isset_bitfield = EncodingUtils.setBit(__isset_bitfield, __PARTITION_NUMBER_ISSET_ID, value);
+    }
+
+    public byte[] get_start_key() {
+      set_start_key(org.apache.thrift.TBaseHelper.rightSize(start_key));
+      return start_key == null ? null : start_key.array();
+    }
+
+    public ByteBuffer buffer_for_start_key() {
+      return start_key;
+    }
+
+    public getRange_args set_start_key(byte[] start_key) {
+      set_start_key(start_key == null ? (ByteBuffer)null : ByteBuffer.wrap(start_key));
+      return this;
+    }
+
+    public getRange_args set_start_key(ByteBuffer start_key) {
+      this.start_key = start_key;
+      return this;
+    }
+
+    public void unset_start_key() {
+      this.start_key = null;
+    }
+
+    /** Returns true if field start_key is set (has been assigned a value) and false otherwise */
+    public boolean is_set_start_key() {
+      return this.start_key != null;
+    }
+
+    public void set_start_key_isSet(boolean value) {
+      if (!value) {
+        this.start_key = null;
+      }
+    }
+
+    public byte[] get_end_key() {
+      set_end_key(org.apache.thrift.TBaseHelper.rightSize(end_key));
+      return end_key == null ? null : end_key.array();
+    }
+
+    public ByteBuffer buffer_for_end_key() {
+      return end_key;
+    }
+
+    public getRange_args set_end_key(byte[] end_key) {
+      set_end_key(end_key == null ? (ByteBuffer)null : ByteBuffer.wrap(end_key));
+      return this;
+    }
+
+    public getRange_args set_end_key(ByteBuffer end_key) {
+      this.end_key = end_key;
+      return this;
+    }
+
+    public void unset_end_key() {
+      this.end_key = null;
+    }
+
+    /** Returns true if field end_key is set (has been assigned a value) and false otherwise */
+    public boolean is_set_end_key() {
+      return this.end_key != null;
+    }
+
+    public void set_end_key_isSet(boolean value) {
+      if (!value) {
+        this.end_key = null;
+      }
+    }
+
+    public int get_max_num_results() {
+      return this.max_num_results;
+    }
+
+    public getRange_args set_max_num_results(int max_num_results) {
+      this.max_num_results = max_num_results;
+      set_max_num_results_isSet(true);
+      return this;
+    }
+
+    public void unset_max_num_results() {
+      __isset_bitfield = EncodingUtils.clearBit(__isset_bitfield, __MAX_NUM_RESULTS_ISSET_ID);
+    }
+
+    /** Returns true if field max_num_results is set (has been assigned a value) and false otherwise */
+    public boolean is_set_max_num_results() {
+      return EncodingUtils.testBit(__isset_bitfield, __MAX_NUM_RESULTS_ISSET_ID);
+    }
+
+    public void set_max_num_results_isSet(boolean value) {
+      __isset_bitfield = EncodingUtils.setBit(__isset_bitfield, __MAX_NUM_RESULTS_ISSET_ID, value);
+    }
+
+    public void setFieldValue(_Fields field, Object value) {
+      switch (field) {
+      case DOMAIN_ID:
+        if (value == null) {
+          unset_domain_id();
+        } else {
+          set_domain_id((Integer)value);
+        }
+        break;
+
+      case PARTITION_NUMBER:
+        if (value == null) {
+          unset_partition_number();
+        } else {
+          set_partition_number((Integer)value);
+        }
+        break;
+
+      case START_KEY:
+        if (value == null) {
+          unset_start_key();
+        } else {
+          set_start_key((ByteBuffer)value);
+        }
+        break;
+
+      case END_KEY:
+        if (value == null) {
+          unset_end_key();
+        } else {
+          set_end_key((ByteBuffer)value);
+        }
+        break;
+
+      case MAX_NUM_RESULTS:
+        if (value == null) {
+          unset_max_num_results();
+        } else {
+          set_max_num_results((Integer)value);
+        }
+        break;
+
+      }
+    }
+
+    public Object getFieldValue(_Fields field) {
+      switch (field) {
+      case DOMAIN_ID:
+        return Integer.valueOf(get_domain_id());
+
+      case PARTITION_NUMBER:
+        return Integer.valueOf(get_partition_number());
+
+      case START_KEY:
+        return get_start_key();
+
+      case END_KEY:
+        return get_end_key();
+
+      case MAX_NUM_RESULTS:
+        return Integer.valueOf(get_max_num_results());
+
+      }
+      throw new IllegalStateException();
+    }
+
+    /** Returns true if field corresponding to fieldID is set (has been assigned a value) and false otherwise */
+    public boolean isSet(_Fields field) {
+      if (field == null) {
+        throw new IllegalArgumentException();
+      }
+
+      switch (field) {
+      case DOMAIN_ID:
+        return is_set_domain_id();
+      case PARTITION_NUMBER:
+        return is_set_partition_number();
+      case START_KEY:
+        return is_set_start_key();
+      case END_KEY:
+        return is_set_end_key();
+      case MAX_NUM_RESULTS:
+        return is_set_max_num_results();
+      }
+      throw new IllegalStateException();
+    }
+
+    @Override
+    public boolean equals(Object that) {
+      if (that == null)
+        return false;
+      if (that instanceof getRange_args)
+        return this.equals((getRange_args)that);
+      return false;
+    }
+
+    public boolean equals(getRange_args that) {
+      if (that == null)
+        return false;
+
+      boolean this_present_domain_id = true;
+      boolean that_present_domain_id = true;
+      if (this_present_domain_id || that_present_domain_id) {
+        if (!(this_present_domain_id && that_present_domain_id))
+          return false;
+        if (this.domain_id != that.domain_id)
+          return false;
+      }
+
+      boolean this_present_partition_number = true;
+      boolean that_present_partition_number = true;
+      if (this_present_partition_number || that_present_partition_number) {
+        if (!(this_present_partition_number && that_present_partition_number))
+          return false;
+        if (this.partition_number != that.partition_number)
+          return false;
+      }
+
+      boolean this_present_start_key = true && this.is_set_start_key();
+      boolean that_present_start_key = true && that.is_set_start_key();
+      if (this_present_start_key || that_present_start_key) {
+        if (!(this_present_start_key && that_present_start_key))
+          return false;
+        if (!this.start_key.equals(that.start_key))
+          return false;
+      }
+
+      boolean this_present_end_key = true && this.is_set_end_key();
+      boolean that_present_end_key = true && that.is_set_end_key();
+      if (this_present_end_key || that_present_end_key) {
+        if (!(this_present_end_key && that_present_end_key))
+          return false;
+        if (!this.end_key.equals(that.end_key))
+          return false;
+      }
+
+      boolean this_present_max_num_results = true;
+      boolean that_present_max_num_results = true;
+      if (this_present_max_num_results || that_present_max_num_results) {
+        if (!(this_present_max_num_results && that_present_max_num_results))
+          return false;
+        if (this.max_num_results != that.max_num_results)
+          return false;
+      }
+
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      HashCodeBuilder builder = new HashCodeBuilder();
+
+      boolean present_domain_id = true;
+      builder.append(present_domain_id);
+      if (present_domain_id)
+        builder.append(domain_id);
+
+      boolean present_partition_number = true;
+      builder.append(present_partition_number);
+      if (present_partition_number)
+        builder.append(partition_number);
+
+      boolean present_start_key = true && (is_set_start_key());
+      builder.append(present_start_key);
+      if (present_start_key)
+        builder.append(start_key);
+
+      boolean present_end_key = true && (is_set_end_key());
+      builder.append(present_end_key);
+      if (present_end_key)
+        builder.append(end_key);
+
+      boolean present_max_num_results = true;
+      builder.append(present_max_num_results);
+      if (present_max_num_results)
+        builder.append(max_num_results);
+
+      return builder.toHashCode();
+    }
+
+    public int compareTo(getRange_args other) {
+      if (!getClass().equals(other.getClass())) {
+        return getClass().getName().compareTo(other.getClass().getName());
+      }
+
+      int lastComparison = 0;
+      getRange_args typedOther = (getRange_args)other;
+
+      lastComparison = Boolean.valueOf(is_set_domain_id()).compareTo(typedOther.is_set_domain_id());
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+      if (is_set_domain_id()) {
+        lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.domain_id, typedOther.domain_id);
+        if (lastComparison != 0) {
+          return lastComparison;
+        }
+      }
+      lastComparison = Boolean.valueOf(is_set_partition_number()).compareTo(typedOther.is_set_partition_number());
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+      if (is_set_partition_number()) {
+        lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.partition_number, typedOther.partition_number);
+        if (lastComparison != 0) {
+          return lastComparison;
+        }
+      }
+      lastComparison = Boolean.valueOf(is_set_start_key()).compareTo(typedOther.is_set_start_key());
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+      if (is_set_start_key()) {
+        lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.start_key, typedOther.start_key);
+        if (lastComparison != 0) {
+          return lastComparison;
+        }
+      }
+      lastComparison = Boolean.valueOf(is_set_end_key()).compareTo(typedOther.is_set_end_key());
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+      if (is_set_end_key()) {
+        lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.end_key, typedOther.end_key);
+        if (lastComparison != 0) {
+          return lastComparison;
+        }
+      }
+      lastComparison = Boolean.valueOf(is_set_max_num_results()).compareTo(typedOther.is_set_max_num_results());
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+      if (is_set_max_num_results()) {
+        lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.max_num_results, typedOther.max_num_results);
+        if (lastComparison != 0) {
+          return lastComparison;
+        }
+      }
+      return 0;
+    }
+
+    public _Fields fieldForId(int fieldId) {
+      return _Fields.findByThriftId(fieldId);
+    }
+
+    public void read(org.apache.thrift.protocol.TProtocol iprot) throws org.apache.thrift.TException {
+      schemes.get(iprot.getScheme()).getScheme().read(iprot, this);
+    }
+
+    public void write(org.apache.thrift.protocol.TProtocol oprot) throws org.apache.thrift.TException {
+      schemes.get(oprot.getScheme()).getScheme().write(oprot, this);
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder sb = new StringBuilder("getRange_args(");
+      boolean first = true;
+
+      sb.append("domain_id:");
+      sb.append(this.domain_id);
+      first = false;
+      if (!first) sb.append(", ");
+      sb.append("partition_number:");
+      sb.append(this.partition_number);
+      first = false;
+      if (!first) sb.append(", ");
+      sb.append("start_key:");
+      if (this.start_key == null) {
+        sb.append("null");
+      } else {
+        org.apache.thrift.TBaseHelper.toString(this.start_key, sb);
+      }
+      first = false;
+      if (!first) sb.append(", ");
+      sb.append("end_key:");
+      if (this.end_key == null) {
+        sb.append("null");
+      } else {
+        org.apache.thrift.TBaseHelper.toString(this.end_key, sb);
+      }
+      first = false;
+      if (!first) sb.append(", ");
+      sb.append("max_num_results:");
+      sb.append(this.max_num_results);
+      first = false;
+      sb.append(")");
+      return sb.toString();
+    }
+
+    public void validate() throws org.apache.thrift.TException {
+      // check for required fields
+      // check for sub-struct validity
+    }
+
+    private void writeObject(java.io.ObjectOutputStream out) throws java.io.IOException {
+      try {
+        write(new org.apache.thrift.protocol.TCompactProtocol(new org.apache.thrift.transport.TIOStreamTransport(out)));
+      } catch (org.apache.thrift.TException te) {
+        throw new java.io.IOException(te);
+      }
+    }
+
+    private void readObject(java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException {
+      try {
+        // it doesn't seem like you should have to do this, but java serialization is wacky, and doesn't call the default constructor.
+        __isset_bitfield = 0;
+        read(new org.apache.thrift.protocol.TCompactProtocol(new org.apache.thrift.transport.TIOStreamTransport(in)));
+      } catch (org.apache.thrift.TException te) {
+        throw new java.io.IOException(te);
+      }
+    }
+
+    private static class getRange_argsStandardSchemeFactory implements SchemeFactory {
+      public getRange_argsStandardScheme getScheme() {
+        return new getRange_argsStandardScheme();
+      }
+    }
+
+    private static class getRange_argsStandardScheme extends StandardScheme<getRange_args> {
+
+      public void read(org.apache.thrift.protocol.TProtocol iprot, getRange_args struct) throws org.apache.thrift.TException {
+        org.apache.thrift.protocol.TField schemeField;
+        iprot.readStructBegin();
+        while (true)
+        {
+          schemeField = iprot.readFieldBegin();
+          if (schemeField.type == org.apache.thrift.protocol.TType.STOP) { 
+            break;
+          }
+          switch (schemeField.id) {
+            case 1: // DOMAIN_ID
+              if (schemeField.type == org.apache.thrift.protocol.TType.I32) {
+                struct.domain_id = iprot.readI32();
+                struct.set_domain_id_isSet(true);
+              } else { 
+                org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+              }
+              break;
+            case 2: // PARTITION_NUMBER
+              if (schemeField.type == org.apache.thrift.protocol.TType.I32) {
+                struct.partition_number = iprot.readI32();
+                struct.set_partition_number_isSet(true);
+              } else { 
+                org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+              }
+              break;
+            case 3: // START_KEY
+              if (schemeField.type == org.apache.thrift.protocol.TType.STRING) {
+                struct.start_key = iprot.readBinary();
+                struct.set_start_key_isSet(true);
+              } else { 
+                org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+              }
+              break;
+            case 4: // END_KEY
+              if (schemeField.type == org.apache.thrift.protocol.TType.STRING) {
+                struct.end_key = iprot.readBinary();
+                struct.set_end_key_isSet(true);
+              } else { 
+                org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+              }
+              break;
+            case 5: // MAX_NUM_RESULTS
+              if (schemeField.type == org.apache.thrift.protocol.TType.I32) {
+                struct.max_num_results = iprot.readI32();
+                struct.set_max_num_results_isSet(true);
+              } else { 
+                org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+              }
+              break;
+            default:
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+          }
+          iprot.readFieldEnd();
+        }
+        iprot.readStructEnd();
+
+        // check for required fields of primitive type, which can't be checked in the validate method
+        struct.validate();
+      }
+
+      public void write(org.apache.thrift.protocol.TProtocol oprot, getRange_args struct) throws org.apache.thrift.TException {
+        struct.validate();
+
+        oprot.writeStructBegin(STRUCT_DESC);
+        oprot.writeFieldBegin(DOMAIN_ID_FIELD_DESC);
+        oprot.writeI32(struct.domain_id);
+        oprot.writeFieldEnd();
+        oprot.writeFieldBegin(PARTITION_NUMBER_FIELD_DESC);
+        oprot.writeI32(struct.partition_number);
+        oprot.writeFieldEnd();
+        if (struct.start_key != null) {
+          oprot.writeFieldBegin(START_KEY_FIELD_DESC);
+          oprot.writeBinary(struct.start_key);
+          oprot.writeFieldEnd();
+        }
+        if (struct.end_key != null) {
+          oprot.writeFieldBegin(END_KEY_FIELD_DESC);
+          oprot.writeBinary(struct.end_key);
+          oprot.writeFieldEnd();
+        }
+        oprot.writeFieldBegin(MAX_NUM_RESULTS_FIELD_DESC);
+        oprot.writeI32(struct.max_num_results);
+        oprot.writeFieldEnd();
+        oprot.writeFieldStop();
+        oprot.writeStructEnd();
+      }
+
+    }
+
+    private static class getRange_argsTupleSchemeFactory implements SchemeFactory {
+      public getRange_argsTupleScheme getScheme() {
+        return new getRange_argsTupleScheme();
+      }
+    }
+
+    private static class getRange_argsTupleScheme extends TupleScheme<getRange_args> {
+
+      @Override
+      public void write(org.apache.thrift.protocol.TProtocol prot, getRange_args struct) throws org.apache.thrift.TException {
+        TTupleProtocol oprot = (TTupleProtocol) prot;
+        BitSet optionals = new BitSet();
+        if (struct.is_set_domain_id()) {
+          optionals.set(0);
+        }
+        if (struct.is_set_partition_number()) {
+          optionals.set(1);
+        }
+        if (struct.is_set_start_key()) {
+          optionals.set(2);
+        }
+        if (struct.is_set_end_key()) {
+          optionals.set(3);
+        }
+        if (struct.is_set_max_num_results()) {
+          optionals.set(4);
+        }
+        oprot.writeBitSet(optionals, 5);
+        if (struct.is_set_domain_id()) {
+          oprot.writeI32(struct.domain_id);
+        }
+        if (struct.is_set_partition_number()) {
+          oprot.writeI32(struct.partition_number);
+        }
+        if (struct.is_set_start_key()) {
+          oprot.writeBinary(struct.start_key);
+        }
+        if (struct.is_set_end_key()) {
+          oprot.writeBinary(struct.end_key);
+        }
+        if (struct.is_set_max_num_results()) {
+          oprot.writeI32(struct.max_num_results);
+        }
+      }
+
+      @Override
+      public void read(org.apache.thrift.protocol.TProtocol prot, getRange_args struct) throws org.apache.thrift.TException {
+        TTupleProtocol iprot = (TTupleProtocol) prot;
+        BitSet incoming = iprot.readBitSet(5);
+        if (incoming.get(0)) {
+          struct.domain_id = iprot.readI32();
+          struct.set_domain_id_isSet(true);
+        }
+        if (incoming.get(1)) {
+          struct.partition_number = iprot.readI32();
+          struct.set_partition_number_isSet(true);
+        }
+        if (incoming.get(2)) {
+          struct.start_key = iprot.readBinary();
+          struct.set_start_key_isSet(true);
+        }
+        if (incoming.get(3)) {
+          struct.end_key = iprot.readBinary();
+          struct.set_end_key_isSet(true);
+        }
+        if (incoming.get(4)) {
+          struct.max_num_results = iprot.readI32();
+          struct.set_max_num_results_isSet(true);
+        }
+      }
+    }
+
+  }
+
+  public static class getRange_result implements org.apache.thrift.TBase<getRange_result, getRange_result._Fields>, java.io.Serializable, Cloneable   {
+    private static final org.apache.thrift.protocol.TStruct STRUCT_DESC = new org.apache.thrift.protocol.TStruct("getRange_result");
+
+    private static final org.apache.thrift.protocol.TField SUCCESS_FIELD_DESC = new org.apache.thrift.protocol.TField("success", org.apache.thrift.protocol.TType.STRUCT, (short)0);
+
+    private static final Map<Class<? extends IScheme>, SchemeFactory> schemes = new HashMap<Class<? extends IScheme>, SchemeFactory>();
+    static {
+      schemes.put(StandardScheme.class, new getRange_resultStandardSchemeFactory());
+      schemes.put(TupleScheme.class, new getRange_resultTupleSchemeFactory());
+    }
+
+    public HankRangeResponse success; // required
+
+    /** The set of fields this struct contains, along with convenience methods for finding and manipulating them. */
+    public enum _Fields implements org.apache.thrift.TFieldIdEnum {
+      SUCCESS((short)0, "success");
+
+      private static final Map<String, _Fields> byName = new HashMap<String, _Fields>();
+
+      static {
+        for (_Fields field : EnumSet.allOf(_Fields.class)) {
+          byName.put(field.getFieldName(), field);
+        }
+      }
+
+      /**
+       * Find the _Fields constant that matches fieldId, or null if its not found.
+       */
+      public static _Fields findByThriftId(int fieldId) {
+        switch(fieldId) {
+          case 0: // SUCCESS
+            return SUCCESS;
+          default:
+            return null;
+        }
+      }
+
+      /**
+       * Find the _Fields constant that matches fieldId, throwing an exception
+       * if it is not found.
+       */
+      public static _Fields findByThriftIdOrThrow(int fieldId) {
+        _Fields fields = findByThriftId(fieldId);
+        if (fields == null) throw new IllegalArgumentException("Field " + fieldId + " doesn't exist!");
+        return fields;
+      }
+
+      /**
+       * Find the _Fields constant that matches name, or null if its not found.
+       */
+      public static _Fields findByName(String name) {
+        return byName.get(name);
+      }
+
+      private final short _thriftId;
+      private final String _fieldName;
+
+      _Fields(short thriftId, String fieldName) {
+        _thriftId = thriftId;
+        _fieldName = fieldName;
+      }
+
+      public short getThriftFieldId() {
+        return _thriftId;
+      }
+
+      public String getFieldName() {
+        return _fieldName;
+      }
+    }
+
+    // isset id assignments
+    public static final Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> metaDataMap;
+    static {
+      Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> tmpMap = new EnumMap<_Fields, org.apache.thrift.meta_data.FieldMetaData>(_Fields.class);
+      tmpMap.put(_Fields.SUCCESS, new org.apache.thrift.meta_data.FieldMetaData("success", org.apache.thrift.TFieldRequirementType.DEFAULT, 
+          new org.apache.thrift.meta_data.StructMetaData(org.apache.thrift.protocol.TType.STRUCT, HankRangeResponse.class)));
+      metaDataMap = Collections.unmodifiableMap(tmpMap);
+      org.apache.thrift.meta_data.FieldMetaData.addStructMetaDataMap(getRange_result.class, metaDataMap);
+    }
+
+    public getRange_result() {
+    }
+
+    public getRange_result(
+      HankRangeResponse success)
+    {
+      this();
+      this.success = success;
+    }
+
+    /**
+     * Performs a deep copy on <i>other</i>.
+     */
+    public getRange_result(getRange_result other) {
+      if (other.is_set_success()) {
+        this.success = new HankRangeResponse(other.success);
+      }
+    }
+
+    public getRange_result deepCopy() {
+      return new getRange_result(this);
+    }
+
+    @Override
+    public void clear() {
+      this.success = null;
+    }
+
+    public HankRangeResponse get_success() {
+      return this.success;
+    }
+
+    public getRange_result set_success(HankRangeResponse success) {
+      this.success = success;
+      return this;
+    }
+
+    public void unset_success() {
+      this.success = null;
+    }
+
+    /** Returns true if field success is set (has been assigned a value) and false otherwise */
+    public boolean is_set_success() {
+      return this.success != null;
+    }
+
+    public void set_success_isSet(boolean value) {
+      if (!value) {
+        this.success = null;
+      }
+    }
+
+    public void setFieldValue(_Fields field, Object value) {
+      switch (field) {
+      case SUCCESS:
+        if (value == null) {
+          unset_success();
+        } else {
+          set_success((HankRangeResponse)value);
+        }
+        break;
+
+      }
+    }
+
+    public Object getFieldValue(_Fields field) {
+      switch (field) {
+      case SUCCESS:
+        return get_success();
+
+      }
+      throw new IllegalStateException();
+    }
+
+    /** Returns true if field corresponding to fieldID is set (has been assigned a value) and false otherwise */
+    public boolean isSet(_Fields field) {
+      if (field == null) {
+        throw new IllegalArgumentException();
+      }
+
+      switch (field) {
+      case SUCCESS:
+        return is_set_success();
+      }
+      throw new IllegalStateException();
+    }
+
+    @Override
+    public boolean equals(Object that) {
+      if (that == null)
+        return false;
+      if (that instanceof getRange_result)
+        return this.equals((getRange_result)that);
+      return false;
+    }
+
+    public boolean equals(getRange_result that) {
+      if (that == null)
+        return false;
+
+      boolean this_present_success = true && this.is_set_success();
+      boolean that_present_success = true && that.is_set_success();
+      if (this_present_success || that_present_success) {
+        if (!(this_present_success && that_present_success))
+          return false;
+        if (!this.success.equals(that.success))
+          return false;
+      }
+
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      HashCodeBuilder builder = new HashCodeBuilder();
+
+      boolean present_success = true && (is_set_success());
+      builder.append(present_success);
+      if (present_success)
+        builder.append(success);
+
+      return builder.toHashCode();
+    }
+
+    public int compareTo(getRange_result other) {
+      if (!getClass().equals(other.getClass())) {
+        return getClass().getName().compareTo(other.getClass().getName());
+      }
+
+      int lastComparison = 0;
+      getRange_result typedOther = (getRange_result)other;
+
+      lastComparison = Boolean.valueOf(is_set_success()).compareTo(typedOther.is_set_success());
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+      if (is_set_success()) {
+        lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.success, typedOther.success);
+        if (lastComparison != 0) {
+          return lastComparison;
+        }
+      }
+      return 0;
+    }
+
+    public _Fields fieldForId(int fieldId) {
+      return _Fields.findByThriftId(fieldId);
+    }
+
+    public void read(org.apache.thrift.protocol.TProtocol iprot) throws org.apache.thrift.TException {
+      schemes.get(iprot.getScheme()).getScheme().read(iprot, this);
+    }
+
+    public void write(org.apache.thrift.protocol.TProtocol oprot) throws org.apache.thrift.TException {
+      schemes.get(oprot.getScheme()).getScheme().write(oprot, this);
+      }
+
+    @Override
+    public String toString() {
+      StringBuilder sb = new StringBuilder("getRange_result(");
+      boolean first = true;
+
+      sb.append("success:");
+      if (this.success == null) {
+        sb.append("null");
+      } else {
+        sb.append(this.success);
+      }
+      first = false;
+      sb.append(")");
+      return sb.toString();
+    }
+
+    public void validate() throws org.apache.thrift.TException {
+      // check for required fields
+      // check for sub-struct validity
+    }
+
+    private void writeObject(java.io.ObjectOutputStream out) throws java.io.IOException {
+      try {
+        write(new org.apache.thrift.protocol.TCompactProtocol(new org.apache.thrift.transport.TIOStreamTransport(out)));
+      } catch (org.apache.thrift.TException te) {
+        throw new java.io.IOException(te);
+      }
+    }
+
+    private void readObject(java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException {
+      try {
+        read(new org.apache.thrift.protocol.TCompactProtocol(new org.apache.thrift.transport.TIOStreamTransport(in)));
+      } catch (org.apache.thrift.TException te) {
+        throw new java.io.IOException(te);
+      }
+    }
+
+    private static class getRange_resultStandardSchemeFactory implements SchemeFactory {
+      public getRange_resultStandardScheme getScheme() {
+        return new getRange_resultStandardScheme();
+      }
+    }
+
+    private static class getRange_resultStandardScheme extends StandardScheme<getRange_result> {
+
+      public void read(org.apache.thrift.protocol.TProtocol iprot, getRange_result struct) throws org.apache.thrift.TException {
+        org.apache.thrift.protocol.TField schemeField;
+        iprot.readStructBegin();
+        while (true)
+        {
+          schemeField = iprot.readFieldBegin();
+          if (schemeField.type == org.apache.thrift.protocol.TType.STOP) { 
+            break;
+          }
+          switch (schemeField.id) {
+            case 0: // SUCCESS
+              if (schemeField.type == org.apache.thrift.protocol.TType.STRUCT) {
+                struct.success = new HankRangeResponse();
+                struct.success.read(iprot);
+                struct.set_success_isSet(true);
+              } else { 
+                org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+              }
+              break;
+            default:
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+          }
+          iprot.readFieldEnd();
+        }
+        iprot.readStructEnd();
+
+        // check for required fields of primitive type, which can't be checked in the validate method
+        struct.validate();
+      }
+
+      public void write(org.apache.thrift.protocol.TProtocol oprot, getRange_result struct) throws org.apache.thrift.TException {
+        struct.validate();
+
+        oprot.writeStructBegin(STRUCT_DESC);
+        if (struct.success != null) {
+          oprot.writeFieldBegin(SUCCESS_FIELD_DESC);
+          struct.success.write(oprot);
+          oprot.writeFieldEnd();
+        }
+        oprot.writeFieldStop();
+        oprot.writeStructEnd();
+      }
+
+    }
+
+    private static class getRange_resultTupleSchemeFactory implements SchemeFactory {
+      public getRange_resultTupleScheme getScheme() {
+        return new getRange_resultTupleScheme();
+      }
+    }
+
+    private static class getRange_resultTupleScheme extends TupleScheme<getRange_result> {
+
+      @Override
+      public void write(org.apache.thrift.protocol.TProtocol prot, getRange_result struct) throws org.apache.thrift.TException {
+        TTupleProtocol oprot = (TTupleProtocol) prot;
+        BitSet optionals = new BitSet();
+        if (struct.is_set_success()) {
+          optionals.set(0);
+        }
+        oprot.writeBitSet(optionals, 1);
+        if (struct.is_set_success()) {
+          struct.success.write(oprot);
+        }
+      }
+
+      @Override
+      public void read(org.apache.thrift.protocol.TProtocol prot, getRange_result struct) throws org.apache.thrift.TException {
+        TTupleProtocol iprot = (TTupleProtocol) prot;
+        BitSet incoming = iprot.readBitSet(1);
+        if (incoming.get(0)) {
+          struct.success = new HankRangeResponse();
+          struct.success.read(iprot);
+          struct.set_success_isSet(true);
+        }
+      }
+    }
+
+  }
+
 }
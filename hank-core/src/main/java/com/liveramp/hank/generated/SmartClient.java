@@ -1513,13 +1513,13 @@ public class SmartClient {
             case 2: // KEYS
               if (schemeField.type == org.apache.thrift.protocol.TType.LIST) {
                 {
-                  org.apache.thrift.protocol.TList _list66 = iprot.readListBegin();
-                  struct.keys = new ArrayList<ByteBuffer>(_list66.size);
-                  for (int _i67 = 0; _i67 < _list66.size; ++_i67)
+                  org.apache.thrift.protocol.TList _list82 = iprot.readListBegin();
+                  struct.keys = new ArrayList<ByteBuffer>(_list82.size);
+                  for (int _i83 = 0; _i83 < _list82.size; ++_i83)
                   {
-                    ByteBuffer _elem68; // optional
-                    _elem68 = iprot.readBinary();
-                    struct.keys.add(_elem68);
+                    ByteBuffer _elem84; // optional
+                    _elem84 = iprot.readBinary();
+                    struct.keys.add(_elem84);
                   }
                   iprot.readListEnd();
                 }
@@ -1552,9 +1552,9 @@ public class SmartClient {
           oprot.writeFieldBegin(KEYS_FIELD_DESC);
           {
             oprot.writeListBegin(new org.apache.thrift.protocol.TList(org.apache.thrift.protocol.TType.STRING, struct.keys.size()));
-            for (ByteBuffer _iter69 : struct.keys)
+            for (ByteBuffer _iter85 : struct.keys)
             {
-              oprot.writeBinary(_iter69);
+              oprot.writeBinary(_iter85);
             }
             oprot.writeListEnd();
           }
@@ -1591,9 +1591,9 @@ public class SmartClient {
         if (struct.is_set_keys()) {
           {
             oprot.writeI32(struct.keys.size());
-            for (ByteBuffer _iter70 : struct.keys)
+            for (ByteBuffer _iter86 : struct.keys)
             {
-              oprot.writeBinary(_iter70);
+              oprot.writeBinary(_iter86);
             }
           }
         }
@@ -1609,13 +1609,13 @@ public class SmartClient {
         }
         if (incoming.get(1)) {
           {
-            org.apache.thrift.protocol.TList _list71 = new org.apache.thrift.protocol.TList(org.apache.thrift.protocol.TType.STRING, iprot.readI32());
-            struct.keys = new ArrayList<ByteBuffer>(_list71.size);
-            for (int _i72 = 0; _i72 < _list71.size; ++_i72)
+            org.apache.thrift.protocol.TList _list87 = new org.apache.thrift.protocol.TList(org.apache.thrift.protocol.TType.STRING, iprot.readI32());
+            struct.keys = new ArrayList<ByteBuffer>(_list87.size);
+            for (int _i88 = 0; _i88 < _list87.size; ++_i88)
             {
-              ByteBuffer _elem73; // optional
-              _elem73 = iprot.readBinary();
-              struct.keys.add(_elem73);
+              ByteBuffer _elem89; // optional
+              _elem89 = iprot.readBinary();
+              struct.keys.add(_elem89);
             }
           }
           struct.set_keys_isSet(true);
@@ -24,18 +24,27 @@ public class PartitionAccessorRuntimeStatistics {
   protected final double responseDataThroughput;
   protected final long numL1CacheHits;
   protected final long numL2CacheHits;
+  protected final long numBlockCacheHits;
+  protected final long numBlockCacheMisses;
+  protected final long numBlockCacheEvictions;
 
   public PartitionAccessorRuntimeStatistics(long numRequests,
                                             long numHits,
                                             double throughput,
                                             double responseDataThroughput,
                                             long numL1CacheHits,
-                                            long numL2CacheHits) {
+                                            long numL2CacheHits,
+                                            long numBlockCacheHits,
+                                            long numBlockCacheMisses,
+                                            long numBlockCacheEvictions) {
     this.numRequests = numRequests;
     this.numHits = numHits;
     this.throughput = throughput;
     this.responseDataThroughput = responseDataThroughput;
     this.numL1CacheHits = numL1CacheHits;
     this.numL2CacheHits = numL2CacheHits;
+    this.numBlockCacheHits = numBlockCacheHits;
+    this.numBlockCacheMisses = numBlockCacheMisses;
+    this.numBlockCacheEvictions = numBlockCacheEvictions;
   }
 }
@@ -32,6 +32,9 @@ public class RuntimeStatisticsAggregator {
   private long numHitsTotal;
   private long numL1CacheHitsTotal;
   private long numL2CacheHitsTotal;
+  private long numBlockCacheHitsTotal;
+  private long numBlockCacheMissesTotal;
+  private long numBlockCacheEvictionsTotal;
   private DoublePopulationStatisticsAggregator getRequestsPopulationStatistics;
 
   public RuntimeStatisticsAggregator() {
@@ -41,6 +44,9 @@ public class RuntimeStatisticsAggregator {
     numHitsTotal = 0;
     numL1CacheHitsTotal = 0;
     numL2CacheHitsTotal = 0;
+    numBlockCacheHitsTotal = 0;
+    numBlockCacheMissesTotal = 0;
+    numBlockCacheEvictionsTotal = 0;
     getRequestsPopulationStatistics = new DoublePopulationStatisticsAggregator();
   }
 
@@ -51,12 +57,37 @@ public class RuntimeStatisticsAggregator {
                                      long numL1CacheHitsTotal,
                                      long numL2CacheHitsTotal,
                                      DoublePopulationStatisticsAggregator getRequestsPopulationStatistics) {
+    this(throughputTotal,
+        responseDataThroughputTotal,
+        numRequestsTotal,
+        numHitsTotal,
+        numL1CacheHitsTotal,
+        numL2CacheHitsTotal,
+        0,
+        0,
+        0,
+        getRequestsPopulationStatistics);
+  }
+
+  public RuntimeStatisticsAggregator(double throughputTotal,
+                                     double responseDataThroughputTotal,
+                                     long numRequestsTotal,
+                                     long numHitsTotal,
+                                     long numL1CacheHitsTotal,
+                                     long numL2CacheHitsTotal,
+                                     long numBlockCacheHitsTotal,
+                                     long numBlockCacheMissesTotal,
+                                     long numBlockCacheEvictionsTotal,
+                                     DoublePopulationStatisticsAggregator getRequestsPopulationStatistics) {
     this.throughputTotal = throughputTotal;
     this.responseDataThroughputTotal = responseDataThroughputTotal;
     this.numRequestsTotal = numRequestsTotal;
     this.numHitsTotal = numHitsTotal;
     this.numL1CacheHitsTotal = numL1CacheHitsTotal;
     this.numL2CacheHitsTotal = numL2CacheHitsTotal;
+    this.numBlockCacheHitsTotal = numBlockCacheHitsTotal;
+    this.numBlockCacheMissesTotal = numBlockCacheMissesTotal;
+    this.numBlockCacheEvictionsTotal = numBlockCacheEvictionsTotal;
     this.getRequestsPopulationStatistics = getRequestsPopulationStatistics;
   }
 
@@ -67,6 +98,9 @@ public class RuntimeStatisticsAggregator {
     numHitsTotal += runtimeStatistics.numHits;
     numL1CacheHitsTotal += runtimeStatistics.numL1CacheHits;
     numL2CacheHitsTotal += runtimeStatistics.numL2CacheHits;
+    numBlockCacheHitsTotal += runtimeStatistics.numBlockCacheHits;
+    numBlockCacheMissesTotal += runtimeStatistics.numBlockCacheMisses;
+    numBlockCacheEvictionsTotal += runtimeStatistics.numBlockCacheEvictions;
   }
 
   public static RuntimeStatisticsAggregator combine(Collection<RuntimeStatisticsAggregator> runtimeStatisticsAggregators) {
@@ -80,6 +114,9 @@ public class RuntimeStatisticsAggregator {
       result.numHitsTotal += runtimeStatisticsAggregator.numHitsTotal;
       result.numL1CacheHitsTotal += runtimeStatisticsAggregator.numL1CacheHitsTotal;
       result.numL2CacheHitsTotal += runtimeStatisticsAggregator.numL2CacheHitsTotal;
+      result.numBlockCacheHitsTotal += runtimeStatisticsAggregator.numBlockCacheHitsTotal;
+      result.numBlockCacheMissesTotal += runtimeStatisticsAggregator.numBlockCacheMissesTotal;
+      result.numBlockCacheEvictionsTotal += runtimeStatisticsAggregator.numBlockCacheEvictionsTotal;
       doublePopulationStatisticsAggregators.add(runtimeStatisticsAggregator.getRequestsPopulationStatistics);
     }
     result.getRequestsPopulationStatistics = DoublePopulationStatisticsAggregator.combine(doublePopulationStatisticsAggregators);
@@ -122,10 +159,36 @@ public class RuntimeStatisticsAggregator {
     }
   }
 
+  // Ratio of block cache lookups that were hits
+  public double getBlockCacheHitRate() {
+    long numBlockCacheLookups = numBlockCacheHitsTotal + numBlockCacheMissesTotal;
+    if (numBlockCacheLookups == 0) {
+      return 0;
+    } else {
+      return (double) numBlockCacheHitsTotal / (double) numBlockCacheLookups;
+    }
+  }
+
+  public long getNumBlockCacheHits() {
+    return numBlockCacheHitsTotal;
+  }
+
+  public long getNumBlockCacheMisses() {
+    return numBlockCacheMissesTotal;
+  }
+
+  public long getNumBlockCacheEvictions() {
+    return numBlockCacheEvictionsTotal;
+  }
+
   public DoublePopulationStatisticsAggregator getGetRequestsPopulationStatistics() {
     return getRequestsPopulationStatistics;
   }
 
+  // Block cache counters follow this marker, after the request population statistics, so that
+  // statistics written in the previous format can still be parsed.
+  private static final String BLOCK_CACHE_STATISTICS_MARKER = "b";
+
   public static String toString(RuntimeStatisticsAggregator runtimeStatisticsAggregator) {
     return runtimeStatisticsAggregator.throughputTotal
         + " " + runtimeStatisticsAggregator.responseDataThroughputTotal
@@ -134,7 +197,11 @@ public class RuntimeStatisticsAggregator {
         + " " + runtimeStatisticsAggregator.numL1CacheHitsTotal
         + " " + runtimeStatisticsAggregator.numL2CacheHitsTotal
         + " " + DoublePopulationStatisticsAggregator.toString(
-        runtimeStatisticsAggregator.getRequestsPopulationStatistics);
+        runtimeStatisticsAggregator.getRequestsPopulationStatistics)
+        + " " + BLOCK_CACHE_STATISTICS_MARKER
+        + " " + runtimeStatisticsAggregator.numBlockCacheHitsTotal
+        + " " + runtimeStatisticsAggregator.numBlockCacheMissesTotal
+        + " " + runtimeStatisticsAggregator.numBlockCacheEvictionsTotal;
   }
 
   public static RuntimeStatisticsAggregator parse(String str) {
@@ -150,7 +217,18 @@ public class RuntimeStatisticsAggregator {
     long numHitsTotal = Long.parseLong(tokens[3]);
     long numL1CacheHitsTotal = Long.parseLong(tokens[4]);
     long numL2CacheHitsTotal = Long.parseLong(tokens[5]);
-    int numRandomSample = tokens.length - 10;
+    // Statistics written in the previous format end with the random sample and have no block cache counters
+    int randomSampleEnd = tokens.length;
+    long numBlockCacheHitsTotal = 0;
+    long numBlockCacheMissesTotal = 0;
+    long numBlockCacheEvictionsTotal = 0;
+    if (tokens.length >= 14 && tokens[tokens.length - 4].equals(BLOCK_CACHE_STATISTICS_MARKER)) {
+      randomSampleEnd = tokens.length - 4;
+      numBlockCacheHitsTotal = Long.parseLong(tokens[tokens.length - 3]);
+      numBlockCacheMissesTotal = Long.parseLong(tokens[tokens.length - 2]);
+      numBlockCacheEvictionsTotal = Long.parseLong(tokens[tokens.length - 1]);
+    }
+    int numRandomSample = randomSampleEnd - 10;
     double[] randomSample = new double[numRandomSample];
     for (int i = 0; i < numRandomSample; ++i) {
       randomSample[i] = Double.parseDouble(tokens[10 + i]);
@@ -168,6 +246,9 @@ public class RuntimeStatisticsAggregator {
         numHitsTotal,
         numL1CacheHitsTotal,
         numL2CacheHitsTotal,
+        numBlockCacheHitsTotal,
+        numBlockCacheMissesTotal,
+        numBlockCacheEvictionsTotal,
         getRequestsPopulationStatistics);
   }
 }
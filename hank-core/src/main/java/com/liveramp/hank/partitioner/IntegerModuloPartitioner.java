@@ -0,0 +1,56 @@
+/**
+ *  Copyright 2013 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.liveramp.hank.partitioner;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Implementation of Partitioner for keys that are non-negative integers,
+ * encoded big endian on 1 to 8 bytes. The partition number is the key modulo
+ * the number of partitions, so that dense keys remain dense in each partition.
+ */
+public class IntegerModuloPartitioner implements Partitioner {
+
+  @Override
+  public int partition(ByteBuffer key, int numPartitions) {
+    return (int) (decodeKey(key) % numPartitions);
+  }
+
+  public static long decodeKey(ByteBuffer key) {
+    int numBytes = key.remaining();
+    if (numBytes < 1 || numBytes > 8) {
+      throw new IllegalArgumentException("Integer keys must be 1 to 8 bytes long, but key is " + numBytes + " bytes long");
+    }
+    long result = 0;
+    for (int i = 0; i < numBytes; ++i) {
+      result = (result << 8) | (key.get(key.position() + i) & 0xff);
+    }
+    if (result < 0) {
+      throw new IllegalArgumentException("Integer keys must not be negative: " + result);
+    }
+    return result;
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    return other instanceof IntegerModuloPartitioner;
+  }
+
+  @Override
+  public String toString() {
+    return IntegerModuloPartitioner.class.getSimpleName();
+  }
+}
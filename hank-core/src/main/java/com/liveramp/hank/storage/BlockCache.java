@@ -0,0 +1,177 @@
+/**
+ *  Copyright 2013 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.hank.storage;
+
+import java.nio.ByteBuffer;
+
+import com.liveramp.hank.util.ManagedBytes;
+import com.liveramp.hank.util.MemoryBoundLruHashMap;
+
+/**
+ * Memory bound LRU cache of decompressed blocks, meant to be shared by all the
+ * Readers of a partition server. Blocks are identified by domain, partition,
+ * version and offset in the partition's data file. The cache is split into
+ * independently locked segments to reduce contention between concurrent readers.
+ */
+public class BlockCache {
+
+  public static final int DEFAULT_NUM_SEGMENTS = 16;
+
+  private final MemoryBoundLruHashMap<Key, Block>[] segments;
+
+  public BlockCache(long numBytesCapacity) {
+    this(numBytesCapacity, DEFAULT_NUM_SEGMENTS);
+  }
+
+  @SuppressWarnings("unchecked")
+  public BlockCache(long numBytesCapacity, int numSegments) {
+    if (numBytesCapacity < 0 || numSegments <= 0) {
+      throw new IllegalArgumentException("Invalid block cache capacity (" + numBytesCapacity
+          + ") or number of segments (" + numSegments + ")");
+    }
+    segments = new MemoryBoundLruHashMap[numSegments];
+    for (int i = 0; i < numSegments; ++i) {
+      segments[i] = new MemoryBoundLruHashMap<Key, Block>(numBytesCapacity / numSegments);
+    }
+  }
+
+  // Return a buffer holding the cached block, or null if it is not in the cache.
+  // The returned buffer is private to the caller but its content is shared and must not be modified.
+  public ByteBuffer get(Key key) {
+    MemoryBoundLruHashMap<Key, Block> segment = getSegment(key);
+    Block block;
+    synchronized (segment) {
+      block = segment.get(key);
+    }
+    if (block == null) {
+      return null;
+    } else {
+      return block.getBuffer().duplicate();
+    }
+  }
+
+  // The cache takes ownership of the remaining bytes of the given buffer.
+  // Return the number of blocks that were evicted to make room for it.
+  public int put(Key key, ByteBuffer buffer) {
+    MemoryBoundLruHashMap<Key, Block> segment = getSegment(key);
+    Block block = new Block(buffer.slice());
+    synchronized (segment) {
+      return segment.put(key, block);
+    }
+  }
+
+  public int size() {
+    int result = 0;
+    for (MemoryBoundLruHashMap<Key, Block> segment : segments) {
+      synchronized (segment) {
+        result += segment.size();
+      }
+    }
+    return result;
+  }
+
+  public long getNumManagedBytes() {
+    long result = 0;
+    for (MemoryBoundLruHashMap<Key, Block> segment : segments) {
+      synchronized (segment) {
+        result += segment.getNumManagedBytes();
+      }
+    }
+    return result;
+  }
+
+  private MemoryBoundLruHashMap<Key, Block> getSegment(Key key) {
+    // Spread the hash bits so that neighbouring blocks land in different segments
+    int hash = key.hashCode();
+    hash ^= (hash >>> 20) ^ (hash >>> 12);
+    hash ^= (hash >>> 7) ^ (hash >>> 4);
+    return segments[(hash & Integer.MAX_VALUE) % segments.length];
+  }
+
+  public static class Key implements ManagedBytes {
+
+    // Approximate size of a key object
+    private static final int NUM_MANAGED_BYTES = 40;
+
+    private final int domainId;
+    private final int partitionNumber;
+    private final int versionNumber;
+    private final long blockOffset;
+
+    public Key(int domainId, int partitionNumber, int versionNumber, long blockOffset) {
+      this.domainId = domainId;
+      this.partitionNumber = partitionNumber;
+      this.versionNumber = versionNumber;
+      this.blockOffset = blockOffset;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      Key that = (Key) o;
+      return domainId == that.domainId
+          && partitionNumber == that.partitionNumber
+          && versionNumber == that.versionNumber
+          && blockOffset == that.blockOffset;
+    }
+
+    @Override
+    public int hashCode() {
+      int result = domainId;
+      result = 31 * result + partitionNumber;
+      result = 31 * result + versionNumber;
+      result = 31 * result + (int) (blockOffset ^ (blockOffset >>> 32));
+      return result;
+    }
+
+    @Override
+    public long getNumManagedBytes() {
+      return NUM_MANAGED_BYTES;
+    }
+
+    @Override
+    public String toString() {
+      return "BlockCache.Key [domainId=" + domainId
+          + ", partitionNumber=" + partitionNumber
+          + ", versionNumber=" + versionNumber
+          + ", blockOffset=" + blockOffset + "]";
+    }
+  }
+
+  private static class Block implements ManagedBytes {
+
+    private final ByteBuffer buffer;
+
+    public Block(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    public ByteBuffer getBuffer() {
+      return buffer;
+    }
+
+    @Override
+    public long getNumManagedBytes() {
+      return buffer.capacity();
+    }
+  }
+}
@@ -28,6 +28,9 @@ public interface PartitionRemoteFileOps {
 
   public boolean exists(String remoteRelativePath) throws IOException;
 
+  // Number of bytes read through getInputStream, or -1 when it is not known without reading the file
+  public long getSize(String remoteRelativePath) throws IOException;
+
   public void copyToLocalRoot(String remoteSourceRelativePath, String localDestinationRoot) throws IOException;
 
   public boolean attemptDelete(String remoteRelativePath) throws IOException;
@@ -0,0 +1,33 @@
+/**
+ *  Copyright 2013 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.hank.storage;
+
+import com.liveramp.hank.coordinator.DomainVersion;
+import com.liveramp.hank.util.BandwidthThrottle;
+
+import java.io.IOException;
+
+/**
+ * A PartitionUpdater that can fetch the data it needs ahead of the update,
+ * while the current version is being served. The update then only runs
+ * locally.
+ */
+public interface PrefetchingPartitionUpdater extends PartitionUpdater {
+
+  // Fetch and cache the versions needed to update to the given version, at the rate allowed by the throttle
+  void prefetch(DomainVersion updatingToVersion, BandwidthThrottle throttle) throws IOException;
+}
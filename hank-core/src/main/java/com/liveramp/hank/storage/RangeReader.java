@@ -0,0 +1,37 @@
+/**
+ *  Copyright 2013 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.hank.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Readers of partitions that store keys in order, and can therefore scan
+ * ranges of keys.
+ */
+public interface RangeReader extends Reader {
+
+  // Append to keys and values the entries of this partition whose keys are in [startKey, endKey),
+  // in increasing (unsigned lexicographic) key order, stopping after maxNumResults entries.
+  // A null startKey means from the first key, and a null endKey means up to the last key.
+  public void getRange(ByteBuffer startKey,
+                       ByteBuffer endKey,
+                       int maxNumResults,
+                       List<ByteBuffer> keys,
+                       List<ByteBuffer> values) throws IOException;
+}
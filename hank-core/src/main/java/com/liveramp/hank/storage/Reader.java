@@ -17,6 +17,7 @@ package com.liveramp.hank.storage;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.List;
 
 /**
  * Interface through which individual partitions are queried.
@@ -25,6 +26,11 @@ public interface Reader {
 
   public void get(ByteBuffer key, ReaderResult result) throws IOException;
 
+  // Look up many keys of this partition at once. The result of each key is stored in the
+  // result at the same index. Readers that cannot order their I/O better than one key at
+  // a time use Readers.getBulk().
+  public void getBulk(List<ByteBuffer> keys, List<ReaderResult> results) throws IOException;
+
   // null means no versioning
   public Integer getVersionNumber();
 
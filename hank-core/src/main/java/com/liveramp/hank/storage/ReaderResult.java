@@ -24,8 +24,14 @@ public class ReaderResult {
   private boolean isFound = false;
 
   private ByteBuffer buffer;
+  // Read-only value owned by the Reader (e.g. a slice of a memory mapped file), returned
+  // instead of the above buffer until the next call to clear() or requiresBufferSize()
+  private ByteBuffer borrowedBuffer;
   private boolean l1CacheHit = false;
   private boolean l2CacheHit = false;
+  private boolean blockCacheHit = false;
+  private boolean blockCacheMiss = false;
+  private int numBlockCacheEvictions = 0;
 
   public ReaderResult() {
   }
@@ -38,6 +44,10 @@ public class ReaderResult {
     isFound = false;
     l1CacheHit = false;
     l2CacheHit = false;
+    blockCacheHit = false;
+    blockCacheMiss = false;
+    numBlockCacheEvictions = 0;
+    borrowedBuffer = null;
     if (buffer != null) {
       buffer.clear();
     }
@@ -56,13 +66,23 @@ public class ReaderResult {
   }
 
   public void requiresBufferSize(int size) {
+    borrowedBuffer = null;
     if (buffer == null || buffer.capacity() < size) {
       buffer = ByteBuffer.wrap(new byte[size]);
     }
   }
 
   public ByteBuffer getBuffer() {
-    return buffer;
+    return borrowedBuffer != null ? borrowedBuffer : buffer;
+  }
+
+  // The given buffer is not copied, and might not be backed by an array
+  public void borrowBuffer(ByteBuffer value) {
+    borrowedBuffer = value;
+  }
+
+  public boolean isBufferBorrowed() {
+    return borrowedBuffer != null;
   }
 
   public boolean getL1CacheHit() {
@@ -81,6 +101,30 @@ public class ReaderResult {
     this.l2CacheHit = l2CacheHit;
   }
 
+  public boolean getBlockCacheHit() {
+    return blockCacheHit;
+  }
+
+  public void setBlockCacheHit(boolean blockCacheHit) {
+    this.blockCacheHit = blockCacheHit;
+  }
+
+  public boolean getBlockCacheMiss() {
+    return blockCacheMiss;
+  }
+
+  public void setBlockCacheMiss(boolean blockCacheMiss) {
+    this.blockCacheMiss = blockCacheMiss;
+  }
+
+  public int getNumBlockCacheEvictions() {
+    return numBlockCacheEvictions;
+  }
+
+  public void setNumBlockCacheEvictions(int numBlockCacheEvictions) {
+    this.numBlockCacheEvictions = numBlockCacheEvictions;
+  }
+
   public void deepCopyIntoResultBuffer(ByteBuffer value) {
     requiresBufferSize(value.remaining());
     buffer.clear();
@@ -94,7 +138,7 @@ public class ReaderResult {
     sb.append(isFound);
     if (isFound) {
       sb.append(", data=");
-      sb.append(Bytes.bytesToHexString(buffer));
+      sb.append(Bytes.bytesToHexString(getBuffer()));
     }
     sb.append("]");
     return sb.toString();
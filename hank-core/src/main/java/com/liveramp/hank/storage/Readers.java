@@ -0,0 +1,42 @@
+/**
+ *  Copyright 2013 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.hank.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+public final class Readers {
+
+  private Readers() {
+  }
+
+  // Default implementation of Reader.getBulk(): look up keys one at a time, in order
+  public static void getBulk(Reader reader, List<ByteBuffer> keys, List<ReaderResult> results) throws IOException {
+    checkBulkArguments(keys, results);
+    for (int i = 0; i < keys.size(); ++i) {
+      reader.get(keys.get(i), results.get(i));
+    }
+  }
+
+  public static void checkBulkArguments(List<ByteBuffer> keys, List<ReaderResult> results) {
+    if (keys.size() != results.size()) {
+      throw new IllegalArgumentException("Number of keys (" + keys.size()
+          + ") does not match number of results (" + results.size() + ")");
+    }
+  }
+}
@@ -2,10 +2,12 @@ package com.liveramp.hank.storage.echo;
 
 import com.liveramp.hank.storage.Reader;
 import com.liveramp.hank.storage.ReaderResult;
+import com.liveramp.hank.storage.Readers;
 import com.liveramp.hank.util.Bytes;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.List;
 
 public class EchoReader implements Reader {
   private final int partNum;
@@ -28,6 +30,11 @@ public class EchoReader implements Reader {
     result.found();
   }
 
+  @Override
+  public void getBulk(List<ByteBuffer> keys, List<ReaderResult> results) throws IOException {
+    Readers.getBulk(this, keys, results);
+  }
+
   @Override
   public Integer getVersionNumber() {
     return null;
@@ -0,0 +1,73 @@
+/**
+ *  Copyright 2013 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.hank.util;
+
+import java.io.InterruptedIOException;
+
+/**
+ * Limits the rate at which bytes are transferred, e.g. to fetch data in the
+ * background without competing with the traffic being served. Can be shared
+ * by concurrent transfers, which then share the rate.
+ */
+public class BandwidthThrottle {
+
+  private static final long NANOS_PER_SECOND = 1000000000L;
+  private static final long NANOS_PER_MILLI = 1000000L;
+
+  private final long maxBytesPerSecond;
+  private long nextAvailableNanos;
+  private long numBytes = 0;
+
+  public BandwidthThrottle(long maxBytesPerSecond) {
+    if (maxBytesPerSecond <= 0) {
+      throw new IllegalArgumentException("Maximum number of bytes per second must be positive: " + maxBytesPerSecond);
+    }
+    this.maxBytesPerSecond = maxBytesPerSecond;
+    this.nextAvailableNanos = System.nanoTime();
+  }
+
+  // Block until the given number of bytes can be transferred without exceeding the maximum rate
+  public void acquire(int numBytes) throws InterruptedIOException {
+    long sleepNanos;
+    synchronized (this) {
+      long now = System.nanoTime();
+      // Do not accumulate credit while idle
+      if (nextAvailableNanos < now) {
+        nextAvailableNanos = now;
+      }
+      sleepNanos = nextAvailableNanos - now;
+      nextAvailableNanos += numBytes * NANOS_PER_SECOND / maxBytesPerSecond;
+      this.numBytes += numBytes;
+    }
+    if (sleepNanos > 0) {
+      try {
+        Thread.sleep(sleepNanos / NANOS_PER_MILLI, (int) (sleepNanos % NANOS_PER_MILLI));
+      } catch (InterruptedException e) {
+        throw new InterruptedIOException("Interrupted while throttling");
+      }
+    }
+  }
+
+  // Total number of bytes transferred through this throttle
+  public synchronized long getNumBytes() {
+    return numBytes;
+  }
+
+  public long getMaxBytesPerSecond() {
+    return maxBytesPerSecond;
+  }
+}
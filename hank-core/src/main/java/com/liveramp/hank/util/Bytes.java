@@ -45,6 +45,23 @@ public final class Bytes {
     return 0;
   }
 
+  // Compare using absolute gets, so that a can be a direct (e.g. memory mapped) buffer
+  public static int compareBytesUnsigned(ByteBuffer a, int aOff, byte[] b, int bOff, int len) {
+    if (len > a.limit() - aOff || len > b.length - bOff) {
+      throw new RuntimeException("Not enough bytes left to compare!");
+    }
+    for (int i = 0; i < len; i++) {
+      final int ab = a.get(aOff + i) & 0xff;
+      final int bb = b[bOff + i] & 0xff;
+      if (ab > bb) {
+        return 1;
+      } else if (ab < bb) {
+        return -1;
+      }
+    }
+    return 0;
+  }
+
   public static int compareBytesUnsigned(ByteBuffer a, ByteBuffer b) {
     if (a.remaining() != b.remaining()) {
       throw new RuntimeException("Cannot compare ByteBuffers that have a different number of remaining elements.");
@@ -54,6 +71,100 @@ public final class Bytes {
         a.remaining());
   }
 
+  // Word at a time variants of the above. Bytes are loaded 8 at a time as big endian longs,
+  // so that equal leading bytes cost one branch per word instead of one per byte.
+  // Results are the same as compareBytesUnsigned(), that is -1, 0 or 1.
+
+  public static int compareWordsUnsigned(byte[] a, int aOff, byte[] b, int bOff, int len) {
+    int mismatch = mismatch(a, aOff, b, bOff, len);
+    if (mismatch < 0) {
+      return 0;
+    }
+    return (a[aOff + mismatch] & 0xff) < (b[bOff + mismatch] & 0xff) ? -1 : 1;
+  }
+
+  // Word loads from direct buffers are bounds and liveness checked on each access,
+  // and measure slower than absolute byte gets (see PerformanceTestBytesCompare),
+  // so only heap buffers take the word at a time path.
+  public static int compareWordsUnsigned(ByteBuffer a, int aOff, byte[] b, int bOff, int len) {
+    if (a.hasArray()) {
+      if (len > a.limit() - aOff) {
+        throw new RuntimeException("Not enough bytes left to compare!");
+      }
+      return compareWordsUnsigned(a.array(), a.arrayOffset() + aOff, b, bOff, len);
+    } else {
+      return compareBytesUnsigned(a, aOff, b, bOff, len);
+    }
+  }
+
+  public static int compareWordsUnsigned(ByteBuffer a, ByteBuffer b) {
+    if (a.remaining() != b.remaining()) {
+      throw new RuntimeException("Cannot compare ByteBuffers that have a different number of remaining elements.");
+    }
+    return compareWordsUnsigned(a.array(), a.arrayOffset() + a.position(),
+        b.array(), b.arrayOffset() + b.position(),
+        a.remaining());
+  }
+
+  // Return the index (relative to the given offsets) of the first byte that differs
+  // between the two ranges, or -1 if they are equal.
+  public static int mismatch(byte[] a, int aOff, byte[] b, int bOff, int len) {
+    if (len > a.length - aOff || len > b.length - bOff) {
+      throw new RuntimeException("Not enough bytes left to compare!");
+    }
+    int i = 0;
+    if (len >= 8) {
+      // Heap buffer long gets are compiled to single (big endian) loads
+      ByteBuffer aWords = ByteBuffer.wrap(a);
+      ByteBuffer bWords = ByteBuffer.wrap(b);
+      for (; i <= len - 8; i += 8) {
+        long aw = aWords.getLong(aOff + i);
+        long bw = bWords.getLong(bOff + i);
+        if (aw != bw) {
+          return i + (Long.numberOfLeadingZeros(aw ^ bw) >>> 3);
+        }
+      }
+    }
+    for (; i < len; ++i) {
+      if (a[aOff + i] != b[bOff + i]) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  // Unsigned lexicographic order of byte ranges of any length.
+  // When one is a prefix of the other, the shorter one comes first.
+  public static int compareLexicographicUnsigned(byte[] a, int aOff, int aLen, byte[] b, int bOff, int bLen) {
+    int i = mismatch(a, aOff, b, bOff, Math.min(aLen, bLen));
+    if (i >= 0) {
+      return (a[aOff + i] & 0xff) < (b[bOff + i] & 0xff) ? -1 : 1;
+    }
+    if (aLen == bLen) {
+      return 0;
+    }
+    return aLen < bLen ? -1 : 1;
+  }
+
+  public static int compareLexicographicUnsigned(ByteBuffer a, ByteBuffer b) {
+    if (a.hasArray() && b.hasArray()) {
+      return compareLexicographicUnsigned(a.array(), a.arrayOffset() + a.position(), a.remaining(),
+          b.array(), b.arrayOffset() + b.position(), b.remaining());
+    }
+    int len = Math.min(a.remaining(), b.remaining());
+    for (int i = 0; i < len; ++i) {
+      int ab = a.get(a.position() + i) & 0xff;
+      int bb = b.get(b.position() + i) & 0xff;
+      if (ab != bb) {
+        return ab < bb ? -1 : 1;
+      }
+    }
+    if (a.remaining() == b.remaining()) {
+      return 0;
+    }
+    return a.remaining() < b.remaining() ? -1 : 1;
+  }
+
   public static byte[] intToBytes(int value) {
     return new byte[]{
         (byte) (value >>> 24),
@@ -112,7 +223,7 @@ public final class Bytes {
   public static String bytesToHexString(ByteBuffer b) {
     StringBuilder result = new StringBuilder();
     for (int i = 0; i < b.remaining(); ++i) {
-      final int v = b.array()[b.arrayOffset() + b.position() + i] & 0xff;
+      final int v = b.get(b.position() + i) & 0xff;
       if (i > 0) {
         result.append(" ");
       }
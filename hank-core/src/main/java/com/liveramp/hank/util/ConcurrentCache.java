@@ -0,0 +1,243 @@
+/**
+ *  Copyright 2013 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.liveramp.hank.util;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded cache with the same interface as {@link SynchronizedCache}, but without
+ * a global lock. Entries are spread over segments by key hash. Lookups never
+ * lock: they only read a concurrent map and mark the entry as referenced.
+ * Insertions lock their segment, which evicts entries in CLOCK order (an
+ * approximation of LRU where referenced entries get a second chance).
+ *
+ * Capacities are divided evenly among segments. Either capacity can be
+ * disabled with a negative value. Entries larger than the byte capacity of a
+ * segment are not cached.
+ */
+public class ConcurrentCache<K, V> {
+
+  public static final int DEFAULT_NUM_SEGMENTS = 16;
+
+  public interface NumManagedBytesEstimator<K, V> {
+
+    public long getNumManagedBytes(K key, V value);
+  }
+
+  public static final NumManagedBytesEstimator<ByteBuffer, ByteBuffer> BYTE_BUFFER_ESTIMATOR =
+      new NumManagedBytesEstimator<ByteBuffer, ByteBuffer>() {
+        @Override
+        public long getNumManagedBytes(ByteBuffer key, ByteBuffer value) {
+          return key.capacity() + value.capacity();
+        }
+      };
+
+  private final Segment<K, V>[] segments;
+  private final int segmentMask;
+
+  // A disabled cache will not add any synchronization overhead
+  public ConcurrentCache(boolean isEnabled, int numItemsCapacity) {
+    this(isEnabled, numItemsCapacity, -1, null);
+  }
+
+  public ConcurrentCache(boolean isEnabled,
+                         int numItemsCapacity,
+                         long numBytesCapacity,
+                         NumManagedBytesEstimator<K, V> numManagedBytesEstimator) {
+    this(isEnabled, numItemsCapacity, numBytesCapacity, numManagedBytesEstimator, DEFAULT_NUM_SEGMENTS);
+  }
+
+  @SuppressWarnings("unchecked")
+  public ConcurrentCache(boolean isEnabled,
+                         int numItemsCapacity,
+                         long numBytesCapacity,
+                         NumManagedBytesEstimator<K, V> numManagedBytesEstimator,
+                         int numSegments) {
+    if (numBytesCapacity >= 0 && numManagedBytesEstimator == null) {
+      throw new IllegalArgumentException("A byte capacity requires an estimator of the number of managed bytes");
+    }
+    if (!isEnabled) {
+      segments = null;
+      segmentMask = 0;
+      return;
+    }
+    // Use a power of two number of segments, with at least one item per segment
+    int actualNumSegments = 1;
+    while (actualNumSegments * 2 <= numSegments
+        && (numItemsCapacity < 0 || actualNumSegments * 2 <= numItemsCapacity)) {
+      actualNumSegments *= 2;
+    }
+    segments = new Segment[actualNumSegments];
+    segmentMask = actualNumSegments - 1;
+    for (int i = 0; i < actualNumSegments; ++i) {
+      segments[i] = new Segment<K, V>(
+          numItemsCapacity < 0 ? -1 : numItemsCapacity / actualNumSegments,
+          numBytesCapacity < 0 ? -1 : numBytesCapacity / actualNumSegments,
+          numManagedBytesEstimator);
+    }
+  }
+
+  public boolean isEnabled() {
+    return segments != null;
+  }
+
+  public V get(K key) {
+    if (!isEnabled()) {
+      return null;
+    } else {
+      return getSegment(key).get(key);
+    }
+  }
+
+  public void put(K key, V value) {
+    if (isEnabled()) {
+      if (value == null) {
+        throw new IllegalArgumentException("Value to put in cache should not be null.");
+      }
+      getSegment(key).put(key, value);
+    }
+  }
+
+  public int size() {
+    int result = 0;
+    if (isEnabled()) {
+      for (Segment<K, V> segment : segments) {
+        result += segment.size();
+      }
+    }
+    return result;
+  }
+
+  public long getNumManagedBytes() {
+    long result = 0;
+    if (isEnabled()) {
+      for (Segment<K, V> segment : segments) {
+        result += segment.getNumManagedBytes();
+      }
+    }
+    return result;
+  }
+
+  private Segment<K, V> getSegment(K key) {
+    int hash = key.hashCode();
+    // Spread the higher bits, since the segment only depends on the lower ones
+    hash ^= (hash >>> 16) ^ (hash >>> 8);
+    return segments[hash & segmentMask];
+  }
+
+  private static class Entry<K, V> {
+
+    private final K key;
+    private volatile V value;
+    private volatile boolean referenced;
+    // Only accessed while holding the segment lock
+    private long numManagedBytes;
+
+    private Entry(K key, V value, long numManagedBytes) {
+      this.key = key;
+      this.value = value;
+      this.numManagedBytes = numManagedBytes;
+    }
+  }
+
+  private static class Segment<K, V> {
+
+    private final ConcurrentHashMap<K, Entry<K, V>> map = new ConcurrentHashMap<K, Entry<K, V>>();
+    // Insertion order, in which the clock hand goes around
+    private final ArrayDeque<Entry<K, V>> clock = new ArrayDeque<Entry<K, V>>();
+    private final int numItemsCapacity;
+    private final long numBytesCapacity;
+    private final NumManagedBytesEstimator<K, V> numManagedBytesEstimator;
+    private volatile long numManagedBytes = 0;
+
+    private Segment(int numItemsCapacity,
+                    long numBytesCapacity,
+                    NumManagedBytesEstimator<K, V> numManagedBytesEstimator) {
+      this.numItemsCapacity = numItemsCapacity;
+      this.numBytesCapacity = numBytesCapacity;
+      this.numManagedBytesEstimator = numManagedBytesEstimator;
+    }
+
+    private V get(K key) {
+      Entry<K, V> entry = map.get(key);
+      if (entry == null) {
+        return null;
+      }
+      // Avoid writing to shared memory when the entry is already marked
+      if (!entry.referenced) {
+        entry.referenced = true;
+      }
+      return entry.value;
+    }
+
+    private synchronized void put(K key, V value) {
+      long entryNumManagedBytes = numManagedBytesEstimator == null ? 0
+          : numManagedBytesEstimator.getNumManagedBytes(key, value);
+      Entry<K, V> entry = map.get(key);
+      if (numBytesCapacity >= 0 && entryNumManagedBytes > numBytesCapacity) {
+        if (entry != null) {
+          map.remove(key);
+          clock.remove(entry);
+          numManagedBytes -= entry.numManagedBytes;
+        }
+        return;
+      }
+      if (entry != null) {
+        // Replace value in place, the entry keeps its position in the clock
+        numManagedBytes += entryNumManagedBytes - entry.numManagedBytes;
+        entry.numManagedBytes = entryNumManagedBytes;
+        entry.value = value;
+        evict(0, 0);
+      } else {
+        // Make room first, so that the new entry is never the one evicted
+        evict(1, entryNumManagedBytes);
+        entry = new Entry<K, V>(key, value, entryNumManagedBytes);
+        map.put(key, entry);
+        clock.addLast(entry);
+        numManagedBytes += entryNumManagedBytes;
+      }
+    }
+
+    // Evict entries until the given number of additional items and bytes fit
+    private void evict(int numAdditionalItems, long numAdditionalBytes) {
+      while (!clock.isEmpty()
+          && ((numItemsCapacity >= 0 && clock.size() + numAdditionalItems > numItemsCapacity)
+          || (numBytesCapacity >= 0 && numManagedBytes + numAdditionalBytes > numBytesCapacity))) {
+        Entry<K, V> entry = clock.pollFirst();
+        if (entry.referenced) {
+          // Second chance
+          entry.referenced = false;
+          clock.addLast(entry);
+        } else {
+          map.remove(entry.key);
+          numManagedBytes -= entry.numManagedBytes;
+        }
+      }
+    }
+
+    private int size() {
+      return map.size();
+    }
+
+    private long getNumManagedBytes() {
+      return numManagedBytes;
+    }
+  }
+}
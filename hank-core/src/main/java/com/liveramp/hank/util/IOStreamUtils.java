@@ -41,4 +41,19 @@ public class IOStreamUtils {
     }
     return count;
   }
+
+  // Copy at the rate allowed by the given throttle
+  public static long copy(final InputStream input,
+                          final OutputStream output,
+                          final BandwidthThrottle throttle) throws IOException {
+    byte[] buffer = new byte[DEFAULT_BUFFER_SIZE];
+    long count = 0;
+    int n = 0;
+    while (-1 != (n = input.read(buffer))) {
+      throttle.acquire(n);
+      output.write(buffer, 0, n);
+      count += n;
+    }
+    return count;
+  }
 }
@@ -36,7 +36,9 @@ public class MemoryBoundLruHashMap<K extends ManagedBytes, V extends ManagedByte
     map = new LruHashMap<K, V>(0, numItemsCapacity);
   }
 
-  public void put(K key, V value) {
+  // Return the number of entries that were evicted to respect capacity
+  public int put(K key, V value) {
+    int numEvicted = 0;
     // First, remove from map if it exists
     if (map.containsKey(key)) {
       V oldValue = map.remove(key);
@@ -51,6 +53,7 @@ public class MemoryBoundLruHashMap<K extends ManagedBytes, V extends ManagedByte
     Map.Entry<K, V> eldestRemoved = map.getAndClearEldestRemoved();
     if (eldestRemoved != null) {
       unmanage(eldestRemoved);
+      ++numEvicted;
     }
 
     // Now remove elements until byte count is under the threshold
@@ -60,8 +63,10 @@ public class MemoryBoundLruHashMap<K extends ManagedBytes, V extends ManagedByte
         Map.Entry<K, V> eldest = iterator.next();
         unmanage(eldest);
         iterator.remove();
+        ++numEvicted;
       }
     }
+    return numEvicted;
   }
 
   public V get(K key) {
@@ -0,0 +1,164 @@
+/**
+ *  Copyright 2013 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.hank.util;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Read-only memory mapping of a file. Since a single mapping cannot exceed 2GB,
+ * the file is mapped in consecutive segments. Each segment also maps the first
+ * overlap bytes of the next one, so that any range of at most overlap bytes
+ * can be accessed as a single contiguous slice.
+ *
+ * Slices handed out remain valid after the file channel is closed, until the
+ * file is unmapped. Owners that cannot guarantee when slices stop being used
+ * should not call unmap(), and segments are then unmapped once they are
+ * garbage collected.
+ */
+public class MemoryMappedFile {
+
+  private static final Logger LOG = Logger.getLogger(MemoryMappedFile.class);
+
+  public static final int DEFAULT_SEGMENT_SIZE = 1 << 30;
+
+  private static final ByteBuffer EMPTY_BUFFER = ByteBuffer.wrap(new byte[0]);
+
+  private final long length;
+  private final int segmentSize;
+  private final int overlap;
+  private final MappedByteBuffer[] segments;
+
+  public MemoryMappedFile(FileChannel channel, long length, int overlap) throws IOException {
+    this(channel, length, DEFAULT_SEGMENT_SIZE, overlap);
+  }
+
+  public MemoryMappedFile(FileChannel channel, long length, int segmentSize, int overlap) throws IOException {
+    if (segmentSize <= 0 || overlap < 0 || (long) segmentSize + (long) overlap > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Invalid segment size (" + segmentSize + ") and overlap (" + overlap + ")");
+    }
+    this.length = length;
+    this.segmentSize = segmentSize;
+    this.overlap = overlap;
+    int numSegments = (int) ((length + segmentSize - 1) / segmentSize);
+    segments = new MappedByteBuffer[numSegments];
+    for (int i = 0; i < numSegments; ++i) {
+      long segmentStart = (long) i * segmentSize;
+      long segmentLength = Math.min((long) segmentSize + overlap, length - segmentStart);
+      segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, segmentStart, segmentLength);
+    }
+  }
+
+  // Return a read-only buffer positioned at 0 and holding exactly the requested range.
+  // The requested length must not exceed the overlap when the range crosses a segment boundary.
+  public ByteBuffer getSlice(long offset, int sliceLength) {
+    if (offset < 0 || sliceLength < 0 || offset + sliceLength > length) {
+      throw new IndexOutOfBoundsException("Cannot get slice at offset " + offset
+          + " of length " + sliceLength + " in mapped file of length " + length);
+    }
+    if (sliceLength == 0) {
+      return EMPTY_BUFFER.duplicate();
+    }
+    int segmentIndex = (int) (offset / segmentSize);
+    int offsetInSegment = (int) (offset - (long) segmentIndex * segmentSize);
+    MappedByteBuffer segment = getSegment(segmentIndex);
+    if (offsetInSegment + sliceLength > segment.capacity()) {
+      throw new IllegalArgumentException("Slice at offset " + offset + " of length " + sliceLength
+          + " crosses a segment boundary by more than the configured overlap (" + overlap + ")");
+    }
+    // Duplicate so that concurrent readers do not share position and limit
+    ByteBuffer slice = segment.duplicate();
+    slice.limit(offsetInSegment + sliceLength);
+    slice.position(offsetInSegment);
+    return slice.slice();
+  }
+
+  // Return true if the given range can be accessed as a single slice
+  public boolean isContiguous(long offset, int sliceLength) {
+    if (offset < 0 || sliceLength < 0 || offset + sliceLength > length) {
+      return false;
+    }
+    if (sliceLength == 0) {
+      return true;
+    }
+    int segmentIndex = (int) (offset / segmentSize);
+    int offsetInSegment = (int) (offset - (long) segmentIndex * segmentSize);
+    return offsetInSegment + sliceLength <= getSegment(segmentIndex).capacity();
+  }
+
+  /**
+   * Release the mapping right away instead of waiting for garbage collection.
+   * Slices handed out must not be accessed anymore: doing so could crash the JVM.
+   * Segments that cannot be unmapped explicitly on this JVM are left to the
+   * garbage collector.
+   */
+  public void unmap() {
+    for (int i = 0; i < segments.length; ++i) {
+      MappedByteBuffer segment = segments[i];
+      segments[i] = null;
+      if (segment != null) {
+        try {
+          clean(segment);
+        } catch (Exception e) {
+          LOG.warn("Failed to unmap memory mapped file segment, it will be unmapped once garbage collected", e);
+        }
+      }
+    }
+  }
+
+  private static void clean(MappedByteBuffer segment) throws Exception {
+    Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+    Method invokeCleaner;
+    try {
+      invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+    } catch (NoSuchMethodException e) {
+      // Before Java 9, direct buffers expose their cleaner
+      Method cleanerMethod = segment.getClass().getMethod("cleaner");
+      cleanerMethod.setAccessible(true);
+      Object cleaner = cleanerMethod.invoke(segment);
+      if (cleaner != null) {
+        cleaner.getClass().getMethod("clean").invoke(cleaner);
+      }
+      return;
+    }
+    Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+    theUnsafe.setAccessible(true);
+    invokeCleaner.invoke(theUnsafe.get(null), segment);
+  }
+
+  private MappedByteBuffer getSegment(int segmentIndex) {
+    MappedByteBuffer segment = segments[segmentIndex];
+    if (segment == null) {
+      throw new IllegalStateException("Memory mapped file was unmapped");
+    }
+    return segment;
+  }
+
+  public long getLength() {
+    return length;
+  }
+
+  public int getNumSegments() {
+    return segments.length;
+  }
+}
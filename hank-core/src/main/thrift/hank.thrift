@@ -39,9 +39,24 @@ union HankBulkResponse {
   2: HankException xception;
 }
 
+struct HankRange {
+  /* Keys in ascending order, and their values */
+  1: required list<binary> keys;
+  2: required list<binary> values;
+}
+
+union HankRangeResponse {
+  /* Entries found in the requested range */
+  1: HankRange range;
+
+  /* Error states */
+  2: HankException xception;
+}
+
 service PartitionServer {
   HankResponse get(1:i32 domain_id, 2:binary key);
   HankBulkResponse getBulk(1:i32 domain_id, 2:list<binary> keys);
+  HankRangeResponse getRange(1:i32 domain_id, 2:i32 partition_number, 3:binary start_key, 4:binary end_key, 5:i32 max_num_results);
 }
 
 service SmartClient {
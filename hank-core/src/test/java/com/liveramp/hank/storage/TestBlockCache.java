@@ -0,0 +1,80 @@
+/**
+ *  Copyright 2013 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.hank.storage;
+
+import java.nio.ByteBuffer;
+
+import com.liveramp.hank.test.BaseTestCase;
+
+public class TestBlockCache extends BaseTestCase {
+
+  public void testGetPut() {
+    BlockCache cache = new BlockCache(1 << 20);
+    BlockCache.Key key = new BlockCache.Key(1, 2, 3, 4L);
+
+    assertNull(cache.get(key));
+    assertEquals(0, cache.put(key, ByteBuffer.wrap(new byte[]{1, 2, 3})));
+    assertEquals(1, cache.size());
+    assertEquals(ByteBuffer.wrap(new byte[]{1, 2, 3}), cache.get(new BlockCache.Key(1, 2, 3, 4L)));
+
+    // Keys differing in any field are distinct
+    assertNull(cache.get(new BlockCache.Key(0, 2, 3, 4L)));
+    assertNull(cache.get(new BlockCache.Key(1, 0, 3, 4L)));
+    assertNull(cache.get(new BlockCache.Key(1, 2, 0, 4L)));
+    assertNull(cache.get(new BlockCache.Key(1, 2, 3, 0L)));
+
+    // Returned buffers do not share position and limit
+    ByteBuffer block = cache.get(key);
+    block.position(2);
+    assertEquals(3, cache.get(key).remaining());
+  }
+
+  public void testOnlyRemainingBytesAreCached() {
+    BlockCache cache = new BlockCache(1 << 20);
+    BlockCache.Key key = new BlockCache.Key(1, 2, 3, 4L);
+    ByteBuffer buffer = ByteBuffer.wrap(new byte[]{1, 2, 3, 4, 5});
+    buffer.position(1);
+    buffer.limit(3);
+    cache.put(key, buffer);
+    assertEquals(ByteBuffer.wrap(new byte[]{2, 3}), cache.get(key));
+  }
+
+  public void testEviction() {
+    // Key overhead is 40 bytes
+    BlockCache cache = new BlockCache(100, 1);
+    BlockCache.Key key1 = new BlockCache.Key(0, 0, 0, 1L);
+    BlockCache.Key key2 = new BlockCache.Key(0, 0, 0, 2L);
+    BlockCache.Key key3 = new BlockCache.Key(0, 0, 0, 3L);
+
+    assertEquals(0, cache.put(key1, ByteBuffer.wrap(new byte[10])));
+    assertEquals(50, cache.getNumManagedBytes());
+    assertEquals(0, cache.put(key2, ByteBuffer.wrap(new byte[10])));
+    assertEquals(100, cache.getNumManagedBytes());
+
+    // Least recently used block is evicted
+    assertNotNull(cache.get(key1));
+    assertEquals(1, cache.put(key3, ByteBuffer.wrap(new byte[10])));
+    assertNotNull(cache.get(key1));
+    assertNull(cache.get(key2));
+    assertNotNull(cache.get(key3));
+
+    // A large block evicts everything else
+    assertEquals(2, cache.put(key2, ByteBuffer.wrap(new byte[60])));
+    assertEquals(1, cache.size());
+    assertEquals(100, cache.getNumManagedBytes());
+  }
+}
@@ -16,6 +16,8 @@
 package com.liveramp.hank.util;
 
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
 
 import junit.framework.TestCase;
 
@@ -51,6 +53,66 @@ public class TestBytes extends TestCase {
     }
   }
 
+  public void testCompareWords() throws Exception {
+    assertEquals(-1, Bytes.compareWordsUnsigned(B, 0, A, 0, 3));
+    assertEquals(1, Bytes.compareWordsUnsigned(A, 0, B, 0, 3));
+    assertEquals(-1, Bytes.compareWordsUnsigned(A, 1, C, 1, 2));
+    assertEquals(0, Bytes.compareWordsUnsigned(A, 1, D, 1, 1));
+    assertEquals(-1, Bytes.compareWordsUnsigned(A, 0, E, 0, 3));
+    assertEquals(1, Bytes.compareWordsUnsigned(E, 0, A, 0, 3));
+
+    // Compare against the byte by byte version on lengths that span several words
+    Random random = new Random(0);
+    for (int i = 0; i < 10000; ++i) {
+      int len = random.nextInt(24);
+      byte[] a = new byte[len + 2];
+      byte[] b = new byte[len + 1];
+      random.nextBytes(a);
+      System.arraycopy(a, 2, b, 1, len);
+      if (len > 0 && random.nextBoolean()) {
+        b[1 + random.nextInt(len)] = (byte) random.nextInt();
+      }
+      int expected = Bytes.compareBytesUnsigned(a, 2, b, 1, len);
+      assertEquals(expected, Bytes.compareWordsUnsigned(a, 2, b, 1, len));
+      assertEquals(expected, Bytes.compareWordsUnsigned(ByteBuffer.wrap(a), 2, b, 1, len));
+      ByteBuffer direct = ByteBuffer.allocateDirect(a.length).order(ByteOrder.LITTLE_ENDIAN);
+      direct.put(a);
+      assertEquals(expected, Bytes.compareWordsUnsigned(direct, 2, b, 1, len));
+    }
+  }
+
+  public void testCompareLexicographic() throws Exception {
+    assertEquals(0, Bytes.compareLexicographicUnsigned(ByteBuffer.wrap(A), ByteBuffer.wrap(new byte[]{1, 2, 3})));
+    assertEquals(-1, Bytes.compareLexicographicUnsigned(ByteBuffer.wrap(B), ByteBuffer.wrap(A)));
+    assertEquals(1, Bytes.compareLexicographicUnsigned(ByteBuffer.wrap(E), ByteBuffer.wrap(A)));
+    // Prefixes come first
+    assertEquals(-1, Bytes.compareLexicographicUnsigned(ByteBuffer.wrap(A, 0, 2), ByteBuffer.wrap(A)));
+    assertEquals(1, Bytes.compareLexicographicUnsigned(ByteBuffer.wrap(A), ByteBuffer.wrap(new byte[]{1, 2})));
+    assertEquals(-1, Bytes.compareLexicographicUnsigned(ByteBuffer.wrap(new byte[0]), ByteBuffer.wrap(A)));
+    // Direct buffers
+    ByteBuffer direct = ByteBuffer.allocateDirect(3);
+    direct.put(E);
+    direct.flip();
+    assertEquals(1, Bytes.compareLexicographicUnsigned(direct, ByteBuffer.wrap(D)));
+    assertEquals(-1, Bytes.compareLexicographicUnsigned(ByteBuffer.wrap(D), direct));
+  }
+
+  public void testMismatch() throws Exception {
+    byte[] a = new byte[20];
+    byte[] b = new byte[20];
+    assertEquals(-1, Bytes.mismatch(a, 0, b, 0, 20));
+    for (int i = 0; i < 20; ++i) {
+      b[i] = (byte) 0x80;
+      assertEquals(i, Bytes.mismatch(a, 0, b, 0, 20));
+      b[i] = 0;
+    }
+    try {
+      Bytes.mismatch(a, 1, b, 0, 20);
+      fail("Should fail with an exception");
+    } catch (Exception e) {
+    }
+  }
+
   public void testDeepCopy() {
     // Without allocation
     ByteBuffer copyA = Bytes.byteBufferDeepCopy(ByteBuffer.wrap(A));
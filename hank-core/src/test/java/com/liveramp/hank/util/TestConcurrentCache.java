@@ -0,0 +1,149 @@
+/**
+ *  Copyright 2013 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.liveramp.hank.util;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.liveramp.hank.test.BaseTestCase;
+
+public class TestConcurrentCache extends BaseTestCase {
+
+  public void testDisabled() {
+    ConcurrentCache<Integer, Integer> cache = new ConcurrentCache<Integer, Integer>(false, 10);
+    assertFalse(cache.isEnabled());
+    cache.put(1, 1);
+    assertNull(cache.get(1));
+    assertEquals(0, cache.size());
+  }
+
+  public void testGetPut() {
+    ConcurrentCache<Integer, Integer> cache = new ConcurrentCache<Integer, Integer>(true, 10);
+    assertTrue(cache.isEnabled());
+    assertNull(cache.get(1));
+    cache.put(1, 1);
+    cache.put(2, 2);
+    assertEquals(Integer.valueOf(1), cache.get(1));
+    assertEquals(Integer.valueOf(2), cache.get(2));
+    assertEquals(2, cache.size());
+    // Replace
+    cache.put(1, 10);
+    assertEquals(Integer.valueOf(10), cache.get(1));
+    assertEquals(2, cache.size());
+    try {
+      cache.put(3, null);
+      fail("Should not accept null values");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  public void testNumItemsCapacity() {
+    ConcurrentCache<Integer, Integer> cache = new ConcurrentCache<Integer, Integer>(true, 3, -1, null, 1);
+    cache.put(1, 1);
+    cache.put(2, 2);
+    cache.put(3, 3);
+    // Reference 1 so that it gets a second chance
+    assertEquals(Integer.valueOf(1), cache.get(1));
+    cache.put(4, 4);
+    assertEquals(3, cache.size());
+    assertEquals(Integer.valueOf(1), cache.get(1));
+    assertNull(cache.get(2));
+    assertEquals(Integer.valueOf(3), cache.get(3));
+    assertEquals(Integer.valueOf(4), cache.get(4));
+  }
+
+  public void testCapacitySplitAcrossSegments() {
+    ConcurrentCache<Integer, Integer> cache = new ConcurrentCache<Integer, Integer>(true, 64);
+    for (int i = 0; i < 1000; ++i) {
+      cache.put(i, i);
+    }
+    assertTrue(cache.size() <= 64);
+    assertTrue(cache.size() > 0);
+    // A capacity of one still works
+    cache = new ConcurrentCache<Integer, Integer>(true, 1);
+    cache.put(1, 1);
+    cache.put(2, 2);
+    assertEquals(1, cache.size());
+    assertEquals(Integer.valueOf(2), cache.get(2));
+  }
+
+  public void testNumBytesCapacity() {
+    ConcurrentCache<ByteBuffer, ByteBuffer> cache = new ConcurrentCache<ByteBuffer, ByteBuffer>(true, -1, 15,
+        ConcurrentCache.BYTE_BUFFER_ESTIMATOR, 1);
+    cache.put(key(1), ByteBuffer.allocate(4));
+    cache.put(key(2), ByteBuffer.allocate(4));
+    assertEquals(12, cache.getNumManagedBytes());
+    // Evicts key 1
+    cache.put(key(3), ByteBuffer.allocate(2));
+    assertEquals(10, cache.getNumManagedBytes());
+    assertNull(cache.get(key(1)));
+    assertNotNull(cache.get(key(2)));
+    // Replacing a value updates the byte count
+    cache.put(key(3), ByteBuffer.allocate(6));
+    assertEquals(14, cache.getNumManagedBytes());
+    // Too large to be cached at all
+    cache.put(key(4), ByteBuffer.allocate(14));
+    assertNull(cache.get(key(4)));
+    assertEquals(2, cache.size());
+    assertEquals(14, cache.getNumManagedBytes());
+    cache.put(key(3), ByteBuffer.allocate(14));
+    assertNull(cache.get(key(3)));
+    assertEquals(1, cache.size());
+    assertEquals(6, cache.getNumManagedBytes());
+  }
+
+  public void testConcurrentAccess() throws Exception {
+    final ConcurrentCache<Integer, Integer> cache = new ConcurrentCache<Integer, Integer>(true, 100);
+    final AtomicReference<String> error = new AtomicReference<String>();
+    List<Thread> threads = new ArrayList<Thread>();
+    for (int t = 0; t < 8; ++t) {
+      final int seed = t;
+      threads.add(new Thread(new Runnable() {
+        @Override
+        public void run() {
+          Random random = new Random(seed);
+          for (int i = 0; i < 100000; ++i) {
+            int key = random.nextInt(500);
+            Integer value = cache.get(key);
+            if (value == null) {
+              cache.put(key, -key);
+            } else if (value != -key) {
+              error.set("Unexpected value " + value + " for key " + key);
+            }
+          }
+        }
+      }));
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertNull(error.get());
+    assertTrue(cache.size() <= 100);
+  }
+
+  private static ByteBuffer key(int i) {
+    return ByteBuffer.wrap(new byte[]{(byte) i, 0});
+  }
+}
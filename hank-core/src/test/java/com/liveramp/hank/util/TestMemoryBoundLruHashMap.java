@@ -55,7 +55,7 @@ public class TestMemoryBoundLruHashMap extends BaseTestCase {
 
     // Insert
 
-    map.put(k1, v1);
+    assertEquals(0, map.put(k1, v1));
 
     assertEquals(1, map.size());
     assertEquals(2, map.getNumManagedBytes());
@@ -63,7 +63,7 @@ public class TestMemoryBoundLruHashMap extends BaseTestCase {
 
     // Insert
 
-    map.put(k2, v2);
+    assertEquals(0, map.put(k2, v2));
 
     assertEquals(2, map.size());
     assertEquals(6, map.getNumManagedBytes());
@@ -71,7 +71,7 @@ public class TestMemoryBoundLruHashMap extends BaseTestCase {
 
     // Insert which goes over the size threshold
 
-    map.put(k10, v10);
+    assertEquals(2, map.put(k10, v10));
 
     assertEquals(1, map.size());
     assertEquals(20, map.getNumManagedBytes());
@@ -79,7 +79,7 @@ public class TestMemoryBoundLruHashMap extends BaseTestCase {
 
     // Insert which goes over the size threshold
 
-    map.put(k1, v10);
+    assertEquals(1, map.put(k1, v10));
 
     assertEquals(1, map.size());
     assertEquals(11, map.getNumManagedBytes());
@@ -135,7 +135,7 @@ public class TestMemoryBoundLruHashMap extends BaseTestCase {
 
     // Insert which goes over the num items limit
 
-    map.put(k3, v3);
+    assertEquals(1, map.put(k3, v3));
 
     assertEquals(2, map.size());
     assertEquals(10, map.getNumManagedBytes());
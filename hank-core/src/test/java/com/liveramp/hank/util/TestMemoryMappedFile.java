@@ -0,0 +1,86 @@
+/**
+ *  Copyright 2013 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.hank.util;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import com.liveramp.hank.test.BaseTestCase;
+
+public class TestMemoryMappedFile extends BaseTestCase {
+
+  public void testSegments() throws Exception {
+    String path = localTmpDir + "/mapped_file";
+    byte[] data = new byte[100];
+    for (int i = 0; i < data.length; ++i) {
+      data[i] = (byte) i;
+    }
+    FileOutputStream outputStream = new FileOutputStream(path);
+    outputStream.write(data);
+    outputStream.close();
+
+    FileChannel channel = new FileInputStream(path).getChannel();
+    // Segments of 16 bytes overlapping by 4 bytes
+    MemoryMappedFile mappedFile = new MemoryMappedFile(channel, data.length, 16, 4);
+    assertEquals(7, mappedFile.getNumSegments());
+    assertEquals(100, mappedFile.getLength());
+
+    // Within a segment
+    assertEquals(ByteBuffer.wrap(data, 2, 5), mappedFile.getSlice(2, 5));
+    // Across a segment boundary, within the overlap
+    assertEquals(ByteBuffer.wrap(data, 14, 4), mappedFile.getSlice(14, 4));
+    // Last segment
+    assertEquals(ByteBuffer.wrap(data, 96, 4), mappedFile.getSlice(96, 4));
+    // Empty slice
+    assertEquals(0, mappedFile.getSlice(100, 0).remaining());
+
+    // Across a segment boundary, beyond the overlap
+    try {
+      mappedFile.getSlice(14, 8);
+      fail("Should fail with an exception");
+    } catch (IllegalArgumentException e) {
+    }
+    // Beyond the end of the file
+    try {
+      mappedFile.getSlice(98, 4);
+      fail("Should fail with an exception");
+    } catch (IndexOutOfBoundsException e) {
+    }
+
+    assertTrue(mappedFile.isContiguous(2, 5));
+    assertTrue(mappedFile.isContiguous(14, 4));
+    assertTrue(mappedFile.isContiguous(100, 0));
+    assertFalse(mappedFile.isContiguous(14, 8));
+    assertFalse(mappedFile.isContiguous(98, 4));
+
+    // Slices remain valid once the channel is closed
+    ByteBuffer slice = mappedFile.getSlice(50, 10);
+    channel.close();
+    assertEquals(ByteBuffer.wrap(data, 50, 10), slice);
+
+    mappedFile.unmap();
+    try {
+      mappedFile.getSlice(2, 5);
+      fail("Should fail with an exception");
+    } catch (IllegalStateException e) {
+    }
+    // Unmapping again does nothing
+    mappedFile.unmap();
+  }
+}
@@ -41,4 +41,28 @@ public enum CompressionCodec {
         throw new IllegalStateException();
     }
   }
+
+  // Factory of compressors and decompressors using the given preset dictionary, if any.
+  // Decompressors built with a dictionary can also decompress blocks compressed without one.
+  public CompressionFactory getFactory(byte[] dictionary) {
+    if (dictionary == null) {
+      return getFactory();
+    }
+    switch (this) {
+      case DEFLATE:
+        return new DeflateCompressionFactory(dictionary);
+      default:
+        throw new IllegalArgumentException("Compression codec " + this + " does not support dictionaries");
+    }
+  }
+
+  // Largest useful dictionary size, or 0 when the codec does not support dictionaries
+  public int getMaxDictionaryNumBytes() {
+    switch (this) {
+      case DEFLATE:
+        return DeflateCompressionFactory.MAX_DICTIONARY_NUM_BYTES;
+      default:
+        return 0;
+    }
+  }
 }
@@ -0,0 +1,173 @@
+/**
+ *  Copyright 2013 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.hank.compression;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import com.liveramp.hank.util.UnsafeByteArrayOutputStream;
+
+/**
+ * Builds a preset compression dictionary from a sample of values. Small blocks
+ * of similar values compress poorly on their own, since each block starts with
+ * an empty history. A dictionary holding the byte sequences that are most
+ * common across values gives every block that history up front.
+ *
+ * The sample is cut into fixed size segments, and each segment is scored by
+ * the number of times the short byte sequences (d-mers) it contains appear in
+ * the whole sample. Segments are then picked greedily by score. Once a
+ * segment is picked its d-mers stop counting, so that the dictionary does not
+ * fill up with copies of the same content. The best segments are placed at
+ * the end of the dictionary, closest to the data, where references to them
+ * are the cheapest.
+ */
+public class CompressionDictionaryTrainer {
+
+  private static final int DMER_NUM_BYTES = 8;
+  private static final int SEGMENT_NUM_BYTES = 64;
+
+  private final int dictionaryNumBytes;
+  private final int maxSampleNumBytes;
+  private final UnsafeByteArrayOutputStream sample = new UnsafeByteArrayOutputStream();
+
+  private static class Segment implements Comparable<Segment> {
+
+    private final int offset;
+    private final int length;
+    private long score;
+
+    public Segment(int offset, int length, long score) {
+      this.offset = offset;
+      this.length = length;
+      this.score = score;
+    }
+
+    @Override
+    public int compareTo(Segment other) {
+      // Highest score first, ties broken by offset so that training is deterministic
+      if (score != other.score) {
+        return score > other.score ? -1 : 1;
+      }
+      return offset < other.offset ? -1 : (offset == other.offset ? 0 : 1);
+    }
+  }
+
+  public CompressionDictionaryTrainer(int dictionaryNumBytes, int maxSampleNumBytes) {
+    if (dictionaryNumBytes <= 0) {
+      throw new IllegalArgumentException("Dictionary size must be positive: " + dictionaryNumBytes);
+    }
+    this.dictionaryNumBytes = dictionaryNumBytes;
+    this.maxSampleNumBytes = maxSampleNumBytes;
+  }
+
+  // Add the remaining bytes of the given value to the sample. Values that do not fit are truncated.
+  public void addSample(ByteBuffer value) {
+    int numBytes = Math.min(value.remaining(), getRemainingSampleNumBytes());
+    sample.write(value.array(), value.arrayOffset() + value.position(), numBytes);
+  }
+
+  public int getRemainingSampleNumBytes() {
+    return Math.max(0, maxSampleNumBytes - sample.size());
+  }
+
+  public boolean isSampleFull() {
+    return getRemainingSampleNumBytes() == 0;
+  }
+
+  public byte[] train() {
+    byte[] sampleBytes = sample.array();
+    int sampleNumBytes = sample.size();
+    if (sampleNumBytes <= dictionaryNumBytes) {
+      // The whole sample fits in the dictionary
+      return sample.toByteArray();
+    }
+
+    // Count d-mer occurrences
+    Map<Long, Integer> dmerCounts = new HashMap<Long, Integer>();
+    ByteBuffer sampleBuffer = ByteBuffer.wrap(sampleBytes, 0, sampleNumBytes);
+    for (int i = 0; i + DMER_NUM_BYTES <= sampleNumBytes; ++i) {
+      Long dmer = sampleBuffer.getLong(i);
+      Integer count = dmerCounts.get(dmer);
+      dmerCounts.put(dmer, count == null ? 1 : count + 1);
+    }
+
+    // Score all segments
+    PriorityQueue<Segment> segments = new PriorityQueue<Segment>();
+    for (int offset = 0; offset < sampleNumBytes; offset += SEGMENT_NUM_BYTES) {
+      int length = Math.min(SEGMENT_NUM_BYTES, sampleNumBytes - offset);
+      Segment segment = new Segment(offset, length, 0);
+      segment.score = score(sampleBuffer, segment, dmerCounts);
+      if (segment.score > 0) {
+        segments.add(segment);
+      }
+    }
+
+    // Greedily select segments. Scores only decrease as segments are selected, so a segment whose
+    // updated score is still at least the best remaining score can be selected right away.
+    List<Segment> selectedSegments = new ArrayList<Segment>();
+    int numSelectedBytes = 0;
+    while (!segments.isEmpty() && numSelectedBytes < dictionaryNumBytes) {
+      Segment segment = segments.poll();
+      long score = score(sampleBuffer, segment, dmerCounts);
+      if (score <= 0) {
+        continue;
+      }
+      if (score < segment.score && !segments.isEmpty() && score < segments.peek().score) {
+        segment.score = score;
+        segments.add(segment);
+        continue;
+      }
+      selectedSegments.add(segment);
+      numSelectedBytes += segment.length;
+      // Selected d-mers no longer count
+      for (int i = segment.offset; i + DMER_NUM_BYTES <= segment.offset + segment.length; ++i) {
+        dmerCounts.remove(sampleBuffer.getLong(i));
+      }
+    }
+
+    // Best segments go last
+    Collections.reverse(selectedSegments);
+    UnsafeByteArrayOutputStream dictionary = new UnsafeByteArrayOutputStream();
+    int skipNumBytes = Math.max(0, numSelectedBytes - dictionaryNumBytes);
+    for (Segment segment : selectedSegments) {
+      // Truncate the first (worst) segment if the dictionary overflows
+      int skip = Math.min(skipNumBytes, segment.length);
+      dictionary.write(sampleBytes, segment.offset + skip, segment.length - skip);
+      skipNumBytes -= skip;
+    }
+    return dictionary.toByteArray();
+  }
+
+  // Sum of the counts of d-mers that appear more than once, each distinct d-mer counted once
+  private static long score(ByteBuffer sampleBuffer, Segment segment, Map<Long, Integer> dmerCounts) {
+    long score = 0;
+    Map<Long, Boolean> seen = new HashMap<Long, Boolean>();
+    for (int i = segment.offset; i + DMER_NUM_BYTES <= segment.offset + segment.length; ++i) {
+      Long dmer = sampleBuffer.getLong(i);
+      Integer count = dmerCounts.get(dmer);
+      if (count != null && count > 1 && seen.put(dmer, Boolean.TRUE) == null) {
+        score += count;
+      }
+    }
+    return score;
+  }
+}
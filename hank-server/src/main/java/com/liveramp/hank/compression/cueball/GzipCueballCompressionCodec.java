@@ -35,14 +35,14 @@ public class GzipCueballCompressionCodec implements CueballCompressionCodec {
       ByteArrayInputStream bytesIn = new ByteArrayInputStream(src, srcOffset, srcLength);
       GZIPInputStream gzip = new GZIPInputStream(bytesIn);
       int curOff = dstOff;
-      while (curOff < dst.length - dstOff) {
+      while (curOff < dst.length) {
         int amtRead = gzip.read(dst, curOff, dst.length - curOff);
         if (amtRead == -1) {
           break;
         }
         curOff += amtRead;
       }
-      return curOff;
+      return curOff - dstOff;
     } catch (IOException e) {
       throw new RuntimeException("Unexpected IOException while decompressing!", e);
     }
@@ -0,0 +1,228 @@
+/**
+ *  Copyright 2013 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.liveramp.hank.compression.cueball;
+
+import java.util.Arrays;
+
+/**
+ * Compresses each block in the LZ4 block format, directly between byte arrays.
+ * The match finder's hash table is reused by each thread, so that neither
+ * compression nor decompression allocates anything.
+ */
+public class Lz4CueballCompressionCodec implements CueballCompressionCodec {
+
+  private static final int MIN_MATCH = 4;
+  // The last literals of a block are never part of a match
+  private static final int LAST_LITERALS = 5;
+  // A match cannot start within the last MF_LIMIT bytes of a block
+  private static final int MF_LIMIT = 12;
+  private static final int MAX_DISTANCE = 65535;
+  private static final int HASH_LOG = 12;
+  // Look for matches less and less often in incompressible data
+  private static final int SKIP_STRENGTH = 6;
+  private static final int RUN_MASK = 15;
+
+  private static final HashTableThreadLocal hashTableThreadLocal = new HashTableThreadLocal();
+
+  @Override
+  public int compress(byte[] src, int srcOffset, int srcLength, byte[] dst, int dstOff) {
+    if (srcLength == 0) {
+      return 0;
+    }
+    final int srcEnd = srcOffset + srcLength;
+    final int matchLimit = srcEnd - LAST_LITERALS;
+    final int mfLimit = srcEnd - MF_LIMIT;
+    int ip = srcOffset;
+    int anchor = srcOffset;
+    int op = dstOff;
+
+    if (srcLength > MF_LIMIT) {
+      final int[] hashTable = hashTableThreadLocal.get();
+      Arrays.fill(hashTable, -1);
+      int searchCount = 1 << SKIP_STRENGTH;
+      while (ip < mfLimit) {
+        final int sequence = readInt(src, ip);
+        final int h = hash(sequence);
+        int ref = hashTable[h];
+        hashTable[h] = ip;
+        if (ref < srcOffset || ip - ref > MAX_DISTANCE || readInt(src, ref) != sequence) {
+          ip += searchCount++ >>> SKIP_STRENGTH;
+          continue;
+        }
+        // Extend the match backwards over pending literals
+        while (ip > anchor && ref > srcOffset && src[ip - 1] == src[ref - 1]) {
+          --ip;
+          --ref;
+        }
+        // Extend the match forwards
+        int matchLength = MIN_MATCH;
+        while (ip + matchLength < matchLimit && src[ip + matchLength] == src[ref + matchLength]) {
+          ++matchLength;
+        }
+        op = writeSequence(src, anchor, ip - anchor, ip - ref, matchLength, dst, op);
+        ip += matchLength;
+        anchor = ip;
+        searchCount = 1 << SKIP_STRENGTH;
+      }
+    }
+    // Last literals
+    return writeLastLiterals(src, anchor, srcEnd - anchor, dst, op) - dstOff;
+  }
+
+  @Override
+  public int getMaxCompressBufferSize(int length) {
+    return length + length / 255 + 16;
+  }
+
+  @Override
+  public int decompress(byte[] src, int srcOffset, int srcLength, byte[] dst, int dstOff) {
+    final int srcEnd = srcOffset + srcLength;
+    final int dstEnd = dst.length;
+    int ip = srcOffset;
+    int op = dstOff;
+    while (ip < srcEnd) {
+      final int token = src[ip++] & 0xff;
+
+      // Literals
+      int literalLength = token >>> 4;
+      if (literalLength == RUN_MASK) {
+        int b;
+        do {
+          if (ip >= srcEnd) {
+            throw malformed(ip);
+          }
+          b = src[ip++] & 0xff;
+          literalLength += b;
+        } while (b == 255);
+      }
+      if (literalLength > srcEnd - ip || literalLength > dstEnd - op) {
+        throw malformed(ip);
+      }
+      System.arraycopy(src, ip, dst, op, literalLength);
+      ip += literalLength;
+      op += literalLength;
+
+      // The last sequence only has literals
+      if (ip == srcEnd) {
+        break;
+      }
+
+      // Match
+      if (ip + 2 > srcEnd) {
+        throw malformed(ip);
+      }
+      final int distance = (src[ip] & 0xff) | ((src[ip + 1] & 0xff) << 8);
+      ip += 2;
+      int matchLength = token & RUN_MASK;
+      if (matchLength == RUN_MASK) {
+        int b;
+        do {
+          if (ip >= srcEnd) {
+            throw malformed(ip);
+          }
+          b = src[ip++] & 0xff;
+          matchLength += b;
+        } while (b == 255);
+      }
+      matchLength += MIN_MATCH;
+      int ref = op - distance;
+      if (distance == 0 || ref < dstOff || matchLength > dstEnd - op) {
+        throw malformed(ip);
+      }
+      if (distance >= matchLength) {
+        System.arraycopy(dst, ref, dst, op, matchLength);
+        op += matchLength;
+      } else {
+        // Overlapping copy, repeats the last distance bytes
+        final int matchEnd = op + matchLength;
+        while (op < matchEnd) {
+          dst[op++] = dst[ref++];
+        }
+      }
+    }
+    return op - dstOff;
+  }
+
+  private static int writeSequence(byte[] src, int literalOffset, int literalLength,
+                                   int distance, int matchLength, byte[] dst, int op) {
+    final int tokenOffset = op++;
+    int token;
+    if (literalLength >= RUN_MASK) {
+      token = RUN_MASK << 4;
+      op = writeLength(literalLength - RUN_MASK, dst, op);
+    } else {
+      token = literalLength << 4;
+    }
+    System.arraycopy(src, literalOffset, dst, op, literalLength);
+    op += literalLength;
+    dst[op++] = (byte) distance;
+    dst[op++] = (byte) (distance >>> 8);
+    final int matchLengthCode = matchLength - MIN_MATCH;
+    if (matchLengthCode >= RUN_MASK) {
+      token |= RUN_MASK;
+      op = writeLength(matchLengthCode - RUN_MASK, dst, op);
+    } else {
+      token |= matchLengthCode;
+    }
+    dst[tokenOffset] = (byte) token;
+    return op;
+  }
+
+  private static int writeLastLiterals(byte[] src, int literalOffset, int literalLength, byte[] dst, int op) {
+    if (literalLength >= RUN_MASK) {
+      dst[op++] = (byte) (RUN_MASK << 4);
+      op = writeLength(literalLength - RUN_MASK, dst, op);
+    } else {
+      dst[op++] = (byte) (literalLength << 4);
+    }
+    System.arraycopy(src, literalOffset, dst, op, literalLength);
+    return op + literalLength;
+  }
+
+  private static int writeLength(int length, byte[] dst, int op) {
+    while (length >= 255) {
+      dst[op++] = (byte) 255;
+      length -= 255;
+    }
+    dst[op++] = (byte) length;
+    return op;
+  }
+
+  private static int readInt(byte[] bytes, int off) {
+    return (bytes[off] & 0xff)
+        | ((bytes[off + 1] & 0xff) << 8)
+        | ((bytes[off + 2] & 0xff) << 16)
+        | ((bytes[off + 3] & 0xff) << 24);
+  }
+
+  private static int hash(int sequence) {
+    return (sequence * -1640531535) >>> (32 - HASH_LOG);
+  }
+
+  private static RuntimeException malformed(int offset) {
+    return new RuntimeException("Malformed LZ4 block or destination buffer too small (at source offset " + offset + ")");
+  }
+
+  private static class HashTableThreadLocal extends ThreadLocal<int[]> {
+
+    @Override
+    protected int[] initialValue() {
+      return new int[1 << HASH_LOG];
+    }
+  }
+}
@@ -0,0 +1,63 @@
+/**
+ *  Copyright 2013 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.liveramp.hank.compression.cueball;
+
+import java.io.IOException;
+
+import org.xerial.snappy.Snappy;
+
+/**
+ * Compresses each block in the raw Snappy format, directly between byte arrays.
+ * Snappy keeps no state between calls, and nothing is allocated per block.
+ */
+public class SnappyCueballCompressionCodec implements CueballCompressionCodec {
+
+  @Override
+  public int compress(byte[] src, int srcOffset, int srcLength, byte[] dst, int dstOff) {
+    if (srcLength == 0) {
+      return 0;
+    }
+    try {
+      return Snappy.compress(src, srcOffset, srcLength, dst, dstOff);
+    } catch (IOException e) {
+      throw new RuntimeException("Unexpected IOException while compressing!", e);
+    }
+  }
+
+  @Override
+  public int getMaxCompressBufferSize(int length) {
+    return Snappy.maxCompressedLength(length);
+  }
+
+  @Override
+  public int decompress(byte[] src, int srcOffset, int srcLength, byte[] dst, int dstOff) {
+    if (srcLength == 0) {
+      return 0;
+    }
+    try {
+      int uncompressedLength = Snappy.uncompressedLength(src, srcOffset, srcLength);
+      if (uncompressedLength > dst.length - dstOff) {
+        throw new RuntimeException("Not enough room to decompress " + uncompressedLength
+            + " bytes at offset " + dstOff + " of a buffer of size " + dst.length);
+      }
+      return Snappy.uncompress(src, srcOffset, srcLength, dst, dstOff);
+    } catch (IOException e) {
+      throw new RuntimeException("Unexpected IOException while decompressing!", e);
+    }
+  }
+}
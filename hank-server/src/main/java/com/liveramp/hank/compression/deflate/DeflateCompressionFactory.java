@@ -22,13 +22,26 @@ import com.liveramp.hank.compression.Decompressor;
 
 public class DeflateCompressionFactory implements CompressionFactory {
 
+  // Deflate only references the last 32KB of data, larger dictionaries are useless
+  public static final int MAX_DICTIONARY_NUM_BYTES = 32 * 1024;
+
+  private final byte[] dictionary;
+
+  public DeflateCompressionFactory() {
+    this(null);
+  }
+
+  public DeflateCompressionFactory(byte[] dictionary) {
+    this.dictionary = dictionary;
+  }
+
   @Override
   public Decompressor getDecompressor() {
-    return new DeflateDecompressor();
+    return new DeflateDecompressor(dictionary);
   }
 
   @Override
   public Compressor getCompressor() {
-    return new DeflateCompressor();
+    return new DeflateCompressor(dictionary);
   }
 }
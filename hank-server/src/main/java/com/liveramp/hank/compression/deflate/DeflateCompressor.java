@@ -24,11 +24,25 @@ import java.util.zip.DeflaterOutputStream;
 
 public class DeflateCompressor implements Compressor {
 
+  private final byte[] dictionary;
+
+  public DeflateCompressor() {
+    this(null);
+  }
+
+  public DeflateCompressor(byte[] dictionary) {
+    this.dictionary = dictionary;
+  }
+
   @Override
   public OutputStream getOutputStream(OutputStream outputStream) {
     Deflater deflater = new Deflater();
     deflater.setLevel(Deflater.BEST_COMPRESSION);
     deflater.setStrategy(Deflater.DEFAULT_STRATEGY);
+    if (dictionary != null && dictionary.length > 0) {
+      // Compressed data refers to the dictionary, whose checksum is stored in the stream header
+      deflater.setDictionary(dictionary);
+    }
     return new DeflaterOutputStream(outputStream, deflater);
   }
 }
@@ -21,6 +21,7 @@ import com.liveramp.hank.util.IOStreamUtils;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.zip.Adler32;
 import java.util.zip.DataFormatException;
 import java.util.zip.Inflater;
 
@@ -28,6 +29,23 @@ public class DeflateDecompressor implements Decompressor {
 
   private final Inflater inflater = new Inflater();
   private final byte[] copyBuffer = new byte[IOStreamUtils.DEFAULT_BUFFER_SIZE];
+  private final byte[] dictionary;
+  private final long dictionaryChecksum;
+
+  public DeflateDecompressor() {
+    this(null);
+  }
+
+  public DeflateDecompressor(byte[] dictionary) {
+    this.dictionary = dictionary;
+    if (dictionary != null) {
+      Adler32 adler32 = new Adler32();
+      adler32.update(dictionary);
+      this.dictionaryChecksum = adler32.getValue();
+    } else {
+      this.dictionaryChecksum = -1;
+    }
+  }
 
   @Override
   public void decompressBlock(byte[] buffer, int offset, int length, OutputStream outputStream) throws IOException {
@@ -42,6 +60,14 @@ public class DeflateDecompressor implements Decompressor {
       }
       if (numBytes > 0) {
         outputStream.write(copyBuffer, 0, numBytes);
+      } else if (inflater.needsDictionary()) {
+        // Blocks compressed without a dictionary do not ask for one
+        long checksum = inflater.getAdler() & 0xffffffffL;
+        if (dictionary == null || checksum != dictionaryChecksum) {
+          throw new IOException("Block was compressed with a dictionary that is not available (checksum: "
+              + checksum + ")");
+        }
+        inflater.setDictionary(dictionary);
       }
       if (inflater.finished()) {
         break;
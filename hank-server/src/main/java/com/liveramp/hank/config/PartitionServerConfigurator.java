@@ -33,4 +33,10 @@ public interface PartitionServerConfigurator extends CoordinatorConfigurator, Da
   public int getGetBulkTaskSize();
 
   public int getGetTimerAggregatorWindow();
+
+  // Number of bytes of decompressed blocks cached by the partition server. Zero disables the block cache.
+  public long getBlockCacheCapacity();
+
+  // Maximum rate at which a serving partition server prefetches the next versions of its domains. Zero disables prefetching.
+  public long getPrefetchMaxBytesPerSecond();
 }
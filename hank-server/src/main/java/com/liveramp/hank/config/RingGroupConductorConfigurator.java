@@ -26,5 +26,8 @@ public interface RingGroupConductorConfigurator extends CoordinatorConfigurator
 
   public int getMinRingFullyServingObservations();
 
+  // Whether serving hosts should be updated without going idle
+  public boolean getLiveUpdates();
+
   public RingGroupConductorMode getInitialMode();
 }
@@ -37,6 +37,8 @@ public class YamlPartitionServerConfigurator extends YamlCoordinatorConfigurator
   public static final String NUM_CONCURRENT_GET_BULK_TASKS = "num_concurrent_get_bulk_tasks";
   public static final String GET_BULK_TASK_SIZE = "get_bulk_task_size";
   public static final String GET_TIMER_AGGREGATOR_WINDOW_KEY = "get_timer_aggregator_window";
+  public static final String BLOCK_CACHE_CAPACITY_KEY = "block_cache_capacity";
+  public static final String PREFETCH_MAX_BYTES_PER_SECOND_KEY = "prefetch_max_bytes_per_second";
 
   public YamlPartitionServerConfigurator(String path) throws IOException,
       InvalidConfigurationException {
@@ -107,6 +109,17 @@ public class YamlPartitionServerConfigurator extends YamlCoordinatorConfigurator
         GET_TIMER_AGGREGATOR_WINDOW_KEY);
   }
 
+  @Override
+  public long getBlockCacheCapacity() {
+    Long blockCacheCapacity = getOptionalLong(PARTITION_SERVER_SECTION_KEY, PARTITION_SERVER_DAEMON_SECTION_KEY,
+        BLOCK_CACHE_CAPACITY_KEY);
+    if (blockCacheCapacity == null) {
+      return 0;
+    } else {
+      return blockCacheCapacity;
+    }
+  }
+
   @Override
   public int getNumConcurrentUpdates() {
     return getInteger(PARTITION_SERVER_SECTION_KEY, UPDATE_DAEMON_SECTION_KEY, NUM_CONCURRENT_UPDATES_KEY);
@@ -116,4 +129,15 @@ public class YamlPartitionServerConfigurator extends YamlCoordinatorConfigurator
   public int getMaxConcurrentUpdatesPerDataDirectory() {
     return getInteger(PARTITION_SERVER_SECTION_KEY, UPDATE_DAEMON_SECTION_KEY, MAX_CONCURRENT_UPDATES_PER_DATA_DIRECTORY_KEY);
   }
+
+  @Override
+  public long getPrefetchMaxBytesPerSecond() {
+    Long prefetchMaxBytesPerSecond = getOptionalLong(PARTITION_SERVER_SECTION_KEY, UPDATE_DAEMON_SECTION_KEY,
+        PREFETCH_MAX_BYTES_PER_SECOND_KEY);
+    if (prefetchMaxBytesPerSecond == null) {
+      return 0;
+    } else {
+      return prefetchMaxBytesPerSecond;
+    }
+  }
 }
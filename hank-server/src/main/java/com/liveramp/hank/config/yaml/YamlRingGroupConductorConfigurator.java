@@ -29,6 +29,7 @@ public class YamlRingGroupConductorConfigurator extends YamlCoordinatorConfigura
   public static final String MIN_RING_FULLY_SERVING_OBSERVATIONS_KEY = "min_ring_fully_serving_observations";
   public static final String RING_GROUP_NAME_KEY = "ring_group_name";
   public static final String INITIAL_MODE_KEY = "initial_mode";
+  public static final String LIVE_UPDATES_KEY = "live_updates";
 
   public YamlRingGroupConductorConfigurator(String configPath) throws IOException, InvalidConfigurationException {
     super(configPath);
@@ -49,6 +50,16 @@ public class YamlRingGroupConductorConfigurator extends YamlCoordinatorConfigura
     return getInteger(RING_GROUP_CONDUCTOR_SECTION_KEY, MIN_RING_FULLY_SERVING_OBSERVATIONS_KEY);
   }
 
+  @Override
+  public boolean getLiveUpdates() {
+    Boolean liveUpdates = getOptionalBoolean(RING_GROUP_CONDUCTOR_SECTION_KEY, LIVE_UPDATES_KEY);
+    if (liveUpdates == null) {
+      return false;
+    } else {
+      return liveUpdates;
+    }
+  }
+
   @Override
   public RingGroupConductorMode getInitialMode() {
     return RingGroupConductorMode.valueOf(getString(RING_GROUP_CONDUCTOR_SECTION_KEY, INITIAL_MODE_KEY));
@@ -57,7 +57,8 @@ public class KeyAndPartitionWritableComparable implements WritableComparable<Key
     } else if (keyAndPartitionWritable.getPartition() > other.keyAndPartitionWritable.getPartition()) {
       return 1;
     } else {
-      return Bytes.compareBytesUnsigned(comparableKey, other.comparableKey);
+      // Comparable keys can be of different lengths (e.g. keys of the Sorted engine)
+      return Bytes.compareLexicographicUnsigned(comparableKey, other.comparableKey);
     }
   }
 
@@ -18,6 +18,8 @@ package com.liveramp.hank.partition_server;
 
 import com.liveramp.hank.coordinator.HostDomain;
 import com.liveramp.hank.generated.HankException;
+import com.liveramp.hank.generated.HankRange;
+import com.liveramp.hank.generated.HankRangeResponse;
 import com.liveramp.hank.generated.HankResponse;
 import com.liveramp.hank.partitioner.Partitioner;
 import com.liveramp.hank.storage.ReaderResult;
@@ -28,6 +30,8 @@ import org.apache.log4j.Logger;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Class that manages accessing data on behalf of a particular Domain.
@@ -35,6 +39,7 @@ import java.nio.ByteBuffer;
 public class DomainAccessor {
 
   private static final HankResponse WRONG_HOST = HankResponse.xception(HankException.wrong_host(true));
+  private static final HankRangeResponse WRONG_HOST_RANGE = HankRangeResponse.xception(HankException.wrong_host(true));
 
   private static final Logger LOG = Logger.getLogger(DomainAccessor.class);
   private final HostDomain hostDomain;
@@ -46,11 +51,19 @@ public class DomainAccessor {
                  PartitionAccessor[] partitionAccessors,
                  Partitioner partitioner,
                  int getTimerAggregatorWindow) throws IOException {
+    this(hostDomain, partitionAccessors, partitioner,
+        new HankTimerEventAggregator("GET " + hostDomain.getDomain().getName(), getTimerAggregatorWindow));
+  }
+
+  // The GET timer aggregator is shared with the accessor being replaced when Readers are reloaded
+  DomainAccessor(HostDomain hostDomain,
+                 PartitionAccessor[] partitionAccessors,
+                 Partitioner partitioner,
+                 HankTimerEventAggregator getRequestsTimerAggregator) {
     this.hostDomain = hostDomain;
     this.partitionAccessors = partitionAccessors;
     this.partitioner = partitioner;
-    this.getRequestsTimerAggregator = new HankTimerEventAggregator("GET " + hostDomain.getDomain().getName(),
-        getTimerAggregatorWindow);
+    this.getRequestsTimerAggregator = getRequestsTimerAggregator;
   }
 
   public HankResponse get(ByteBuffer key, ReaderResult result) throws IOException {
@@ -69,6 +82,71 @@ public class DomainAccessor {
     }
   }
 
+  // Keys are grouped by partition, and each group is looked up with a single batch call to its reader.
+  // Results are matched to keys by index, and so are the returned responses.
+  public HankResponse[] getBulk(List<ByteBuffer> keys, List<ReaderResult> results) throws IOException {
+    HankResponse[] responses = new HankResponse[keys.size()];
+    List<List<Integer>> partitionKeyIndices = new ArrayList<List<Integer>>(partitionAccessors.length);
+    for (int i = 0; i < partitionAccessors.length; ++i) {
+      partitionKeyIndices.add(null);
+    }
+    for (int i = 0; i < keys.size(); ++i) {
+      ByteBuffer key = keys.get(i);
+      int partition = partitioner.partition(key, partitionAccessors.length);
+      if (partitionAccessors[partition] == null) {
+        LOG.error("Failed to perform get because of an Exception: wrong host for domain: " + hostDomain.getDomain().getName()
+            + ", partition: " + partition + ", key: " + Bytes.bytesToHexString(key) + ", response: " + WRONG_HOST);
+        responses[i] = WRONG_HOST;
+        continue;
+      }
+      List<Integer> keyIndices = partitionKeyIndices.get(partition);
+      if (keyIndices == null) {
+        keyIndices = new ArrayList<Integer>();
+        partitionKeyIndices.set(partition, keyIndices);
+      }
+      keyIndices.add(i);
+    }
+    for (int partition = 0; partition < partitionAccessors.length; ++partition) {
+      List<Integer> keyIndices = partitionKeyIndices.get(partition);
+      if (keyIndices == null) {
+        continue;
+      }
+      List<ByteBuffer> partitionKeys = new ArrayList<ByteBuffer>(keyIndices.size());
+      List<ReaderResult> partitionResults = new ArrayList<ReaderResult>(keyIndices.size());
+      for (int i : keyIndices) {
+        partitionKeys.add(keys.get(i));
+        partitionResults.add(results.get(i));
+      }
+      HankTimer timer = getRequestsTimerAggregator.getTimer();
+      try {
+        HankResponse[] partitionResponses = partitionAccessors[partition].getBulk(partitionKeys, partitionResults);
+        for (int j = 0; j < partitionResponses.length; ++j) {
+          responses[keyIndices.get(j)] = partitionResponses[j];
+        }
+      } finally {
+        // Time the batch as one event standing for all its keys
+        getRequestsTimerAggregator.add(timer, keyIndices.size());
+      }
+    }
+    return responses;
+  }
+
+  // Ranges are served one partition at a time, since keys are ordered within partitions only
+  public HankRangeResponse getRange(int partition,
+                                    ByteBuffer startKey,
+                                    ByteBuffer endKey,
+                                    int maxNumResults) throws IOException {
+    if (partition < 0 || partition >= partitionAccessors.length || partitionAccessors[partition] == null) {
+      LOG.error("Failed to perform get range because of an Exception: wrong host for domain: " + hostDomain.getDomain().getName()
+          + ", partition: " + partition + ", response: " + WRONG_HOST_RANGE);
+      return WRONG_HOST_RANGE;
+    }
+    List<ByteBuffer> keys = new ArrayList<ByteBuffer>();
+    List<ByteBuffer> values = new ArrayList<ByteBuffer>();
+    partitionAccessors[partition].getRange(startKey, endKey, maxNumResults, keys, values);
+    return HankRangeResponse.range(new HankRange(keys, values));
+  }
+
   public String getName() {
     return hostDomain.getDomain().getName();
   }
@@ -77,6 +155,14 @@ public class DomainAccessor {
     return hostDomain;
   }
 
+  PartitionAccessor[] getPartitionAccessors() {
+    return partitionAccessors;
+  }
+
+  HankTimerEventAggregator getGetRequestsTimerAggregator() {
+    return getRequestsTimerAggregator;
+  }
+
   public void shutDown() {
     // Shutdown partition accessors
     for (PartitionAccessor partitionAccessor : partitionAccessors) {
@@ -18,6 +18,7 @@ package com.liveramp.hank.partition_server;
 
 import com.liveramp.hank.coordinator.HostDomainPartition;
 import com.liveramp.hank.generated.HankResponse;
+import com.liveramp.hank.storage.RangeReader;
 import com.liveramp.hank.storage.Reader;
 import com.liveramp.hank.storage.ReaderResult;
 import com.liveramp.hank.util.AtomicLongCollection;
@@ -26,11 +27,17 @@ import org.apache.log4j.Logger;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Wrapper class that stores: 1. HostDomainPartition 2. Reader: The Reader
  * associated with the HostDomainPartition 3. AtomicLongCollection: counters
  * for number of requests and hits in a given time window
+ *
+ * The Reader can be swapped while requests are being served (e.g. after a
+ * live update). Requests retain the Reader they started on, and the previous
+ * Reader is closed once the last of them completes.
  */
 public class PartitionAccessor {
 
@@ -38,13 +45,16 @@ public class PartitionAccessor {
   private static final Logger LOG = Logger.getLogger(PartitionAccessor.class);
 
   private final HostDomainPartition partition;
-  private final Reader reader;
+  private final AtomicReference<RefCountedReader> reader;
   private final HankTimer windowTimer = new HankTimer();
   //0: num requests
   //1: num hits
   //2: responses data num bytes
   //3: num L1 cache hits
   //4: num L2 cache hits
+  //5: num block cache hits
+  //6: num block cache misses
+  //7: num block cache evictions
   private final AtomicLongCollection countersWindow;
 
   public PartitionAccessor(HostDomainPartition partition, Reader reader) {
@@ -52,9 +62,9 @@ public class PartitionAccessor {
       throw new IllegalArgumentException("Reader may not be null!");
     }
     this.partition = partition;
-    this.reader = reader;
+    this.reader = new AtomicReference<RefCountedReader>(new RefCountedReader(reader));
     windowTimer.restart();
-    countersWindow = new AtomicLongCollection(5, new long[]{0, 0, 0, 0, 0});
+    countersWindow = new AtomicLongCollection(8, new long[]{0, 0, 0, 0, 0, 0, 0, 0});
   }
 
   public HostDomainPartition getHostDomainPartition() {
@@ -64,14 +74,106 @@ public class PartitionAccessor {
   public HankResponse get(ByteBuffer key, ReaderResult result) throws IOException {
     // Increment requests counter
     LOG.trace("Partition GET");
-    reader.get(key, result);
+    RefCountedReader reader = retainReader();
+    try {
+      reader.getReader().get(key, result);
+      // Borrowed buffers are copied before the Reader is released
+      return getResponse(result);
+    } finally {
+      reader.release();
+    }
+  }
+
+  // Results are matched to keys by index, and so are the returned responses
+  public HankResponse[] getBulk(List<ByteBuffer> keys, List<ReaderResult> results) throws IOException {
+    LOG.trace("Partition GET BULK");
+    RefCountedReader reader = retainReader();
+    try {
+      reader.getReader().getBulk(keys, results);
+      HankResponse[] responses = new HankResponse[keys.size()];
+      for (int i = 0; i < responses.length; ++i) {
+        responses[i] = getResponse(results.get(i));
+      }
+      return responses;
+    } finally {
+      reader.release();
+    }
+  }
+
+  // Append the entries of the given key range to keys and values. Only partitions served by a RangeReader
+  // (i.e. stored in key order) support range queries.
+  public void getRange(ByteBuffer startKey,
+                       ByteBuffer endKey,
+                       int maxNumResults,
+                       List<ByteBuffer> keys,
+                       List<ByteBuffer> values) throws IOException {
+    LOG.trace("Partition GET RANGE");
+    int numValues = values.size();
+    RefCountedReader reader = retainReader();
+    try {
+      if (!(reader.getReader() instanceof RangeReader)) {
+        throw new IOException("Reader of partition " + partition.getPartitionNumber()
+            + " does not support range queries: " + reader.getReader().getClass().getSimpleName());
+      }
+      ((RangeReader)reader.getReader()).getRange(startKey, endKey, maxNumResults, keys, values);
+    } finally {
+      reader.release();
+    }
+    long numBytes = 0;
+    for (int i = numValues; i < values.size(); ++i) {
+      numBytes += values.get(i).remaining();
+    }
+    // A range is counted as one request, and as a hit when it is not empty
+    countersWindow.increment(1, values.size() > numValues ? 1 : 0, numBytes, 0, 0, 0, 0, 0);
+  }
+
+  // Return the current Reader, retained. It must be released once the request is done with it.
+  private RefCountedReader retainReader() throws IOException {
+    while (true) {
+      RefCountedReader current = reader.get();
+      if (current == null) {
+        throw new IOException("Reader of partition " + partition.getPartitionNumber() + " has been shut down");
+      }
+      if (current.retain()) {
+        return current;
+      }
+      // The Reader was swapped and closed in the meantime. Try again with the new one.
+    }
+  }
+
+  // Version number of the Reader currently serving this partition
+  public Integer getReaderVersionNumber() {
+    RefCountedReader current = reader.get();
+    return current == null ? null : current.getReader().getVersionNumber();
+  }
+
+  // Serve requests from the given Reader from now on. The previous Reader is closed once
+  // the requests that are using it complete.
+  public void swapReader(Reader newReader) {
+    RefCountedReader previous = reader.getAndSet(new RefCountedReader(newReader));
+    if (previous != null) {
+      previous.release();
+    }
+  }
+
+  private HankResponse getResponse(ReaderResult result) {
     int l1CacheHit = result.getL1CacheHit() ? 1 : 0;
     int l2CacheHit = result.getL2CacheHit() ? 1 : 0;
+    int blockCacheHit = result.getBlockCacheHit() ? 1 : 0;
+    int blockCacheMiss = result.getBlockCacheMiss() ? 1 : 0;
+    int numBlockCacheEvictions = result.getNumBlockCacheEvictions();
     if (result.isFound()) {
-      countersWindow.increment(1, 1, result.getBuffer().remaining(), l1CacheHit, l2CacheHit);
+      if (result.isBufferBorrowed()) {
+        // Thrift serializes binary fields from their backing array, so values borrowed
+        // from the reader (e.g. memory mapped) are copied once here
+        result.deepCopyIntoResultBuffer(result.getBuffer());
+      }
+      countersWindow.increment(1, 1, result.getBuffer().remaining(), l1CacheHit, l2CacheHit,
+          blockCacheHit, blockCacheMiss, numBlockCacheEvictions);
       return HankResponse.value(result.getBuffer());
     } else {
-      countersWindow.increment(1, 0, 0, l1CacheHit, l2CacheHit);
+      countersWindow.increment(1, 0, 0, l1CacheHit, l2CacheHit,
+          blockCacheHit, blockCacheMiss, numBlockCacheEvictions);
       return NOT_FOUND;
     }
   }
@@ -81,12 +183,15 @@ public class PartitionAccessor {
     long windowDurationNanos = windowTimer.getDuration();
     windowTimer.restart();
     // Get atomic counters
-    long[] counters = countersWindow.getAsArrayAndSet(0, 0, 0, 0, 0);
+    long[] counters = countersWindow.getAsArrayAndSet(0, 0, 0, 0, 0, 0, 0, 0);
     long numRequestsInWindow = counters[0];
     long numHitsInWindow = counters[1];
     long responsesNumBytesInWindow = counters[2];
     long numL1CacheHitsInWindow = counters[3];
     long numL2CacheHitsInWindow = counters[4];
+    long numBlockCacheHitsInWindow = counters[5];
+    long numBlockCacheMissesInWindow = counters[6];
+    long numBlockCacheEvictionsInWindow = counters[7];
     double throughput = 0;
     double responseDataThroughput = 0;
     if (windowDurationNanos != 0) {
@@ -98,16 +203,16 @@ public class PartitionAccessor {
         throughput,
         responseDataThroughput,
         numL1CacheHitsInWindow,
-        numL2CacheHitsInWindow);
+        numL2CacheHitsInWindow,
+        numBlockCacheHitsInWindow,
+        numBlockCacheMissesInWindow,
+        numBlockCacheEvictionsInWindow);
   }
 
   public void shutDown() {
-    if (reader != null) {
-      try {
-        reader.close();
-      } catch (IOException e) {
-        LOG.error("Exception while closing Reader", e);
-      }
+    RefCountedReader current = reader.getAndSet(null);
+    if (current != null) {
+      current.release();
     }
   }
 }
@@ -20,6 +20,7 @@ import com.liveramp.hank.config.PartitionServerConfigurator;
 import com.liveramp.hank.config.yaml.YamlPartitionServerConfigurator;
 import com.liveramp.hank.coordinator.*;
 import com.liveramp.hank.util.CommandLineChecker;
+import com.liveramp.hank.util.FormatUtils;
 import com.liveramp.hank.util.HankTimer;
 import com.liveramp.hank.util.UpdateStatisticsRunnable;
 import com.liveramp.hank.zookeeper.WatchedNodeListener;
@@ -64,9 +65,16 @@ public class PartitionServer implements HostCommandQueueChangeListener, WatchedN
   private final Host host;
 
   private Thread updateThread;
+  private final Object updateThreadLock = new Object();
+
+  private UpdatePrefetcher updatePrefetcher;
+  private Thread updatePrefetcherThread;
+  private final Object updatePrefetcherLock = new Object();
 
   private TServer dataServer;
   private Thread dataServerThread;
+  private volatile IfaceWithShutdown dataServerHandler;
+  private final Object dataServerLock = new Object();
   private boolean waitForDataServer;
 
   private final RingGroup ringGroup;
@@ -137,7 +145,8 @@ public class PartitionServer implements HostCommandQueueChangeListener, WatchedN
     }
     // Shuting down
     LOG.info("Partition server main thread is stopping.");
-    // Stop serving data
+    // Stop prefetching and serving data
+    stopPrefetching();
     stopServingData();
     // Stop updating if necessary
     stopUpdating();
@@ -165,6 +174,16 @@ public class PartitionServer implements HostCommandQueueChangeListener, WatchedN
     return new UpdateManager(configurator, host, ringGroup);
   }
 
+  // Readers of updated partitions are swapped in by the given handler as soon as they are committed
+  protected IUpdateManager getLiveUpdateManager(IfaceWithShutdown handler) throws IOException {
+    return new UpdateManager(configurator, host, ringGroup, (PartitionServerHandler) handler);
+  }
+
+  // Load the Readers of added partitions, and of any that were not swapped yet, while serving
+  protected void reloadReaders(IfaceWithShutdown handler) throws IOException {
+    ((PartitionServerHandler) handler).reloadReaders();
+  }
+
   @Override
   public synchronized void onCommandQueueChange(Host host) {
     LOG.info("Command queue changed.");
@@ -248,6 +267,9 @@ public class PartitionServer implements HostCommandQueueChangeListener, WatchedN
       case EXECUTE_UPDATE:
         processExecuteUpdate(state);
         break;
+      case EXECUTE_LIVE_UPDATE:
+        processExecuteLiveUpdate(state);
+        break;
       case GO_TO_IDLE:
         processGoToIdle(state);
         break;
@@ -262,6 +284,7 @@ public class PartitionServer implements HostCommandQueueChangeListener, WatchedN
       case SERVING:
         // Set IDLE state proactively. If the shutting down hangs, it will be safe since clients will be already aware.
         host.setState(HostState.IDLE); // In case of exception, server will stop and state will be coherent.
+        stopPrefetching();
         stopServingData();
         host.nextCommand(); // In case of exception, server will stop and state will be coherent.
         break;
@@ -288,11 +311,32 @@ public class PartitionServer implements HostCommandQueueChangeListener, WatchedN
     }
   }
 
+  private void processExecuteLiveUpdate(HostState state) throws IOException {
+    switch (state) {
+      case SERVING:
+        // Keep serving while updating. The update fetches whatever has not been prefetched.
+        stopPrefetching();
+        executeLiveUpdate();
+        // Next command is set by the updater thread
+        break;
+      case IDLE:
+        // Nothing is being served. Perform a regular update.
+        processExecuteUpdate(state);
+        break;
+      default:
+        if (LOG.isDebugEnabled()) {
+          LOG.info(ignoreIncompatibleCommandMessage(HostCommand.EXECUTE_LIVE_UPDATE, state));
+        }
+        host.nextCommand(); // In case of exception, server will stop and state will be coherent.
+    }
+  }
+
   private void processServeData(HostState state) throws IOException {
     switch (state) {
       case IDLE:
         serveData();
         host.setState(HostState.SERVING);  // In case of exception, server will stop and state will be coherent.
+        startPrefetching();
         host.nextCommand(); // In case of exception, server will stop and state will be coherent.
         break;
       default:
@@ -304,7 +348,7 @@ public class PartitionServer implements HostCommandQueueChangeListener, WatchedN
   }
 
   private void executeUpdate() {
-    if (updateThread != null) {
+    if (isUpdating()) {
       LOG.error("Update got called while one is already running!");
       return;
     }
@@ -331,18 +375,119 @@ public class PartitionServer implements HostCommandQueueChangeListener, WatchedN
           LOG.fatal("Failed to move on to next command.", e);
         }
         // Signal that update thread is done.
-        updateThread = null;
+        synchronized (updateThreadLock) {
+          updateThread = null;
+        }
+      }
+    };
+    synchronized (updateThreadLock) {
+      updateThread = new Thread(updateRunnable, "Update manager thread");
+      updateThread.start();
+    }
+  }
+
+  private void executeLiveUpdate() {
+    if (isUpdating()) {
+      LOG.error("Live update got called while an update is already running!");
+      return;
+    }
+    Runnable updateRunnable = new Runnable() {
+      @Override
+      public void run() {
+        boolean succeeded = false;
+        try {
+          IfaceWithShutdown handler = dataServerHandler;
+          if (handler == null) {
+            throw new IOException("Data server handler is not available. Cannot swap Readers.");
+          }
+          IUpdateManager updateManager = getLiveUpdateManager(handler);
+          updateManager.update();
+          // Pick up partitions and domains that were added or removed
+          reloadReaders(handler);
+          succeeded = true;
+          LOG.info("Live update succeeded.");
+          startPrefetching();
+        } catch (Throwable e) {
+          LOG.fatal("Live update failed. Updater encountered a fatal error:", e);
+        }
+        // Partitions might have been partially updated. Stop serving them and go back to IDLE in case of failure.
+        if (!succeeded) {
+          try {
+            setStateSynchronized(HostState.IDLE); // In case of exception, server will stop and state will be coherent.
+          } catch (IOException e) {
+            LOG.fatal("Failed to record state change.", e);
+          }
+          stopServingData();
+        }
+        // Move on to next command
+        try {
+          nextCommandSynchronized(); // In case of exception, server will stop and state will be coherent.
+        } catch (IOException e) {
+          LOG.fatal("Failed to move on to next command.", e);
+        }
+        // Signal that update thread is done.
+        synchronized (updateThreadLock) {
+          updateThread = null;
+        }
       }
     };
-    updateThread = new Thread(updateRunnable, "Update manager thread");
-    updateThread.start();
+    synchronized (updateThreadLock) {
+      updateThread = new Thread(updateRunnable, "Live update manager thread");
+      updateThread.start();
+    }
+  }
+
+  private boolean isUpdating() {
+    synchronized (updateThreadLock) {
+      return updateThread != null;
+    }
+  }
+
+  // Fetch the next versions of assigned partitions in the background while serving, if enabled
+  private void startPrefetching() {
+    if (configurator.getPrefetchMaxBytesPerSecond() <= 0) {
+      return;
+    }
+    synchronized (updatePrefetcherLock) {
+      if (updatePrefetcherThread != null) {
+        return;
+      }
+      LOG.info("Starting to prefetch next versions at up to "
+          + FormatUtils.formatNumBytes(configurator.getPrefetchMaxBytesPerSecond()) + "/s.");
+      updatePrefetcher = new UpdatePrefetcher(configurator, host, ringGroup);
+      updatePrefetcherThread = new Thread(updatePrefetcher, "Update prefetcher thread");
+      updatePrefetcherThread.setDaemon(true);
+      updatePrefetcherThread.start();
+    }
+  }
+
+  private void stopPrefetching() {
+    synchronized (updatePrefetcherLock) {
+      if (updatePrefetcherThread == null) {
+        return;
+      }
+      LOG.info("Stopping update prefetcher thread.");
+      updatePrefetcher.cancel();
+      updatePrefetcherThread.interrupt();
+      try {
+        updatePrefetcherThread.join();
+      } catch (InterruptedException e) {
+        LOG.debug("Interrupted while waiting for update prefetcher thread to stop. Continuing.", e);
+      }
+      updatePrefetcher = null;
+      updatePrefetcherThread = null;
+    }
   }
 
   private void stopUpdating() throws InterruptedException {
-    if (updateThread != null) {
+    Thread thread;
+    synchronized (updateThreadLock) {
+      thread = updateThread;
+    }
+    if (thread != null) {
       LOG.info("Update thread is still running. Interrupting and waiting for it to finish...");
-      updateThread.interrupt();
-      updateThread.join(); // In case of interrupt exception, server will stop and state will be coherent.
+      thread.interrupt();
+      thread.join(); // In case of interrupt exception, server will stop and state will be coherent.
     }
   }
 
@@ -351,6 +496,7 @@ public class PartitionServer implements HostCommandQueueChangeListener, WatchedN
     try {
       // Set up the service handler
       handler = getHandler();
+      dataServerHandler = handler;
       // Launch the thrift server
       TNonblockingServerSocket serverSocket = new TNonblockingServerSocket(configurator.getServicePort());
       Args options = new Args(serverSocket);
@@ -363,6 +509,7 @@ public class PartitionServer implements HostCommandQueueChangeListener, WatchedN
       LOG.debug("Thrift server exited.");
     } finally {
       // Always shut down the handler
+      dataServerHandler = null;
       if (handler != null) {
         LOG.debug("Shutting down Partition Server handler.");
         handler.shutDown();
@@ -414,19 +561,22 @@ public class PartitionServer implements HostCommandQueueChangeListener, WatchedN
     }
   }
 
+  // Can be called from the update thread when a live update fails
   private void stopServingData() {
-    if (dataServer == null) {
-      return;
-    }
-    LOG.info("Stopping data server thread.");
-    dataServer.stop();
-    try {
-      dataServerThread.join();
-    } catch (InterruptedException e) {
-      LOG.debug("Interrupted while waiting for data server thread to stop. Continuing.", e);
+    synchronized (dataServerLock) {
+      if (dataServer == null) {
+        return;
+      }
+      LOG.info("Stopping data server thread.");
+      dataServer.stop();
+      try {
+        dataServerThread.join();
+      } catch (InterruptedException e) {
+        LOG.debug("Interrupted while waiting for data server thread to stop. Continuing.", e);
+      }
+      dataServer = null;
+      dataServerThread = null;
     }
-    dataServer = null;
-    dataServerThread = null;
   }
 
   private String ignoreIncompatibleCommandMessage(HostCommand command, HostState state) {
@@ -15,11 +15,16 @@
  */
 package com.liveramp.hank.partition_server;
 
+import com.liveramp.hank.config.DataDirectoriesConfigurator;
 import com.liveramp.hank.config.PartitionServerConfigurator;
 import com.liveramp.hank.coordinator.*;
 import com.liveramp.hank.generated.HankBulkResponse;
 import com.liveramp.hank.generated.HankException;
+import com.liveramp.hank.generated.HankRange;
+import com.liveramp.hank.generated.HankRangeResponse;
 import com.liveramp.hank.generated.HankResponse;
+import com.liveramp.hank.storage.BlockCache;
+import com.liveramp.hank.storage.BlockCacheProvider;
 import com.liveramp.hank.storage.Reader;
 import com.liveramp.hank.storage.ReaderResult;
 import com.liveramp.hank.storage.StorageEngine;
@@ -35,19 +40,26 @@ import java.util.concurrent.*;
 /**
  * Implements the actual data serving logic of the PartitionServer
  */
-public class PartitionServerHandler implements IfaceWithShutdown {
+public class PartitionServerHandler implements IfaceWithShutdown, ReaderSwapper {
 
   private final static Logger LOG = Logger.getLogger(PartitionServerHandler.class);
 
   private final Host host;
+  private final Ring ring;
+  private final PartitionServerConfigurator configurator;
   private static final HankResponse NO_SUCH_DOMAIN = HankResponse.xception(HankException.no_such_domain(true));
   private static final HankBulkResponse NO_SUCH_DOMAIN_BULK = HankBulkResponse.xception(HankException.no_such_domain(true));
+  private static final HankRangeResponse NO_SUCH_DOMAIN_RANGE = HankRangeResponse.xception(HankException.no_such_domain(true));
   private final int getBulkTaskSize;
   private static final long GET_BULK_TASK_EXECUTOR_KEEP_ALIVE_VALUE = 1;
   private static final TimeUnit GET_BULK_TASK_EXECUTOR_KEEP_ALIVE_UNIT = TimeUnit.DAYS;
 
   private static final ReaderResultThreadLocal readerResultThreadLocal = new ReaderResultThreadLocal();
-  private final DomainAccessor[] domainAccessors;
+  private static final ReaderResultsThreadLocal readerResultsThreadLocal = new ReaderResultsThreadLocal();
+  // Replaced as a whole when Readers are reloaded
+  private volatile DomainAccessor[] domainAccessors;
+  private final BlockCache blockCache;
+  private final ReaderConfigurator readerConfigurator;
   private final ThreadPoolExecutor getBulkTaskExecutor;
   private static final long GET_BULK_TASK_EXECUTOR_AWAIT_TERMINATION_VALUE = 1;
   private static final TimeUnit GET_BULK_TASK_EXECUTOR_AWAIT_TERMINATION_UNIT = TimeUnit.SECONDS;
@@ -76,24 +88,109 @@ public class PartitionServerHandler implements IfaceWithShutdown {
     // Prestart core threads
     getBulkTaskExecutor.prestartAllCoreThreads();
 
+    this.configurator = configurator;
+
     // Find the ring
-    Ring ring = coordinator.getRingGroup(configurator.getRingGroupName()).getRingForHost(address);
+    ring = coordinator.getRingGroup(configurator.getRingGroupName()).getRingForHost(address);
     if (ring == null) {
       throw new IOException(String.format("Could not get Ring of PartitionServerAddress %s", address));
     }
 
-    // Get the domain group for the ring
-    DomainGroup domainGroup = ring.getRingGroup().getDomainGroup();
-    if (domainGroup == null) {
-      throw new IOException(String.format("Could not get DomainGroup of Ring %s", ring));
-    }
-
     // Get the corresponding Host
     host = ring.getHostByAddress(address);
     if (host == null) {
       throw new IOException(String.format("Could not get Host at address %s of Ring %s", address, ring));
     }
 
+    // Create the block cache shared by all Readers
+    if (configurator.getBlockCacheCapacity() > 0) {
+      blockCache = new BlockCache(configurator.getBlockCacheCapacity());
+      LOG.info("Using a block cache of " + configurator.getBlockCacheCapacity() + " bytes");
+    } else {
+      blockCache = null;
+    }
+    readerConfigurator = new ReaderConfigurator(configurator, blockCache);
+
+    List<Exception> exceptions = new ArrayList<Exception>();
+    domainAccessors = loadDomainAccessors(new DomainAccessor[0], exceptions);
+    // If there was a failure, abort and skip current command.
+    if (!exceptions.isEmpty()) {
+      host.nextCommand();
+      throw new IOException("Failed to load Readers. Encountered " + exceptions.size() + " exceptions.");
+    }
+    // Start the update runtime statistics thread
+    updateRuntimeStatisticsRunnable = new UpdateRuntimeStatisticsRunnable();
+    updateRuntimeStatisticsThread = new Thread(updateRuntimeStatisticsRunnable, "Update Runtime Statistics");
+    updateRuntimeStatisticsThread.start();
+  }
+
+  /**
+   * Load the Readers of partitions that were updated since they were loaded, and swap them
+   * in while requests are being served. Requests in flight finish on the previous Readers.
+   * Partitions that were added are loaded, and those that were removed stop being served.
+   */
+  public synchronized void reloadReaders() throws IOException {
+    DomainAccessor[] previousDomainAccessors = domainAccessors;
+    List<Exception> exceptions = new ArrayList<Exception>();
+    DomainAccessor[] newDomainAccessors = loadDomainAccessors(previousDomainAccessors, exceptions);
+    domainAccessors = newDomainAccessors;
+    // Shut down partition accessors that are not served anymore
+    Set<PartitionAccessor> servedPartitionAccessors = new HashSet<PartitionAccessor>();
+    for (DomainAccessor domainAccessor : newDomainAccessors) {
+      if (domainAccessor != null) {
+        servedPartitionAccessors.addAll(Arrays.asList(domainAccessor.getPartitionAccessors()));
+      }
+    }
+    for (DomainAccessor domainAccessor : previousDomainAccessors) {
+      if (domainAccessor != null) {
+        for (PartitionAccessor partitionAccessor : domainAccessor.getPartitionAccessors()) {
+          if (partitionAccessor != null && !servedPartitionAccessors.contains(partitionAccessor)) {
+            partitionAccessor.shutDown();
+          }
+        }
+      }
+    }
+    if (!exceptions.isEmpty()) {
+      throw new IOException("Failed to reload Readers. Encountered " + exceptions.size() + " exceptions.");
+    }
+  }
+
+  /**
+   * Load the Reader of a partition that was just updated to the given version, and swap it in
+   * while requests are being served. Partitions that are not served yet are left to reloadReaders().
+   */
+  @Override
+  public synchronized void swapReader(Domain domain, int partitionNumber, int versionNumber) throws IOException {
+    DomainAccessor[] currentDomainAccessors = domainAccessors;
+    int domainId = domain.getId();
+    if (domainId >= currentDomainAccessors.length || currentDomainAccessors[domainId] == null) {
+      return;
+    }
+    PartitionAccessor[] partitionAccessors = currentDomainAccessors[domainId].getPartitionAccessors();
+    if (partitionNumber >= partitionAccessors.length || partitionAccessors[partitionNumber] == null) {
+      return;
+    }
+    Reader reader = domain.getStorageEngine().getReader(readerConfigurator, partitionNumber);
+    if (reader.getVersionNumber() != null && !reader.getVersionNumber().equals(versionNumber)) {
+      reader.close();
+      throw new IOException(String.format("Could not swap Reader for partition #%d of domain %s because version numbers reported by the Reader (%d) and by the update (%d) differ.",
+          partitionNumber, domain.getName(), reader.getVersionNumber(), versionNumber));
+    }
+    partitionAccessors[partitionNumber].swapReader(reader);
+    LOG.info(String.format("Swapped Reader for domain %s, partition #%d to version %d",
+        domain.getName(), partitionNumber, versionNumber));
+  }
+
+  // Build domain accessors for the current domain group and partition assignments. Partition accessors
+  // of the given previous domain accessors are reused, and their Reader is swapped when their version changed.
+  private DomainAccessor[] loadDomainAccessors(DomainAccessor[] previousDomainAccessors,
+                                               List<Exception> exceptions) throws IOException {
+    // Get the domain group for the ring
+    DomainGroup domainGroup = ring.getRingGroup().getDomainGroup();
+    if (domainGroup == null) {
+      throw new IOException(String.format("Could not get DomainGroup of Ring %s", ring));
+    }
+
     // Determine the max domain id so we can bound the arrays
     int maxDomainId = 0;
     for (DomainGroupDomainVersion dgvdv : domainGroup.getDomainVersions()) {
@@ -102,10 +199,9 @@ public class PartitionServerHandler implements IfaceWithShutdown {
         maxDomainId = domainId;
       }
     }
-    domainAccessors = new DomainAccessor[maxDomainId + 1];
+    DomainAccessor[] result = new DomainAccessor[maxDomainId + 1];
 
     // Loop over the domains and get set up
-    List<Exception> exceptions = new ArrayList<Exception>();
     for (DomainGroupDomainVersion dgvdv : domainGroup.getDomainVersions()) {
       Domain domain = dgvdv.getDomain();
       StorageEngine engine = domain.getStorageEngine();
@@ -125,6 +221,16 @@ public class PartitionServerHandler implements IfaceWithShutdown {
       LOG.info(String.format("Loading %d/%d partitions of domain %s",
           partitions.size(), domain.getNumParts(), domain.getName()));
 
+      DomainAccessor previousDomainAccessor = domainId < previousDomainAccessors.length
+          ? previousDomainAccessors[domainId] : null;
+      PartitionAccessor[] previousPartitionAccessors = null;
+      if (previousDomainAccessor != null) {
+        previousPartitionAccessors = previousDomainAccessor.getPartitionAccessors();
+        if (previousPartitionAccessors.length != domain.getNumParts()) {
+          previousPartitionAccessors = null;
+        }
+      }
+
       // Instantiate the PartitionAccessor array
       PartitionAccessor[] partitionAccessors =
           new PartitionAccessor[domain.getNumParts()];
@@ -136,9 +242,18 @@ public class PartitionServerHandler implements IfaceWithShutdown {
           continue;
         }
 
+        PartitionAccessor previousPartitionAccessor = previousPartitionAccessors == null ? null
+            : previousPartitionAccessors[partition.getPartitionNumber()];
+        // Keep serving partitions that are already loaded at their current version
+        if (previousPartitionAccessor != null
+            && partition.getCurrentDomainVersion().equals(previousPartitionAccessor.getReaderVersionNumber())) {
+          partitionAccessors[partition.getPartitionNumber()] = previousPartitionAccessor;
+          continue;
+        }
+
         Reader reader;
         try {
-          reader = engine.getReader(configurator, partition.getPartitionNumber());
+          reader = engine.getReader(readerConfigurator, partition.getPartitionNumber());
         } catch (IOException e) {
           // Something went wrong when loading this partition's Reader. Set it deletable and signal failure.
           if (!partition.isDeletable()) {
@@ -158,29 +273,32 @@ public class PartitionServerHandler implements IfaceWithShutdown {
               partition.getPartitionNumber(), domain.getName(), reader.getVersionNumber(), partition.getCurrentDomainVersion());
           LOG.error(msg);
           exceptions.add(new IOException(msg));
+          reader.close();
           continue;
         }
         LOG.info(String.format("Loaded Reader for domain %s, partition #%d",
             domain.getName(), partition.getPartitionNumber()));
-        partitionAccessors[partition.getPartitionNumber()] = new PartitionAccessor(partition, reader);
+        if (previousPartitionAccessor != null) {
+          previousPartitionAccessor.swapReader(reader);
+          partitionAccessors[partition.getPartitionNumber()] = previousPartitionAccessor;
+        } else {
+          partitionAccessors[partition.getPartitionNumber()] = new PartitionAccessor(partition, reader);
+        }
         // Loading succeeded, if the partition was deletable, it should not be
         if (partition.isDeletable()) {
           partition.setDeletable(false);
         }
       }
-      // configure and store the DomainAccessors
-      domainAccessors[domainId] = new DomainAccessor(hostDomain, partitionAccessors, domain.getPartitioner(),
-          configurator.getGetTimerAggregatorWindow());
-    }
-    // If there was a failure, abort and skip current command.
-    if (!exceptions.isEmpty()) {
-      host.nextCommand();
-      throw new IOException("Failed to load Readers. Encountered " + exceptions.size() + " exceptions.");
+      // configure and store the DomainAccessors. GET statistics carry over reloads.
+      if (previousDomainAccessor != null) {
+        result[domainId] = new DomainAccessor(hostDomain, partitionAccessors, domain.getPartitioner(),
+            previousDomainAccessor.getGetRequestsTimerAggregator());
+      } else {
+        result[domainId] = new DomainAccessor(hostDomain, partitionAccessors, domain.getPartitioner(),
+            configurator.getGetTimerAggregatorWindow());
+      }
     }
-    // Start the update runtime statistics thread
-    updateRuntimeStatisticsRunnable = new UpdateRuntimeStatisticsRunnable();
-    updateRuntimeStatisticsThread = new Thread(updateRuntimeStatisticsRunnable, "Update Runtime Statistics");
-    updateRuntimeStatisticsThread.start();
+    return result;
   }
 
   @Override
@@ -228,6 +346,32 @@ public class PartitionServerHandler implements IfaceWithShutdown {
     }
   }
 
+  @Override
+  public HankRangeResponse getRange(int domainId, int partitionNumber, ByteBuffer startKey, ByteBuffer endKey, int maxNumResults) {
+    DomainAccessor domainAccessor = getDomainAccessor(domainId);
+    if (domainAccessor == null) {
+      return NO_SUCH_DOMAIN_RANGE;
+    }
+    if (maxNumResults <= 0) {
+      return HankRangeResponse.range(new HankRange(new ArrayList<ByteBuffer>(), new ArrayList<ByteBuffer>()));
+    }
+    try {
+      return domainAccessor.getRange(partitionNumber, startKey, endKey, maxNumResults);
+    } catch (IOException e) {
+      String errMsg = String.format(
+          "Exception during GET RANGE. Domain: %s (domain #%d) Partition: %d",
+          domainAccessor.getName(), domainId, partitionNumber);
+      LOG.error(errMsg, e);
+      return HankRangeResponse.xception(
+          HankException.internal_error(errMsg + " " + (e.getMessage() != null ? e.getMessage() : "")));
+    } catch (Throwable t) {
+      String errMsg = "Throwable during GET RANGE";
+      LOG.fatal(errMsg, t);
+      return HankRangeResponse.xception(
+          HankException.internal_error(errMsg + " " + (t.getMessage() != null ? t.getMessage() : "")));
+    }
+  }
+
   private HankResponse _get(PartitionServerHandler partitionServerHandler, int domainId, ByteBuffer key, ReaderResult result) {
     DomainAccessor domainAccessor = partitionServerHandler.getDomainAccessor(domainId);
     if (domainAccessor == null) {
@@ -258,6 +402,36 @@ public class PartitionServerHandler implements IfaceWithShutdown {
     }
   }
 
+  private static class ReaderResultsThreadLocal extends ThreadLocal<List<ReaderResult>> {
+
+    @Override
+    protected List<ReaderResult> initialValue() {
+      return new ArrayList<ReaderResult>();
+    }
+  }
+
+  // Hands the shared block cache to the Readers
+  private static class ReaderConfigurator implements DataDirectoriesConfigurator, BlockCacheProvider {
+
+    private final DataDirectoriesConfigurator configurator;
+    private final BlockCache blockCache;
+
+    public ReaderConfigurator(DataDirectoriesConfigurator configurator, BlockCache blockCache) {
+      this.configurator = configurator;
+      this.blockCache = blockCache;
+    }
+
+    @Override
+    public Set<String> getDataDirectories() {
+      return configurator.getDataDirectories();
+    }
+
+    @Override
+    public BlockCache getBlockCache() {
+      return blockCache;
+    }
+  }
+
   private static class GetThread extends Thread {
 
     public GetThread(Runnable runnable, String name) {
@@ -291,9 +465,53 @@ public class PartitionServerHandler implements IfaceWithShutdown {
 
     @Override
     public void run() {
+      responses = new HankResponse[getBulkTaskSize];
+      DomainAccessor domainAccessor = getDomainAccessor(domainId);
+      if (domainAccessor == null) {
+        runGets();
+        return;
+      }
+      int numKeys = Math.min(getBulkTaskSize, keys.size() - firstKeyIndex);
+      // Results are reused across tasks run by this thread, one per key of the window
+      List<ReaderResult> results = readerResultsThreadLocal.get();
+      while (results.size() < numKeys) {
+        results.add(new ReaderResult());
+      }
+      for (int keyOffset = 0; keyOffset < numKeys; ++keyOffset) {
+        results.get(keyOffset).clear();
+      }
+      // Look up all keys of the window at once, so that Readers can batch their IO
+      HankResponse[] bulkResponses;
+      try {
+        bulkResponses = domainAccessor.getBulk(keys.subList(firstKeyIndex, firstKeyIndex + numKeys),
+            results.subList(0, numKeys));
+      } catch (Throwable t) {
+        LOG.error("Exception during batched GET BULK on domain " + domainAccessor.getName()
+            + ". Falling back to individual GET requests.", t);
+        runGets();
+        return;
+      }
+      for (int keyOffset = 0; keyOffset < numKeys; ++keyOffset) {
+        HankResponse response = bulkResponses[keyOffset];
+        // Same choice as for individual GET requests below: deep copy small values and reuse the result buffer,
+        // or keep the result buffer in the response and replace it in the pool.
+        if (response.is_set_value()) {
+          ByteBuffer valueBuffer = response.buffer_for_value();
+          if (((double) valueBuffer.limit())
+              < (USED_SIZE_THRESHOLD_FOR_VALUE_BUFFER_DEEP_COPY * valueBuffer.capacity())) {
+            response.set_value(Bytes.byteBufferDeepCopy(valueBuffer));
+          } else {
+            results.set(keyOffset, new ReaderResult(valueBuffer.capacity()));
+          }
+        }
+        responses[keyOffset] = response;
+      }
+    }
+
+    // Fall back to one GET per key. Errors are then reported for the failing keys only.
+    private void runGets() {
       ReaderResult result = readerResultThreadLocal.get();
       result.clear();
-      responses = new HankResponse[getBulkTaskSize];
       // Perform GET requests for keys starting at firstKeyIndex up to GET_BULK_TASK_SIZE keys or until the last key
       for (int keyOffset = 0; keyOffset < getBulkTaskSize
           && (firstKeyIndex + keyOffset) < keys.size(); keyOffset++) {
@@ -317,6 +535,9 @@ public class PartitionServerHandler implements IfaceWithShutdown {
             // Initialize it with the same capacity we had.
             result = new ReaderResult(valueBuffer.capacity());
           }
+        } else {
+          // Reset cache statistics before the next key
+          result.clear();
         }
         // Store response
         responses[keyOffset] = response;
@@ -347,6 +568,7 @@ public class PartitionServerHandler implements IfaceWithShutdown {
   }
 
   private DomainAccessor getDomainAccessor(int domainId) {
+    DomainAccessor[] domainAccessors = this.domainAccessors;
     if (domainId < domainAccessors.length) {
       return domainAccessors[domainId];
     } else {
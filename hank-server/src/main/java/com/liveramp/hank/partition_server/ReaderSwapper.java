@@ -0,0 +1,30 @@
+/**
+ *  Copyright 2013 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.hank.partition_server;
+
+import java.io.IOException;
+
+import com.liveramp.hank.coordinator.Domain;
+
+/**
+ * Swaps in the Reader of a partition as soon as its new version is committed
+ * during a live update, before that version is published.
+ */
+public interface ReaderSwapper {
+
+  public void swapReader(Domain domain, int partitionNumber, int versionNumber) throws IOException;
+}
@@ -0,0 +1,79 @@
+/**
+ *  Copyright 2013 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.hank.partition_server;
+
+import com.liveramp.hank.storage.Reader;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A Reader shared by the requests in flight on a partition. The Reader is
+ * closed when the last reference is released, so that requests that retained
+ * it before it was swapped out finish on it. Closing releases the Reader's
+ * memory mappings, so values borrowed from it must be copied before release.
+ */
+class RefCountedReader {
+
+  private static final Logger LOG = Logger.getLogger(RefCountedReader.class);
+
+  private final Reader reader;
+  // The owner (e.g. the PartitionAccessor) holds the initial reference
+  private final AtomicInteger refCount = new AtomicInteger(1);
+
+  public RefCountedReader(Reader reader) {
+    if (reader == null) {
+      throw new IllegalArgumentException("Reader may not be null!");
+    }
+    this.reader = reader;
+  }
+
+  public Reader getReader() {
+    return reader;
+  }
+
+  // Return false if the Reader was already closed, in which case it must not be used
+  public boolean retain() {
+    while (true) {
+      int count = refCount.get();
+      if (count <= 0) {
+        return false;
+      }
+      if (refCount.compareAndSet(count, count + 1)) {
+        return true;
+      }
+    }
+  }
+
+  public void release() {
+    int count = refCount.decrementAndGet();
+    if (count == 0) {
+      try {
+        reader.close();
+      } catch (IOException e) {
+        LOG.error("Exception while closing Reader", e);
+      }
+    } else if (count < 0) {
+      throw new IllegalStateException("Reader was released more times than it was retained");
+    }
+  }
+
+  public int getRefCount() {
+    return refCount.get();
+  }
+}
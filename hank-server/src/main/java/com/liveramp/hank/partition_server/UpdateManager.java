@@ -51,6 +51,11 @@ import com.liveramp.hank.util.HankTimer;
 
 /**
  * Manages the domain update process.
+ *
+ * In live mode, partitions are updated while the host keeps serving their
+ * current version. New versions are built in the update work root, and
+ * partitions keep their current version number until their update completes
+ * and their new Reader is swapped in.
  */
 public class UpdateManager implements IUpdateManager {
 
@@ -222,14 +227,29 @@ public class UpdateManager implements IUpdateManager {
 
           // Mark the beginning of the update by first unsetting the partition's current version number.
           // That way, if the update fails, we will have to update it again, and won't be able to serve it.
-          partition.setCurrentDomainVersion(null);
+          // In live mode, the current version is still being served, and is only unset if the update fails.
+          if (readerSwapper == null) {
+            partition.setCurrentDomainVersion(null);
+          }
 
           // Perform update
           StorageEngine storageEngine = domain.getStorageEngine();
           LOG.info(String.format(
               "Starting partition update of domain %s partition %d to version %d in %s.",
               domain.getName(), partition.getPartitionNumber(), targetDomainVersion.getVersionNumber(), getDataDirectory()));
-          storageEngine.getUpdater(configurator, partition.getPartitionNumber()).updateTo(targetDomainVersion, statistics);
+          try {
+            storageEngine.getUpdater(configurator, partition.getPartitionNumber()).updateTo(targetDomainVersion, statistics);
+            // In live mode, serve the new version before publishing it
+            if (readerSwapper != null) {
+              readerSwapper.swapReader(domain, partition.getPartitionNumber(), targetDomainVersion.getVersionNumber());
+            }
+          } catch (Throwable e) {
+            // Files might have been committed already, so the current version cannot be trusted anymore
+            if (readerSwapper != null) {
+              partition.setCurrentDomainVersion(null);
+            }
+            throw e;
+          }
 
           // Record update success
           partition.setCurrentDomainVersion(targetDomainVersion.getVersionNumber());
@@ -311,11 +331,22 @@ public class UpdateManager implements IUpdateManager {
   private final PartitionServerConfigurator configurator;
   private final Host host;
   private final RingGroup ringGroup;
+  // Only set in live mode
+  private final ReaderSwapper readerSwapper;
 
   public UpdateManager(PartitionServerConfigurator configurator, Host host, RingGroup ringGroup) throws IOException {
+    this(configurator, host, ringGroup, null);
+  }
+
+  // Update in live mode when a Reader swapper is given
+  public UpdateManager(PartitionServerConfigurator configurator,
+                       Host host,
+                       RingGroup ringGroup,
+                       ReaderSwapper readerSwapper) throws IOException {
     this.configurator = configurator;
     this.host = host;
     this.ringGroup = ringGroup;
+    this.readerSwapper = readerSwapper;
   }
 
   @Override
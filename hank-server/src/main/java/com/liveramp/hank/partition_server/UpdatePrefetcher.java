@@ -0,0 +1,152 @@
+/**
+ *  Copyright 2013 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.hank.partition_server;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.log4j.Logger;
+
+import com.liveramp.hank.config.PartitionServerConfigurator;
+import com.liveramp.hank.coordinator.Domain;
+import com.liveramp.hank.coordinator.DomainGroupDomainVersion;
+import com.liveramp.hank.coordinator.DomainVersion;
+import com.liveramp.hank.coordinator.Host;
+import com.liveramp.hank.coordinator.HostDomain;
+import com.liveramp.hank.coordinator.HostDomainPartition;
+import com.liveramp.hank.coordinator.Hosts;
+import com.liveramp.hank.coordinator.PrefetchProgress;
+import com.liveramp.hank.coordinator.RingGroup;
+import com.liveramp.hank.storage.PartitionUpdater;
+import com.liveramp.hank.storage.PrefetchingPartitionUpdater;
+import com.liveramp.hank.util.BandwidthThrottle;
+
+/**
+ * Periodically fetches the versions that assigned partitions will need to be
+ * updated to the domain group's target versions, while the host is serving.
+ * Fetched versions are committed to the partitions' cache, so that the next
+ * update only has to run locally. Fetches are throttled so that they do not
+ * compete with the traffic being served.
+ */
+public class UpdatePrefetcher implements Runnable {
+
+  private static final Logger LOG = Logger.getLogger(UpdatePrefetcher.class);
+  private static final int PREFETCH_THREAD_SLEEP_TIME_MS_DEFAULT = 60 * 1000;
+
+  private final PartitionServerConfigurator configurator;
+  private final Host host;
+  private final RingGroup ringGroup;
+  private final BandwidthThrottle throttle;
+  private final AtomicBoolean cancelled = new AtomicBoolean(false);
+  // Partitions that have already been prefetched, and the version they were prefetched for
+  private final Map<String, Integer> prefetchedVersions = new HashMap<String, Integer>();
+
+  public UpdatePrefetcher(PartitionServerConfigurator configurator, Host host, RingGroup ringGroup) {
+    this.configurator = configurator;
+    this.host = host;
+    this.ringGroup = ringGroup;
+    this.throttle = new BandwidthThrottle(configurator.getPrefetchMaxBytesPerSecond());
+  }
+
+  @Override
+  public void run() {
+    while (!cancelled.get()) {
+      try {
+        prefetch();
+      } catch (InterruptedIOException e) {
+        cancelled.set(true);
+      } catch (IOException e) {
+        LOG.error("Failed to prefetch next versions", e);
+      }
+      // Sleep a given interval if not cancelled. Interrupt the thread to stop it.
+      if (!cancelled.get()) {
+        try {
+          Thread.sleep(PREFETCH_THREAD_SLEEP_TIME_MS_DEFAULT);
+        } catch (InterruptedException e) {
+          cancelled.set(true);
+        }
+      }
+    }
+    // Finally, clean up
+    try {
+      Hosts.deletePrefetchProgress(host);
+    } catch (IOException e) {
+      LOG.error("Error while deleting prefetch progress.", e);
+    }
+  }
+
+  public void cancel() {
+    cancelled.set(true);
+  }
+
+  protected void prefetch() throws IOException {
+    int numPartitions = 0;
+    int numPartitionsPrefetched = 0;
+    for (HostDomain hostDomain : host.getAssignedDomains()) {
+      Domain domain = hostDomain.getDomain();
+      DomainGroupDomainVersion targetDomainGroupDomainVersion = ringGroup.getDomainGroup().getDomainVersion(domain);
+      // The domain is not in the target domain group, it will be deleted
+      if (targetDomainGroupDomainVersion == null) {
+        continue;
+      }
+      int targetVersionNumber = targetDomainGroupDomainVersion.getVersionNumber();
+      for (HostDomainPartition partition : hostDomain.getPartitions()) {
+        if (cancelled.get()) {
+          throw new InterruptedIOException("Prefetch was cancelled");
+        }
+        // Skip partitions that will be deleted or that are already up-to-date
+        if (partition.isDeletable()
+            || (partition.getCurrentDomainVersion() != null
+            && partition.getCurrentDomainVersion() == targetVersionNumber)) {
+          continue;
+        }
+        ++numPartitions;
+        String key = domain.getName() + "/" + partition.getPartitionNumber();
+        Integer prefetchedVersion = prefetchedVersions.get(key);
+        if (prefetchedVersion != null && prefetchedVersion == targetVersionNumber) {
+          ++numPartitionsPrefetched;
+          continue;
+        }
+        PartitionUpdater updater = domain.getStorageEngine().getUpdater(configurator, partition.getPartitionNumber());
+        if (!(updater instanceof PrefetchingPartitionUpdater)) {
+          continue;
+        }
+        DomainVersion targetDomainVersion = domain.getVersion(targetVersionNumber);
+        try {
+          ((PrefetchingPartitionUpdater) updater).prefetch(targetDomainVersion, throttle);
+          prefetchedVersions.put(key, targetVersionNumber);
+          ++numPartitionsPrefetched;
+        } catch (InterruptedIOException e) {
+          throw e;
+        } catch (IOException e) {
+          // The update will fetch what is missing
+          LOG.error(String.format("Failed to prefetch domain %s partition %d version %d.",
+              domain.getName(), partition.getPartitionNumber(), targetVersionNumber), e);
+        }
+        Hosts.setPrefetchProgress(host, new PrefetchProgress(numPartitions, numPartitionsPrefetched, throttle.getNumBytes()));
+      }
+    }
+    if (numPartitions == 0) {
+      Hosts.deletePrefetchProgress(host);
+    } else {
+      Hosts.setPrefetchProgress(host, new PrefetchProgress(numPartitions, numPartitionsPrefetched, throttle.getNumBytes()));
+    }
+  }
+}
@@ -0,0 +1,111 @@
+/**
+ *  Copyright 2013 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.liveramp.hank.performance;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import com.liveramp.hank.util.Bytes;
+import com.liveramp.hank.util.HankTimer;
+
+// Compare the byte by byte and word at a time unsigned comparisons on typical key hash sizes.
+// Pairs share a random length prefix, as key hashes compared during a block search
+// or a merge usually do, so that the comparison does not always stop at the first byte.
+public class PerformanceTestBytesCompare {
+
+  private static final int[] KEY_HASH_SIZES = {8, 10, 12, 16, 20};
+  private static final int NUM_PAIRS = 1 << 10;
+  private static final int NUM_ROUNDS = 2000;
+  private static final int NUM_WARMUP_ROUNDS = 5;
+
+  private enum Method {
+    BYTES_HEAP,
+    WORDS_HEAP,
+    BYTES_DIRECT,
+    WORDS_DIRECT
+  }
+
+  // One loop per method, so that each loop is compiled for a single comparison routine
+  private static long run(Method method, byte[][] as, ByteBuffer[] directAs, byte[][] bs, int keyHashSize) {
+    long checksum = 0;
+    for (int round = 0; round < NUM_ROUNDS; ++round) {
+      switch (method) {
+        case BYTES_HEAP:
+          for (int i = 0; i < as.length; ++i) {
+            checksum += Bytes.compareBytesUnsigned(as[i], 0, bs[i], 0, keyHashSize);
+          }
+          break;
+        case WORDS_HEAP:
+          for (int i = 0; i < as.length; ++i) {
+            checksum += Bytes.compareWordsUnsigned(as[i], 0, bs[i], 0, keyHashSize);
+          }
+          break;
+        case BYTES_DIRECT:
+          for (int i = 0; i < as.length; ++i) {
+            checksum += Bytes.compareBytesUnsigned(directAs[i], 0, bs[i], 0, keyHashSize);
+          }
+          break;
+        case WORDS_DIRECT:
+          for (int i = 0; i < as.length; ++i) {
+            checksum += Bytes.compareWordsUnsigned(directAs[i], 0, bs[i], 0, keyHashSize);
+          }
+          break;
+      }
+    }
+    return checksum;
+  }
+
+  private static double measureNsPerCompare(Method method, byte[][] as, ByteBuffer[] directAs, byte[][] bs, int keyHashSize) {
+    for (int i = 0; i < NUM_WARMUP_ROUNDS; ++i) {
+      run(method, as, directAs, bs, keyHashSize);
+    }
+    HankTimer timer = new HankTimer();
+    long checksum = run(method, as, directAs, bs, keyHashSize);
+    double nsPerCompare = (double) timer.getDuration() / ((long) NUM_ROUNDS * as.length);
+    // Use the checksum so that the comparisons cannot be optimized away
+    if (checksum == Long.MIN_VALUE) {
+      System.out.println("Unexpected checksum");
+    }
+    return nsPerCompare;
+  }
+
+  public static void main(String[] args) {
+    Random random = new Random(0);
+    System.out.println("key hash size, bytes heap (ns), words heap (ns), bytes direct (ns), words direct (ns)");
+    for (int keyHashSize : KEY_HASH_SIZES) {
+      byte[][] as = new byte[NUM_PAIRS][keyHashSize];
+      byte[][] bs = new byte[NUM_PAIRS][keyHashSize];
+      ByteBuffer[] directAs = new ByteBuffer[NUM_PAIRS];
+      for (int i = 0; i < NUM_PAIRS; ++i) {
+        random.nextBytes(as[i]);
+        random.nextBytes(bs[i]);
+        int commonPrefixSize = random.nextInt(keyHashSize + 1);
+        System.arraycopy(as[i], 0, bs[i], 0, commonPrefixSize);
+        directAs[i] = ByteBuffer.allocateDirect(keyHashSize);
+        directAs[i].put(as[i]);
+        directAs[i].clear();
+      }
+      StringBuilder line = new StringBuilder();
+      line.append(keyHashSize);
+      for (Method method : Method.values()) {
+        line.append(String.format(", %.2f", measureNsPerCompare(method, as, directAs, bs, keyHashSize)));
+      }
+      System.out.println(line);
+    }
+  }
+}
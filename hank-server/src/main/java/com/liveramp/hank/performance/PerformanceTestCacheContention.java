@@ -0,0 +1,130 @@
+/**
+ *  Copyright 2013 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.liveramp.hank.performance;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import com.liveramp.hank.util.ConcurrentCache;
+import com.liveramp.hank.util.HankTimer;
+import com.liveramp.hank.util.SynchronizedCache;
+
+// Measure the throughput of partition caches under contention, as in readers
+// shared by many query threads: lookups of key hashes, with a put on each miss.
+public class PerformanceTestCacheContention {
+
+  private static final int[] NUM_THREADS = {1, 2, 4, 8, 16, 32, 64};
+  private static final int NUM_KEYS = 100000;
+  private static final int CACHE_CAPACITY = 50000;
+  private static final int NUM_OPERATIONS_PER_THREAD = 200000;
+  private static final int KEY_SIZE = 10;
+  private static final int VALUE_SIZE = 5;
+
+  private static abstract class Cache {
+
+    abstract ByteBuffer get(ByteBuffer key);
+
+    abstract void put(ByteBuffer key, ByteBuffer value);
+  }
+
+  private static Cache synchronizedCache() {
+    final SynchronizedCache<ByteBuffer, ByteBuffer> cache = new SynchronizedCache<ByteBuffer, ByteBuffer>(true, CACHE_CAPACITY);
+    return new Cache() {
+      @Override
+      ByteBuffer get(ByteBuffer key) {
+        return cache.get(key);
+      }
+
+      @Override
+      void put(ByteBuffer key, ByteBuffer value) {
+        cache.put(key, value);
+      }
+    };
+  }
+
+  private static Cache concurrentCache() {
+    final ConcurrentCache<ByteBuffer, ByteBuffer> cache = new ConcurrentCache<ByteBuffer, ByteBuffer>(true, CACHE_CAPACITY);
+    return new Cache() {
+      @Override
+      ByteBuffer get(ByteBuffer key) {
+        return cache.get(key);
+      }
+
+      @Override
+      void put(ByteBuffer key, ByteBuffer value) {
+        cache.put(key, value);
+      }
+    };
+  }
+
+  // Skewed key popularity, so that most lookups are hits
+  private static ByteBuffer[] createKeys(Random random) {
+    ByteBuffer[] keys = new ByteBuffer[NUM_KEYS];
+    for (int i = 0; i < NUM_KEYS; ++i) {
+      byte[] key = new byte[KEY_SIZE];
+      random.nextBytes(key);
+      keys[i] = ByteBuffer.wrap(key);
+    }
+    return keys;
+  }
+
+  private static double measureOperationsPerSecond(final Cache cache, final ByteBuffer[] keys, int numThreads)
+      throws InterruptedException {
+    Thread[] threads = new Thread[numThreads];
+    for (int t = 0; t < numThreads; ++t) {
+      final int seed = t;
+      threads[t] = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          Random random = new Random(seed);
+          ByteBuffer value = ByteBuffer.allocate(VALUE_SIZE);
+          for (int i = 0; i < NUM_OPERATIONS_PER_THREAD; ++i) {
+            // Square the uniform draw to favor low key indices
+            double r = random.nextDouble();
+            ByteBuffer key = keys[(int) (r * r * NUM_KEYS)];
+            if (cache.get(key) == null) {
+              cache.put(key, value);
+            }
+          }
+        }
+      });
+    }
+    HankTimer timer = new HankTimer();
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    return (double) numThreads * NUM_OPERATIONS_PER_THREAD / timer.getDuration() * 1000000000;
+  }
+
+  public static void main(String[] args) throws InterruptedException {
+    ByteBuffer[] keys = createKeys(new Random(0));
+    System.out.println("threads, synchronized (ops/s), concurrent (ops/s)");
+    for (int numThreads : NUM_THREADS) {
+      // Warm up
+      measureOperationsPerSecond(synchronizedCache(), keys, numThreads);
+      measureOperationsPerSecond(concurrentCache(), keys, numThreads);
+      System.out.println(String.format("%d, %.0f, %.0f",
+          numThreads,
+          measureOperationsPerSecond(synchronizedCache(), keys, numThreads),
+          measureOperationsPerSecond(concurrentCache(), keys, numThreads)));
+    }
+  }
+}
@@ -0,0 +1,115 @@
+/**
+ *  Copyright 2013 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.hank.performance;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+import com.liveramp.hank.storage.cueball.CueballBlockSearch;
+import com.liveramp.hank.util.Bytes;
+import com.liveramp.hank.util.HankTimer;
+
+// Measure the CPU cost of looking up a key hash in a decompressed Cueball block,
+// as a function of the number of records in the block.
+public class PerformanceTestCueballBlockSearch {
+
+  private static final int KEY_HASH_SIZE = 10;
+  private static final int VALUE_SIZE = 5;
+  private static final int FULL_RECORD_SIZE = KEY_HASH_SIZE + VALUE_SIZE;
+  private static final int[] NUM_RECORDS_PER_BLOCK = {16, 64, 256, 1024, 4096, 16384};
+  private static final int NUM_LOOKUPS = 100000;
+  private static final int NUM_WARMUP_ROUNDS = 2;
+
+  private static byte[] createBlock(Random random, int numRecords) {
+    byte[][] keyHashes = new byte[numRecords][KEY_HASH_SIZE];
+    for (byte[] keyHash : keyHashes) {
+      random.nextBytes(keyHash);
+    }
+    Arrays.sort(keyHashes, new Comparator<byte[]>() {
+      @Override
+      public int compare(byte[] a, byte[] b) {
+        return Bytes.compareBytesUnsigned(a, 0, b, 0, KEY_HASH_SIZE);
+      }
+    });
+    byte[] block = new byte[numRecords * FULL_RECORD_SIZE];
+    for (int i = 0; i < numRecords; ++i) {
+      System.arraycopy(keyHashes[i], 0, block, i * FULL_RECORD_SIZE, KEY_HASH_SIZE);
+    }
+    return block;
+  }
+
+  // Half of the lookups are for key hashes present in the block
+  private static byte[][] createLookups(Random random, byte[] block, int numRecords) {
+    byte[][] lookups = new byte[NUM_LOOKUPS][KEY_HASH_SIZE];
+    for (int i = 0; i < NUM_LOOKUPS; ++i) {
+      if (random.nextBoolean()) {
+        System.arraycopy(block, random.nextInt(numRecords) * FULL_RECORD_SIZE, lookups[i], 0, KEY_HASH_SIZE);
+      } else {
+        random.nextBytes(lookups[i]);
+      }
+    }
+    return lookups;
+  }
+
+  private static long run(ByteBuffer block, byte[][] lookups, boolean linear) {
+    long checksum = 0;
+    int limit = block.capacity();
+    for (byte[] keyHash : lookups) {
+      if (linear) {
+        checksum += CueballBlockSearch.linearSearch(block, 0, limit, FULL_RECORD_SIZE, keyHash, KEY_HASH_SIZE);
+      } else {
+        checksum += CueballBlockSearch.search(block, 0, limit, FULL_RECORD_SIZE, keyHash, KEY_HASH_SIZE);
+      }
+    }
+    return checksum;
+  }
+
+  private static double measureNsPerLookup(ByteBuffer block, byte[][] lookups, boolean linear) {
+    for (int i = 0; i < NUM_WARMUP_ROUNDS; ++i) {
+      run(block, lookups, linear);
+    }
+    HankTimer timer = new HankTimer();
+    long checksum = run(block, lookups, linear);
+    double nsPerLookup = (double) timer.getDuration() / lookups.length;
+    // Use the checksum so that the lookups cannot be optimized away
+    if (checksum == Long.MIN_VALUE) {
+      System.out.println("Unexpected checksum");
+    }
+    return nsPerLookup;
+  }
+
+  public static void main(String[] args) {
+    Random random = new Random(0);
+    System.out.println("records/block, linear heap (ns), search heap (ns), linear direct (ns), search direct (ns)");
+    for (int numRecords : NUM_RECORDS_PER_BLOCK) {
+      byte[] blockBytes = createBlock(random, numRecords);
+      byte[][] lookups = createLookups(random, blockBytes, numRecords);
+      ByteBuffer heapBlock = ByteBuffer.wrap(blockBytes);
+      ByteBuffer directBlock = ByteBuffer.allocateDirect(blockBytes.length);
+      directBlock.put(blockBytes);
+      directBlock.clear();
+      System.out.println(String.format("%d, %.1f, %.1f, %.1f, %.1f",
+          numRecords,
+          measureNsPerLookup(heapBlock, lookups, true),
+          measureNsPerLookup(heapBlock, lookups, false),
+          measureNsPerLookup(directBlock, lookups, true),
+          measureNsPerLookup(directBlock, lookups, false)));
+    }
+  }
+}
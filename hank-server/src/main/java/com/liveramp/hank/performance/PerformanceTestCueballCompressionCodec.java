@@ -0,0 +1,137 @@
+/**
+ *  Copyright 2013 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.liveramp.hank.performance;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import com.liveramp.hank.compression.cueball.CueballCompressionCodec;
+import com.liveramp.hank.compression.cueball.GzipCueballCompressionCodec;
+import com.liveramp.hank.compression.cueball.Lz4CueballCompressionCodec;
+import com.liveramp.hank.compression.cueball.SnappyCueballCompressionCodec;
+import com.liveramp.hank.util.Bytes;
+import com.liveramp.hank.util.HankTimer;
+
+// Measure the compression ratio and the CPU cost of compressing and decompressing
+// Cueball blocks with each codec. Codec class names can be given as arguments,
+// as they would be in the compression_codec option.
+public class PerformanceTestCueballCompressionCodec {
+
+  private static final int KEY_HASH_SIZE = 10;
+  private static final int VALUE_SIZE = 5;
+  private static final int FULL_RECORD_SIZE = KEY_HASH_SIZE + VALUE_SIZE;
+  private static final int NUM_RECORDS_PER_BLOCK = 1024;
+  private static final int NUM_BLOCKS = 256;
+  private static final int NUM_WARMUP_ROUNDS = 3;
+
+  // Sorted random key hashes, with values drawn from a small range as Curly offsets would be
+  private static byte[] createBlock(Random random) {
+    byte[][] keyHashes = new byte[NUM_RECORDS_PER_BLOCK][KEY_HASH_SIZE];
+    for (byte[] keyHash : keyHashes) {
+      random.nextBytes(keyHash);
+      // All key hashes of a block share their prefix
+      keyHash[0] = 0;
+    }
+    Arrays.sort(keyHashes, new Comparator<byte[]>() {
+      @Override
+      public int compare(byte[] a, byte[] b) {
+        return Bytes.compareBytesUnsigned(a, 0, b, 0, KEY_HASH_SIZE);
+      }
+    });
+    byte[] block = new byte[NUM_RECORDS_PER_BLOCK * FULL_RECORD_SIZE];
+    for (int i = 0; i < NUM_RECORDS_PER_BLOCK; ++i) {
+      System.arraycopy(keyHashes[i], 0, block, i * FULL_RECORD_SIZE, KEY_HASH_SIZE);
+      int value = random.nextInt(1 << 20);
+      for (int j = 0; j < 3; ++j) {
+        block[i * FULL_RECORD_SIZE + KEY_HASH_SIZE + j] = (byte) (value >>> (8 * j));
+      }
+    }
+    return block;
+  }
+
+  private static void measure(CueballCompressionCodec codec, byte[][] blocks) {
+    int blockSize = blocks[0].length;
+    byte[][] compressedBlocks = new byte[blocks.length][codec.getMaxCompressBufferSize(blockSize)];
+    int[] compressedLengths = new int[blocks.length];
+    byte[] decompressed = new byte[blockSize];
+
+    for (int i = 0; i < NUM_WARMUP_ROUNDS; ++i) {
+      for (int b = 0; b < blocks.length; ++b) {
+        compressedLengths[b] = codec.compress(blocks[b], 0, blockSize, compressedBlocks[b], 0);
+        codec.decompress(compressedBlocks[b], 0, compressedLengths[b], decompressed, 0);
+      }
+    }
+
+    HankTimer compressTimer = new HankTimer();
+    long totalCompressedLength = 0;
+    for (int b = 0; b < blocks.length; ++b) {
+      compressedLengths[b] = codec.compress(blocks[b], 0, blockSize, compressedBlocks[b], 0);
+      totalCompressedLength += compressedLengths[b];
+    }
+    long compressNs = compressTimer.getDuration();
+
+    HankTimer decompressTimer = new HankTimer();
+    long totalDecompressedLength = 0;
+    for (int b = 0; b < blocks.length; ++b) {
+      totalDecompressedLength += codec.decompress(compressedBlocks[b], 0, compressedLengths[b], decompressed, 0);
+    }
+    long decompressNs = decompressTimer.getDuration();
+
+    long totalLength = (long) blocks.length * blockSize;
+    if (totalDecompressedLength != totalLength) {
+      throw new RuntimeException("Decompressed " + totalDecompressedLength + " bytes instead of " + totalLength);
+    }
+    System.out.println(String.format("%s, %.3f, %.1f, %.1f, %.1f, %.1f",
+        codec.getClass().getSimpleName(),
+        (double) totalCompressedLength / totalLength,
+        (double) compressNs / blocks.length / 1000,
+        (double) decompressNs / blocks.length / 1000,
+        totalLength * 1000.0 / compressNs,
+        totalLength * 1000.0 / decompressNs));
+  }
+
+  public static void main(String[] args) throws Exception {
+    List<CueballCompressionCodec> codecs = new ArrayList<CueballCompressionCodec>();
+    if (args.length == 0) {
+      codecs.add(new GzipCueballCompressionCodec());
+      codecs.add(new SnappyCueballCompressionCodec());
+      codecs.add(new Lz4CueballCompressionCodec());
+    } else {
+      for (String codecClassName : args) {
+        codecs.add((CueballCompressionCodec) Class.forName(codecClassName).newInstance());
+      }
+    }
+    Random random = new Random(0);
+    byte[][] blocks = new byte[NUM_BLOCKS][];
+    for (int i = 0; i < NUM_BLOCKS; ++i) {
+      blocks[i] = createBlock(random);
+    }
+    System.out.println("codec, compressed/uncompressed, compress (us/block), decompress (us/block), compress (MB/s), decompress (MB/s)");
+    for (CueballCompressionCodec codec : codecs) {
+      try {
+        measure(codec, blocks);
+      } catch (Throwable t) {
+        // e.g. the native Snappy library is not available on this platform
+        System.out.println(codec.getClass().getSimpleName() + ", failed: " + t);
+      }
+    }
+  }
+}
@@ -0,0 +1,123 @@
+/**
+ *  Copyright 2013 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.hank.performance;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import com.liveramp.hank.compression.cueball.NoCueballCompressionCodec;
+import com.liveramp.hank.storage.cueball.CueballFilePath;
+import com.liveramp.hank.storage.cueball.CueballStreamBufferMergeSort;
+import com.liveramp.hank.storage.cueball.CueballWriter;
+import com.liveramp.hank.storage.cueball.KeyHashAndValueAndStreamIndex;
+import com.liveramp.hank.util.HankTimer;
+
+// Measure the CPU cost of merging a Cueball base with its deltas,
+// as a function of the number of deltas.
+public class PerformanceTestCueballMergeSort {
+
+  private static final int KEY_HASH_SIZE = 8;
+  private static final int VALUE_SIZE = 4;
+  private static final int HASH_INDEX_BITS = 16;
+  private static final int NUM_BASE_RECORDS = 1 << 21;
+  private static final int NUM_DELTA_RECORDS = 1 << 20;
+  private static final int[] NUM_DELTAS = {1, 2, 4, 8, 16, 32, 64, 128};
+  private static final int NUM_WARMUP_ROUNDS = 2;
+
+  private static long[] getSortedKeyHashes(Random random, int numKeyHashes) {
+    long[] keyHashes = new long[numKeyHashes];
+    for (int i = 0; i < numKeyHashes; ++i) {
+      keyHashes[i] = random.nextLong();
+    }
+    Arrays.sort(keyHashes);
+    return keyHashes;
+  }
+
+  // Key hashes are written as big endian longs, so that their ordering is the unsigned byte ordering
+  private static void writeFile(String path, long[] keyHashes, int version) throws IOException {
+    CueballWriter writer = new CueballWriter(new FileOutputStream(path), KEY_HASH_SIZE, null, VALUE_SIZE,
+        new NoCueballCompressionCodec(), HASH_INDEX_BITS);
+    ByteBuffer keyHash = ByteBuffer.allocate(KEY_HASH_SIZE);
+    ByteBuffer value = ByteBuffer.allocate(VALUE_SIZE);
+    value.putInt(0, version);
+    for (int i = 0; i < keyHashes.length; ++i) {
+      if (i > 0 && keyHashes[i] == keyHashes[i - 1]) {
+        continue;
+      }
+      keyHash.putLong(0, keyHashes[i] ^ Long.MIN_VALUE);
+      writer.writeHash(keyHash, value);
+    }
+    writer.close();
+  }
+
+  private static long run(CueballFilePath base, List<CueballFilePath> deltas) throws IOException {
+    CueballStreamBufferMergeSort mergeSort = new CueballStreamBufferMergeSort(base, deltas, KEY_HASH_SIZE,
+        VALUE_SIZE, HASH_INDEX_BITS, new NoCueballCompressionCodec(), null);
+    long numRecords = 0;
+    while (true) {
+      KeyHashAndValueAndStreamIndex keyHashAndValue = mergeSort.nextKeyHashAndValueAndStreamIndex();
+      if (keyHashAndValue == null) {
+        break;
+      }
+      ++numRecords;
+    }
+    mergeSort.close();
+    return numRecords;
+  }
+
+  public static void main(String[] args) throws IOException {
+    String localTmpDir = args[0];
+    new File(localTmpDir).mkdirs();
+    Random random = new Random(0);
+    CueballFilePath base = new CueballFilePath(localTmpDir + "/00000.base.cueball");
+    // Deltas overwrite keys of the base, as well as add new ones
+    long[] baseKeyHashes = getSortedKeyHashes(random, NUM_BASE_RECORDS);
+    writeFile(base.getPath(), baseKeyHashes, 0);
+
+    System.out.println("deltas, records, ns/record");
+    for (int numDeltas : NUM_DELTAS) {
+      List<CueballFilePath> deltas = new ArrayList<CueballFilePath>();
+      int numRecordsPerDelta = NUM_DELTA_RECORDS / numDeltas;
+      for (int version = 1; version <= numDeltas; ++version) {
+        long[] deltaKeyHashes = getSortedKeyHashes(random, numRecordsPerDelta);
+        for (int i = 0; i < numRecordsPerDelta / 2; ++i) {
+          deltaKeyHashes[i] = baseKeyHashes[random.nextInt(baseKeyHashes.length)];
+        }
+        Arrays.sort(deltaKeyHashes);
+        CueballFilePath delta = new CueballFilePath(localTmpDir + "/" + String.format("%05d", version) + ".delta.cueball");
+        writeFile(delta.getPath(), deltaKeyHashes, version);
+        deltas.add(delta);
+      }
+      for (int i = 0; i < NUM_WARMUP_ROUNDS; ++i) {
+        run(base, deltas);
+      }
+      HankTimer timer = new HankTimer();
+      long numRecords = run(base, deltas);
+      System.out.println(String.format("%d, %d, %.1f", numDeltas, numRecords, (double) timer.getDuration() / numRecords));
+      for (CueballFilePath delta : deltas) {
+        new File(delta.getPath()).delete();
+      }
+    }
+    new File(base.getPath()).delete();
+  }
+}
@@ -45,7 +45,8 @@ public class RingGroupConductor {
   private Thread shutdownHook;
 
   public RingGroupConductor(RingGroupConductorConfigurator configurator) throws IOException {
-    this(configurator, new RingGroupUpdateTransitionFunctionImpl(new ModPartitionAssigner(), configurator.getMinRingFullyServingObservations()));
+    this(configurator, new RingGroupUpdateTransitionFunctionImpl(new ModPartitionAssigner(),
+        configurator.getMinRingFullyServingObservations(), configurator.getLiveUpdates()));
   }
 
   RingGroupConductor(RingGroupConductorConfigurator configurator, RingGroupUpdateTransitionFunction transFunc) throws IOException {
@@ -43,12 +43,21 @@ public class RingGroupUpdateTransitionFunctionImpl implements RingGroupUpdateTra
 
   private final PartitionAssigner partitionAssigner;
   private final int minRingFullyServingObservations;
+  private final boolean liveUpdates;
   private final Map<String, Integer> hostToFullyServingObservations = new HashMap<String, Integer>();
 
   public RingGroupUpdateTransitionFunctionImpl(PartitionAssigner partitionAssigner,
                                                int minRingFullyServingObservations) throws IOException {
+    this(partitionAssigner, minRingFullyServingObservations, false);
+  }
+
+  // With live updates, serving hosts update without going idle, and swap in the new versions as they are ready
+  public RingGroupUpdateTransitionFunctionImpl(PartitionAssigner partitionAssigner,
+                                               int minRingFullyServingObservations,
+                                               boolean liveUpdates) throws IOException {
     this.partitionAssigner = partitionAssigner;
     this.minRingFullyServingObservations = minRingFullyServingObservations;
+    this.liveUpdates = liveUpdates;
   }
 
   private static boolean isServingAndAboutToServe(Host host) throws IOException {
@@ -161,6 +170,15 @@ public class RingGroupUpdateTransitionFunctionImpl implements RingGroupUpdateTra
       return;
     }
 
+    if (liveUpdates && isFullyServing && isAssigned && !isUpToDate && numReplicasFullyServing > minNumReplicasFullyServing) {
+      // Host is serving, assigned, not up-to-date and there are more than enough replicas serving. Update live.
+      // The host keeps serving, but is not counted as fully serving while it updates.
+      LOG.info("Host " + host.getAddress() + " is serving, assigned, not up-to-date, and there are more than enough replicas serving. Update live.");
+      Hosts.enqueueCommandIfNotPresent(host, HostCommand.EXECUTE_LIVE_UPDATE);
+      removeFromReplicasFullyServing(domainToPartitionToHostsFullyServing, host);
+      return;
+    }
+
     if (isFullyServing && isAssigned && !isUpToDate && numReplicasFullyServing > minNumReplicasFullyServing) {
       // Host is serving, assigned, not up-to-date and there are more than enough replicas serving. Go idle.
       LOG.info("Host " + host.getAddress() + " is serving, assigned, not up-to-date, and there are more than enough replicas serving. Go idle.");
@@ -109,6 +109,16 @@ public class HdfsPartitionRemoteFileOps implements PartitionRemoteFileOps {
     return fs.exists(new Path(getRemoteAbsolutePath(remoteRelativePath)));
   }
 
+  @Override
+  public long getSize(String remoteRelativePath) throws IOException {
+    if (compressionCodec == null) {
+      return fs.getFileStatus(new Path(getRemoteAbsolutePath(remoteRelativePath))).getLen();
+    } else {
+      // The uncompressed size is only known once the file has been read
+      return -1;
+    }
+  }
+
   @Override
   public void copyToLocalRoot(String remoteSourceRelativePath, String localDestinationRoot) throws IOException {
     Path source = new Path(getRemoteAbsolutePath(remoteSourceRelativePath));
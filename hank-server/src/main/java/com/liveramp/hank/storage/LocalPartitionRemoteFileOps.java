@@ -56,6 +56,15 @@ public class LocalPartitionRemoteFileOps implements PartitionRemoteFileOps {
     return new File(getRemoteAbsolutePath(remoteRelativePath)).exists();
   }
 
+  @Override
+  public long getSize(String remoteRelativePath) throws IOException {
+    File file = new File(getRemoteAbsolutePath(remoteRelativePath));
+    if (!file.exists()) {
+      throw new FileNotFoundException(file.getPath());
+    }
+    return file.length();
+  }
+
   @Override
   public void copyToLocalRoot(String remoteSourceRelativePath, String localDestinationRoot) throws IOException {
     File source = new File(getRemoteAbsolutePath(remoteSourceRelativePath));
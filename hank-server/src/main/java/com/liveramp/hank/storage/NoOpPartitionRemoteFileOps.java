@@ -40,6 +40,11 @@ public class NoOpPartitionRemoteFileOps implements PartitionRemoteFileOps {
     return false;
   }
 
+  @Override
+  public long getSize(String remoteRelativePath) throws IOException {
+    return -1;
+  }
+
   @Override
   public void copyToLocalRoot(String remoteSourceRelativePath, String localDestinationRoot) throws IOException {
     // No-op
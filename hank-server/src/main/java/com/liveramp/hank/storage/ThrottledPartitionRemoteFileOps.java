@@ -0,0 +1,96 @@
+/**
+ *  Copyright 2013 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.hank.storage;
+
+import com.liveramp.hank.util.BandwidthThrottle;
+import com.liveramp.hank.util.IOStreamUtils;
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Copies remote files to local roots at the rate allowed by a throttle.
+ * Other operations are delegated as is.
+ */
+public class ThrottledPartitionRemoteFileOps implements PartitionRemoteFileOps {
+
+  private static final Logger LOG = Logger.getLogger(ThrottledPartitionRemoteFileOps.class);
+
+  private final PartitionRemoteFileOps partitionRemoteFileOps;
+  private final BandwidthThrottle throttle;
+
+  public ThrottledPartitionRemoteFileOps(PartitionRemoteFileOps partitionRemoteFileOps,
+                                         BandwidthThrottle throttle) {
+    this.partitionRemoteFileOps = partitionRemoteFileOps;
+    this.throttle = throttle;
+  }
+
+  @Override
+  public InputStream getInputStream(String remoteRelativePath) throws IOException {
+    return partitionRemoteFileOps.getInputStream(remoteRelativePath);
+  }
+
+  @Override
+  public OutputStream getOutputStream(String remoteRelativePath) throws IOException {
+    return partitionRemoteFileOps.getOutputStream(remoteRelativePath);
+  }
+
+  @Override
+  public boolean exists(String remoteRelativePath) throws IOException {
+    return partitionRemoteFileOps.exists(remoteRelativePath);
+  }
+
+  @Override
+  public long getSize(String remoteRelativePath) throws IOException {
+    return partitionRemoteFileOps.getSize(remoteRelativePath);
+  }
+
+  @Override
+  public void copyToLocalRoot(String remoteSourceRelativePath, String localDestinationRoot) throws IOException {
+    File destination = new File(localDestinationRoot + "/" + new File(remoteSourceRelativePath).getName());
+    LOG.info("Copying remote file " + getRemoteAbsolutePath(remoteSourceRelativePath) + " to local file "
+        + destination + " at up to " + throttle.getMaxBytesPerSecond() + " bytes per second");
+    InputStream inputStream = getInputStream(remoteSourceRelativePath);
+    FileOutputStream fileOutputStream = new FileOutputStream(destination);
+    try {
+      IOStreamUtils.copy(inputStream, fileOutputStream, throttle);
+      fileOutputStream.flush();
+    } finally {
+      inputStream.close();
+      fileOutputStream.close();
+    }
+  }
+
+  @Override
+  public boolean attemptDelete(String remoteRelativePath) throws IOException {
+    return partitionRemoteFileOps.attemptDelete(remoteRelativePath);
+  }
+
+  @Override
+  public String getRemoteAbsolutePath(String remoteRelativePath) {
+    return partitionRemoteFileOps.getRemoteAbsolutePath(remoteRelativePath);
+  }
+
+  @Override
+  public String toString() {
+    return partitionRemoteFileOps.toString();
+  }
+}
@@ -0,0 +1,124 @@
+/**
+ *  Copyright 2013 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.hank.storage.cueball;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import com.liveramp.hank.util.EncodingHelper;
+
+/**
+ * Off-heap hash index. Block offsets are stored as unsigned 32-bit values
+ * relative to an anchor shared by a group of consecutive hash prefixes.
+ * Only the (small) anchor table lives on the heap.
+ */
+public class CompactHashIndex implements HashIndex {
+
+  static final int DEFAULT_ANCHOR_INTERVAL_BITS = 10;
+
+  private static final long MAX_RELATIVE_OFFSET = 0xffffffffL;
+
+  private final int size;
+  private final long dataLength;
+  private final int anchorIntervalBits;
+  private final long[] anchors;
+  private final ByteBuffer relativeOffsets;
+
+  // Build from the serialized (little endian 8-byte longs) hash index found in a Cueball footer,
+  // followed by a data section of the given length. Hash prefixes without a block are given the offset
+  // of the next block so that the length of every block is the difference of two consecutive offsets.
+  public CompactHashIndex(byte[] serializedHashIndex, int off, int size, long dataLength) {
+    this.size = size;
+    this.dataLength = dataLength;
+    this.anchorIntervalBits = getAnchorIntervalBits(serializedHashIndex, off, size, dataLength);
+    int numAnchors = ((size - 1) >>> anchorIntervalBits) + 1;
+    this.anchors = new long[numAnchors];
+    this.relativeOffsets = ByteBuffer.allocateDirect(size * 4).order(ByteOrder.nativeOrder());
+
+    // Anchor of each group is the offset of its first hash prefix, which is its smallest offset
+    long nextOffset = dataLength;
+    for (int i = size - 1; i >= 0; --i) {
+      nextOffset = getOffset(serializedHashIndex, off, i, nextOffset);
+      anchors[i >>> anchorIntervalBits] = nextOffset;
+    }
+    nextOffset = dataLength;
+    for (int i = size - 1; i >= 0; --i) {
+      nextOffset = getOffset(serializedHashIndex, off, i, nextOffset);
+      relativeOffsets.putInt(i * 4, (int) (nextOffset - anchors[i >>> anchorIntervalBits]));
+    }
+  }
+
+  @Override
+  public long getBlockOffset(int hashPrefix) {
+    if (getBlockLength(hashPrefix) == 0) {
+      return -1;
+    } else {
+      return getOffset(hashPrefix);
+    }
+  }
+
+  @Override
+  public int getBlockLength(int hashPrefix) {
+    long blockEnd = hashPrefix + 1 < size ? getOffset(hashPrefix + 1) : dataLength;
+    return (int) (blockEnd - getOffset(hashPrefix));
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  int getAnchorIntervalBits() {
+    return anchorIntervalBits;
+  }
+
+  private long getOffset(int hashPrefix) {
+    return anchors[hashPrefix >>> anchorIntervalBits] + (relativeOffsets.getInt(hashPrefix << 2) & 0xffffffffL);
+  }
+
+  // Use the largest anchor interval for which offsets within every group fit in 32 bits.
+  // Offsets are increasing, so the span of a group is its last offset minus its first.
+  private static int getAnchorIntervalBits(byte[] serializedHashIndex, int off, int size, long dataLength) {
+    int bits = DEFAULT_ANCHOR_INTERVAL_BITS;
+    while (bits > 0 && ((1 << bits) > size || getMaxGroupSpan(serializedHashIndex, off, size, dataLength, bits) > MAX_RELATIVE_OFFSET)) {
+      --bits;
+    }
+    return bits;
+  }
+
+  private static long getMaxGroupSpan(byte[] serializedHashIndex, int off, int size, long dataLength, int bits) {
+    long maxSpan = 0;
+    long groupLast = -1;
+    long nextOffset = dataLength;
+    for (int i = size - 1; i >= 0; --i) {
+      nextOffset = getOffset(serializedHashIndex, off, i, nextOffset);
+      if (i == size - 1 || ((i + 1) & ((1 << bits) - 1)) == 0) {
+        groupLast = nextOffset;
+      }
+      if ((i & ((1 << bits) - 1)) == 0 && groupLast - nextOffset > maxSpan) {
+        maxSpan = groupLast - nextOffset;
+      }
+    }
+    return maxSpan;
+  }
+
+  // Offset of the given hash prefix, or the given offset of the next block if it does not map to any block
+  private static long getOffset(byte[] serializedHashIndex, int off, int i, long nextOffset) {
+    long offset = EncodingHelper.decodeLittleEndianFixedWidthLong(serializedHashIndex, off + i * 8, 8);
+    return offset == -1 ? nextOffset : offset;
+  }
+}
@@ -0,0 +1,196 @@
+/**
+ *  Copyright 2013 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.liveramp.hank.storage.cueball;
+
+/**
+ * Cache of fixed-size Cueball entries packed into a single byte array, without
+ * any per-entry object. The cache is set-associative: a key hash maps to one
+ * bucket of a few slots, and a full bucket evicts one of its slots in CLOCK
+ * order. Lookups of absent keys can also be cached.
+ *
+ * Each slot holds a state byte (empty, found or not found, plus a reference
+ * bit), the key hash and the value.
+ */
+public class CompactKeyHashCache {
+
+  public static final int NOT_CACHED = 0;
+  public static final int CACHED_NOT_FOUND = 1;
+  public static final int CACHED_FOUND = 2;
+
+  static final int NUM_SLOTS_PER_BUCKET = 8;
+  private static final int NUM_LOCKS = 64;
+
+  private static final byte STATE_EMPTY = 0;
+  private static final byte STATE_FOUND = 1;
+  private static final byte STATE_NOT_FOUND = 2;
+  private static final byte STATE_MASK = 0x3;
+  private static final byte REFERENCED = 0x4;
+
+  private final int keyHashSize;
+  private final int valueSize;
+  private final int slotSize;
+  private final int numBuckets;
+  private final byte[] slots;
+  // Next slot to consider for eviction, in each bucket
+  private final byte[] clockHands;
+  private final Object[] locks;
+
+  public CompactKeyHashCache(int keyHashSize, int valueSize, int numItemsCapacity) {
+    if (numItemsCapacity <= 0) {
+      throw new IllegalArgumentException("Capacity must be positive: " + numItemsCapacity);
+    }
+    this.keyHashSize = keyHashSize;
+    this.valueSize = valueSize;
+    this.slotSize = 1 + keyHashSize + valueSize;
+    this.numBuckets = (numItemsCapacity + NUM_SLOTS_PER_BUCKET - 1) / NUM_SLOTS_PER_BUCKET;
+    long numSlotBytes = (long) numBuckets * NUM_SLOTS_PER_BUCKET * slotSize;
+    if (numSlotBytes > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Capacity is too large for a compact cache: " + numItemsCapacity
+          + " entries of " + slotSize + " bytes");
+    }
+    this.slots = new byte[(int) numSlotBytes];
+    this.clockHands = new byte[numBuckets];
+    this.locks = new Object[Math.min(NUM_LOCKS, numBuckets)];
+    for (int i = 0; i < locks.length; ++i) {
+      locks[i] = new Object();
+    }
+  }
+
+  // Copy the cached value, if any, into dst. Return NOT_CACHED, CACHED_NOT_FOUND or CACHED_FOUND.
+  public int get(byte[] keyHash, byte[] dst, int dstOff) {
+    final int bucket = getBucket(keyHash);
+    synchronized (locks[bucket % locks.length]) {
+      final int slot = findSlot(bucket, keyHash);
+      if (slot < 0) {
+        return NOT_CACHED;
+      }
+      slots[slot] |= REFERENCED;
+      if ((slots[slot] & STATE_MASK) == STATE_NOT_FOUND) {
+        return CACHED_NOT_FOUND;
+      } else {
+        System.arraycopy(slots, slot + 1 + keyHashSize, dst, dstOff, valueSize);
+        return CACHED_FOUND;
+      }
+    }
+  }
+
+  public void putFound(byte[] keyHash, byte[] value, int valueOff) {
+    put(keyHash, value, valueOff);
+  }
+
+  public void putNotFound(byte[] keyHash) {
+    put(keyHash, null, 0);
+  }
+
+  private void put(byte[] keyHash, byte[] value, int valueOff) {
+    final int bucket = getBucket(keyHash);
+    synchronized (locks[bucket % locks.length]) {
+      int slot = findSlot(bucket, keyHash);
+      if (slot < 0) {
+        slot = evictSlot(bucket);
+        System.arraycopy(keyHash, 0, slots, slot + 1, keyHashSize);
+      }
+      if (value == null) {
+        slots[slot] = STATE_NOT_FOUND;
+      } else {
+        slots[slot] = STATE_FOUND;
+        System.arraycopy(value, valueOff, slots, slot + 1 + keyHashSize, valueSize);
+      }
+    }
+  }
+
+  public int size() {
+    int result = 0;
+    for (int bucket = 0; bucket < numBuckets; ++bucket) {
+      synchronized (locks[bucket % locks.length]) {
+        for (int i = 0; i < NUM_SLOTS_PER_BUCKET; ++i) {
+          if ((slots[getSlot(bucket, i)] & STATE_MASK) != STATE_EMPTY) {
+            ++result;
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  public int getNumItemsCapacity() {
+    return numBuckets * NUM_SLOTS_PER_BUCKET;
+  }
+
+  // Memory used by the cache's arrays, which is allocated upfront
+  public long getNumManagedBytes() {
+    return (long) slots.length + clockHands.length;
+  }
+
+  // Return the offset of the slot holding the given key hash, or -1
+  private int findSlot(int bucket, byte[] keyHash) {
+    for (int i = 0; i < NUM_SLOTS_PER_BUCKET; ++i) {
+      final int slot = getSlot(bucket, i);
+      if ((slots[slot] & STATE_MASK) != STATE_EMPTY && keyHashEquals(slot, keyHash)) {
+        return slot;
+      }
+    }
+    return -1;
+  }
+
+  // Return the offset of an empty slot, or else of the first unreferenced slot from the clock hand
+  private int evictSlot(int bucket) {
+    for (int i = 0; i < NUM_SLOTS_PER_BUCKET; ++i) {
+      final int slot = getSlot(bucket, i);
+      if ((slots[slot] & STATE_MASK) == STATE_EMPTY) {
+        return slot;
+      }
+    }
+    int hand = clockHands[bucket];
+    while (true) {
+      final int slot = getSlot(bucket, hand);
+      hand = (hand + 1) % NUM_SLOTS_PER_BUCKET;
+      if ((slots[slot] & REFERENCED) != 0) {
+        // Second chance
+        slots[slot] &= ~REFERENCED;
+      } else {
+        clockHands[bucket] = (byte) hand;
+        return slot;
+      }
+    }
+  }
+
+  private boolean keyHashEquals(int slot, byte[] keyHash) {
+    for (int i = 0; i < keyHashSize; ++i) {
+      if (slots[slot + 1 + i] != keyHash[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private int getSlot(int bucket, int index) {
+    return (bucket * NUM_SLOTS_PER_BUCKET + index) * slotSize;
+  }
+
+  // Key hashes are uniformly distributed, but their leading bits also select
+  // the Cueball block, so use the trailing bytes.
+  private int getBucket(byte[] keyHash) {
+    long hash = 0;
+    for (int i = Math.max(0, keyHashSize - 8); i < keyHashSize; ++i) {
+      hash = (hash << 8) | (keyHash[i] & 0xff);
+    }
+    hash ^= hash >>> 32;
+    return (int) ((hash & Long.MAX_VALUE) % numBuckets);
+  }
+}
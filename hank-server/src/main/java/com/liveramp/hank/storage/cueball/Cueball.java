@@ -37,6 +37,8 @@ import com.liveramp.hank.coordinator.DomainVersion;
 import com.liveramp.hank.coordinator.DomainVersionPropertiesSerialization;
 import com.liveramp.hank.hasher.Hasher;
 import com.liveramp.hank.hasher.IdentityHasher;
+import com.liveramp.hank.storage.BlockCache;
+import com.liveramp.hank.storage.BlockCacheProvider;
 import com.liveramp.hank.storage.Compactor;
 import com.liveramp.hank.storage.Deleter;
 import com.liveramp.hank.storage.PartitionRemoteFileOps;
@@ -51,6 +53,8 @@ import com.liveramp.hank.storage.Writer;
 import com.liveramp.hank.storage.incremental.IncrementalDomainVersionProperties;
 import com.liveramp.hank.storage.incremental.IncrementalStorageEngine;
 import com.liveramp.hank.storage.incremental.IncrementalUpdatePlanner;
+import com.liveramp.hank.storage.memory.InMemoryReader;
+import com.liveramp.hank.storage.memory.MemoryBudget;
 import com.liveramp.hank.util.FsUtils;
 
 /**
@@ -73,6 +77,14 @@ public class Cueball extends IncrementalStorageEngine implements StorageEngine {
     public static final String COMPRESSION_CODEC = "compression_codec";
     public static final String NUM_REMOTE_LEAF_VERSIONS_TO_KEEP = "num_remote_leaf_versions_to_keep";
     public static final String PARTITION_CACHE_CAPACITY = "partition_cache_capacity";
+    public static final String MMAP = "mmap";
+    public static final String COMPACT_HASH_INDEX = "compact_hash_index";
+    public static final String BLOOM_FILTER_BITS_PER_KEY = "bloom_filter_bits_per_key";
+    public static final String COMPACT_PARTITION_CACHE = "compact_partition_cache";
+    public static final String BLOCK_SIZE = "block_size";
+    public static final String IN_MEMORY_MAX_NUM_BYTES = "in_memory_max_num_bytes";
+    public static final String NUM_MERGE_THREADS = "num_merge_threads";
+    public static final String STREAM_DELTAS = "stream_deltas";
 
     private static final Set<String> REQUIRED_KEYS =
         new HashSet<String>(Arrays.asList(REMOTE_DOMAIN_ROOT_KEY,
@@ -123,6 +135,57 @@ public class Cueball extends IncrementalStorageEngine implements StorageEngine {
         partitionCacheCapacity = -1;
       }
 
+      CueballOptions cueballOptions = new CueballOptions();
+
+      // Memory mapped reads
+      Boolean mmap = (Boolean)options.get(MMAP);
+      if (mmap != null) {
+        cueballOptions.setMmap(mmap);
+      }
+
+      // Off-heap hash index
+      Boolean compactHashIndex = (Boolean)options.get(COMPACT_HASH_INDEX);
+      if (compactHashIndex != null) {
+        cueballOptions.setCompactHashIndex(compactHashIndex);
+      }
+
+      // Bloom filters written next to bases (disabled by default)
+      Integer bloomFilterBitsPerKey = (Integer)options.get(BLOOM_FILTER_BITS_PER_KEY);
+      if (bloomFilterBitsPerKey != null) {
+        cueballOptions.setBloomFilterBitsPerKey(bloomFilterBitsPerKey);
+      }
+
+      // Pack partition cache entries in primitive arrays
+      Boolean compactPartitionCache = (Boolean)options.get(COMPACT_PARTITION_CACHE);
+      if (compactPartitionCache != null) {
+        cueballOptions.setCompactPartitionCache(compactPartitionCache);
+      }
+
+      // Target block size of files written in format version 2 (format version 1 by default)
+      Integer blockSize = (Integer)options.get(BLOCK_SIZE);
+      if (blockSize != null) {
+        cueballOptions.setBlockSize(blockSize);
+      }
+
+      // Serve partitions from memory while the domain's partitions on a host fit in this many bytes (disabled by default)
+      Object inMemoryMaxNumBytes = options.get(IN_MEMORY_MAX_NUM_BYTES);
+      if (inMemoryMaxNumBytes != null) {
+        cueballOptions.setInMemoryMaxNumBytes(inMemoryMaxNumBytes instanceof Long ? (Long)inMemoryMaxNumBytes
+            : ((Integer)inMemoryMaxNumBytes).longValue());
+      }
+
+      // Merge ranges of hash prefixes concurrently during updates (sequential merge by default)
+      Integer numMergeThreads = (Integer)options.get(NUM_MERGE_THREADS);
+      if (numMergeThreads != null) {
+        cueballOptions.setNumMergeThreads(numMergeThreads);
+      }
+
+      // Stream deltas from the remote domain root when merging, instead of fetching them first (disabled by default)
+      Boolean streamDeltas = (Boolean)options.get(STREAM_DELTAS);
+      if (streamDeltas != null) {
+        cueballOptions.setStreamDeltas(streamDeltas);
+      }
+
       return new Cueball((Integer)options.get(KEY_HASH_SIZE_KEY),
           hasher,
           (Integer)options.get(VALUE_SIZE_KEY),
@@ -132,7 +195,8 @@ public class Cueball extends IncrementalStorageEngine implements StorageEngine {
           compressionCodecClass,
           domain,
           numRemoteLeafVersionsToKeep,
-          partitionCacheCapacity);
+          partitionCacheCapacity,
+          cueballOptions);
     }
 
     @Override
@@ -157,6 +221,15 @@ public class Cueball extends IncrementalStorageEngine implements StorageEngine {
   private final ByteBuffer keyHashBuffer;
   private final int numRemoteLeafVersionsToKeep;
   private final int partitionCacheCapacity;
+  private final boolean mmap;
+  private final boolean compactHashIndex;
+  private final int bloomFilterBitsPerKey;
+  private final boolean compactPartitionCache;
+  private final int blockSize;
+  private final long inMemoryMaxNumBytes;
+  private final MemoryBudget inMemoryBudget;
+  private final int numMergeThreads;
+  private final boolean streamDeltas;
 
   private final Class<? extends CueballCompressionCodec> compressionCodecClass;
 
@@ -170,6 +243,30 @@ public class Cueball extends IncrementalStorageEngine implements StorageEngine {
                  Domain domain,
                  int numRemoteLeafVersionsToKeep,
                  int partitionCacheCapacity) {
+    this(keyHashSize,
+        hasher,
+        valueSize,
+        hashIndexBits,
+        remoteDomainRoot,
+        partitionRemoteFileOpsFactory,
+        compressionCodecClass,
+        domain,
+        numRemoteLeafVersionsToKeep,
+        partitionCacheCapacity,
+        new CueballOptions());
+  }
+
+  public Cueball(int keyHashSize,
+                 Hasher hasher,
+                 int valueSize,
+                 int hashIndexBits,
+                 String remoteDomainRoot,
+                 PartitionRemoteFileOpsFactory partitionRemoteFileOpsFactory,
+                 Class<? extends CueballCompressionCodec> compressionCodecClass,
+                 Domain domain,
+                 int numRemoteLeafVersionsToKeep,
+                 int partitionCacheCapacity,
+                 CueballOptions options) {
     this.keyHashSize = keyHashSize;
     this.hasher = hasher;
     this.valueSize = valueSize;
@@ -181,6 +278,19 @@ public class Cueball extends IncrementalStorageEngine implements StorageEngine {
     this.domain = domain;
     this.numRemoteLeafVersionsToKeep = numRemoteLeafVersionsToKeep;
     this.partitionCacheCapacity = partitionCacheCapacity;
+    this.mmap = options.getMmap();
+    this.compactHashIndex = options.getCompactHashIndex();
+    this.bloomFilterBitsPerKey = options.getBloomFilterBitsPerKey();
+    this.compactPartitionCache = options.getCompactPartitionCache();
+    this.blockSize = options.getBlockSize();
+    this.inMemoryMaxNumBytes = options.getInMemoryMaxNumBytes();
+    if (inMemoryMaxNumBytes > 0) {
+      this.inMemoryBudget = new MemoryBudget(inMemoryMaxNumBytes);
+    } else {
+      this.inMemoryBudget = null;
+    }
+    this.numMergeThreads = options.getNumMergeThreads();
+    this.streamDeltas = options.getStreamDeltas();
     // Sanity check
     if (hashIndexBits > 32) {
       throw new RuntimeException("hashIndexBits is much too large (" + hashIndexBits + ")");
@@ -189,8 +299,31 @@ public class Cueball extends IncrementalStorageEngine implements StorageEngine {
 
   @Override
   public Reader getReader(DataDirectoriesConfigurator configurator, int partitionNumber) throws IOException {
-    return new CueballReader(getTargetDirectory(configurator, partitionNumber),
-        keyHashSize, hasher, valueSize, hashIndexBits, getCompressionCodec(), partitionCacheCapacity);
+    // Use the partition server's block cache if there is one
+    BlockCache blockCache = null;
+    if (configurator instanceof BlockCacheProvider) {
+      blockCache = ((BlockCacheProvider) configurator).getBlockCache();
+    }
+    Reader reader = new CueballReader(getTargetDirectory(configurator, partitionNumber),
+        keyHashSize, hasher, valueSize, hashIndexBits, getCompressionCodec(), partitionCacheCapacity,
+        new CueballOptions().setMmap(mmap).setCompactHashIndex(compactHashIndex).setCompactPartitionCache(compactPartitionCache),
+        blockCache, domain.getId(), partitionNumber);
+    if (inMemoryBudget != null) {
+      return getInMemoryReader(reader, configurator, partitionNumber, null, inMemoryBudget);
+    }
+    return reader;
+  }
+
+  // Load the latest base in memory, falling back to the given file backed Reader if it does not fit.
+  // Curly uses this to load records through its key file, whose values are record locations.
+  public Reader getInMemoryReader(Reader fileReader,
+                                  DataDirectoriesConfigurator configurator,
+                                  int partitionNumber,
+                                  InMemoryReader.ValueReader valueReader,
+                                  MemoryBudget budget) throws IOException {
+    String partitionRoot = getTargetDirectory(configurator, partitionNumber);
+    return InMemoryReader.load(fileReader, getBases(partitionRoot).last().getPath(), hasher, keyHashSize, valueSize,
+        hashIndexBits, getCompressionCodec(), valueReader, budget);
   }
 
   private CueballCompressionCodec getCompressionCodec() throws IOException {
@@ -208,7 +341,20 @@ public class Cueball extends IncrementalStorageEngine implements StorageEngine {
     IncrementalDomainVersionProperties domainVersionProperties = getDomainVersionProperties(domainVersion);
     return new CueballWriter(partitionRemoteFileOps.getOutputStream(getName(domainVersion.getVersionNumber(),
         domainVersionProperties.isBase())),
-        keyHashSize, hasher, valueSize, getCompressionCodec(), hashIndexBits);
+        keyHashSize, hasher, valueSize, getCompressionCodec(), hashIndexBits, new CueballOptions().setBlockSize(blockSize),
+        getBloomFilterWriter(domainVersion.getVersionNumber(), domainVersionProperties.isBase(), partitionRemoteFileOps));
+  }
+
+  // Only bases get a Bloom filter, since deltas are never read directly
+  private CueballBloomFilterWriter getBloomFilterWriter(int versionNumber,
+                                                        boolean isBase,
+                                                        PartitionRemoteFileOps partitionRemoteFileOps) throws IOException {
+    if (bloomFilterBitsPerKey > 0 && isBase) {
+      return new CueballBloomFilterWriter(partitionRemoteFileOps.getOutputStream(getBloomFilterName(versionNumber, true)),
+          hashIndexBits, bloomFilterBitsPerKey);
+    } else {
+      return null;
+    }
   }
 
   private IncrementalDomainVersionProperties getDomainVersionProperties(DomainVersion domainVersion) throws IOException {
@@ -234,12 +380,15 @@ public class Cueball extends IncrementalStorageEngine implements StorageEngine {
     String localDir = getTargetDirectory(configurator, partitionNumber);
     return new CueballPartitionUpdater(domain,
         getPartitionRemoteFileOps(partitionNumber),
-        new CueballMerger(),
+        numMergeThreads > 1
+            ? new ParallelCueballMerger(numMergeThreads, bloomFilterBitsPerKey)
+            : new CueballMerger(bloomFilterBitsPerKey),
         keyHashSize,
         valueSize,
         hashIndexBits,
         getCompressionCodec(),
-        localDir);
+        localDir,
+        streamDeltas);
   }
 
   @Override
@@ -260,7 +409,9 @@ public class Cueball extends IncrementalStorageEngine implements StorageEngine {
         new IdentityHasher(),
         valueSize,
         getCompressionCodec(),
-        hashIndexBits);
+        hashIndexBits,
+        new CueballOptions().setBlockSize(blockSize),
+        getBloomFilterWriter(domainVersion.getVersionNumber(), domainVersionProperties.isBase(), partitionRemoteFileOps));
   }
 
   @Override
@@ -331,6 +482,10 @@ public class Cueball extends IncrementalStorageEngine implements StorageEngine {
     return getName(domainVersion.getVersionNumber(), IncrementalDomainVersionProperties.isBase(domainVersion));
   }
 
+  public static String getBloomFilterName(int versionNumber, boolean base) {
+    return CueballBloomFilter.getPath(getName(versionNumber, base));
+  }
+
   @Override
   public RemoteDomainVersionDeleter getRemoteDomainVersionDeleter() throws IOException {
     return new CueballRemoteDomainVersionDeleter(domain, remoteDomainRoot, partitionRemoteFileOpsFactory);
@@ -380,6 +535,14 @@ public class Cueball extends IncrementalStorageEngine implements StorageEngine {
         + ", remoteDomainRoot=" + remoteDomainRoot
         + ", valueSize=" + valueSize
         + ", numRemoteLeafVersionsToKeep=" + numRemoteLeafVersionsToKeep
+        + ", mmap=" + mmap
+        + ", compactHashIndex=" + compactHashIndex
+        + ", bloomFilterBitsPerKey=" + bloomFilterBitsPerKey
+        + ", compactPartitionCache=" + compactPartitionCache
+        + ", blockSize=" + blockSize
+        + ", inMemoryMaxNumBytes=" + inMemoryMaxNumBytes
+        + ", numMergeThreads=" + numMergeThreads
+        + ", streamDeltas=" + streamDeltas
         + "]";
   }
 }
@@ -0,0 +1,108 @@
+/**
+ *  Copyright 2013 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.liveramp.hank.storage.cueball;
+
+import com.liveramp.hank.util.Bytes;
+
+/**
+ * Two-level block index of a version 2 Cueball file. The first level maps each
+ * hash prefix to the range of blocks holding its key hashes. The second level
+ * describes each block by its offset, its compressed length and its first key
+ * hash, so that a lookup can pick the single block that may contain a key hash
+ * before reading any data.
+ */
+public class CueballBlockIndex {
+
+  private final int keyHashSize;
+  // First and last block of each hash prefix, or -1 for hash prefixes without any key hash
+  private final int[] hashPrefixBlocks;
+  private final long[] blockOffsets;
+  private final int[] blockLengths;
+  private final byte[] blockFirstKeyHashes;
+
+  public CueballBlockIndex(int keyHashSize,
+                           int[] hashPrefixBlocks,
+                           long[] blockOffsets,
+                           int[] blockLengths,
+                           byte[] blockFirstKeyHashes) {
+    this.keyHashSize = keyHashSize;
+    this.hashPrefixBlocks = hashPrefixBlocks;
+    this.blockOffsets = blockOffsets;
+    this.blockLengths = blockLengths;
+    this.blockFirstKeyHashes = blockFirstKeyHashes;
+  }
+
+  // Return the only block that can contain the given key hash, or -1 when
+  // no key hash of the file shares its hash prefix
+  public int findBlock(int hashPrefix, byte[] keyHash) {
+    int lo = hashPrefixBlocks[hashPrefix * 2];
+    if (lo < 0) {
+      return -1;
+    }
+    int hi = hashPrefixBlocks[hashPrefix * 2 + 1];
+    // Find the last block whose first key hash is not greater than the key hash.
+    // The first block of the range can start with key hashes of the previous
+    // hash prefix, so it is the answer when no such block is found.
+    while (lo < hi) {
+      int mid = (lo + hi + 1) >>> 1;
+      if (Bytes.compareWordsUnsigned(blockFirstKeyHashes, mid * keyHashSize, keyHash, 0, keyHashSize) <= 0) {
+        lo = mid;
+      } else {
+        hi = mid - 1;
+      }
+    }
+    return lo;
+  }
+
+  // First block holding key hashes of the given hash prefix, or -1 if it has none
+  public int getFirstBlock(int hashPrefix) {
+    return hashPrefixBlocks[hashPrefix * 2];
+  }
+
+  // Last block holding key hashes of the given hash prefix, or -1 if it has none
+  public int getLastBlock(int hashPrefix) {
+    return hashPrefixBlocks[hashPrefix * 2 + 1];
+  }
+
+  public long getBlockOffset(int block) {
+    return blockOffsets[block];
+  }
+
+  public int getBlockLength(int block) {
+    return blockLengths[block];
+  }
+
+  public int getKeyHashSize() {
+    return keyHashSize;
+  }
+
+  public int getNumBlocks() {
+    return blockOffsets.length;
+  }
+
+  public int getNumHashPrefixes() {
+    return hashPrefixBlocks.length / 2;
+  }
+
+  public long getNumManagedBytes() {
+    return hashPrefixBlocks.length * 4L
+        + blockOffsets.length * 8L
+        + blockLengths.length * 4L
+        + blockFirstKeyHashes.length;
+  }
+}
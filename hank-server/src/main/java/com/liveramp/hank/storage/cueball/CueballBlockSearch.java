@@ -0,0 +1,164 @@
+/**
+ *  Copyright 2013 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.hank.storage.cueball;
+
+import java.nio.ByteBuffer;
+
+import com.liveramp.hank.util.Bytes;
+
+/**
+ * Lookup of a key hash in a decompressed Cueball block. A block is a sequence of
+ * fixed-size records (key hash followed by value) sorted by unsigned key hash.
+ * Since key hashes are close to uniformly distributed, the position of a key hash
+ * can be estimated by interpolating between the first and last records of the
+ * search range. After a few probes, the search falls back to a binary search so
+ * that skewed data cannot make a lookup linear. Small ranges are scanned.
+ */
+public final class CueballBlockSearch {
+
+  // Interpolation should converge in about log(log(n)) probes on uniform key hashes
+  static final int MAX_INTERPOLATION_PROBES = 4;
+
+  // Ranges of at most this many records are scanned linearly
+  static final int MAX_LINEAR_SEARCH_RECORDS = 16;
+
+  // Number of leading key hash bytes used to interpolate
+  private static final int MAX_PREFIX_SIZE = 8;
+
+  private CueballBlockSearch() {
+  }
+
+  // Return the offset of the record whose key hash matches the given one,
+  // or -1 if there is no such record in [off, limit).
+  // Only whole records are considered, trailing bytes are ignored.
+  public static int search(ByteBuffer block,
+                           int off,
+                           int limit,
+                           int fullRecordSize,
+                           byte[] keyHash,
+                           int keyHashSize) {
+    final int prefixSize = Math.min(MAX_PREFIX_SIZE, keyHashSize);
+    final long target = getPrefix(keyHash, 0, prefixSize);
+    int lo = 0;
+    int hi = (limit - off) / fullRecordSize - 1;
+    int numProbes = 0;
+    while (lo <= hi) {
+      if (hi - lo < MAX_LINEAR_SEARCH_RECORDS) {
+        return linearSearch(block, off + lo * fullRecordSize, off + (hi + 1) * fullRecordSize,
+            fullRecordSize, keyHash, keyHashSize);
+      }
+      int mid;
+      if (numProbes < MAX_INTERPOLATION_PROBES) {
+        mid = interpolate(lo, hi,
+            getPrefix(block, off + lo * fullRecordSize, prefixSize),
+            getPrefix(block, off + hi * fullRecordSize, prefixSize),
+            target);
+      } else {
+        mid = (lo + hi) >>> 1;
+      }
+      ++numProbes;
+      final int recordOffset = off + mid * fullRecordSize;
+      final int comparison = compare(block, recordOffset, keyHash, keyHashSize);
+      if (comparison == 0) {
+        return recordOffset;
+      } else if (comparison < 0) {
+        lo = mid + 1;
+      } else {
+        hi = mid - 1;
+      }
+    }
+    return -1;
+  }
+
+  // Reference implementation that scans records in order until it passes the
+  // spot where the key hash would be
+  public static int linearSearch(ByteBuffer block,
+                                 int off,
+                                 int limit,
+                                 int fullRecordSize,
+                                 byte[] keyHash,
+                                 int keyHashSize) {
+    for (; off + fullRecordSize <= limit; off += fullRecordSize) {
+      final int comparison = compare(block, off, keyHash, keyHashSize);
+      if (comparison == 0) {
+        return off;
+      }
+      if (comparison > 0) {
+        break;
+      }
+    }
+    return -1;
+  }
+
+  private static int interpolate(int lo, int hi, long loPrefix, long hiPrefix, long target) {
+    if (compareUnsigned(target, loPrefix) <= 0) {
+      return lo;
+    }
+    if (compareUnsigned(target, hiPrefix) >= 0) {
+      return hi;
+    }
+    // Here loPrefix < target < hiPrefix, so both differences are positive
+    double fraction = unsignedToDouble(target - loPrefix) / unsignedToDouble(hiPrefix - loPrefix);
+    int mid = lo + (int) (fraction * (hi - lo));
+    // Guard against rounding
+    if (mid < lo) {
+      return lo;
+    } else if (mid > hi) {
+      return hi;
+    } else {
+      return mid;
+    }
+  }
+
+  private static int compare(ByteBuffer block, int off, byte[] keyHash, int keyHashSize) {
+    if (block.hasArray()) {
+      return Bytes.compareWordsUnsigned(block.array(), block.arrayOffset() + off, keyHash, 0, keyHashSize);
+    } else {
+      return Bytes.compareWordsUnsigned(block, off, keyHash, 0, keyHashSize);
+    }
+  }
+
+  // Leading bytes as an unsigned big endian number, left aligned on 64 bits
+  private static long getPrefix(ByteBuffer block, int off, int prefixSize) {
+    if (block.hasArray()) {
+      return getPrefix(block.array(), block.arrayOffset() + off, prefixSize);
+    }
+    long result = 0;
+    for (int i = 0; i < prefixSize; ++i) {
+      result = (result << 8) | (block.get(off + i) & 0xff);
+    }
+    return result << ((MAX_PREFIX_SIZE - prefixSize) << 3);
+  }
+
+  private static long getPrefix(byte[] bytes, int off, int prefixSize) {
+    long result = 0;
+    for (int i = 0; i < prefixSize; ++i) {
+      result = (result << 8) | (bytes[off + i] & 0xff);
+    }
+    return result << ((MAX_PREFIX_SIZE - prefixSize) << 3);
+  }
+
+  private static int compareUnsigned(long a, long b) {
+    final long x = a ^ Long.MIN_VALUE;
+    final long y = b ^ Long.MIN_VALUE;
+    return x < y ? -1 : (x == y ? 0 : 1);
+  }
+
+  private static double unsignedToDouble(long value) {
+    return (double) (value >>> 1) * 2.0 + (value & 1);
+  }
+}
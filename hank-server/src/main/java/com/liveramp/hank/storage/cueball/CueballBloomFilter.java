@@ -0,0 +1,210 @@
+/**
+ *  Copyright 2013 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.liveramp.hank.storage.cueball;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+
+import com.liveramp.hank.util.EncodingHelper;
+
+/**
+ * Bloom filter over the key hashes of a Cueball partition, stored next to the
+ * partition file. It is made of one small filter per hash index block, each
+ * sized from the number of keys in that block, so that it can be written in a
+ * single pass as blocks are flushed and so that a lookup only touches the
+ * filter of the block it would read.
+ *
+ * The file holds the 64 bit words of all block filters, followed by the start
+ * word of each block filter (8 bytes, little endian, one per hash prefix), the
+ * number of hash functions (4 bytes) and the number of bits per key (4 bytes).
+ */
+public class CueballBloomFilter {
+
+  public static final String FILE_SUFFIX = ".bloom";
+
+  private static final int READ_BUFFER_SIZE = 1 << 20;
+
+  private final HashPrefixCalculator prefixer;
+  // One more entry than there are blocks, so that block i spans [blockStarts[i], blockStarts[i + 1])
+  private final long[] blockStarts;
+  private final long[] words;
+  private final int numHashFunctions;
+  private final int bitsPerKey;
+
+  public CueballBloomFilter(String path, int hashIndexBits) throws IOException {
+    prefixer = new HashPrefixCalculator(hashIndexBits);
+    final int numBlocks = 1 << hashIndexBits;
+    FileChannel channel = new FileInputStream(path).getChannel();
+    try {
+      long fileSize = channel.size();
+      int footerLength = getFooterLength(hashIndexBits);
+      long dataLength = fileSize - footerLength;
+      if (dataLength < 0 || dataLength % 8 != 0 || dataLength / 8 > Integer.MAX_VALUE) {
+        throw new IOException("Invalid Bloom filter file size: " + fileSize + " (" + path + ")");
+      }
+      byte[] footer = new byte[footerLength];
+      readFully(channel, ByteBuffer.wrap(footer), dataLength);
+
+      int numWords = (int) (dataLength / 8);
+      blockStarts = new long[numBlocks + 1];
+      for (int i = 0; i < numBlocks; ++i) {
+        blockStarts[i] = EncodingHelper.decodeLittleEndianFixedWidthLong(footer, i * 8, 8);
+        if (blockStarts[i] < 0 || blockStarts[i] > numWords || (i > 0 && blockStarts[i] < blockStarts[i - 1])) {
+          throw new IOException(String.format("Invalid Bloom filter start word (%d) for block %d", blockStarts[i], i));
+        }
+      }
+      blockStarts[numBlocks] = numWords;
+      numHashFunctions = (int) EncodingHelper.decodeLittleEndianFixedWidthLong(footer, footerLength - 8, 4);
+      bitsPerKey = (int) EncodingHelper.decodeLittleEndianFixedWidthLong(footer, footerLength - 4, 4);
+      if (numHashFunctions <= 0 || bitsPerKey <= 0) {
+        throw new IOException("Invalid Bloom filter parameters: " + numHashFunctions
+            + " hash functions, " + bitsPerKey + " bits per key (" + path + ")");
+      }
+
+      words = new long[numWords];
+      ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+      int wordsRead = 0;
+      while (wordsRead < numWords) {
+        buffer.clear();
+        buffer.limit(Math.min(buffer.capacity(), (numWords - wordsRead) * 8));
+        readFully(channel, buffer, (long) wordsRead * 8);
+        buffer.flip();
+        LongBuffer longs = buffer.asLongBuffer();
+        int numLongs = longs.remaining();
+        longs.get(words, wordsRead, numLongs);
+        wordsRead += numLongs;
+      }
+    } finally {
+      channel.close();
+    }
+  }
+
+  // Return false only if the given key hash was definitely not added to the filter
+  public boolean mayContain(byte[] keyHash, int off, int keyHashSize) {
+    int hashPrefix = prefixer.getHashPrefix(keyHash, off);
+    long start = blockStarts[hashPrefix];
+    int numWords = (int) (blockStarts[hashPrefix + 1] - start);
+    if (numWords == 0) {
+      return false;
+    }
+    return mayContain(words, (int) start, numWords, numHashFunctions, keyHash, off, keyHashSize);
+  }
+
+  public int getNumHashFunctions() {
+    return numHashFunctions;
+  }
+
+  public int getBitsPerKey() {
+    return bitsPerKey;
+  }
+
+  public long getNumManagedBytes() {
+    return 8L * (words.length + blockStarts.length);
+  }
+
+  public static String getPath(String partitionFilePath) {
+    return partitionFilePath + FILE_SUFFIX;
+  }
+
+  // Read only the number of bits per key of the given filter file
+  public static int readBitsPerKey(String path) throws IOException {
+    FileChannel channel = new FileInputStream(path).getChannel();
+    try {
+      byte[] bytes = new byte[4];
+      readFully(channel, ByteBuffer.wrap(bytes), channel.size() - 4);
+      return (int) EncodingHelper.decodeLittleEndianFixedWidthLong(bytes, 0, 4);
+    } finally {
+      channel.close();
+    }
+  }
+
+  public static boolean exists(String partitionFilePath) {
+    return new File(getPath(partitionFilePath)).exists();
+  }
+
+  static int getFooterLength(int hashIndexBits) {
+    return (1 << hashIndexBits) * 8 + 4 + 4;
+  }
+
+  // Roughly minimizes the false positive rate for a given number of bits per key
+  static int getNumHashFunctions(int bitsPerKey) {
+    return Math.max(1, (int) Math.round(bitsPerKey * Math.log(2)));
+  }
+
+  static int getNumWords(int numKeys, int bitsPerKey) {
+    return (int) (((long) numKeys * bitsPerKey + 63) / 64);
+  }
+
+  static void add(long[] words, int wordsOff, int numWords, int numHashFunctions,
+                  byte[] keyHash, int off, int keyHashSize) {
+    final long numBits = (long) numWords * 64;
+    final long hash = hash(keyHash, off, keyHashSize);
+    final long h1 = hash & 0xffffffffL;
+    final long h2 = hash >>> 32;
+    for (int i = 0; i < numHashFunctions; ++i) {
+      long bit = (h1 + i * h2) % numBits;
+      words[wordsOff + (int) (bit >>> 6)] |= 1L << bit;
+    }
+  }
+
+  static boolean mayContain(long[] words, int wordsOff, int numWords, int numHashFunctions,
+                            byte[] keyHash, int off, int keyHashSize) {
+    final long numBits = (long) numWords * 64;
+    final long hash = hash(keyHash, off, keyHashSize);
+    final long h1 = hash & 0xffffffffL;
+    final long h2 = hash >>> 32;
+    for (int i = 0; i < numHashFunctions; ++i) {
+      long bit = (h1 + i * h2) % numBits;
+      if ((words[wordsOff + (int) (bit >>> 6)] & (1L << bit)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // Key hashes in a block share their leading bits, so mix all of the bytes
+  // (FNV-1a followed by the MurmurHash3 finalizer)
+  private static long hash(byte[] keyHash, int off, int keyHashSize) {
+    long h = 0xcbf29ce484222325L;
+    for (int i = 0; i < keyHashSize; ++i) {
+      h ^= keyHash[off + i] & 0xff;
+      h *= 0x100000001b3L;
+    }
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h;
+  }
+
+  private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+    while (buffer.hasRemaining()) {
+      int numBytes = channel.read(buffer, position);
+      if (numBytes < 0) {
+        throw new IOException("Unexpected end of Bloom filter file at position " + position);
+      }
+      position += numBytes;
+    }
+  }
+}
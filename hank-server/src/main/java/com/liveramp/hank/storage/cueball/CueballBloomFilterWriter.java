@@ -0,0 +1,103 @@
+/**
+ *  Copyright 2013 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.liveramp.hank.storage.cueball;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import com.liveramp.hank.util.EncodingHelper;
+import com.liveramp.hank.util.IOStreamUtils;
+
+/**
+ * Streams a {@link CueballBloomFilter} out one block at a time. Blocks must be
+ * added in increasing hash prefix order, as they are written by a CueballWriter.
+ */
+public class CueballBloomFilterWriter {
+
+  private final OutputStream stream;
+  private final int bitsPerKey;
+  private final int numHashFunctions;
+  private final long[] blockStarts;
+  private long[] blockWords = new long[0];
+  private byte[] blockBytes = new byte[0];
+  private long numWordsWritten = 0;
+
+  public CueballBloomFilterWriter(OutputStream outputStream, int hashIndexBits, int bitsPerKey) {
+    if (bitsPerKey <= 0) {
+      throw new IllegalArgumentException("Number of bits per key must be positive: " + bitsPerKey);
+    }
+    this.stream = new BufferedOutputStream(outputStream, IOStreamUtils.DEFAULT_BUFFER_SIZE);
+    this.bitsPerKey = bitsPerKey;
+    this.numHashFunctions = CueballBloomFilter.getNumHashFunctions(bitsPerKey);
+    this.blockStarts = new long[1 << hashIndexBits];
+    Arrays.fill(blockStarts, -1);
+  }
+
+  // Add the key hashes of the records of an uncompressed block
+  public void addBlock(int hashPrefix,
+                       byte[] records,
+                       int numRecords,
+                       int keyHashSize,
+                       int fullRecordSize) throws IOException {
+    if (numRecords == 0) {
+      return;
+    }
+    int numWords = CueballBloomFilter.getNumWords(numRecords, bitsPerKey);
+    if (blockWords.length < numWords) {
+      blockWords = new long[numWords];
+      blockBytes = new byte[numWords * 8];
+    }
+    Arrays.fill(blockWords, 0, numWords, 0);
+    for (int i = 0; i < numRecords; ++i) {
+      CueballBloomFilter.add(blockWords, 0, numWords, numHashFunctions, records, i * fullRecordSize, keyHashSize);
+    }
+    for (int i = 0; i < numWords; ++i) {
+      EncodingHelper.encodeLittleEndianFixedWidthLong(blockWords[i], blockBytes, i * 8, 8);
+    }
+    stream.write(blockBytes, 0, numWords * 8);
+    blockStarts[hashPrefix] = numWordsWritten;
+    numWordsWritten += numWords;
+  }
+
+  public void close() throws IOException {
+    // Empty blocks start where the next non-empty block starts
+    long nextStart = numWordsWritten;
+    for (int i = blockStarts.length - 1; i >= 0; --i) {
+      if (blockStarts[i] < 0) {
+        blockStarts[i] = nextStart;
+      } else {
+        nextStart = blockStarts[i];
+      }
+    }
+    stream.write(getFooter(blockStarts, numHashFunctions, bitsPerKey));
+    stream.flush();
+    stream.close();
+  }
+
+  static byte[] getFooter(long[] blockStarts, int numHashFunctions, int bitsPerKey) {
+    byte[] footer = new byte[8 * blockStarts.length + 4 + 4];
+    for (int i = 0; i < blockStarts.length; ++i) {
+      EncodingHelper.encodeLittleEndianFixedWidthLong(blockStarts[i], footer, i * 8, 8);
+    }
+    EncodingHelper.encodeLittleEndianFixedWidthLong(numHashFunctions, footer, footer.length - 8, 4);
+    EncodingHelper.encodeLittleEndianFixedWidthLong(bitsPerKey, footer, footer.length - 4, 4);
+    return footer;
+  }
+}
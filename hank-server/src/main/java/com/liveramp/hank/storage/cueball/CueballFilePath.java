@@ -16,13 +16,27 @@
 
 package com.liveramp.hank.storage.cueball;
 
+import com.liveramp.hank.compression.cueball.CueballCompressionCodec;
 import com.liveramp.hank.storage.PartitionFileLocalPath;
 
 import java.io.File;
+import java.io.IOException;
 
 public class CueballFilePath extends PartitionFileLocalPath {
 
   public CueballFilePath(String path) {
     super(path, Cueball.parseVersionNumber(new File(path).getName()));
   }
+
+  // Stream the key hashes of the given range of hash prefixes of this file
+  public CueballStreamBuffer openStreamBuffer(int relativeIndex,
+                                              int keyHashSize,
+                                              int valueSize,
+                                              int hashIndexBits,
+                                              CueballCompressionCodec compressionCodec,
+                                              int firstHashPrefix,
+                                              int endHashPrefix) throws IOException {
+    return new CueballStreamBuffer(getPath(), relativeIndex, keyHashSize, valueSize, hashIndexBits,
+        compressionCodec, firstHashPrefix, endHashPrefix);
+  }
 }
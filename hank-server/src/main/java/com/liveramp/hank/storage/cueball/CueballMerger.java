@@ -17,6 +17,7 @@ package com.liveramp.hank.storage.cueball;
 
 import com.liveramp.hank.compression.cueball.CueballCompressionCodec;
 
+import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
@@ -25,6 +26,18 @@ import java.util.List;
 
 public final class CueballMerger implements ICueballMerger {
 
+  private final int bloomFilterBitsPerKey;
+
+  public CueballMerger() {
+    this(0);
+  }
+
+  // New bases get a Bloom filter with the given bits per key when it is positive, and otherwise
+  // keep the Bloom filter of the base they are merged from, if it has one.
+  public CueballMerger(int bloomFilterBitsPerKey) {
+    this.bloomFilterBitsPerKey = bloomFilterBitsPerKey;
+  }
+
   @Override
   public void merge(final CueballFilePath base,
                     final List<CueballFilePath> deltas,
@@ -46,9 +59,20 @@ public final class CueballMerger implements ICueballMerger {
     // Output stream for the new base to be written. intentionally unbuffered, the writer below will do that on its own.
     OutputStream newCueballBaseOutputStream = new FileOutputStream(newBasePath);
 
+    CueballBloomFilterWriter bloomFilterWriter = null;
+    int newBaseBloomFilterBitsPerKey = getBloomFilterBitsPerKey(base, bloomFilterBitsPerKey);
+    if (newBaseBloomFilterBitsPerKey > 0) {
+      bloomFilterWriter = new CueballBloomFilterWriter(new FileOutputStream(CueballBloomFilter.getPath(newBasePath)),
+          hashIndexBits, newBaseBloomFilterBitsPerKey);
+    }
+
+    // Keep the base's file format version (and block size)
+    int blockSize = Footer.readBlockSize(base.getPath());
+
     // Note that we intentionally omit the hasher here, since it will *not* be used
     CueballWriter newCueballBaseWriter =
-        new CueballWriter(newCueballBaseOutputStream, keyHashSize, null, valueSize, compressionCodec, hashIndexBits);
+        new CueballWriter(newCueballBaseOutputStream, keyHashSize, null, valueSize, compressionCodec, hashIndexBits,
+            new CueballOptions().setBlockSize(blockSize), bloomFilterWriter);
 
     while (true) {
       KeyHashAndValueAndStreamIndex keyValuePair = cueballStreamBufferMergeSort.nextKeyHashAndValueAndStreamIndex();
@@ -64,4 +88,16 @@ public final class CueballMerger implements ICueballMerger {
     cueballStreamBufferMergeSort.close();
     newCueballBaseWriter.close();
   }
+
+  // Bits per key of the Bloom filter of a new base merged from the given base (no Bloom filter when 0)
+  static int getBloomFilterBitsPerKey(CueballFilePath base, int bloomFilterBitsPerKey) throws IOException {
+    if (bloomFilterBitsPerKey > 0) {
+      return bloomFilterBitsPerKey;
+    }
+    String baseBloomFilterPath = CueballBloomFilter.getPath(base.getPath());
+    if (new File(baseBloomFilterPath).exists()) {
+      return CueballBloomFilter.readBitsPerKey(baseBloomFilterPath);
+    }
+    return 0;
+  }
 }
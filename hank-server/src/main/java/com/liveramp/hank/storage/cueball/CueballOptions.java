@@ -0,0 +1,113 @@
+/**
+ *  Copyright 2013 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.hank.storage.cueball;
+
+/**
+ * Optional settings of the Cueball storage engine, its readers and its writers. Defaults match the
+ * behavior of the Cueball constructor that does not take options.
+ */
+public class CueballOptions {
+
+  // Memory mapped reads
+  private boolean mmap = false;
+  // Off-heap hash index
+  private boolean compactHashIndex = false;
+  // Bloom filters written next to bases (disabled when 0)
+  private int bloomFilterBitsPerKey = 0;
+  // Pack partition cache entries in primitive arrays
+  private boolean compactPartitionCache = false;
+  // Target block size of files written in format version 2 (format version 1 when 0)
+  private int blockSize = 0;
+  // Serve partitions from memory while the domain's partitions on a host fit in this many bytes (disabled when 0)
+  private long inMemoryMaxNumBytes = 0;
+  // Merge ranges of hash prefixes concurrently during updates (sequential merge when 1)
+  private int numMergeThreads = 1;
+  // Stream deltas from the remote domain root when merging, instead of fetching them first
+  private boolean streamDeltas = false;
+
+  public boolean getMmap() {
+    return mmap;
+  }
+
+  public CueballOptions setMmap(boolean mmap) {
+    this.mmap = mmap;
+    return this;
+  }
+
+  public boolean getCompactHashIndex() {
+    return compactHashIndex;
+  }
+
+  public CueballOptions setCompactHashIndex(boolean compactHashIndex) {
+    this.compactHashIndex = compactHashIndex;
+    return this;
+  }
+
+  public int getBloomFilterBitsPerKey() {
+    return bloomFilterBitsPerKey;
+  }
+
+  public CueballOptions setBloomFilterBitsPerKey(int bloomFilterBitsPerKey) {
+    this.bloomFilterBitsPerKey = bloomFilterBitsPerKey;
+    return this;
+  }
+
+  public boolean getCompactPartitionCache() {
+    return compactPartitionCache;
+  }
+
+  public CueballOptions setCompactPartitionCache(boolean compactPartitionCache) {
+    this.compactPartitionCache = compactPartitionCache;
+    return this;
+  }
+
+  public int getBlockSize() {
+    return blockSize;
+  }
+
+  public CueballOptions setBlockSize(int blockSize) {
+    this.blockSize = blockSize;
+    return this;
+  }
+
+  public long getInMemoryMaxNumBytes() {
+    return inMemoryMaxNumBytes;
+  }
+
+  public CueballOptions setInMemoryMaxNumBytes(long inMemoryMaxNumBytes) {
+    this.inMemoryMaxNumBytes = inMemoryMaxNumBytes;
+    return this;
+  }
+
+  public int getNumMergeThreads() {
+    return numMergeThreads;
+  }
+
+  public CueballOptions setNumMergeThreads(int numMergeThreads) {
+    this.numMergeThreads = numMergeThreads;
+    return this;
+  }
+
+  public boolean getStreamDeltas() {
+    return streamDeltas;
+  }
+
+  public CueballOptions setStreamDeltas(boolean streamDeltas) {
+    this.streamDeltas = streamDeltas;
+    return this;
+  }
+}
@@ -21,6 +21,7 @@ import com.liveramp.hank.coordinator.Domain;
 import com.liveramp.hank.coordinator.DomainVersion;
 import com.liveramp.hank.partition_server.PartitionUpdateTaskStatistics;
 import com.liveramp.hank.storage.PartitionRemoteFileOps;
+import com.liveramp.hank.storage.incremental.IncrementalDomainVersionProperties;
 import com.liveramp.hank.storage.incremental.IncrementalPartitionUpdater;
 import com.liveramp.hank.storage.incremental.IncrementalUpdatePlan;
 import com.liveramp.hank.util.HankTimer;
@@ -41,6 +42,7 @@ public class CueballPartitionUpdater extends IncrementalPartitionUpdater {
   private final ICueballMerger cueballMerger;
   private final CueballCompressionCodec compressionCodec;
   private final int hashIndexBits;
+  private final boolean streamDeltas;
 
   public CueballPartitionUpdater(Domain domain,
                                  PartitionRemoteFileOps partitionRemoteFileOps,
@@ -50,6 +52,20 @@ public class CueballPartitionUpdater extends IncrementalPartitionUpdater {
                                  int hashIndexBits,
                                  CueballCompressionCodec compressionCodec,
                                  String localPartitionRoot) throws IOException {
+    this(domain, partitionRemoteFileOps, cueballMerger, keyHashSize, valueSize, hashIndexBits, compressionCodec,
+        localPartitionRoot, false);
+  }
+
+  // When streaming deltas, deltas are not fetched but read directly from the remote partition during the merge
+  public CueballPartitionUpdater(Domain domain,
+                                 PartitionRemoteFileOps partitionRemoteFileOps,
+                                 ICueballMerger cueballMerger,
+                                 int keyHashSize,
+                                 int valueSize,
+                                 int hashIndexBits,
+                                 CueballCompressionCodec compressionCodec,
+                                 String localPartitionRoot,
+                                 boolean streamDeltas) throws IOException {
     super(domain, localPartitionRoot, new CueballUpdatePlanner(domain));
     this.partitionRemoteFileOps = partitionRemoteFileOps;
     this.cueballMerger = cueballMerger;
@@ -57,6 +73,7 @@ public class CueballPartitionUpdater extends IncrementalPartitionUpdater {
     this.valueSize = valueSize;
     this.hashIndexBits = hashIndexBits;
     this.compressionCodec = compressionCodec;
+    this.streamDeltas = streamDeltas;
   }
 
   @Override
@@ -105,8 +122,27 @@ public class CueballPartitionUpdater extends IncrementalPartitionUpdater {
   @Override
   protected void fetchVersion(DomainVersion domainVersion, String fetchRoot) throws IOException {
     String fileToFetch = Cueball.getName(domainVersion);
+    // Streaming needs the size of the remote file, to read its footer first
+    if (streamDeltas && !IncrementalDomainVersionProperties.isBase(domainVersion)
+        && partitionRemoteFileOps.getSize(fileToFetch) >= 0) {
+      LOG.info("Not fetching file " + fileToFetch + ", it will be streamed from " + partitionRemoteFileOps);
+      return;
+    }
     LOG.info("Fetching from " + partitionRemoteFileOps + " file " + fileToFetch + " to " + fetchRoot);
-    partitionRemoteFileOps.copyToLocalRoot(fileToFetch, fetchRoot);
+    PartitionRemoteFileOps fetchRemoteFileOps = getFetchRemoteFileOps(partitionRemoteFileOps);
+    fetchRemoteFileOps.copyToLocalRoot(fileToFetch, fetchRoot);
+    fetchBloomFilter(fetchRemoteFileOps, domainVersion, fetchRoot);
+  }
+
+  // Bloom filters are optional, and only written for bases
+  public static void fetchBloomFilter(PartitionRemoteFileOps partitionRemoteFileOps,
+                                      DomainVersion domainVersion,
+                                      String fetchRoot) throws IOException {
+    String fileToFetch = CueballBloomFilter.getPath(Cueball.getName(domainVersion));
+    if (partitionRemoteFileOps.exists(fileToFetch)) {
+      LOG.info("Fetching from " + partitionRemoteFileOps + " file " + fileToFetch + " to " + fetchRoot);
+      partitionRemoteFileOps.copyToLocalRoot(fileToFetch, fetchRoot);
+    }
   }
 
   @Override
@@ -128,6 +164,7 @@ public class CueballPartitionUpdater extends IncrementalPartitionUpdater {
         hashIndexBits,
         compressionCodec,
         null,
+        streamDeltas ? partitionRemoteFileOps : null,
         statistics);
   }
 
@@ -144,6 +181,26 @@ public class CueballPartitionUpdater extends IncrementalPartitionUpdater {
                                    CueballCompressionCodec compressionCodec,
                                    ValueTransformer valueTransformer,
                                    PartitionUpdateTaskStatistics statistics) throws IOException {
+    runUpdateCore(currentVersion, updatingToVersion, updatePlan, updateWorkRoot, localPartitionRoot,
+        localPartitionRootCache, cueballMerger, keyHashSize, valueSize, hashIndexBits, compressionCodec,
+        valueTransformer, null, statistics);
+  }
+
+  // Deltas that were not fetched are streamed from deltaRemoteFileOps, when given
+  public static void runUpdateCore(DomainVersion currentVersion,
+                                   DomainVersion updatingToVersion,
+                                   IncrementalUpdatePlan updatePlan,
+                                   String updateWorkRoot,
+                                   String localPartitionRoot,
+                                   String localPartitionRootCache,
+                                   ICueballMerger cueballMerger,
+                                   int keyHashSize,
+                                   int valueSize,
+                                   int hashIndexBits,
+                                   CueballCompressionCodec compressionCodec,
+                                   ValueTransformer valueTransformer,
+                                   PartitionRemoteFileOps deltaRemoteFileOps,
+                                   PartitionUpdateTaskStatistics statistics) throws IOException {
 
     // Determine new base path
     String newBasePath = updateWorkRoot + "/"
@@ -154,14 +211,23 @@ public class CueballPartitionUpdater extends IncrementalPartitionUpdater {
         localPartitionRoot, localPartitionRootCache, true);
     List<CueballFilePath> deltas = new ArrayList<CueballFilePath>();
     for (DomainVersion delta : updatePlan.getDeltasOrdered()) {
-      deltas.add(getCueballFilePathForVersion(delta, currentVersion,
-          localPartitionRoot, localPartitionRootCache, false));
+      CueballFilePath localDelta = getCueballFilePathForVersion(delta, currentVersion,
+          localPartitionRoot, localPartitionRootCache, false);
+      if (deltaRemoteFileOps != null && !new File(localDelta.getPath()).exists()) {
+        deltas.add(new RemoteCueballFilePath(deltaRemoteFileOps, Cueball.getName(delta.getVersionNumber(), false)));
+      } else {
+        deltas.add(localDelta);
+      }
     }
 
     // Check that all required files are available
     checkRequiredFileExists(base.getPath());
     for (CueballFilePath delta : deltas) {
-      checkRequiredFileExists(delta.getPath());
+      if (delta instanceof RemoteCueballFilePath) {
+        checkRequiredRemoteFileExists(deltaRemoteFileOps, delta.getPath());
+      } else {
+        checkRequiredFileExists(delta.getPath());
+      }
     }
 
     HankTimer timer = new HankTimer();
@@ -171,6 +237,12 @@ public class CueballPartitionUpdater extends IncrementalPartitionUpdater {
       if (!new File(base.getPath()).renameTo(new File(newBasePath))) {
         throw new IOException("Failed to rename Cueball base: " + base.getPath() + " to: " + newBasePath);
       }
+      // Move the base's Bloom filter along with it
+      File baseBloomFilter = new File(CueballBloomFilter.getPath(base.getPath()));
+      if (baseBloomFilter.exists() && !baseBloomFilter.renameTo(new File(CueballBloomFilter.getPath(newBasePath)))) {
+        throw new IOException("Failed to rename Cueball Bloom filter: " + baseBloomFilter.getPath()
+            + " to: " + CueballBloomFilter.getPath(newBasePath));
+      }
     } else {
       cueballMerger.merge(base,
           deltas,
@@ -203,4 +275,12 @@ public class CueballPartitionUpdater extends IncrementalPartitionUpdater {
       throw new IOException("Could not find required file for merging: " + path);
     }
   }
+
+  private static void checkRequiredRemoteFileExists(PartitionRemoteFileOps partitionRemoteFileOps,
+                                                    String remoteRelativePath) throws IOException {
+    if (!partitionRemoteFileOps.exists(remoteRelativePath)) {
+      throw new IOException("Could not find required remote file for merging: "
+          + partitionRemoteFileOps.getRemoteAbsolutePath(remoteRelativePath));
+    }
+  }
 }
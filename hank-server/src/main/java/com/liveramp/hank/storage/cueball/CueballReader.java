@@ -19,23 +19,36 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 import java.util.SortedSet;
 
 import com.liveramp.hank.compression.cueball.CueballCompressionCodec;
+import com.liveramp.hank.compression.cueball.NoCueballCompressionCodec;
 import com.liveramp.hank.hasher.Hasher;
+import com.liveramp.hank.storage.BlockCache;
 import com.liveramp.hank.storage.Reader;
 import com.liveramp.hank.storage.ReaderResult;
+import com.liveramp.hank.storage.Readers;
 import com.liveramp.hank.util.Bytes;
-import com.liveramp.hank.util.SynchronizedCache;
+import com.liveramp.hank.util.ConcurrentCache;
+import com.liveramp.hank.util.MemoryMappedFile;
+import org.apache.log4j.Logger;
 
 public class CueballReader implements Reader {
 
+  private static final Logger LOG = Logger.getLogger(CueballReader.class);
+
   private static final KeyHashBufferThreadLocal keyHashBufferThreadLocal = new KeyHashBufferThreadLocal();
   private static final ByteBuffer NOT_FOUND_MARKER = ByteBuffer.wrap(new byte[]{});
 
   private final Hasher hasher;
   private final int valueSize;
-  private final long[] hashIndex;
+  // Exactly one of these is set, depending on the file format version
+  private final HashIndex hashIndex;
+  private final CueballBlockIndex blockIndex;
   private final FileChannel channel;
   private final int keyHashSize;
   private final int fullRecordSize;
@@ -44,7 +57,22 @@ public class CueballReader implements Reader {
   private int maxCompressedBufferSize;
   private final HashPrefixCalculator prefixer;
   private final int versionNumber;
-  private SynchronizedCache<ByteBuffer, ByteBuffer> cache;
+  private ConcurrentCache<ByteBuffer, ByteBuffer> cache;
+  // Used instead of the above cache when entries are packed in a compact cache
+  private CompactKeyHashCache compactCache;
+
+  // Memory mapped mode
+  private final MemoryMappedFile mappedDataFile;
+  private final long dataLength;
+  private final boolean isUncompressed;
+
+  // Shared cache of decompressed blocks
+  private final BlockCache blockCache;
+  private final int domainId;
+  private final int partitionNumber;
+
+  // Optional filter answering most lookups of absent keys without reading blocks
+  private final CueballBloomFilter bloomFilter;
 
   public CueballReader(String partitionRoot,
                        int keyHashSize,
@@ -53,6 +81,22 @@ public class CueballReader implements Reader {
                        int hashIndexBits,
                        CueballCompressionCodec compressionCodec,
                        int cacheCapacity) throws IOException {
+    this(partitionRoot, keyHashSize, hasher, valueSize, hashIndexBits, compressionCodec, cacheCapacity,
+        new CueballOptions(), null, 0, 0);
+  }
+
+  // Blocks are cached in the given block cache, when not null, under the given domain and partition
+  public CueballReader(String partitionRoot,
+                       int keyHashSize,
+                       Hasher hasher,
+                       int valueSize,
+                       int hashIndexBits,
+                       CueballCompressionCodec compressionCodec,
+                       int cacheCapacity,
+                       CueballOptions options,
+                       BlockCache blockCache,
+                       int domainId,
+                       int partitionNumber) throws IOException {
     SortedSet<CueballFilePath> bases = Cueball.getBases(partitionRoot);
     if (bases == null || bases.size() == 0) {
       throw new IOException("Could not detect any Cueball base in " + partitionRoot);
@@ -67,11 +111,46 @@ public class CueballReader implements Reader {
     this.versionNumber = latestBase.getVersion();
 
     channel = new FileInputStream(latestBase.getPath()).getChannel();
-    Footer footer = new Footer(channel, hashIndexBits);
+    Footer footer = new Footer(channel, hashIndexBits, options.getCompactHashIndex());
     hashIndex = footer.getHashIndex();
+    blockIndex = footer.getBlockIndex();
+    if (blockIndex != null && blockIndex.getKeyHashSize() != keyHashSize) {
+      throw new IOException("Key hash size of " + latestBase.getPath() + " is " + blockIndex.getKeyHashSize()
+          + " but configured key hash size is " + keyHashSize);
+    }
     maxUncompressedBufferSize = footer.getMaxUncompressedBufferSize();
     maxCompressedBufferSize = footer.getMaxCompressedBufferSize();
-    cache = new SynchronizedCache<ByteBuffer, ByteBuffer>(cacheCapacity > 0, cacheCapacity);
+    dataLength = footer.getDataLength();
+    if (options.getCompactPartitionCache() && cacheCapacity > 0) {
+      this.compactCache = new CompactKeyHashCache(keyHashSize, valueSize, cacheCapacity);
+      cache = new ConcurrentCache<ByteBuffer, ByteBuffer>(false, 0);
+      LOG.info("Allocated compact cache of " + this.compactCache.getNumItemsCapacity() + " entries ("
+          + this.compactCache.getNumManagedBytes() + " bytes) for " + latestBase.getPath());
+    } else {
+      this.compactCache = null;
+      cache = new ConcurrentCache<ByteBuffer, ByteBuffer>(cacheCapacity > 0, cacheCapacity);
+    }
+    // Uncompressed blocks can be scanned directly in the mapping
+    isUncompressed = compressionCodec instanceof NoCueballCompressionCodec;
+    if (options.getMmap()) {
+      // Segments overlap by the max block size so that any block can be accessed contiguously
+      mappedDataFile = new MemoryMappedFile(channel, dataLength, maxCompressedBufferSize);
+    } else {
+      mappedDataFile = null;
+    }
+    // Uncompressed blocks in a mapping are already cached by the OS
+    if (options.getMmap() && isUncompressed) {
+      this.blockCache = null;
+    } else {
+      this.blockCache = blockCache;
+    }
+    this.domainId = domainId;
+    this.partitionNumber = partitionNumber;
+    if (CueballBloomFilter.exists(latestBase.getPath())) {
+      bloomFilter = new CueballBloomFilter(CueballBloomFilter.getPath(latestBase.getPath()), hashIndexBits);
+    } else {
+      bloomFilter = null;
+    }
   }
 
   @Override
@@ -81,80 +160,288 @@ public class CueballReader implements Reader {
     ByteBuffer keyHashByteBuffer = ByteBuffer.wrap(keyHash);
 
     int hashPrefix = prefixer.getHashPrefix(keyHash, 0);
-    long baseOffset = hashIndex[hashPrefix];
+    // Version 2 files locate the one block that can hold the key hash,
+    // version 1 files the block of its hash prefix
+    final int block;
+    final long baseOffset;
+    if (blockIndex != null) {
+      block = blockIndex.findBlock(hashPrefix, keyHash);
+      baseOffset = block < 0 ? -1 : blockIndex.getBlockOffset(block);
+    } else {
+      block = -1;
+      baseOffset = hashIndex.getBlockOffset(hashPrefix);
+    }
 
     // by default, we didn't find what we were looking for
     result.notFound();
 
     // baseOffset of -1 means that our hashPrefix doesn't map to any blocks
     if (baseOffset >= 0) {
+      // The key is definitely absent if the Bloom filter rules it out
+      if (bloomFilter != null && !bloomFilter.mayContain(keyHash, 0, keyHashSize)) {
+        return;
+      }
       // Attempt to load value from the cache
       if (loadValueFromCache(keyHashByteBuffer, result)) {
         return;
       }
-      // We will read the compressed buffer and decompress it in the same buffer.
-      result.requiresBufferSize(maxCompressedBufferSize + maxUncompressedBufferSize);
-      // set up to read a chunk from the datafile
-      ByteBuffer buffer = result.getBuffer();
-      buffer.rewind();
-      buffer.limit(maxCompressedBufferSize);
-      int bytesRead = channel.read(buffer, baseOffset);
-
-      // decompress from the beginning of the buffer into the unoccupied end of
-      // the buffer
-      final int uncompressedStart = bytesRead;
-      int decompressedLength = compressionCodec.decompress(buffer.array(),
-          0,
-          bytesRead, buffer.array(),
-          uncompressedStart);
-
-      // scan the chunk we read to find a matching key, if there is one,
-      // returning the recordfile offset
-      int bufferOffset = getValueOffset(buffer.array(),
-          uncompressedStart,
-          uncompressedStart + decompressedLength,
-          keyHash);
-
-      // -1 means that we didn't find the key
-      if (bufferOffset > -1) {
-        result.found();
-        buffer.limit(bufferOffset + valueSize);
-        buffer.position(bufferOffset);
-        addValueToCache(keyHashByteBuffer, buffer);
+      if (blockCache != null) {
+        getFromBlockCache(hashPrefix, block, baseOffset, keyHash, keyHashByteBuffer, result);
+      } else if (mappedDataFile != null) {
+        getFromMappedDataFile(hashPrefix, block, baseOffset, keyHash, keyHashByteBuffer, result);
       } else {
-        // key not found
-        addNotFoundToCache(keyHashByteBuffer);
+        // Read exactly the one block, and decompress it in the same buffer. Some codecs
+        // reject trailing data, so the compressed bytes of the next block must not be read.
+        int blockLength = getBlockLength(hashPrefix, block);
+        result.requiresBufferSize(blockLength + maxUncompressedBufferSize);
+        ByteBuffer buffer = result.getBuffer();
+        buffer.clear();
+        readFully(buffer, baseOffset, blockLength);
+        decompressAndScan(buffer, blockLength, keyHash, keyHashByteBuffer, result);
       }
     }
   }
 
+  // Keys are looked up in the order of their blocks in the file, so that each block
+  // is read and decompressed once, and blocks are read at ascending offsets.
+  @Override
+  public void getBulk(List<ByteBuffer> keys, List<ReaderResult> results) throws IOException {
+    Readers.checkBulkArguments(keys, results);
+    final int numKeys = keys.size();
+    final byte[][] keyHashes = new byte[numKeys][];
+    final int[] hashPrefixes = new int[numKeys];
+    final int[] blockNumbers = new int[numKeys];
+    final long[] baseOffsets = new long[numKeys];
+    List<Integer> keysToRead = new ArrayList<Integer>(numKeys);
+    for (int i = 0; i < numKeys; ++i) {
+      ReaderResult result = results.get(i);
+      result.notFound();
+      // The key hash buffer is thread local, copy it
+      byte[] keyHash = computeKeyHash(keys.get(i)).clone();
+      int hashPrefix = prefixer.getHashPrefix(keyHash, 0);
+      final int block;
+      final long baseOffset;
+      if (blockIndex != null) {
+        block = blockIndex.findBlock(hashPrefix, keyHash);
+        baseOffset = block < 0 ? -1 : blockIndex.getBlockOffset(block);
+      } else {
+        block = -1;
+        baseOffset = hashIndex.getBlockOffset(hashPrefix);
+      }
+      if (baseOffset < 0
+          || (bloomFilter != null && !bloomFilter.mayContain(keyHash, 0, keyHashSize))
+          || loadValueFromCache(ByteBuffer.wrap(keyHash), result)) {
+        continue;
+      }
+      keyHashes[i] = keyHash;
+      hashPrefixes[i] = hashPrefix;
+      blockNumbers[i] = block;
+      baseOffsets[i] = baseOffset;
+      keysToRead.add(i);
+    }
+
+    Collections.sort(keysToRead, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer a, Integer b) {
+        if (baseOffsets[a] != baseOffsets[b]) {
+          return baseOffsets[a] < baseOffsets[b] ? -1 : 1;
+        }
+        return a.compareTo(b);
+      }
+    });
+
+    int i = 0;
+    while (i < keysToRead.size()) {
+      int first = keysToRead.get(i);
+      ByteBuffer block;
+      if (blockCache != null) {
+        block = getBlockFromCache(hashPrefixes[first], blockNumbers[first], baseOffsets[first], results.get(first));
+      } else if (mappedDataFile != null && isUncompressed) {
+        block = mappedDataFile.getSlice(baseOffsets[first],
+            getBlockLength(hashPrefixes[first], blockNumbers[first]));
+      } else {
+        block = loadBlock(hashPrefixes[first], blockNumbers[first], baseOffsets[first], results.get(first));
+      }
+      // Search the block for all keys it may hold
+      for (; i < keysToRead.size() && baseOffsets[keysToRead.get(i)] == baseOffsets[first]; ++i) {
+        int k = keysToRead.get(i);
+        getFromBlock(block.duplicate(), keyHashes[k], ByteBuffer.wrap(keyHashes[k]), results.get(k));
+      }
+    }
+  }
+
+  private void getFromMappedDataFile(int hashPrefix,
+                                     int blockNumber,
+                                     long baseOffset,
+                                     byte[] keyHash,
+                                     ByteBuffer keyHashByteBuffer,
+                                     ReaderResult result) {
+    ByteBuffer block = mappedDataFile.getSlice(baseOffset, getBlockLength(hashPrefix, blockNumber));
+    if (isUncompressed) {
+      // scan the block directly in the mapping
+      getFromBlock(block, keyHash, keyHashByteBuffer, result);
+    } else {
+      // Copy the compressed block out of the mapping (no system call) and decompress it
+      int blockLength = block.remaining();
+      result.requiresBufferSize(blockLength + maxUncompressedBufferSize);
+      ByteBuffer buffer = result.getBuffer();
+      buffer.clear();
+      block.get(buffer.array(), 0, blockLength);
+      decompressAndScan(buffer, blockLength, keyHash, keyHashByteBuffer, result);
+    }
+  }
+
+  private void getFromBlockCache(int hashPrefix,
+                                 int blockNumber,
+                                 long baseOffset,
+                                 byte[] keyHash,
+                                 ByteBuffer keyHashByteBuffer,
+                                 ReaderResult result) throws IOException {
+    ByteBuffer block = getBlockFromCache(hashPrefix, blockNumber, baseOffset, result);
+    getFromBlock(block, keyHash, keyHashByteBuffer, result);
+  }
+
+  // Return the decompressed block, loading it into the cache if needed
+  private ByteBuffer getBlockFromCache(int hashPrefix,
+                                       int blockNumber,
+                                       long baseOffset,
+                                       ReaderResult result) throws IOException {
+    BlockCache.Key blockCacheKey = new BlockCache.Key(domainId, partitionNumber, versionNumber, baseOffset);
+    ByteBuffer block = blockCache.get(blockCacheKey);
+    if (block != null) {
+      result.setBlockCacheHit(true);
+    } else {
+      result.setBlockCacheMiss(true);
+      block = loadBlock(hashPrefix, blockNumber, baseOffset, result);
+      result.setNumBlockCacheEvictions(blockCache.put(blockCacheKey, block));
+    }
+    return block;
+  }
+
+  // Read and decompress exactly one block into a new buffer
+  private ByteBuffer loadBlock(int hashPrefix, int blockNumber, long baseOffset, ReaderResult result) throws IOException {
+    int blockLength = getBlockLength(hashPrefix, blockNumber);
+    result.requiresBufferSize(blockLength + maxUncompressedBufferSize);
+    ByteBuffer buffer = result.getBuffer();
+    buffer.clear();
+    if (mappedDataFile != null) {
+      mappedDataFile.getSlice(baseOffset, blockLength).get(buffer.array(), 0, blockLength);
+    } else {
+      readFully(buffer, baseOffset, blockLength);
+    }
+    int decompressedLength = compressionCodec.decompress(buffer.array(), 0, blockLength,
+        buffer.array(), blockLength);
+    byte[] block = new byte[decompressedLength];
+    System.arraycopy(buffer.array(), blockLength, block, 0, decompressedLength);
+    return ByteBuffer.wrap(block);
+  }
+
+  // Read the given number of bytes at the beginning of the (cleared) buffer
+  private void readFully(ByteBuffer buffer, long offset, int length) throws IOException {
+    buffer.limit(length);
+    int bytesRead = 0;
+    while (bytesRead < length) {
+      int numBytes = channel.read(buffer, offset + bytesRead);
+      if (numBytes < 0) {
+        throw new IOException("Unexpected end of file while reading block at offset " + offset);
+      }
+      bytesRead += numBytes;
+    }
+  }
+
+  // Compressed length of the block of the given number (version 2) or hash prefix (version 1)
+  private int getBlockLength(int hashPrefix, int blockNumber) {
+    if (blockNumber >= 0) {
+      return blockIndex.getBlockLength(blockNumber);
+    } else {
+      return hashIndex.getBlockLength(hashPrefix);
+    }
+  }
+
+  // Search a decompressed block and copy the value, if found, into the result
+  private void getFromBlock(ByteBuffer block,
+                            byte[] keyHash,
+                            ByteBuffer keyHashByteBuffer,
+                            ReaderResult result) {
+    int blockOffset = getValueOffset(block, block.position(), block.limit(), keyHash);
+    if (blockOffset > -1) {
+      result.found();
+      result.requiresBufferSize(valueSize);
+      ByteBuffer buffer = result.getBuffer();
+      buffer.clear();
+      block.limit(blockOffset + valueSize);
+      block.position(blockOffset);
+      buffer.put(block);
+      buffer.flip();
+      addValueToCache(keyHashByteBuffer, buffer);
+    } else {
+      // key not found
+      addNotFoundToCache(keyHashByteBuffer);
+    }
+  }
+
+  private void decompressAndScan(ByteBuffer buffer,
+                                 int bytesRead,
+                                 byte[] keyHash,
+                                 ByteBuffer keyHashByteBuffer,
+                                 ReaderResult result) {
+    // decompress from the beginning of the buffer into the unoccupied end of
+    // the buffer
+    final int uncompressedStart = bytesRead;
+    int decompressedLength = compressionCodec.decompress(buffer.array(),
+        0,
+        bytesRead, buffer.array(),
+        uncompressedStart);
+
+    // search the chunk we read to find a matching key, if there is one,
+    // returning the recordfile offset
+    buffer.clear();
+    int bufferOffset = getValueOffset(buffer,
+        uncompressedStart,
+        uncompressedStart + decompressedLength,
+        keyHash);
+
+    // -1 means that we didn't find the key
+    if (bufferOffset > -1) {
+      result.found();
+      buffer.limit(bufferOffset + valueSize);
+      buffer.position(bufferOffset);
+      addValueToCache(keyHashByteBuffer, buffer);
+    } else {
+      // key not found
+      addNotFoundToCache(keyHashByteBuffer);
+    }
+  }
+
   public Integer getVersionNumber() {
     return versionNumber;
   }
 
+  // Memory allocated by the compact cache, if any
+  public long getCompactCacheNumManagedBytes() {
+    return compactCache == null ? 0 : compactCache.getNumManagedBytes();
+  }
+
   @Override
   public void close() throws IOException {
     channel.close();
     cache = null;
+    compactCache = null;
+    // Values are always copied out of the mapping, so it can be released right away
+    if (mappedDataFile != null) {
+      mappedDataFile.unmap();
+    }
   }
 
-  private int getValueOffset(byte[] keyfileBufferChunk, int off, int limit, byte[] key) {
-    for (; off < limit; off += fullRecordSize) {
-      int comparison = Bytes.compareBytesUnsigned(keyfileBufferChunk, off,
-          key, 0, keyHashSize);
-      // found match
-      if (comparison == 0) {
-        return off + keyHashSize;
-      }
-
-      // passed the spot where our key could have been found, so not going to
-      // find it
-      if (comparison == 1) {
-        break;
-      }
+  // Records following our block belong to the next blocks, which are also sorted,
+  // so the whole range can be searched at once
+  private int getValueOffset(ByteBuffer block, int off, int limit, byte[] key) {
+    int recordOffset = CueballBlockSearch.search(block, off, limit, fullRecordSize, key, keyHashSize);
+    if (recordOffset < 0) {
+      return -1;
+    } else {
+      return recordOffset + keyHashSize;
     }
-    // looked everywhere, didn't find it!
-    return -1;
   }
 
   private static class KeyHashBufferThreadLocal extends ThreadLocal<byte[]> {
@@ -185,15 +472,26 @@ public class CueballReader implements Reader {
   }
 
   private void addValueToCache(ByteBuffer keyHash, ByteBuffer value) {
+    if (compactCache != null) {
+      compactCache.putFound(keyHash.array(), value.array(), value.arrayOffset() + value.position());
+      return;
+    }
     cache.put(Bytes.byteBufferDeepCopy(keyHash), Bytes.byteBufferDeepCopy(value));
   }
 
   private void addNotFoundToCache(ByteBuffer keyHash) {
+    if (compactCache != null) {
+      compactCache.putNotFound(keyHash.array());
+      return;
+    }
     cache.put(Bytes.byteBufferDeepCopy(keyHash), NOT_FOUND_MARKER);
   }
 
   // Return true if managed to read the corresponding value from the cache and into result
   private boolean loadValueFromCache(ByteBuffer keyHash, ReaderResult result) {
+    if (compactCache != null) {
+      return loadValueFromCompactCache(keyHash, result);
+    }
     ByteBuffer value;
     value = cache.get(keyHash);
     if (value != null) {
@@ -214,4 +512,23 @@ public class CueballReader implements Reader {
       return false;
     }
   }
+
+  private boolean loadValueFromCompactCache(ByteBuffer keyHash, ReaderResult result) {
+    result.requiresBufferSize(valueSize);
+    ByteBuffer buffer = result.getBuffer();
+    switch (compactCache.get(keyHash.array(), buffer.array(), 0)) {
+      case CompactKeyHashCache.CACHED_FOUND:
+        buffer.clear();
+        buffer.limit(valueSize);
+        result.found();
+        break;
+      case CompactKeyHashCache.CACHED_NOT_FOUND:
+        result.notFound();
+        break;
+      default:
+        return false;
+    }
+    result.setL1CacheHit(true);
+    return true;
+  }
 }
@@ -27,6 +27,7 @@ public class CueballRemoteDomainVersionDeleter implements RemoteDomainVersionDel
       PartitionRemoteFileOps fileOps = fileOpsFactory.getPartitionRemoteFileOps(remoteDomainRoot, partition);
       fileOps.attemptDelete(Cueball.getName(versionNumber, true));
       fileOps.attemptDelete(Cueball.getName(versionNumber, false));
+      fileOps.attemptDelete(Cueball.getBloomFilterName(versionNumber, true));
     }
   }
 }
@@ -19,6 +19,7 @@
 package com.liveramp.hank.storage.cueball;
 
 import com.liveramp.hank.compression.cueball.CueballCompressionCodec;
+import com.liveramp.hank.storage.PartitionRemoteFileOps;
 import com.liveramp.hank.util.Bytes;
 import com.liveramp.hank.util.IOStreamUtils;
 
@@ -37,14 +38,26 @@ public final class CueballStreamBuffer {
   private boolean complete;
   private final InputStream stream;
 
-  private final long[] hashIndex;
+  // Exactly one of these is set, depending on the file format version
+  private final HashIndex hashIndex;
+  private final CueballBlockIndex blockIndex;
   private final byte[] uncompressedBuffer;
   private final byte[] compressedBuffer;
 
-  private int currentHashIndexIdx = -1;
+  private int currentHashIndexIdx;
+  private int currentBlock;
+  private int lastBlock;
+  // Version 2 blocks can be separated by padding, which is skipped
+  private long streamOffset = 0;
   private final CueballCompressionCodec compressionCodec;
   private final long dataLength;
 
+  // Only key hashes of hash prefixes in [firstHashPrefix, endHashPrefix) are streamed
+  private final int firstHashPrefix;
+  private final int endHashPrefix;
+  // Set when blocks can hold key hashes out of that range (version 2 files)
+  private final HashPrefixCalculator prefixer;
+
   public CueballStreamBuffer(String filePath,
                              int relativeIndex,
                              int keyHashSize,
@@ -52,22 +65,125 @@ public final class CueballStreamBuffer {
                              int hashIndexBits,
                              CueballCompressionCodec compressionCodec)
       throws IOException {
+    this(filePath, relativeIndex, keyHashSize, valueSize, hashIndexBits, compressionCodec, 0, 1 << hashIndexBits);
+  }
+
+  // Stream the key hashes of the given range of hash prefixes only
+  public CueballStreamBuffer(String filePath,
+                             int relativeIndex,
+                             int keyHashSize,
+                             int valueSize,
+                             int hashIndexBits,
+                             CueballCompressionCodec compressionCodec,
+                             int firstHashPrefix,
+                             int endHashPrefix)
+      throws IOException {
+    this(new FileInputStream(filePath), relativeIndex, keyHashSize, valueSize, hashIndexBits, compressionCodec,
+        firstHashPrefix, endHashPrefix);
+  }
+
+  // Stream the key hashes of the given range of hash prefixes of a remote file, without copying it locally first
+  public CueballStreamBuffer(PartitionRemoteFileOps partitionRemoteFileOps,
+                             String remoteRelativePath,
+                             int relativeIndex,
+                             int keyHashSize,
+                             int valueSize,
+                             int hashIndexBits,
+                             CueballCompressionCodec compressionCodec,
+                             int firstHashPrefix,
+                             int endHashPrefix)
+      throws IOException {
+    this(new Footer(partitionRemoteFileOps, remoteRelativePath, hashIndexBits),
+        new BufferedInputStream(partitionRemoteFileOps.getInputStream(remoteRelativePath), IOStreamUtils.DEFAULT_BUFFER_SIZE),
+        relativeIndex, keyHashSize, valueSize, hashIndexBits, compressionCodec, firstHashPrefix, endHashPrefix);
+  }
+
+  private CueballStreamBuffer(FileInputStream fileInputStream,
+                              int relativeIndex,
+                              int keyHashSize,
+                              int valueSize,
+                              int hashIndexBits,
+                              CueballCompressionCodec compressionCodec,
+                              int firstHashPrefix,
+                              int endHashPrefix)
+      throws IOException {
+    this(new Footer(fileInputStream.getChannel(), hashIndexBits),
+        new BufferedInputStream(fileInputStream, IOStreamUtils.DEFAULT_BUFFER_SIZE),
+        relativeIndex, keyHashSize, valueSize, hashIndexBits, compressionCodec, firstHashPrefix, endHashPrefix);
+  }
+
+  private CueballStreamBuffer(Footer footer,
+                              InputStream stream,
+                              int relativeIndex,
+                              int keyHashSize,
+                              int valueSize,
+                              int hashIndexBits,
+                              CueballCompressionCodec compressionCodec,
+                              int firstHashPrefix,
+                              int endHashPrefix)
+      throws IOException {
+    if (firstHashPrefix < 0 || endHashPrefix > (1 << hashIndexBits) || firstHashPrefix > endHashPrefix) {
+      throw new IllegalArgumentException("Invalid hash prefix range: [" + firstHashPrefix + ", " + endHashPrefix + ")");
+    }
     this.relativeIndex = relativeIndex;
     this.compressionCodec = compressionCodec;
-    FileInputStream fileInputStream = new FileInputStream(filePath);
-    this.stream = new BufferedInputStream(fileInputStream, IOStreamUtils.DEFAULT_BUFFER_SIZE);
+    this.stream = stream;
 
     this.keyHashSize = keyHashSize;
     this.fullRecordSize = valueSize + keyHashSize;
 
-    Footer footer = new Footer(fileInputStream.getChannel(), hashIndexBits);
     dataLength = footer.getDataLength();
     hashIndex = footer.getHashIndex();
+    blockIndex = footer.getBlockIndex();
     uncompressedBuffer = new byte[footer.getMaxUncompressedBufferSize()];
     compressedBuffer = new byte[footer.getMaxCompressedBufferSize()];
+
+    this.firstHashPrefix = firstHashPrefix;
+    this.endHashPrefix = endHashPrefix;
+    currentHashIndexIdx = firstHashPrefix - 1;
+    if (blockIndex != null && (firstHashPrefix > 0 || endHashPrefix < (1 << hashIndexBits))) {
+      prefixer = new HashPrefixCalculator(hashIndexBits);
+      // Only read the blocks holding key hashes of the range
+      int firstBlock = -1;
+      lastBlock = -1;
+      for (int hashPrefix = firstHashPrefix; hashPrefix < endHashPrefix; ++hashPrefix) {
+        if (blockIndex.getFirstBlock(hashPrefix) >= 0) {
+          if (firstBlock < 0) {
+            firstBlock = blockIndex.getFirstBlock(hashPrefix);
+          }
+          lastBlock = blockIndex.getLastBlock(hashPrefix);
+        }
+      }
+      currentBlock = firstBlock - 1;
+      complete = firstBlock < 0;
+    } else {
+      prefixer = null;
+      currentBlock = -1;
+      lastBlock = blockIndex == null ? -1 : blockIndex.getNumBlocks() - 1;
+    }
   }
 
   public boolean anyRemaining() throws IOException {
+    if (prefixer == null) {
+      return anyRemainingInBlocks();
+    }
+    // Skip key hashes out of the range, which can share the first and last blocks of the range
+    while (anyRemainingInBlocks()) {
+      int hashPrefix = prefixer.getHashPrefix(uncompressedBuffer, currentOffset);
+      if (hashPrefix < firstHashPrefix) {
+        consume();
+      } else if (hashPrefix >= endHashPrefix) {
+        currentOffset = currentLimit;
+        complete = true;
+        return false;
+      } else {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private boolean anyRemainingInBlocks() throws IOException {
     if (currentOffset < currentLimit) {
       return true;
     }
@@ -76,17 +192,20 @@ public final class CueballStreamBuffer {
     }
 
     // refill the buffer
+    if (blockIndex != null) {
+      return readNextBlock();
+    }
 
     // advance to the next non-empty block
     currentHashIndexIdx++;
-    while (currentHashIndexIdx < hashIndex.length) {
-      if (hashIndex[currentHashIndexIdx] != -1) {
+    while (currentHashIndexIdx < endHashPrefix) {
+      if (hashIndex.getBlockOffset(currentHashIndexIdx) != -1) {
         break;
       }
       currentHashIndexIdx++;
     }
 
-    if (currentHashIndexIdx >= hashIndex.length) {
+    if (currentHashIndexIdx >= endHashPrefix) {
       // there are no more blocks. we're all done
       complete = true;
       return false;
@@ -95,7 +214,7 @@ public final class CueballStreamBuffer {
     // there's at least one block left.
 
     long upperOffset;
-    if (currentHashIndexIdx == hashIndex.length - 1) {
+    if (currentHashIndexIdx == hashIndex.size() - 1) {
       // actually, there's *exactly* one block left. we need to compare the
       // current offset to the data length to determine the compressed block
       // size.
@@ -104,29 +223,31 @@ public final class CueballStreamBuffer {
       // so this isn't the last block in the index, but it might still be the
       // last block in the file.
       int nextHashIndexIdx = currentHashIndexIdx + 1;
-      while (nextHashIndexIdx < hashIndex.length) {
-        if (hashIndex[nextHashIndexIdx] != -1) {
+      while (nextHashIndexIdx < hashIndex.size()) {
+        if (hashIndex.getBlockOffset(nextHashIndexIdx) != -1) {
           break;
         }
         nextHashIndexIdx++;
       }
       // need to examine the "next" we got back...
-      if (nextHashIndexIdx == hashIndex.length) {
+      if (nextHashIndexIdx == hashIndex.size()) {
         // turns out that it was the last block in the file, so we should
         // compare against the end of the data length.
         upperOffset = dataLength;
       } else {
         // sweet, there's another block there somewhere. use that offset as the
         // one to determine our compressed block length.
-        upperOffset = hashIndex[nextHashIndexIdx];
+        upperOffset = hashIndex.getBlockOffset(nextHashIndexIdx);
       }
     }
 
-    final int blockLength = (int) (upperOffset - hashIndex[currentHashIndexIdx]);
-    // read the compressed block from disk into the compressed buffer
-    final int compressedBytesRead = stream.read(compressedBuffer, 0, blockLength);
+    final long blockOffset = hashIndex.getBlockOffset(currentHashIndexIdx);
+    final int blockLength = (int) (upperOffset - blockOffset);
+    // skip blocks out of the range, then read the compressed block from disk into the compressed buffer
+    skipTo(blockOffset);
+    readFully(blockLength, blockOffset);
     // decompress the compressed block into the uncompressed buffer
-    final int decompressedSize = compressionCodec.decompress(compressedBuffer, 0, compressedBytesRead, uncompressedBuffer, 0);
+    final int decompressedSize = compressionCodec.decompress(compressedBuffer, 0, blockLength, uncompressedBuffer, 0);
 
     // adjust the pointers
     currentOffset = 0;
@@ -134,6 +255,44 @@ public final class CueballStreamBuffer {
     return true;
   }
 
+  private boolean readNextBlock() throws IOException {
+    currentBlock++;
+    if (currentBlock > lastBlock) {
+      complete = true;
+      return false;
+    }
+    final long blockOffset = blockIndex.getBlockOffset(currentBlock);
+    final int blockLength = blockIndex.getBlockLength(currentBlock);
+    skipTo(blockOffset);
+    readFully(blockLength, blockOffset);
+    currentOffset = 0;
+    currentLimit = compressionCodec.decompress(compressedBuffer, 0, blockLength, uncompressedBuffer, 0);
+    return true;
+  }
+
+  // Remote streams can return fewer bytes than requested before the end of the block
+  private void readFully(int blockLength, long blockOffset) throws IOException {
+    int bytesRead = 0;
+    while (bytesRead < blockLength) {
+      int numBytes = stream.read(compressedBuffer, bytesRead, blockLength - bytesRead);
+      if (numBytes < 0) {
+        throw new IOException("Unexpected end of file while reading block at offset " + blockOffset);
+      }
+      bytesRead += numBytes;
+    }
+    streamOffset += blockLength;
+  }
+
+  private void skipTo(long offset) throws IOException {
+    while (streamOffset < offset) {
+      long skipped = stream.skip(offset - streamOffset);
+      if (skipped <= 0) {
+        throw new IOException("Failed to skip to offset " + offset);
+      }
+      streamOffset += skipped;
+    }
+  }
+
   /**
    * Compare the key hash at the current position of two stream buffers
    *
@@ -141,7 +300,7 @@ public final class CueballStreamBuffer {
    * @return
    */
   public int compareTo(CueballStreamBuffer other) {
-    return Bytes.compareBytesUnsigned(uncompressedBuffer,
+    return Bytes.compareWordsUnsigned(uncompressedBuffer,
         currentOffset,
         other.uncompressedBuffer,
         other.getCurrentOffset(),
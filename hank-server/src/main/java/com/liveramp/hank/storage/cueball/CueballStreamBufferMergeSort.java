@@ -28,6 +28,15 @@ public class CueballStreamBufferMergeSort implements IKeyFileStreamBufferMergeSo
   private final int keyHashSize;
   private final int valueSize;
   private final ValueTransformer transformer;
+  // One reusable result per stream, pointing into that stream's buffer
+  private final KeyHashAndValueAndStreamIndex[] results;
+  // Binary min-heap of the indices of the non exhausted streams, ordered by their current key hash.
+  // Equal key hashes are ordered by decreasing stream index, so that the latest delta is on top.
+  private final int[] heap;
+  private int heapSize;
+  private boolean heapInitialized = false;
+  // Whether the record on top of the heap was returned and has yet to be consumed
+  private boolean topReturned = false;
 
   public static class Factory implements ICueballStreamBufferMergeSortFactory {
     private final int keyHashSize;
@@ -70,6 +79,20 @@ public class CueballStreamBufferMergeSort implements IKeyFileStreamBufferMergeSo
                                       int hashIndexBits,
                                       CueballCompressionCodec compressionCodec,
                                       ValueTransformer transformer) throws IOException {
+    this(cueballBase, cueballDeltas, keyHashSize, valueSize, hashIndexBits, compressionCodec, transformer,
+        0, 1 << hashIndexBits);
+  }
+
+  // Merge the key hashes of the given range of hash prefixes only
+  public CueballStreamBufferMergeSort(CueballFilePath cueballBase,
+                                      List<CueballFilePath> cueballDeltas,
+                                      int keyHashSize,
+                                      int valueSize,
+                                      int hashIndexBits,
+                                      CueballCompressionCodec compressionCodec,
+                                      ValueTransformer transformer,
+                                      int firstHashPrefix,
+                                      int endHashPrefix) throws IOException {
     this.keyHashSize = keyHashSize;
     this.valueSize = valueSize;
     this.transformer = transformer;
@@ -77,70 +100,126 @@ public class CueballStreamBufferMergeSort implements IKeyFileStreamBufferMergeSo
     cueballStreamBuffers = new CueballStreamBuffer[cueballDeltas.size() + 1];
 
     // Open the base
-    CueballStreamBuffer cueballBaseStreamBuffer = new CueballStreamBuffer(cueballBase.getPath(), 0,
-        keyHashSize, valueSize, hashIndexBits, compressionCodec);
+    CueballStreamBuffer cueballBaseStreamBuffer = cueballBase.openStreamBuffer(0,
+        keyHashSize, valueSize, hashIndexBits, compressionCodec, firstHashPrefix, endHashPrefix);
     cueballStreamBuffers[0] = cueballBaseStreamBuffer;
 
     // Open all the deltas
     int i = 1;
     for (CueballFilePath delta : cueballDeltas) {
-      CueballStreamBuffer cueballStreamBuffer =
-          new CueballStreamBuffer(delta.getPath(), i, keyHashSize, valueSize, hashIndexBits, compressionCodec);
+      CueballStreamBuffer cueballStreamBuffer = delta.openStreamBuffer(i, keyHashSize, valueSize,
+          hashIndexBits, compressionCodec, firstHashPrefix, endHashPrefix);
       cueballStreamBuffers[i++] = cueballStreamBuffer;
     }
+
+    results = new KeyHashAndValueAndStreamIndex[cueballStreamBuffers.length];
+    for (int j = 0; j < cueballStreamBuffers.length; ++j) {
+      results[j] = new KeyHashAndValueAndStreamIndex(ByteBuffer.wrap(cueballStreamBuffers[j].getBuffer()),
+          ByteBuffer.wrap(cueballStreamBuffers[j].getBuffer()), j);
+    }
+    heap = new int[cueballStreamBuffers.length];
   }
 
-  // Return null when there is nothing more to use
+  // Return null when there is nothing more to use.
+  // Note: the returned key hash and value are only valid until the next call.
   @Override
   public KeyHashAndValueAndStreamIndex nextKeyHashAndValueAndStreamIndex() throws IOException {
 
-    // Find the stream buffer with the next smallest key hash
-    CueballStreamBuffer cueballStreamBufferToUse = null;
-    int cueballStreamBufferToUseIndex = -1;
-
-    for (int i = 0; i < cueballStreamBuffers.length; i++) {
-      if (cueballStreamBuffers[i].anyRemaining()) {
-        if (cueballStreamBufferToUse == null) {
-          cueballStreamBufferToUse = cueballStreamBuffers[i];
-          cueballStreamBufferToUseIndex = i;
-        } else {
-          int comparison = cueballStreamBufferToUse.compareTo(cueballStreamBuffers[i]);
-          if (comparison == 0) {
-            // If two equal key hashes are found, use the most recent value (i.e. the one from the lastest delta)
-            // and skip (consume) the older ones
-            cueballStreamBufferToUse.consume();
-            cueballStreamBufferToUse = cueballStreamBuffers[i];
-            cueballStreamBufferToUseIndex = i;
-          } else if (comparison == 1) {
-            // Found a stream buffer with a smaller key hash
-            cueballStreamBufferToUse = cueballStreamBuffers[i];
-            cueballStreamBufferToUseIndex = i;
-          }
+    if (!heapInitialized) {
+      for (int i = 0; i < cueballStreamBuffers.length; i++) {
+        if (cueballStreamBuffers[i].anyRemaining()) {
+          heap[heapSize++] = i;
         }
       }
+      for (int i = heapSize / 2 - 1; i >= 0; --i) {
+        siftDown(i);
+      }
+      heapInitialized = true;
     }
 
-    if (cueballStreamBufferToUse == null) {
+    // Consume the record returned last time. This is done lazily so that the
+    // returned buffers are not overwritten before the caller is done with them.
+    if (topReturned) {
+      advance(0);
+      topReturned = false;
+    }
+
+    if (heapSize == 0) {
       // Nothing more to read
       return null;
     }
 
+    // If equal key hashes are found, use the most recent value (i.e. the one from the latest delta,
+    // which is on top) and skip (consume) the older ones. They are the smallest of the remaining streams.
+    while (heapSize > 1) {
+      int child = 1;
+      if (heapSize > 2 && less(heap[2], heap[1])) {
+        child = 2;
+      }
+      if (cueballStreamBuffers[heap[0]].compareTo(cueballStreamBuffers[heap[child]]) != 0) {
+        break;
+      }
+      advance(child);
+    }
+
+    int streamIndex = heap[0];
+    CueballStreamBuffer cueballStreamBufferToUse = cueballStreamBuffers[streamIndex];
+    int offset = cueballStreamBufferToUse.getCurrentOffset();
+
     // Transform if necessary
     if (transformer != null) {
-      transformer.transform(cueballStreamBufferToUse.getBuffer(),
-          cueballStreamBufferToUse.getCurrentOffset() + keyHashSize,
-          cueballStreamBufferToUse.getIndex());
+      transformer.transform(cueballStreamBufferToUse.getBuffer(), offset + keyHashSize, streamIndex);
     }
 
-    // Get next key hash and value
-    final ByteBuffer keyHash = ByteBuffer.wrap(cueballStreamBufferToUse.getBuffer(),
-        cueballStreamBufferToUse.getCurrentOffset(), keyHashSize);
-    final ByteBuffer valueBytes = ByteBuffer.wrap(cueballStreamBufferToUse.getBuffer(),
-        cueballStreamBufferToUse.getCurrentOffset() + keyHashSize, valueSize);
+    // Point the reusable result to the next key hash and value
+    KeyHashAndValueAndStreamIndex result = results[streamIndex];
+    setWindow(result.keyHash, offset, keyHashSize);
+    setWindow(result.value, offset + keyHashSize, valueSize);
+    topReturned = true;
+    return result;
+  }
+
+  // Consume the current record of the stream at the given heap position and restore the heap
+  private void advance(int position) throws IOException {
+    CueballStreamBuffer cueballStreamBuffer = cueballStreamBuffers[heap[position]];
+    cueballStreamBuffer.consume();
+    if (!cueballStreamBuffer.anyRemaining()) {
+      // Remove exhausted stream. The last element cannot be smaller than the top, so sifting down is enough.
+      heap[position] = heap[--heapSize];
+    }
+    if (position < heapSize) {
+      siftDown(position);
+    }
+  }
 
-    cueballStreamBufferToUse.consume();
+  private void siftDown(int position) {
+    int streamIndex = heap[position];
+    while (true) {
+      int child = 2 * position + 1;
+      if (child >= heapSize) {
+        break;
+      }
+      if (child + 1 < heapSize && less(heap[child + 1], heap[child])) {
+        ++child;
+      }
+      if (!less(heap[child], streamIndex)) {
+        break;
+      }
+      heap[position] = heap[child];
+      position = child;
+    }
+    heap[position] = streamIndex;
+  }
+
+  private boolean less(int streamIndexA, int streamIndexB) {
+    int comparison = cueballStreamBuffers[streamIndexA].compareTo(cueballStreamBuffers[streamIndexB]);
+    return comparison < 0 || (comparison == 0 && streamIndexA > streamIndexB);
+  }
 
-    return new KeyHashAndValueAndStreamIndex(keyHash, valueBytes, cueballStreamBufferToUseIndex);
+  private static void setWindow(ByteBuffer buffer, int offset, int length) {
+    buffer.clear();
+    buffer.position(offset);
+    buffer.limit(offset + length);
   }
 
   @Override
@@ -29,16 +29,25 @@ import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 /**
- * Note that the current implementation does not support writing partitions with
- * more than 20000 entries per block.
+ * By default, files are written in format version 1, with one compressed block
+ * per hash prefix. Note that this format does not support more than 20000
+ * entries per hash prefix.
+ *
+ * When a block size is specified, files are written in format version 2 instead
+ * (see {@link Footer}). Blocks then hold as many records as fit in the block size
+ * regardless of hash prefixes, and a block never crosses a page boundary unless
+ * it is larger than a page, so that a lookup reads a single aligned block.
  */
 public class CueballWriter implements Writer {
   private static final int DEFAULT_NUMBER_OF_ENTRIES = 20000;
+  static final int PAGE_SIZE = 4096;
+  private static final byte[] PADDING = new byte[PAGE_SIZE];
   private final OutputStream stream;
   private final int keyHashSize;
   private final Hasher hasher;
   private final int valueSize;
   private final CueballCompressionCodec compressionCodec;
+  private final CueballBloomFilterWriter bloomFilterWriter;
 
   private final byte[] uncompressedBuffer;
   private final byte[] compressedBuffer;
@@ -48,6 +57,19 @@ public class CueballWriter implements Writer {
 
   private final long[] hashIndex;
 
+  // Format version 2 only
+  private final int blockSize;
+  private final int maxNumEntriesPerBlock;
+  // First and last block of each hash prefix
+  private final int[] hashPrefixBlocks;
+  private int numBlocks = 0;
+  private long[] blockOffsets;
+  private int[] blockLengths;
+  private byte[] blockFirstKeyHashes;
+  // Key hashes of the current hash prefix, which blocks do not delimit, for the Bloom filter
+  private byte[] hashPrefixKeyHashes;
+  private int numHashPrefixKeyHashes = 0;
+
   private final HashPrefixCalculator prefixer;
   private int lastHashPrefix = -1;
   private int uncompressedOffset = 0;
@@ -64,15 +86,47 @@ public class CueballWriter implements Writer {
                        int valueSize,
                        CueballCompressionCodec compressionCodec,
                        int hashIndexBits) {
+    this(outputStream, keyHashSize, hasher, valueSize, compressionCodec, hashIndexBits, new CueballOptions(), null);
+  }
+
+  // The block size of the options selects the file format version. The Bloom filter writer
+  // is optional, and is closed along with this writer.
+  public CueballWriter(OutputStream outputStream,
+                       int keyHashSize,
+                       Hasher hasher,
+                       int valueSize,
+                       CueballCompressionCodec compressionCodec,
+                       int hashIndexBits,
+                       CueballOptions options,
+                       CueballBloomFilterWriter bloomFilterWriter) {
+    final int blockSize = options.getBlockSize();
+    if (blockSize < 0) {
+      throw new IllegalArgumentException("Block size must not be negative: " + blockSize);
+    }
     // Buffer output
     this.stream = new BufferedOutputStream(outputStream, IOStreamUtils.DEFAULT_BUFFER_SIZE);
     this.keyHashSize = keyHashSize;
     this.hasher = hasher;
     this.valueSize = valueSize;
     this.compressionCodec = compressionCodec;
+    this.bloomFilterWriter = bloomFilterWriter;
+
+    this.blockSize = blockSize;
+    if (blockSize > 0) {
+      maxNumEntriesPerBlock = Math.max(1, blockSize / (keyHashSize + valueSize));
+      hashPrefixBlocks = new int[2 << hashIndexBits];
+      Arrays.fill(hashPrefixBlocks, -1);
+      blockOffsets = new long[16];
+      blockLengths = new int[16];
+      blockFirstKeyHashes = new byte[16 * keyHashSize];
+      hashPrefixKeyHashes = bloomFilterWriter == null ? null : new byte[maxNumEntriesPerBlock * keyHashSize];
+    } else {
+      maxNumEntriesPerBlock = DEFAULT_NUMBER_OF_ENTRIES;
+      hashPrefixBlocks = null;
+    }
 
     uncompressedBuffer = new byte[(keyHashSize + valueSize)
-        * DEFAULT_NUMBER_OF_ENTRIES];
+        * maxNumEntriesPerBlock];
     compressedBuffer = new byte[compressionCodec.getMaxCompressBufferSize(uncompressedBuffer.length)];
     keyHashBytes = new byte[keyHashSize];
     previousKeyHashBytes = new byte[keyHashSize];
@@ -80,8 +134,12 @@ public class CueballWriter implements Writer {
 
     prefixer = new HashPrefixCalculator(hashIndexBits);
 
-    hashIndex = new long[1 << hashIndexBits];
-    Arrays.fill(hashIndex, -1);
+    if (blockSize > 0) {
+      hashIndex = null;
+    } else {
+      hashIndex = new long[1 << hashIndexBits];
+      Arrays.fill(hashIndex, -1);
+    }
   }
 
   @Override
@@ -99,7 +157,7 @@ public class CueballWriter implements Writer {
     // Hash key
     hasher.hash(key, keyHashSize, keyHashBytes);
     // Compare with previous key hash
-    int previousKeyHashComparision = Bytes.compareBytesUnsigned(keyHashBytes, 0, previousKeyHashBytes, 0, keyHashSize);
+    int previousKeyHashComparision = Bytes.compareWordsUnsigned(keyHashBytes, 0, previousKeyHashBytes, 0, keyHashSize);
     // Check that there is not a key hash collision
     if (previousKey != null && 0 == previousKeyHashComparision) {
       throw new IOException("Collision: two consecutive keys have the same hash value."
@@ -131,6 +189,10 @@ public class CueballWriter implements Writer {
   }
 
   public void writeHash(ByteBuffer hashedKey, ByteBuffer value) throws IOException {
+    if (blockSize > 0) {
+      writeHashInSizedBlock(hashedKey, value);
+      return;
+    }
     // check the first hashIndexBits of the hashedKey
     int thisPrefix = prefixer.getHashPrefix(hashedKey.array(), hashedKey.arrayOffset()
         + hashedKey.position());
@@ -179,34 +241,106 @@ public class CueballWriter implements Writer {
     ++numEntriesInBlock;
   }
 
-  private void clearUncompressed() throws IOException {
-    // compress the block
+  private void writeHashInSizedBlock(ByteBuffer hashedKey, ByteBuffer value) throws IOException {
+    final byte[] hashedKeyBytes = hashedKey.array();
+    final int hashedKeyOffset = hashedKey.arrayOffset() + hashedKey.position();
+    if (hashedKeyOffset + keyHashSize > hashedKeyBytes.length) {
+      throw new IOException("Need to copy " + keyHashSize
+          + " from key, but there weren't enough bytes left! key buffer size: "
+          + hashedKeyBytes.length + ", offset: " + hashedKeyOffset);
+    }
+    int thisPrefix = prefixer.getHashPrefix(hashedKeyBytes, hashedKeyOffset);
+
+    // blocks are cut by size only
+    if (numEntriesInBlock == maxNumEntriesPerBlock) {
+      writeSizedBlock();
+    }
+    if (thisPrefix != lastHashPrefix) {
+      addHashPrefixToBloomFilter();
+      lastHashPrefix = thisPrefix;
+      hashPrefixBlocks[thisPrefix * 2] = numBlocks;
+    }
+    // the block being filled will be written as block number numBlocks
+    hashPrefixBlocks[thisPrefix * 2 + 1] = numBlocks;
+
+    System.arraycopy(hashedKeyBytes, hashedKeyOffset, uncompressedBuffer, uncompressedOffset, keyHashSize);
+    System.arraycopy(value.array(), value.arrayOffset() + value.position(), uncompressedBuffer, uncompressedOffset
+        + keyHashSize, valueSize);
+    uncompressedOffset += keyHashSize + valueSize;
+    ++numEntriesInBlock;
+
+    if (hashPrefixKeyHashes != null) {
+      if ((numHashPrefixKeyHashes + 1) * keyHashSize > hashPrefixKeyHashes.length) {
+        hashPrefixKeyHashes = Arrays.copyOf(hashPrefixKeyHashes, hashPrefixKeyHashes.length * 2);
+      }
+      System.arraycopy(hashedKeyBytes, hashedKeyOffset, hashPrefixKeyHashes, numHashPrefixKeyHashes * keyHashSize, keyHashSize);
+      ++numHashPrefixKeyHashes;
+    }
+  }
+
+  private void addHashPrefixToBloomFilter() throws IOException {
+    if (hashPrefixKeyHashes != null && lastHashPrefix >= 0) {
+      bloomFilterWriter.addBlock(lastHashPrefix, hashPrefixKeyHashes, numHashPrefixKeyHashes, keyHashSize, keyHashSize);
+    }
+    numHashPrefixKeyHashes = 0;
+  }
+
+  private void writeSizedBlock() throws IOException {
     int compressedSize = compressionCodec.compress(uncompressedBuffer, 0, uncompressedOffset, compressedBuffer, 0);
-    // write the compressed block to the data stream
+
+    // move the block to the next page if it would cross a page boundary that it does not need to cross
+    final int offsetInPage = (int) (numBytesWritten % PAGE_SIZE);
+    if (offsetInPage != 0 && offsetInPage + compressedSize > PAGE_SIZE) {
+      stream.write(PADDING, 0, PAGE_SIZE - offsetInPage);
+      numBytesWritten += PAGE_SIZE - offsetInPage;
+    }
+
+    if (numBlocks == blockOffsets.length) {
+      blockOffsets = Arrays.copyOf(blockOffsets, numBlocks * 2);
+      blockLengths = Arrays.copyOf(blockLengths, numBlocks * 2);
+      blockFirstKeyHashes = Arrays.copyOf(blockFirstKeyHashes, numBlocks * 2 * keyHashSize);
+    }
+    blockOffsets[numBlocks] = numBytesWritten;
+    blockLengths[numBlocks] = compressedSize;
+    System.arraycopy(uncompressedBuffer, 0, blockFirstKeyHashes, numBlocks * keyHashSize, keyHashSize);
+    ++numBlocks;
+
     stream.write(compressedBuffer, 0, compressedSize);
     numBytesWritten += compressedSize;
 
-    // keep track of the max block sizes
     if (uncompressedOffset > maxUncompressedBlockSize) {
       maxUncompressedBlockSize = uncompressedOffset;
     }
-
     if (compressedSize > maxCompressedBlockSize) {
       maxCompressedBlockSize = compressedSize;
     }
-    // Reset offset and counter
     uncompressedOffset = 0;
     numEntriesInBlock = 0;
   }
 
-  @Override
-  public void close() throws IOException {
-    // clear the last block, if there is one
-    if (uncompressedOffset > 0) {
-      clearUncompressed();
+  private byte[] getSizedBlocksFooter() {
+    final int blockEntryLength = Footer.getV2BlockEntryLength(keyHashSize);
+    final int hashPrefixesOff = numBlocks * blockEntryLength;
+    final int trailerOff = hashPrefixesOff + hashPrefixBlocks.length * 4;
+    byte[] footer = new byte[trailerOff + Footer.V2_TRAILER_LENGTH];
+    for (int i = 0; i < numBlocks; ++i) {
+      EncodingHelper.encodeLittleEndianFixedWidthLong(blockOffsets[i], footer, i * blockEntryLength, 8);
+      EncodingHelper.encodeLittleEndianFixedWidthLong(blockLengths[i], footer, i * blockEntryLength + 8, 4);
+      System.arraycopy(blockFirstKeyHashes, i * keyHashSize, footer, i * blockEntryLength + 12, keyHashSize);
+    }
+    for (int i = 0; i < hashPrefixBlocks.length; ++i) {
+      EncodingHelper.encodeLittleEndianFixedWidthLong(hashPrefixBlocks[i], footer, hashPrefixesOff + i * 4, 4);
     }
+    int[] trailer = {numBlocks, (int) maxUncompressedBlockSize, (int) maxCompressedBlockSize, keyHashSize,
+        blockSize, Footer.FORMAT_VERSION_2, Footer.VERSIONED_FOOTER_MAGIC};
+    for (int i = 0; i < trailer.length; ++i) {
+      EncodingHelper.encodeLittleEndianFixedWidthLong(trailer[i], footer, trailerOff + i * 4, 4);
+    }
+    return footer;
+  }
 
-    // serialize the footer
+  // Serialize the footer of a format version 1 file
+  static byte[] getHashIndexFooter(long[] hashIndex, long maxUncompressedBlockSize, long maxCompressedBlockSize) {
     byte[] footer = new byte[8 * hashIndex.length + 4 + 4];
 
     for (int i = 0; i < hashIndex.length; i++) {
@@ -216,6 +350,51 @@ public class CueballWriter implements Writer {
     // write the buffer size hints
     EncodingHelper.encodeLittleEndianFixedWidthLong(maxUncompressedBlockSize, footer, footer.length - 8, 4);
     EncodingHelper.encodeLittleEndianFixedWidthLong(maxCompressedBlockSize, footer, footer.length - 4, 4);
+    return footer;
+  }
+
+  private void clearUncompressed() throws IOException {
+    // add the block's key hashes to the Bloom filter
+    if (bloomFilterWriter != null && lastHashPrefix >= 0) {
+      bloomFilterWriter.addBlock(lastHashPrefix, uncompressedBuffer, numEntriesInBlock, keyHashSize,
+          keyHashSize + valueSize);
+    }
+    // compress the block
+    int compressedSize = compressionCodec.compress(uncompressedBuffer, 0, uncompressedOffset, compressedBuffer, 0);
+    // write the compressed block to the data stream
+    stream.write(compressedBuffer, 0, compressedSize);
+    numBytesWritten += compressedSize;
+
+    // keep track of the max block sizes
+    if (uncompressedOffset > maxUncompressedBlockSize) {
+      maxUncompressedBlockSize = uncompressedOffset;
+    }
+
+    if (compressedSize > maxCompressedBlockSize) {
+      maxCompressedBlockSize = compressedSize;
+    }
+    // Reset offset and counter
+    uncompressedOffset = 0;
+    numEntriesInBlock = 0;
+  }
+
+  @Override
+  public void close() throws IOException {
+    byte[] footer;
+    if (blockSize > 0) {
+      if (numEntriesInBlock > 0) {
+        writeSizedBlock();
+      }
+      addHashPrefixToBloomFilter();
+      footer = getSizedBlocksFooter();
+    } else {
+      // clear the last block, if there is one
+      if (uncompressedOffset > 0) {
+        clearUncompressed();
+      }
+
+      footer = getHashIndexFooter(hashIndex, maxUncompressedBlockSize, maxCompressedBlockSize);
+    }
 
     stream.write(footer);
 
@@ -224,6 +403,10 @@ public class CueballWriter implements Writer {
     // flush everything and close
     stream.flush();
     stream.close();
+
+    if (bloomFilterWriter != null) {
+      bloomFilterWriter.close();
+    }
   }
 
   @Override
@@ -1,56 +1,323 @@
 package com.liveramp.hank.storage.cueball;
 
+import java.io.DataInputStream;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.util.Arrays;
 
+import com.liveramp.hank.storage.PartitionRemoteFileOps;
 import com.liveramp.hank.util.EncodingHelper;
 
+/**
+ * Version 1 footers hold one block offset per hash prefix followed by the max
+ * block sizes. Later versions end with a trailer made of the format version and
+ * a magic number. The magic number is negative, which tells them apart from
+ * version 1 footers since these end with a (positive) block size.
+ *
+ * Version 2 footers are laid out as follows, integers being little endian:
+ * - for each block: offset (8 bytes), compressed length (4 bytes), first key hash
+ * - for each hash prefix: first block (4 bytes), last block (4 bytes), -1 when empty
+ * - number of blocks, max uncompressed block size, max compressed block size,
+ *   key hash size, target block size, format version and magic number (4 bytes each)
+ */
 final class Footer {
-  private final long[] hashIndex;
+
+  static final int FORMAT_VERSION_1 = 1;
+  static final int FORMAT_VERSION_2 = 2;
+  static final int VERSIONED_FOOTER_MAGIC = 0xC0EBA11F;
+  static final int V2_TRAILER_LENGTH = 7 * 4;
+  static final int V2_HASH_PREFIX_ENTRY_LENGTH = 4 + 4;
+  // Block entries that remote reads fetch along with the rest of the footer, before knowing the number of blocks
+  static final int REMOTE_BLOCK_ENTRIES_READ_AHEAD = 1 << 16;
+
+  private final int formatVersion;
+  private final HashIndex hashIndex;
+  private final CueballBlockIndex blockIndex;
+  private final int blockSize;
   private final int maxUncompressedBufferSize;
   private final int maxCompressedBufferSize;
   private final long fileSize;
   private final int footerLength;
 
-  public Footer(FileChannel channel, int hashIndexBits) throws IOException {
-    fileSize = channel.size();
+  // Reads ranges of bytes of a Cueball file
+  private interface Source {
+
+    public byte[] read(long position, int length) throws IOException;
+  }
+
+  private static class ChannelSource implements Source {
 
-    final int hashIndexSize = 1 << hashIndexBits;
-    footerLength = hashIndexSize * 8 + 8;
+    private final FileChannel channel;
 
-    byte[] footer = new byte[getFooterLength()];
-    int read = channel.read(ByteBuffer.wrap(footer), getFileSize() - getFooterLength());
-    if (read != getFooterLength()) {
-      throw new IOException("Tried to read " + getFooterLength() + " bytes of footer, but only got " + read + " bytes!");
+    public ChannelSource(FileChannel channel) {
+      this.channel = channel;
     }
 
-    hashIndex = new long[hashIndexSize];
-    for (int i = 0; i < getHashIndex().length; i++) {
-      final long offset = EncodingHelper.decodeLittleEndianFixedWidthLong(footer, i * 8, 8);
-      if (offset < -1) {
-        throw new IOException(String.format("Read an unexpectedly negative block offset (%d) at block position %d!", offset, i));
+    @Override
+    public byte[] read(long position, int length) throws IOException {
+      byte[] result = new byte[length];
+      ByteBuffer buffer = ByteBuffer.wrap(result);
+      while (buffer.hasRemaining()) {
+        if (channel.read(buffer, position + buffer.position()) < 0) {
+          throw new IOException("Tried to read " + length + " bytes of footer, but only got " + buffer.position() + " bytes!");
+        }
       }
-      if (offset != -1 && i > 0 && hashIndex[i-1] != -1 && hashIndex[i-1] >= offset) {
-        throw new IOException(String.format("Discovered an offset inversion! block %d offset: %d, block %d offset: %d", i-1, hashIndex[i-1], i, offset));
+      return result;
+    }
+  }
+
+  // Footers are read from the end of the file, so the first read fetches the
+  // tail of the file with a single stream, at least minTailLength bytes long.
+  // Later reads are served from that tail, and only reads starting before it
+  // open a new stream to fetch a longer one.
+  private static class RemoteSource implements Source {
+
+    private final PartitionRemoteFileOps partitionRemoteFileOps;
+    private final String remoteRelativePath;
+    private final long fileSize;
+    private final long minTailLength;
+    private byte[] tail = new byte[0];
+
+    public RemoteSource(PartitionRemoteFileOps partitionRemoteFileOps,
+                        String remoteRelativePath,
+                        long fileSize,
+                        long minTailLength) {
+      this.partitionRemoteFileOps = partitionRemoteFileOps;
+      this.remoteRelativePath = remoteRelativePath;
+      this.fileSize = fileSize;
+      this.minTailLength = minTailLength;
+    }
+
+    @Override
+    public byte[] read(long position, int length) throws IOException {
+      if (position < fileSize - tail.length) {
+        readTail(Math.min(fileSize, Math.max(fileSize - position, minTailLength)));
       }
-      getHashIndex()[i] = offset;
+      int off = (int) (position - (fileSize - tail.length));
+      return Arrays.copyOfRange(tail, off, off + length);
     }
 
-    maxUncompressedBufferSize = (int) EncodingHelper.decodeLittleEndianFixedWidthLong(footer, footer.length - 8, 4);
-    if (maxUncompressedBufferSize < 0) {
-      throw new IOException(String.format("Read an invalid max uncompressed buffer size of %d!", maxUncompressedBufferSize));
+    private void readTail(long tailLength) throws IOException {
+      byte[] result = new byte[(int) tailLength];
+      long position = fileSize - tailLength;
+      InputStream inputStream = partitionRemoteFileOps.getInputStream(remoteRelativePath);
+      try {
+        long skipped = 0;
+        while (skipped < position) {
+          long numBytes = inputStream.skip(position - skipped);
+          if (numBytes <= 0) {
+            throw new IOException("Failed to skip to offset " + position + " of remote file " + remoteRelativePath);
+          }
+          skipped += numBytes;
+        }
+        new DataInputStream(inputStream).readFully(result);
+      } finally {
+        inputStream.close();
+      }
+      tail = result;
     }
-    maxCompressedBufferSize = (int) EncodingHelper.decodeLittleEndianFixedWidthLong(footer, footer.length - 4, 4);
-    if (maxCompressedBufferSize < 0) {
-      throw new IOException(String.format("Read an invalid max uncompressed buffer size of %d!", maxCompressedBufferSize));
+  }
+
+  public Footer(FileChannel channel, int hashIndexBits) throws IOException {
+    this(channel, hashIndexBits, false);
+  }
+
+  // Note: the compact hash index only applies to version 1 files, version 2
+  // files always load their (much smaller) block index on the heap.
+  public Footer(FileChannel channel, int hashIndexBits, boolean compactHashIndex) throws IOException {
+    this(new ChannelSource(channel), channel.size(), hashIndexBits, compactHashIndex);
+  }
+
+  // Read the footer of a remote file, without reading its data section
+  public Footer(PartitionRemoteFileOps partitionRemoteFileOps,
+                String remoteRelativePath,
+                int hashIndexBits) throws IOException {
+    this(partitionRemoteFileOps, remoteRelativePath, getRemoteFileSize(partitionRemoteFileOps, remoteRelativePath),
+        hashIndexBits);
+  }
+
+  // The first read covers version 1 footers, and version 2 footers of up to
+  // REMOTE_BLOCK_ENTRIES_READ_AHEAD bytes of block entries
+  private Footer(PartitionRemoteFileOps partitionRemoteFileOps,
+                 String remoteRelativePath,
+                 long fileSize,
+                 int hashIndexBits) throws IOException {
+    this(new RemoteSource(partitionRemoteFileOps, remoteRelativePath, fileSize,
+        (1L << hashIndexBits) * 8 + V2_TRAILER_LENGTH + REMOTE_BLOCK_ENTRIES_READ_AHEAD),
+        fileSize, hashIndexBits, false);
+  }
+
+  private Footer(Source source, long fileSize, int hashIndexBits, boolean compactHashIndex) throws IOException {
+    this.fileSize = fileSize;
+    formatVersion = readFormatVersion(source, fileSize);
+    if (formatVersion == FORMAT_VERSION_1) {
+      blockIndex = null;
+      blockSize = 0;
+      final int hashIndexSize = 1 << hashIndexBits;
+      footerLength = hashIndexSize * 8 + 8;
+      if (getFooterLength() > getFileSize()) {
+        throw new IOException("Tried to read " + getFooterLength() + " bytes of footer, but only got " + getFileSize() + " bytes!");
+      }
+
+      byte[] footer = source.read(getFileSize() - getFooterLength(), getFooterLength());
+
+      // Validate offsets. Only the on-heap index is filled in during validation.
+      long[] offsets = compactHashIndex ? null : new long[hashIndexSize];
+      long previousOffset = -1;
+      for (int i = 0; i < hashIndexSize; i++) {
+        final long offset = EncodingHelper.decodeLittleEndianFixedWidthLong(footer, i * 8, 8);
+        if (offset < -1) {
+          throw new IOException(String.format("Read an unexpectedly negative block offset (%d) at block position %d!", offset, i));
+        }
+        if (offset != -1 && i > 0 && previousOffset != -1 && previousOffset >= offset) {
+          throw new IOException(String.format("Discovered an offset inversion! block %d offset: %d, block %d offset: %d", i-1, previousOffset, i, offset));
+        }
+        if (offsets != null) {
+          offsets[i] = offset;
+        }
+        previousOffset = offset;
+      }
+      if (compactHashIndex) {
+        hashIndex = new CompactHashIndex(footer, 0, hashIndexSize, getDataLength());
+      } else {
+        hashIndex = new LongArrayHashIndex(offsets, getDataLength());
+      }
+
+      maxUncompressedBufferSize = (int) EncodingHelper.decodeLittleEndianFixedWidthLong(footer, footer.length - 8, 4);
+      if (maxUncompressedBufferSize < 0) {
+        throw new IOException(String.format("Read an invalid max uncompressed buffer size of %d!", maxUncompressedBufferSize));
+      }
+      maxCompressedBufferSize = (int) EncodingHelper.decodeLittleEndianFixedWidthLong(footer, footer.length - 4, 4);
+      if (maxCompressedBufferSize < 0) {
+        throw new IOException(String.format("Read an invalid max uncompressed buffer size of %d!", maxCompressedBufferSize));
+      }
+    } else if (formatVersion == FORMAT_VERSION_2) {
+      hashIndex = null;
+      byte[] trailer = source.read(fileSize - V2_TRAILER_LENGTH, V2_TRAILER_LENGTH);
+      final int numBlocks = decodeInt(trailer, 0);
+      maxUncompressedBufferSize = decodeInt(trailer, 4);
+      maxCompressedBufferSize = decodeInt(trailer, 8);
+      final int keyHashSize = decodeInt(trailer, 12);
+      blockSize = decodeInt(trailer, 16);
+      if (numBlocks < 0 || maxUncompressedBufferSize < 0 || maxCompressedBufferSize < 0 || keyHashSize <= 0) {
+        throw new IOException(String.format("Read an invalid footer trailer: %d blocks, max uncompressed block size %d, max compressed block size %d, key hash size %d",
+            numBlocks, maxUncompressedBufferSize, maxCompressedBufferSize, keyHashSize));
+      }
+      final int hashIndexSize = 1 << hashIndexBits;
+      final int blockEntryLength = getV2BlockEntryLength(keyHashSize);
+      final long longFooterLength = (long) numBlocks * blockEntryLength
+          + (long) hashIndexSize * V2_HASH_PREFIX_ENTRY_LENGTH + V2_TRAILER_LENGTH;
+      if (longFooterLength > Math.min(fileSize, Integer.MAX_VALUE)) {
+        throw new IOException(String.format("Footer of %d blocks does not fit in a file of %d bytes", numBlocks, fileSize));
+      }
+      footerLength = (int) longFooterLength;
+      byte[] footer = source.read(getDataLength(), getFooterLength());
+
+      // Blocks are increasing and located in the data section
+      long[] blockOffsets = new long[numBlocks];
+      int[] blockLengths = new int[numBlocks];
+      byte[] blockFirstKeyHashes = new byte[numBlocks * keyHashSize];
+      long previousBlockEnd = 0;
+      for (int i = 0; i < numBlocks; ++i) {
+        final int off = i * blockEntryLength;
+        blockOffsets[i] = EncodingHelper.decodeLittleEndianFixedWidthLong(footer, off, 8);
+        blockLengths[i] = decodeInt(footer, off + 8);
+        if (blockOffsets[i] < previousBlockEnd || blockLengths[i] < 0 || blockLengths[i] > maxCompressedBufferSize
+            || blockOffsets[i] + blockLengths[i] > getDataLength()) {
+          throw new IOException(String.format("Read an invalid block %d at offset %d of length %d", i, blockOffsets[i], blockLengths[i]));
+        }
+        System.arraycopy(footer, off + 12, blockFirstKeyHashes, i * keyHashSize, keyHashSize);
+        previousBlockEnd = blockOffsets[i] + blockLengths[i];
+      }
+
+      // Block ranges of non-empty hash prefixes are increasing and can only share their boundaries
+      int[] hashPrefixBlocks = new int[hashIndexSize * 2];
+      final int hashPrefixesOff = numBlocks * blockEntryLength;
+      int previousLastBlock = 0;
+      for (int i = 0; i < hashIndexSize; ++i) {
+        final int firstBlock = decodeInt(footer, hashPrefixesOff + i * V2_HASH_PREFIX_ENTRY_LENGTH);
+        final int lastBlock = decodeInt(footer, hashPrefixesOff + i * V2_HASH_PREFIX_ENTRY_LENGTH + 4);
+        if (firstBlock != -1 || lastBlock != -1) {
+          if (firstBlock < previousLastBlock || lastBlock < firstBlock || lastBlock >= numBlocks) {
+            throw new IOException(String.format("Read an invalid block range [%d, %d] for hash prefix %d", firstBlock, lastBlock, i));
+          }
+          previousLastBlock = lastBlock;
+        }
+        hashPrefixBlocks[i * 2] = firstBlock;
+        hashPrefixBlocks[i * 2 + 1] = lastBlock;
+      }
+      blockIndex = new CueballBlockIndex(keyHashSize, hashPrefixBlocks, blockOffsets, blockLengths, blockFirstKeyHashes);
+    } else {
+      throw new IOException("Unsupported Cueball format version: " + formatVersion);
+    }
+  }
+
+  // Offset, compressed length and first key hash
+  public static int getV2BlockEntryLength(int keyHashSize) {
+    return 8 + 4 + keyHashSize;
+  }
+
+  // Return 0 for version 1 files, which do not target a block size
+  public static int readBlockSize(String path) throws IOException {
+    FileInputStream inputStream = new FileInputStream(path);
+    try {
+      FileChannel channel = inputStream.getChannel();
+      Source source = new ChannelSource(channel);
+      if (readFormatVersion(source, channel.size()) == FORMAT_VERSION_1) {
+        return 0;
+      }
+      return decodeInt(source.read(channel.size() - V2_TRAILER_LENGTH, V2_TRAILER_LENGTH), 16);
+    } finally {
+      inputStream.close();
+    }
+  }
+
+  private static long getRemoteFileSize(PartitionRemoteFileOps partitionRemoteFileOps,
+                                        String remoteRelativePath) throws IOException {
+    long fileSize = partitionRemoteFileOps.getSize(remoteRelativePath);
+    if (fileSize < 0) {
+      throw new IOException("Cannot read footer of remote file " + remoteRelativePath + " of unknown size from "
+          + partitionRemoteFileOps);
+    }
+    return fileSize;
+  }
+
+  private static int readFormatVersion(Source source, long fileSize) throws IOException {
+    if (fileSize < 8) {
+      return FORMAT_VERSION_1;
     }
+    byte[] versionAndMagic = source.read(fileSize - 8, 8);
+    if (decodeInt(versionAndMagic, 4) != VERSIONED_FOOTER_MAGIC) {
+      return FORMAT_VERSION_1;
+    }
+    return decodeInt(versionAndMagic, 0);
   }
 
-  public long[] getHashIndex() {
+  private static int decodeInt(byte[] buffer, int off) {
+    return (int) EncodingHelper.decodeLittleEndianFixedWidthLong(buffer, off, 4);
+  }
+
+  public int getFormatVersion() {
+    return formatVersion;
+  }
+
+  // Null for version 2 files, see getBlockIndex()
+  public HashIndex getHashIndex() {
     return hashIndex;
   }
 
+  // Null for version 1 files
+  public CueballBlockIndex getBlockIndex() {
+    return blockIndex;
+  }
+
+  public int getBlockSize() {
+    return blockSize;
+  }
+
   public int getMaxCompressedBufferSize() {
     return maxCompressedBufferSize;
   }
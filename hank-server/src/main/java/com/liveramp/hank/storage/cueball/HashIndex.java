@@ -0,0 +1,31 @@
+/**
+ *  Copyright 2013 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.hank.storage.cueball;
+
+/**
+ * Maps each hash prefix to the offset of its block in a Cueball file.
+ */
+public interface HashIndex {
+
+  // Return -1 when there is no block for the given hash prefix
+  public long getBlockOffset(int hashPrefix);
+
+  // Return the compressed length of the block of the given hash prefix, 0 when there is no block
+  public int getBlockLength(int hashPrefix);
+
+  public int size();
+}
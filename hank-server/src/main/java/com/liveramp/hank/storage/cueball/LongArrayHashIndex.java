@@ -0,0 +1,62 @@
+/**
+ *  Copyright 2013 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.hank.storage.cueball;
+
+/**
+ * On-heap hash index storing absolute block offsets.
+ */
+public class LongArrayHashIndex implements HashIndex {
+
+  private final long[] blockOffsets;
+  private final long dataLength;
+
+  // Build from the block offsets found in a Cueball footer (-1 for hash prefixes that do not map to any block),
+  // followed by a data section of the given length. Hash prefixes without a block are given, in place, the offset
+  // of the next block so that the length of every block is the difference of two consecutive offsets.
+  public LongArrayHashIndex(long[] blockOffsets, long dataLength) {
+    this.blockOffsets = blockOffsets;
+    this.dataLength = dataLength;
+    long nextOffset = dataLength;
+    for (int i = blockOffsets.length - 1; i >= 0; --i) {
+      if (blockOffsets[i] == -1) {
+        blockOffsets[i] = nextOffset;
+      } else {
+        nextOffset = blockOffsets[i];
+      }
+    }
+  }
+
+  @Override
+  public long getBlockOffset(int hashPrefix) {
+    if (getBlockLength(hashPrefix) == 0) {
+      return -1;
+    } else {
+      return blockOffsets[hashPrefix];
+    }
+  }
+
+  @Override
+  public int getBlockLength(int hashPrefix) {
+    long blockEnd = hashPrefix + 1 < blockOffsets.length ? blockOffsets[hashPrefix + 1] : dataLength;
+    return (int) (blockEnd - blockOffsets[hashPrefix]);
+  }
+
+  @Override
+  public int size() {
+    return blockOffsets.length;
+  }
+}
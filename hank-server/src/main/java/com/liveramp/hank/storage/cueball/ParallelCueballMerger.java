@@ -0,0 +1,296 @@
+/**
+ *  Copyright 2013 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.hank.storage.cueball;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.log4j.Logger;
+
+import com.liveramp.hank.compression.cueball.CueballCompressionCodec;
+import com.liveramp.hank.util.EncodingHelper;
+import com.liveramp.hank.util.FormatUtils;
+import com.liveramp.hank.util.HankTimer;
+
+/**
+ * Merges ranges of hash prefixes concurrently. Hash prefixes are merged
+ * independently from each other, so each range is merged into its own segment
+ * file, and segments are then concatenated and given the footer (and Bloom
+ * filter) that a sequential merge would have written. The result is byte for
+ * byte the file written by {@link CueballMerger}.
+ *
+ * Blocks of format version 2 files are cut by size across hash prefixes, and
+ * depend on everything written before them, so version 2 bases are merged
+ * sequentially.
+ */
+public final class ParallelCueballMerger implements ICueballMerger {
+
+  private static final Logger LOG = Logger.getLogger(ParallelCueballMerger.class);
+
+  private static final String SEGMENT_SUFFIX = ".segment";
+
+  private final int numThreads;
+  private final int bloomFilterBitsPerKey;
+
+  private static class MergerThreadFactory implements ThreadFactory {
+
+    private int threadId = 0;
+
+    @Override
+    public synchronized Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "Cueball Merger #" + threadId++);
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+
+  public ParallelCueballMerger(int numThreads) {
+    this(numThreads, 0);
+  }
+
+  // Bloom filters are written as by CueballMerger(bloomFilterBitsPerKey)
+  public ParallelCueballMerger(int numThreads, int bloomFilterBitsPerKey) {
+    if (numThreads <= 0) {
+      throw new IllegalArgumentException("Number of merge threads must be positive: " + numThreads);
+    }
+    this.numThreads = numThreads;
+    this.bloomFilterBitsPerKey = bloomFilterBitsPerKey;
+  }
+
+  @Override
+  public void merge(final CueballFilePath base,
+                    final List<CueballFilePath> deltas,
+                    final String newBasePath,
+                    final int keyHashSize,
+                    final int valueSize,
+                    final ValueTransformer transformer,
+                    final int hashIndexBits,
+                    final CueballCompressionCodec compressionCodec) throws IOException {
+    final int numHashPrefixes = 1 << hashIndexBits;
+    final int numSegments = Math.min(numThreads, numHashPrefixes);
+    if (numSegments <= 1 || Footer.readBlockSize(base.getPath()) > 0) {
+      new CueballMerger(bloomFilterBitsPerKey).merge(base, deltas, newBasePath, keyHashSize, valueSize, transformer, hashIndexBits,
+          compressionCodec);
+      return;
+    }
+
+    final int newBaseBloomFilterBitsPerKey = CueballMerger.getBloomFilterBitsPerKey(base, bloomFilterBitsPerKey);
+
+    HankTimer timer = new HankTimer();
+    final int[] firstHashPrefixes = new int[numSegments + 1];
+    final String[] segmentPaths = new String[numSegments];
+    for (int i = 0; i < numSegments; ++i) {
+      firstHashPrefixes[i] = (int) ((long) numHashPrefixes * i / numSegments);
+      segmentPaths[i] = newBasePath + SEGMENT_SUFFIX + i;
+    }
+    firstHashPrefixes[numSegments] = numHashPrefixes;
+
+    ExecutorService executor = Executors.newFixedThreadPool(numSegments, new MergerThreadFactory());
+    try {
+      // Merge all segments
+      List<Future<Void>> segmentMerges = new ArrayList<Future<Void>>();
+      for (int i = 0; i < numSegments; ++i) {
+        final int segment = i;
+        segmentMerges.add(executor.submit(new Callable<Void>() {
+          @Override
+          public Void call() throws IOException {
+            mergeSegment(base, deltas, segmentPaths[segment], keyHashSize, valueSize, transformer, hashIndexBits,
+                compressionCodec, newBaseBloomFilterBitsPerKey, firstHashPrefixes[segment], firstHashPrefixes[segment + 1]);
+            return null;
+          }
+        }));
+      }
+      for (Future<Void> segmentMerge : segmentMerges) {
+        try {
+          segmentMerge.get();
+        } catch (InterruptedException e) {
+          throw new IOException("Interrupted while waiting for segment merges", e);
+        } catch (ExecutionException e) {
+          throw new IOException("Failed to merge segment", e.getCause());
+        }
+      }
+      // Stitch segments together
+      concatenateSegments(segmentPaths, firstHashPrefixes, newBasePath, hashIndexBits);
+      if (newBaseBloomFilterBitsPerKey > 0) {
+        String[] segmentBloomFilterPaths = new String[numSegments];
+        for (int i = 0; i < numSegments; ++i) {
+          segmentBloomFilterPaths[i] = CueballBloomFilter.getPath(segmentPaths[i]);
+        }
+        concatenateBloomFilterSegments(segmentBloomFilterPaths, firstHashPrefixes,
+            CueballBloomFilter.getPath(newBasePath), hashIndexBits);
+      }
+    } finally {
+      executor.shutdownNow();
+      for (String segmentPath : segmentPaths) {
+        new File(segmentPath).delete();
+        new File(CueballBloomFilter.getPath(segmentPath)).delete();
+      }
+    }
+    LOG.info("Merged " + (deltas.size() + 1) + " files into " + newBasePath + " with " + numSegments
+        + " threads in " + FormatUtils.formatSecondsDuration(timer.getDurationMs() / 1000));
+  }
+
+  private static void mergeSegment(CueballFilePath base,
+                                   List<CueballFilePath> deltas,
+                                   String segmentPath,
+                                   int keyHashSize,
+                                   int valueSize,
+                                   ValueTransformer transformer,
+                                   int hashIndexBits,
+                                   CueballCompressionCodec compressionCodec,
+                                   int bloomFilterBitsPerKey,
+                                   int firstHashPrefix,
+                                   int endHashPrefix) throws IOException {
+    CueballStreamBufferMergeSort cueballStreamBufferMergeSort = new CueballStreamBufferMergeSort(base,
+        deltas,
+        keyHashSize,
+        valueSize,
+        hashIndexBits,
+        compressionCodec,
+        transformer,
+        firstHashPrefix,
+        endHashPrefix);
+
+    CueballBloomFilterWriter bloomFilterWriter = null;
+    if (bloomFilterBitsPerKey > 0) {
+      bloomFilterWriter = new CueballBloomFilterWriter(new FileOutputStream(CueballBloomFilter.getPath(segmentPath)),
+          hashIndexBits, bloomFilterBitsPerKey);
+    }
+
+    // Segments are written in format version 1, each as a complete file
+    CueballWriter segmentWriter = new CueballWriter(new FileOutputStream(segmentPath), keyHashSize, null, valueSize,
+        compressionCodec, hashIndexBits, new CueballOptions(), bloomFilterWriter);
+
+    while (true) {
+      KeyHashAndValueAndStreamIndex keyValuePair = cueballStreamBufferMergeSort.nextKeyHashAndValueAndStreamIndex();
+      if (keyValuePair == null) {
+        break;
+      }
+      segmentWriter.writeHash(keyValuePair.keyHash, keyValuePair.value);
+    }
+
+    cueballStreamBufferMergeSort.close();
+    segmentWriter.close();
+  }
+
+  // Concatenate the data of all segments, and write the footer indexing all of them
+  private static void concatenateSegments(String[] segmentPaths,
+                                          int[] firstHashPrefixes,
+                                          String newBasePath,
+                                          int hashIndexBits) throws IOException {
+    long[] hashIndex = new long[1 << hashIndexBits];
+    Arrays.fill(hashIndex, -1);
+    long maxUncompressedBlockSize = 0;
+    long maxCompressedBlockSize = 0;
+    long numBytesWritten = 0;
+    FileOutputStream outputStream = new FileOutputStream(newBasePath);
+    try {
+      FileChannel outputChannel = outputStream.getChannel();
+      for (int i = 0; i < segmentPaths.length; ++i) {
+        FileInputStream inputStream = new FileInputStream(segmentPaths[i]);
+        try {
+          FileChannel inputChannel = inputStream.getChannel();
+          Footer footer = new Footer(inputChannel, hashIndexBits);
+          HashIndex segmentHashIndex = footer.getHashIndex();
+          for (int hashPrefix = firstHashPrefixes[i]; hashPrefix < firstHashPrefixes[i + 1]; ++hashPrefix) {
+            long offset = segmentHashIndex.getBlockOffset(hashPrefix);
+            if (offset != -1) {
+              hashIndex[hashPrefix] = numBytesWritten + offset;
+            }
+          }
+          maxUncompressedBlockSize = Math.max(maxUncompressedBlockSize, footer.getMaxUncompressedBufferSize());
+          maxCompressedBlockSize = Math.max(maxCompressedBlockSize, footer.getMaxCompressedBufferSize());
+          transferFully(inputChannel, footer.getDataLength(), outputChannel);
+          numBytesWritten += footer.getDataLength();
+        } finally {
+          inputStream.close();
+        }
+      }
+      outputStream.write(CueballWriter.getHashIndexFooter(hashIndex, maxUncompressedBlockSize, maxCompressedBlockSize));
+    } finally {
+      outputStream.close();
+    }
+  }
+
+  // Concatenate the words of all Bloom filter segments, and write the footer indexing all of them
+  private static void concatenateBloomFilterSegments(String[] segmentPaths,
+                                                     int[] firstHashPrefixes,
+                                                     String newBloomFilterPath,
+                                                     int hashIndexBits) throws IOException {
+    final int footerLength = CueballBloomFilter.getFooterLength(hashIndexBits);
+    long[] blockStarts = new long[1 << hashIndexBits];
+    int numHashFunctions = 0;
+    int bitsPerKey = 0;
+    long numWordsWritten = 0;
+    FileOutputStream outputStream = new FileOutputStream(newBloomFilterPath);
+    try {
+      FileChannel outputChannel = outputStream.getChannel();
+      for (int i = 0; i < segmentPaths.length; ++i) {
+        FileInputStream inputStream = new FileInputStream(segmentPaths[i]);
+        try {
+          FileChannel inputChannel = inputStream.getChannel();
+          long dataLength = inputChannel.size() - footerLength;
+          byte[] footer = new byte[footerLength];
+          ByteBuffer footerBuffer = ByteBuffer.wrap(footer);
+          while (footerBuffer.hasRemaining()) {
+            if (inputChannel.read(footerBuffer, dataLength + footerBuffer.position()) < 0) {
+              throw new IOException("Failed to read Bloom filter footer of " + segmentPaths[i]);
+            }
+          }
+          // Empty blocks start where the next non-empty block starts, possibly in the next segment
+          for (int hashPrefix = firstHashPrefixes[i]; hashPrefix < firstHashPrefixes[i + 1]; ++hashPrefix) {
+            blockStarts[hashPrefix] = numWordsWritten
+                + EncodingHelper.decodeLittleEndianFixedWidthLong(footer, hashPrefix * 8, 8);
+          }
+          numHashFunctions = (int) EncodingHelper.decodeLittleEndianFixedWidthLong(footer, footerLength - 8, 4);
+          bitsPerKey = (int) EncodingHelper.decodeLittleEndianFixedWidthLong(footer, footerLength - 4, 4);
+          transferFully(inputChannel, dataLength, outputChannel);
+          numWordsWritten += dataLength / 8;
+        } finally {
+          inputStream.close();
+        }
+      }
+      outputStream.write(CueballBloomFilterWriter.getFooter(blockStarts, numHashFunctions, bitsPerKey));
+    } finally {
+      outputStream.close();
+    }
+  }
+
+  private static void transferFully(FileChannel inputChannel, long length, FileChannel outputChannel) throws IOException {
+    long position = 0;
+    while (position < length) {
+      long transferred = inputChannel.transferTo(position, length - position, outputChannel);
+      if (transferred <= 0) {
+        throw new IOException("Failed to transfer " + length + " bytes, only transferred " + position);
+      }
+      position += transferred;
+    }
+  }
+}
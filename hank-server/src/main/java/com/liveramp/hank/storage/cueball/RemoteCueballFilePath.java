@@ -0,0 +1,58 @@
+/**
+ *  Copyright 2013 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.hank.storage.cueball;
+
+import java.io.IOException;
+
+import com.liveramp.hank.compression.cueball.CueballCompressionCodec;
+import com.liveramp.hank.storage.PartitionRemoteFileOps;
+
+/**
+ * A Cueball file that is streamed directly from the remote partition, instead
+ * of being copied to the local file system first. The path is relative to the
+ * remote partition root.
+ */
+public class RemoteCueballFilePath extends CueballFilePath {
+
+  private final PartitionRemoteFileOps partitionRemoteFileOps;
+
+  public RemoteCueballFilePath(PartitionRemoteFileOps partitionRemoteFileOps, String remoteRelativePath) {
+    super(remoteRelativePath);
+    this.partitionRemoteFileOps = partitionRemoteFileOps;
+  }
+
+  public PartitionRemoteFileOps getPartitionRemoteFileOps() {
+    return partitionRemoteFileOps;
+  }
+
+  @Override
+  public CueballStreamBuffer openStreamBuffer(int relativeIndex,
+                                              int keyHashSize,
+                                              int valueSize,
+                                              int hashIndexBits,
+                                              CueballCompressionCodec compressionCodec,
+                                              int firstHashPrefix,
+                                              int endHashPrefix) throws IOException {
+    return new CueballStreamBuffer(partitionRemoteFileOps, getPath(), relativeIndex, keyHashSize, valueSize,
+        hashIndexBits, compressionCodec, firstHashPrefix, endHashPrefix);
+  }
+
+  @Override
+  public String toString() {
+    return partitionRemoteFileOps.getRemoteAbsolutePath(getPath());
+  }
+}
@@ -22,6 +22,7 @@ import com.liveramp.hank.partition_server.PartitionUpdateTaskStatistics;
 import com.liveramp.hank.storage.PartitionRemoteFileOps;
 import com.liveramp.hank.storage.cueball.Cueball;
 import com.liveramp.hank.storage.cueball.CueballFilePath;
+import com.liveramp.hank.storage.cueball.CueballPartitionUpdater;
 import com.liveramp.hank.storage.cueball.ValueTransformer;
 import com.liveramp.hank.storage.incremental.IncrementalPartitionUpdater;
 import com.liveramp.hank.storage.incremental.IncrementalUpdatePlan;
@@ -48,19 +49,34 @@ public abstract class AbstractCurlyPartitionUpdater extends IncrementalPartition
     this.partitionRemoteFileOps = partitionRemoteFileOps;
   }
 
+  // Adjusts the record file offset at the beginning of each key file value. Whatever follows it
+  // (offset in block or record length) is relative to the record itself and left untouched.
+  // When inlining values, the offset follows the tag, and inline values are left untouched.
   public static final class OffsetTransformer implements ValueTransformer {
     private final long[] offsetAdjustments;
     private final int offsetNumBytes;
+    private final boolean inlineValues;
 
     public OffsetTransformer(int offsetNumBytes, long[] offsetAdjustments) {
+      this(offsetNumBytes, offsetAdjustments, false);
+    }
+
+    public OffsetTransformer(int offsetNumBytes, long[] offsetAdjustments, boolean inlineValues) {
       this.offsetNumBytes = offsetNumBytes;
       this.offsetAdjustments = offsetAdjustments;
+      this.inlineValues = inlineValues;
     }
 
     @Override
     public void transform(byte[] buf, int valueOff, int relIndex) {
       long adjustment = offsetAdjustments[relIndex];
       if (adjustment != 0) {
+        if (inlineValues) {
+          if (buf[valueOff] != Curly.RECORD_FILE_VALUE_TAG) {
+            return;
+          }
+          ++valueOff;
+        }
         long offset = EncodingHelper.decodeLittleEndianFixedWidthLong(buf, valueOff, offsetNumBytes);
         offset += adjustment;
         EncodingHelper.encodeLittleEndianFixedWidthLong(offset, buf, valueOff, offsetNumBytes);
@@ -136,13 +152,22 @@ public abstract class AbstractCurlyPartitionUpdater extends IncrementalPartition
   private void fetchCueballVersion(DomainVersion version, String fetchRoot) throws IOException {
     String cueballFileToFetch = Cueball.getName(version);
     LOG.info("Fetching from " + partitionRemoteFileOps + " for file " + cueballFileToFetch + " to " + fetchRoot);
-    partitionRemoteFileOps.copyToLocalRoot(cueballFileToFetch, fetchRoot);
+    PartitionRemoteFileOps fetchRemoteFileOps = getFetchRemoteFileOps(partitionRemoteFileOps);
+    fetchRemoteFileOps.copyToLocalRoot(cueballFileToFetch, fetchRoot);
+    CueballPartitionUpdater.fetchBloomFilter(fetchRemoteFileOps, version, fetchRoot);
   }
 
   private void fetchCurlyVersion(DomainVersion version, String fetchRoot) throws IOException {
     String curlyFileToFetch = Curly.getName(version);
     LOG.info("Fetching from " + partitionRemoteFileOps + " for file " + curlyFileToFetch + " to " + fetchRoot);
-    partitionRemoteFileOps.copyToLocalRoot(curlyFileToFetch, fetchRoot);
+    PartitionRemoteFileOps fetchRemoteFileOps = getFetchRemoteFileOps(partitionRemoteFileOps);
+    fetchRemoteFileOps.copyToLocalRoot(curlyFileToFetch, fetchRoot);
+    // Block compression dictionaries are optional, and only written for bases
+    String dictionaryFileToFetch = Curly.getDictionaryPath(curlyFileToFetch);
+    if (partitionRemoteFileOps.exists(dictionaryFileToFetch)) {
+      LOG.info("Fetching from " + partitionRemoteFileOps + " for file " + dictionaryFileToFetch + " to " + fetchRoot);
+      fetchRemoteFileOps.copyToLocalRoot(dictionaryFileToFetch, fetchRoot);
+    }
   }
 
   @Override
@@ -36,12 +36,14 @@ import com.liveramp.hank.coordinator.Domain;
 import com.liveramp.hank.coordinator.DomainVersion;
 import com.liveramp.hank.coordinator.DomainVersionPropertiesSerialization;
 import com.liveramp.hank.hasher.Hasher;
+import com.liveramp.hank.storage.BlockCache;
 import com.liveramp.hank.storage.Compactor;
 import com.liveramp.hank.storage.Deleter;
 import com.liveramp.hank.storage.PartitionRemoteFileOps;
 import com.liveramp.hank.storage.PartitionRemoteFileOpsFactory;
 import com.liveramp.hank.storage.PartitionUpdater;
 import com.liveramp.hank.storage.Reader;
+import com.liveramp.hank.storage.ReaderResult;
 import com.liveramp.hank.storage.RemoteDomainCleaner;
 import com.liveramp.hank.storage.RemoteDomainVersionDeleter;
 import com.liveramp.hank.storage.StorageEngine;
@@ -49,10 +51,13 @@ import com.liveramp.hank.storage.StorageEngineFactory;
 import com.liveramp.hank.storage.Writer;
 import com.liveramp.hank.storage.cueball.Cueball;
 import com.liveramp.hank.storage.cueball.CueballMerger;
+import com.liveramp.hank.storage.cueball.CueballOptions;
 import com.liveramp.hank.storage.cueball.CueballStreamBufferMergeSort;
 import com.liveramp.hank.storage.incremental.IncrementalDomainVersionProperties;
 import com.liveramp.hank.storage.incremental.IncrementalStorageEngine;
 import com.liveramp.hank.storage.incremental.IncrementalUpdatePlanner;
+import com.liveramp.hank.storage.memory.InMemoryReader;
+import com.liveramp.hank.storage.memory.MemoryBudget;
 import com.liveramp.hank.util.FsUtils;
 
 /**
@@ -65,6 +70,14 @@ public class Curly extends IncrementalStorageEngine implements StorageEngine {
   static final String BASE_REGEX = ".*\\d{5}\\.base\\.curly";
   static final String DELTA_REGEX = ".*\\d{5}\\.delta\\.curly";
 
+  // When inlining values, key file values start with a tag. It is either zero, followed by the location of
+  // the record in the record file, or the size of the inline value plus one, followed by the value.
+  static final byte RECORD_FILE_VALUE_TAG = 0;
+  public static final int MAX_INLINE_VALUE_NUM_BYTES = 254;
+
+  // Block compression dictionaries are stored next to the record file of bases
+  static final String DICTIONARY_FILE_SUFFIX = ".dict";
+
   public static class Factory implements StorageEngineFactory {
 
     public static final String REMOTE_DOMAIN_ROOT_KEY = "remote_domain_root";
@@ -83,6 +96,15 @@ public class Curly extends IncrementalStorageEngine implements StorageEngine {
     private static final String BLOCK_COMPRESSION_CODEC = "block_compression_codec";
     private static final String COMPRESSED_BLOCK_SIZE_THRESHOLD = "compressed_block_size_threshold";
     private static final String OFFSET_IN_BLOCK_NUM_BYTES = "offset_in_block_num_bytes";
+    public static final String BLOOM_FILTER_BITS_PER_KEY = "bloom_filter_bits_per_key";
+    public static final String RECORD_FILE_MMAP = "record_file_mmap";
+    public static final String DECOMPRESSED_BLOCK_CACHE_CAPACITY = "decompressed_block_cache_capacity";
+    public static final String RECORD_LENGTH_NUM_BYTES = "record_length_num_bytes";
+    public static final String INLINE_VALUE_MAX_NUM_BYTES = "inline_value_max_num_bytes";
+    public static final String UNCOMPRESSED_BLOCK_SIZE_THRESHOLD = "uncompressed_block_size_threshold";
+    public static final String BLOCK_COMPRESSION_NUM_THREADS = "block_compression_num_threads";
+    public static final String BLOCK_COMPRESSION_DICTIONARY_NUM_BYTES = "block_compression_dictionary_num_bytes";
+    public static final String IN_MEMORY_MAX_NUM_BYTES = "in_memory_max_num_bytes";
 
     private static final Set<String> REQUIRED_KEYS = new HashSet<String>(Arrays.asList(REMOTE_DOMAIN_ROOT_KEY,
         RECORD_FILE_READ_BUFFER_BYTES_KEY, HASH_INDEX_BITS_KEY, MAX_ALLOWED_PART_SIZE_KEY, KEY_HASH_SIZE_KEY,
@@ -154,6 +176,84 @@ public class Curly extends IncrementalStorageEngine implements StorageEngine {
         offsetInBlockNumBytes = -1;
       }
 
+      CurlyOptions curlyOptions = new CurlyOptions();
+
+      // Bloom filters written next to key file bases (disabled by default)
+      Integer bloomFilterBitsPerKey = (Integer)options.get(BLOOM_FILTER_BITS_PER_KEY);
+      if (bloomFilterBitsPerKey != null) {
+        curlyOptions.setBloomFilterBitsPerKey(bloomFilterBitsPerKey);
+      }
+
+      // Memory mapped record file reads
+      Boolean recordFileMmap = (Boolean)options.get(RECORD_FILE_MMAP);
+      if (recordFileMmap != null) {
+        curlyOptions.setRecordFileMmap(recordFileMmap);
+      }
+
+      // Cache of decompressed record file blocks, in bytes, shared by the domain's partitions (disabled by default)
+      Object decompressedBlockCacheCapacity = options.get(DECOMPRESSED_BLOCK_CACHE_CAPACITY);
+      if (decompressedBlockCacheCapacity != null) {
+        curlyOptions.setDecompressedBlockCacheCapacity(decompressedBlockCacheCapacity instanceof Long ? (Long)decompressedBlockCacheCapacity
+            : ((Integer)decompressedBlockCacheCapacity).longValue());
+      }
+
+      // Record lengths stored in the key file, so that records are read at once (disabled by default)
+      Integer recordLengthNumBytes = (Integer)options.get(RECORD_LENGTH_NUM_BYTES);
+      if (recordLengthNumBytes != null) {
+        curlyOptions.setRecordLengthNumBytes(recordLengthNumBytes);
+      }
+      if (curlyOptions.getRecordLengthNumBytes() > 0 && blockCompressionCodec != null) {
+        throw new IOException("Option '" + RECORD_LENGTH_NUM_BYTES + "' is not supported with block compression");
+      }
+
+      // Small values stored inline in the key file (disabled by default)
+      Integer inlineValueMaxNumBytes = (Integer)options.get(INLINE_VALUE_MAX_NUM_BYTES);
+      if (inlineValueMaxNumBytes != null) {
+        curlyOptions.setInlineValueMaxNumBytes(inlineValueMaxNumBytes);
+      }
+      if (curlyOptions.getInlineValueMaxNumBytes() > MAX_INLINE_VALUE_NUM_BYTES) {
+        throw new IOException("Option '" + INLINE_VALUE_MAX_NUM_BYTES + "' cannot be larger than " + MAX_INLINE_VALUE_NUM_BYTES);
+      }
+
+      // Blocks cut on their uncompressed size, optionally compressed by a pool of threads (disabled by default)
+      Integer uncompressedBlockSizeThreshold = (Integer)options.get(UNCOMPRESSED_BLOCK_SIZE_THRESHOLD);
+      if (uncompressedBlockSizeThreshold != null) {
+        curlyOptions.setUncompressedBlockSizeThreshold(uncompressedBlockSizeThreshold);
+      }
+      Integer blockCompressionNumThreads = (Integer)options.get(BLOCK_COMPRESSION_NUM_THREADS);
+      if (blockCompressionNumThreads != null) {
+        curlyOptions.setBlockCompressionNumThreads(blockCompressionNumThreads);
+      }
+      if (curlyOptions.getBlockCompressionNumThreads() > 0
+          && (blockCompressionCodec == null || curlyOptions.getUncompressedBlockSizeThreshold() <= 0)) {
+        throw new IOException("Option '" + BLOCK_COMPRESSION_NUM_THREADS + "' requires options '"
+            + BLOCK_COMPRESSION_CODEC + "' and '" + UNCOMPRESSED_BLOCK_SIZE_THRESHOLD + "'");
+      }
+
+      // Block compression dictionary trained from a sample of the values of each base (disabled by default)
+      Integer blockCompressionDictionaryNumBytes = (Integer)options.get(BLOCK_COMPRESSION_DICTIONARY_NUM_BYTES);
+      if (blockCompressionDictionaryNumBytes != null) {
+        curlyOptions.setBlockCompressionDictionaryNumBytes(blockCompressionDictionaryNumBytes);
+      }
+      if (curlyOptions.getBlockCompressionDictionaryNumBytes() > 0) {
+        if (blockCompressionCodec == null || blockCompressionCodec.getMaxDictionaryNumBytes() == 0) {
+          throw new IOException("Option '" + BLOCK_COMPRESSION_DICTIONARY_NUM_BYTES
+              + "' requires a block compression codec that supports dictionaries");
+        }
+        if (curlyOptions.getBlockCompressionDictionaryNumBytes() > blockCompressionCodec.getMaxDictionaryNumBytes()) {
+          throw new IOException("Option '" + BLOCK_COMPRESSION_DICTIONARY_NUM_BYTES + "' cannot be larger than "
+              + blockCompressionCodec.getMaxDictionaryNumBytes() + " with block compression codec " + blockCompressionCodec);
+        }
+      }
+
+      // Serve partitions from memory while the keys and values of the domain's partitions on a host fit
+      // in this many bytes (disabled by default)
+      Object inMemoryMaxNumBytes = options.get(IN_MEMORY_MAX_NUM_BYTES);
+      if (inMemoryMaxNumBytes != null) {
+        curlyOptions.setInMemoryMaxNumBytes(inMemoryMaxNumBytes instanceof Long ? (Long)inMemoryMaxNumBytes
+            : ((Integer)inMemoryMaxNumBytes).longValue());
+      }
+
       return new Curly((Integer)options.get(KEY_HASH_SIZE_KEY),
           hasher,
           maxAllowedPartSize,
@@ -170,7 +270,8 @@ public class Curly extends IncrementalStorageEngine implements StorageEngine {
           recordFilePartitionCompactorCacheCapacity,
           blockCompressionCodec,
           compressedBlockSizeThreshold,
-          offsetInBlockNumBytes);
+          offsetInBlockNumBytes,
+          curlyOptions);
     }
 
     @Override
@@ -203,6 +304,16 @@ public class Curly extends IncrementalStorageEngine implements StorageEngine {
   private final int compressedBlockSizeThreshold;
   private final int offsetInBlockNumBytes;
   private final int cueballValueNumBytes;
+  private final int bloomFilterBitsPerKey;
+  private final boolean recordFileMmap;
+  private final BlockCache decompressedBlockCache;
+  private final int recordLengthNumBytes;
+  private final int inlineValueMaxNumBytes;
+  private final int uncompressedBlockSizeThreshold;
+  private final int blockCompressionNumThreads;
+  private final int blockCompressionDictionaryNumBytes;
+  private final long inMemoryMaxNumBytes;
+  private final MemoryBudget inMemoryBudget;
 
   public Curly(int keyHashSize,
                Hasher hasher,
@@ -221,6 +332,44 @@ public class Curly extends IncrementalStorageEngine implements StorageEngine {
                CompressionCodec blockCompressionCodec,
                int compressedBlockSizeThreshold,
                int offsetInBlockNumBytes) {
+    this(keyHashSize,
+        hasher,
+        maxAllowedPartSize,
+        hashIndexBits,
+        recordFileReadBufferBytes,
+        remoteDomainRoot,
+        partitionRemoteFileOpsFactory,
+        keyFileCompressionCodecClass,
+        domain,
+        numRemoteLeafVersionsToKeep,
+        valueFoldingCacheCapacity,
+        keyFilePartitionCacheCapacity,
+        recordFilePartitionCacheCapacity,
+        recordFilePartitionCompactorCacheCapacity,
+        blockCompressionCodec,
+        compressedBlockSizeThreshold,
+        offsetInBlockNumBytes,
+        new CurlyOptions());
+  }
+
+  public Curly(int keyHashSize,
+               Hasher hasher,
+               long maxAllowedPartSize,
+               int hashIndexBits,
+               int recordFileReadBufferBytes,
+               String remoteDomainRoot,
+               PartitionRemoteFileOpsFactory partitionRemoteFileOpsFactory,
+               Class<? extends CueballCompressionCodec> keyFileCompressionCodecClass,
+               Domain domain,
+               int numRemoteLeafVersionsToKeep,
+               int valueFoldingCacheCapacity,
+               int keyFilePartitionCacheCapacity,
+               int recordFilePartitionCacheCapacity,
+               int recordFilePartitionCompactorCacheCapacity,
+               CompressionCodec blockCompressionCodec,
+               int compressedBlockSizeThreshold,
+               int offsetInBlockNumBytes,
+               CurlyOptions options) {
     this.keyHashSize = keyHashSize;
     this.hashIndexBits = hashIndexBits;
     this.recordFileReadBufferBytes = recordFileReadBufferBytes;
@@ -235,15 +384,42 @@ public class Curly extends IncrementalStorageEngine implements StorageEngine {
     this.blockCompressionCodec = blockCompressionCodec;
     this.compressedBlockSizeThreshold = compressedBlockSizeThreshold;
     this.offsetInBlockNumBytes = offsetInBlockNumBytes;
+    this.bloomFilterBitsPerKey = options.getBloomFilterBitsPerKey();
+    this.recordFileMmap = options.getRecordFileMmap();
+    if (blockCompressionCodec != null && options.getDecompressedBlockCacheCapacity() > 0) {
+      this.decompressedBlockCache = new BlockCache(options.getDecompressedBlockCacheCapacity());
+    } else {
+      this.decompressedBlockCache = null;
+    }
+    // Record lengths are only stored when not using block compression
+    this.recordLengthNumBytes = blockCompressionCodec == null ? Math.max(0, options.getRecordLengthNumBytes()) : 0;
+    this.inlineValueMaxNumBytes = Math.max(0, options.getInlineValueMaxNumBytes());
+    this.uncompressedBlockSizeThreshold = options.getUncompressedBlockSizeThreshold();
+    this.blockCompressionNumThreads = options.getBlockCompressionNumThreads();
+    this.blockCompressionDictionaryNumBytes = blockCompressionCodec == null ? 0 : Math.max(0, options.getBlockCompressionDictionaryNumBytes());
+    this.inMemoryMaxNumBytes = options.getInMemoryMaxNumBytes();
+    if (inMemoryMaxNumBytes > 0) {
+      this.inMemoryBudget = new MemoryBudget(inMemoryMaxNumBytes);
+    } else {
+      this.inMemoryBudget = null;
+    }
 
     this.offsetNumBytes = (int)(Math.ceil(Math.ceil(Math.log(maxAllowedPartSize) / Math.log(2)) / 8.0));
 
     // Determine size of values in Cueball. If we are using block compression in Curly,
-    // the offsets stored in Cueball are appended with the offset in the block.
+    // the offsets stored in Cueball are appended with the offset in the block. Otherwise,
+    // they are optionally appended with the record length. When inlining values, they
+    // are also tagged and padded to fit the largest inline value.
+    int locationNumBytes;
     if (blockCompressionCodec == null) {
-      this.cueballValueNumBytes = offsetNumBytes;
+      locationNumBytes = offsetNumBytes + this.recordLengthNumBytes;
+    } else {
+      locationNumBytes = offsetNumBytes + offsetInBlockNumBytes;
+    }
+    if (this.inlineValueMaxNumBytes > 0) {
+      this.cueballValueNumBytes = getInlineKeyFileValueNumBytes(locationNumBytes, this.inlineValueMaxNumBytes);
     } else {
-      this.cueballValueNumBytes = offsetNumBytes + offsetInBlockNumBytes;
+      this.cueballValueNumBytes = locationNumBytes;
     }
 
     this.cueballStorageEngine = new Cueball(keyHashSize,
@@ -255,19 +431,50 @@ public class Curly extends IncrementalStorageEngine implements StorageEngine {
         keyFileCompressionCodecClass,
         domain,
         numRemoteLeafVersionsToKeep,
-        keyFilePartitionCacheCapacity);
+        keyFilePartitionCacheCapacity,
+        new CueballOptions().setBloomFilterBitsPerKey(bloomFilterBitsPerKey));
   }
 
   @Override
   public Reader getReader(DataDirectoriesConfigurator configurator, int partitionNumber) throws IOException {
-    return new CurlyReader(CurlyReader.getLatestBase(getTargetDirectory(configurator, partitionNumber)),
+    CurlyReader reader = new CurlyReader(CurlyReader.getLatestBase(getTargetDirectory(configurator, partitionNumber)),
         recordFileReadBufferBytes,
         cueballStorageEngine.getReader(configurator, partitionNumber),
         recordFilePartitionCacheCapacity,
         blockCompressionCodec,
         offsetNumBytes,
         offsetInBlockNumBytes,
-        false);
+        false,
+        new CurlyOptions()
+            .setRecordFileMmap(recordFileMmap)
+            .setRecordLengthNumBytes(recordLengthNumBytes)
+            .setInlineValueMaxNumBytes(inlineValueMaxNumBytes),
+        decompressedBlockCache,
+        domain.getId(),
+        partitionNumber);
+    if (inMemoryBudget != null) {
+      return cueballStorageEngine.getInMemoryReader(reader, configurator, partitionNumber,
+          new RecordFileValueReader(reader, recordFileReadBufferBytes), inMemoryBudget);
+    }
+    return reader;
+  }
+
+  // Reads the values of in memory partitions from the record file, at the locations stored in the key file
+  private static class RecordFileValueReader implements InMemoryReader.ValueReader {
+
+    private final ICurlyReader reader;
+    private final int readBufferSize;
+
+    public RecordFileValueReader(ICurlyReader reader, int readBufferSize) {
+      this.reader = reader;
+      this.readBufferSize = readBufferSize;
+    }
+
+    @Override
+    public void readValue(ByteBuffer location, ReaderResult result) throws IOException {
+      result.requiresBufferSize(readBufferSize);
+      reader.readRecord(location, result);
+    }
   }
 
   @Override
@@ -286,8 +493,21 @@ public class Curly extends IncrementalStorageEngine implements StorageEngine {
     IncrementalDomainVersionProperties domainVersionProperties = getDomainVersionProperties(domainVersion);
     OutputStream outputStream = partitionRemoteFileOps.getOutputStream(getName(domainVersion.getVersionNumber(),
         domainVersionProperties.isBase()));
+    // Dictionaries are only trained for bases. Deltas are compressed without one, so that they
+    // can still be appended to a base by the fast partition updater.
+    OutputStream dictionaryOutputStream = null;
+    if (blockCompressionDictionaryNumBytes > 0 && domainVersionProperties.isBase()) {
+      dictionaryOutputStream = partitionRemoteFileOps.getOutputStream(getDictionaryName(domainVersion.getVersionNumber(), true));
+    }
     return new CurlyWriter(outputStream, keyFileWriter, offsetNumBytes, valueFoldingCacheCapacity,
-        blockCompressionCodec, compressedBlockSizeThreshold, offsetInBlockNumBytes);
+        blockCompressionCodec, compressedBlockSizeThreshold, offsetInBlockNumBytes,
+        new CurlyOptions()
+            .setRecordLengthNumBytes(recordLengthNumBytes)
+            .setInlineValueMaxNumBytes(inlineValueMaxNumBytes)
+            .setUncompressedBlockSizeThreshold(uncompressedBlockSizeThreshold)
+            .setBlockCompressionNumThreads(blockCompressionNumThreads)
+            .setBlockCompressionDictionaryNumBytes(blockCompressionDictionaryNumBytes),
+        dictionaryOutputStream);
   }
 
   private IncrementalDomainVersionProperties getDomainVersionProperties(DomainVersion domainVersion) throws IOException {
@@ -355,7 +575,11 @@ public class Curly extends IncrementalStorageEngine implements StorageEngine {
           public ICurlyReader getInstance(CurlyFilePath curlyFilePath) throws IOException {
             // Note: key file reader is null as it will *not* be used
             return new CurlyReader(curlyFilePath, recordFileReadBufferBytes,
-                null, recordFilePartitionCompactorCacheCapacity, blockCompressionCodec, offsetNumBytes, offsetInBlockNumBytes, true);
+                null, recordFilePartitionCompactorCacheCapacity, blockCompressionCodec, offsetNumBytes, offsetInBlockNumBytes, true,
+                new CurlyOptions()
+                    .setRecordLengthNumBytes(recordLengthNumBytes)
+                    .setInlineValueMaxNumBytes(inlineValueMaxNumBytes),
+                null, -1, -1);
           }
         }
     );
@@ -365,10 +589,12 @@ public class Curly extends IncrementalStorageEngine implements StorageEngine {
     return new CurlyFastPartitionUpdater(domain,
         getPartitionRemoteFileOps(partNum),
         new CurlyMerger(),
-        new CueballMerger(),
+        new CueballMerger(bloomFilterBitsPerKey),
         keyHashSize,
         offsetNumBytes,
         offsetInBlockNumBytes,
+        recordLengthNumBytes,
+        inlineValueMaxNumBytes,
         hashIndexBits,
         getCompressionCodec(),
         localDir);
@@ -442,6 +668,19 @@ public class Curly extends IncrementalStorageEngine implements StorageEngine {
     return s + ".curly";
   }
 
+  public static String getDictionaryName(int versionNumber, boolean base) {
+    return getDictionaryPath(getName(versionNumber, base));
+  }
+
+  public static String getDictionaryPath(String recordFilePath) {
+    return recordFilePath + DICTIONARY_FILE_SUFFIX;
+  }
+
+  // Size of key file values that are either tagged inline values or tagged record locations
+  static int getInlineKeyFileValueNumBytes(int locationNumBytes, int inlineValueMaxNumBytes) {
+    return 1 + Math.max(locationNumBytes, inlineValueMaxNumBytes);
+  }
+
   public static String getName(DomainVersion domainVersion) throws IOException {
     return getName(domainVersion.getVersionNumber(), IncrementalDomainVersionProperties.isBase(domainVersion));
   }
@@ -462,6 +701,14 @@ public class Curly extends IncrementalStorageEngine implements StorageEngine {
         + ", blockCompressionCodec=" + blockCompressionCodec
         + ", compressedBlockSizeThreshold=" + compressedBlockSizeThreshold
         + ", offsetInBlockNumBytes=" + offsetInBlockNumBytes
+        + ", recordFileMmap=" + recordFileMmap
+        + ", decompressedBlockCache=" + (decompressedBlockCache != null)
+        + ", recordLengthNumBytes=" + recordLengthNumBytes
+        + ", inlineValueMaxNumBytes=" + inlineValueMaxNumBytes
+        + ", uncompressedBlockSizeThreshold=" + uncompressedBlockSizeThreshold
+        + ", blockCompressionNumThreads=" + blockCompressionNumThreads
+        + ", blockCompressionDictionaryNumBytes=" + blockCompressionDictionaryNumBytes
+        + ", inMemoryMaxNumBytes=" + inMemoryMaxNumBytes
         + "]";
   }
 
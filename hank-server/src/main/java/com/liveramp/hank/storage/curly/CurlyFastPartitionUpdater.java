@@ -40,6 +40,7 @@ public class CurlyFastPartitionUpdater extends AbstractCurlyPartitionUpdater {
 
   private final int keyHashSize;
   private final int offsetNumBytes;
+  private final boolean inlineValues;
   private final int valueSize;
   private final int hashIndexBits;
   private final CueballCompressionCodec compressionCodec;
@@ -56,14 +57,55 @@ public class CurlyFastPartitionUpdater extends AbstractCurlyPartitionUpdater {
                                    int hashIndexBits,
                                    CueballCompressionCodec compressionCodec,
                                    String localPartitionRoot) throws IOException {
+    this(domain, partitionRemoteFileOps, curlyMerger, cueballMerger, keyHashSize, offsetNumBytes,
+        offsetInBlockNumBytes, 0, hashIndexBits, compressionCodec, localPartitionRoot);
+  }
+
+  public CurlyFastPartitionUpdater(Domain domain,
+                                   PartitionRemoteFileOps partitionRemoteFileOps,
+                                   ICurlyMerger curlyMerger,
+                                   ICueballMerger cueballMerger,
+                                   int keyHashSize,
+                                   int offsetNumBytes,
+                                   int offsetInBlockNumBytes,
+                                   int recordLengthNumBytes,
+                                   int hashIndexBits,
+                                   CueballCompressionCodec compressionCodec,
+                                   String localPartitionRoot) throws IOException {
+    this(domain, partitionRemoteFileOps, curlyMerger, cueballMerger, keyHashSize, offsetNumBytes,
+        offsetInBlockNumBytes, recordLengthNumBytes, 0, hashIndexBits, compressionCodec, localPartitionRoot);
+  }
+
+  public CurlyFastPartitionUpdater(Domain domain,
+                                   PartitionRemoteFileOps partitionRemoteFileOps,
+                                   ICurlyMerger curlyMerger,
+                                   ICueballMerger cueballMerger,
+                                   int keyHashSize,
+                                   int offsetNumBytes,
+                                   int offsetInBlockNumBytes,
+                                   int recordLengthNumBytes,
+                                   int inlineValueMaxNumBytes,
+                                   int hashIndexBits,
+                                   CueballCompressionCodec compressionCodec,
+                                   String localPartitionRoot) throws IOException {
     super(domain, partitionRemoteFileOps, localPartitionRoot);
     this.keyHashSize = keyHashSize;
     this.offsetNumBytes = offsetNumBytes;
+    // Key file values hold the offset, followed by either the offset in block or the record length
+    int keyFileValueSize;
     if (offsetInBlockNumBytes > 0) {
-      this.valueSize = offsetNumBytes + offsetInBlockNumBytes;
+      keyFileValueSize = offsetNumBytes + offsetInBlockNumBytes;
+    } else if (recordLengthNumBytes > 0) {
+      keyFileValueSize = offsetNumBytes + recordLengthNumBytes;
     } else {
-      this.valueSize = offsetNumBytes;
+      keyFileValueSize = offsetNumBytes;
+    }
+    // Inline values also tag and pad key file values
+    this.inlineValues = inlineValueMaxNumBytes > 0;
+    if (inlineValues) {
+      keyFileValueSize = Curly.getInlineKeyFileValueNumBytes(keyFileValueSize, inlineValueMaxNumBytes);
     }
+    this.valueSize = keyFileValueSize;
     this.hashIndexBits = hashIndexBits;
     this.compressionCodec = compressionCodec;
     this.curlyMerger = curlyMerger;
@@ -105,6 +147,13 @@ public class CurlyFastPartitionUpdater extends AbstractCurlyPartitionUpdater {
     if (!new File(curlyBase.getPath()).renameTo(newCurlyBaseFile)) {
       throw new IOException("Failed to move Curly base " + curlyBase.getPath() + " to " + newCurlyBasePath);
     }
+    // Move the block compression dictionary along with the base. Deltas are compressed without one.
+    File curlyBaseDictionary = new File(Curly.getDictionaryPath(curlyBase.getPath()));
+    File newCurlyBaseDictionary = new File(Curly.getDictionaryPath(newCurlyBasePath.getPath()));
+    if (curlyBaseDictionary.exists() && !curlyBaseDictionary.renameTo(newCurlyBaseDictionary)) {
+      throw new IOException("Failed to move Curly dictionary " + curlyBaseDictionary.getPath()
+          + " to " + newCurlyBaseDictionary.getPath());
+    }
 
     // Determine delta files from versions
     List<String> curlyDeltaRemoteFiles = new ArrayList<String>();
@@ -131,7 +180,7 @@ public class CurlyFastPartitionUpdater extends AbstractCurlyPartitionUpdater {
         valueSize,
         hashIndexBits,
         compressionCodec,
-        new OffsetTransformer(offsetNumBytes, offsetAdjustments),
+        new OffsetTransformer(offsetNumBytes, offsetAdjustments, inlineValues),
         statistics);
     long cueballTimeMs = timer.getDurationMs();
 
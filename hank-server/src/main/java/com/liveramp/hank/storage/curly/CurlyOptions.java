@@ -0,0 +1,124 @@
+/**
+ *  Copyright 2013 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.hank.storage.curly;
+
+/**
+ * Optional settings of the Curly storage engine, its readers and its writers. Defaults match the
+ * behavior of the Curly constructor that does not take options.
+ */
+public class CurlyOptions {
+
+  // Bloom filters written next to key file bases (disabled when 0)
+  private int bloomFilterBitsPerKey = 0;
+  // Memory mapped record file reads
+  private boolean recordFileMmap = false;
+  // Cache of decompressed record file blocks, in bytes, shared by the domain's partitions (disabled when 0)
+  private long decompressedBlockCacheCapacity = 0;
+  // Record lengths stored in the key file, so that records are read at once (disabled when 0)
+  private int recordLengthNumBytes = 0;
+  // Small values stored inline in the key file (disabled when 0)
+  private int inlineValueMaxNumBytes = 0;
+  // Blocks cut on their uncompressed size, optionally compressed by a pool of threads (disabled when <= 0)
+  private int uncompressedBlockSizeThreshold = -1;
+  private int blockCompressionNumThreads = 0;
+  // Block compression dictionary trained from a sample of the values of each base (disabled when 0)
+  private int blockCompressionDictionaryNumBytes = 0;
+  // Serve partitions from memory while the keys and values of the domain's partitions on a host fit
+  // in this many bytes (disabled when 0)
+  private long inMemoryMaxNumBytes = 0;
+
+  public int getBloomFilterBitsPerKey() {
+    return bloomFilterBitsPerKey;
+  }
+
+  public CurlyOptions setBloomFilterBitsPerKey(int bloomFilterBitsPerKey) {
+    this.bloomFilterBitsPerKey = bloomFilterBitsPerKey;
+    return this;
+  }
+
+  public boolean getRecordFileMmap() {
+    return recordFileMmap;
+  }
+
+  public CurlyOptions setRecordFileMmap(boolean recordFileMmap) {
+    this.recordFileMmap = recordFileMmap;
+    return this;
+  }
+
+  public long getDecompressedBlockCacheCapacity() {
+    return decompressedBlockCacheCapacity;
+  }
+
+  public CurlyOptions setDecompressedBlockCacheCapacity(long decompressedBlockCacheCapacity) {
+    this.decompressedBlockCacheCapacity = decompressedBlockCacheCapacity;
+    return this;
+  }
+
+  public int getRecordLengthNumBytes() {
+    return recordLengthNumBytes;
+  }
+
+  public CurlyOptions setRecordLengthNumBytes(int recordLengthNumBytes) {
+    this.recordLengthNumBytes = recordLengthNumBytes;
+    return this;
+  }
+
+  public int getInlineValueMaxNumBytes() {
+    return inlineValueMaxNumBytes;
+  }
+
+  public CurlyOptions setInlineValueMaxNumBytes(int inlineValueMaxNumBytes) {
+    this.inlineValueMaxNumBytes = inlineValueMaxNumBytes;
+    return this;
+  }
+
+  public int getUncompressedBlockSizeThreshold() {
+    return uncompressedBlockSizeThreshold;
+  }
+
+  public CurlyOptions setUncompressedBlockSizeThreshold(int uncompressedBlockSizeThreshold) {
+    this.uncompressedBlockSizeThreshold = uncompressedBlockSizeThreshold;
+    return this;
+  }
+
+  public int getBlockCompressionNumThreads() {
+    return blockCompressionNumThreads;
+  }
+
+  public CurlyOptions setBlockCompressionNumThreads(int blockCompressionNumThreads) {
+    this.blockCompressionNumThreads = blockCompressionNumThreads;
+    return this;
+  }
+
+  public int getBlockCompressionDictionaryNumBytes() {
+    return blockCompressionDictionaryNumBytes;
+  }
+
+  public CurlyOptions setBlockCompressionDictionaryNumBytes(int blockCompressionDictionaryNumBytes) {
+    this.blockCompressionDictionaryNumBytes = blockCompressionDictionaryNumBytes;
+    return this;
+  }
+
+  public long getInMemoryMaxNumBytes() {
+    return inMemoryMaxNumBytes;
+  }
+
+  public CurlyOptions setInMemoryMaxNumBytes(long inMemoryMaxNumBytes) {
+    this.inMemoryMaxNumBytes = inMemoryMaxNumBytes;
+    return this;
+  }
+}
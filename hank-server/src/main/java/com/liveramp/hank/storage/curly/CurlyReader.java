@@ -16,39 +16,70 @@
 
 package com.liveramp.hank.storage.curly;
 
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.SortedSet;
 
 import com.liveramp.hank.compression.CompressionCodec;
+import com.liveramp.hank.compression.CompressionFactory;
 import com.liveramp.hank.compression.Decompressor;
+import com.liveramp.hank.storage.BlockCache;
 import com.liveramp.hank.storage.Reader;
 import com.liveramp.hank.storage.ReaderResult;
+import com.liveramp.hank.storage.Readers;
 import com.liveramp.hank.util.Bytes;
+import com.liveramp.hank.util.ConcurrentCache;
 import com.liveramp.hank.util.EncodingHelper;
-import com.liveramp.hank.util.SynchronizedCache;
+import com.liveramp.hank.util.MemoryMappedFile;
 import com.liveramp.hank.util.UnsafeByteArrayOutputStream;
+import org.apache.commons.io.FileUtils;
 
 public class CurlyReader implements Reader, ICurlyReader {
 
+  // Records that cross a mapped segment boundary by more than this are read from the file instead
+  private static final int MAPPED_SEGMENT_OVERLAP = 1 << 20;
+
   private final Reader keyFileReader;
   private final int readBufferSize;
   private final FileChannel recordFile;
   private final int versionNumber;
-  private SynchronizedCache<ByteBuffer, ByteBuffer> cache;
+  private ConcurrentCache<ByteBuffer, ByteBuffer> cache;
   private final CompressionCodec blockCompressionCodec;
   private final int offsetNumBytes;
   private final int offsetInBlockNumBytes;
 
-  // Last decompressed block cache
+  // Last decompressed block cache. Not thread safe, only meant for sequential readers such as the compactor.
   private final boolean cacheLastDecompressedBlock;
   private ByteBuffer lastDecompressedBlock;
   private long lastDecompressedBlockOffset = -1;
 
+  // Memory mapped mode. Records are returned as read-only slices of the mapping.
+  private final MemoryMappedFile mappedRecordFile;
+
+  // Shared cache of decompressed blocks, safe to use from concurrent readers
+  private final BlockCache decompressedBlockCache;
+  private final int domainId;
+  private final int partitionNumber;
+
+  // Number of bytes of record length stored after the offset in the key file (uncompressed mode only)
+  private final int recordLengthNumBytes;
+
+  // Key file values are tagged, and either hold a small value inline or the location of the record
+  private final boolean inlineValues;
+  private final int locationNumBytes;
+
+  // Decompressors using the block compression dictionary stored next to the record file, if any
+  private final ThreadLocal<Decompressor> dictionaryBlockDecompressor;
+
   private static class Local {
 
     private final Map<CompressionCodec, Decompressor> blockDecompressors;
@@ -77,6 +108,13 @@ public class CurlyReader implements Reader, ICurlyReader {
     }
   }
 
+  // Last block decompressed during a bulk lookup
+  private static class BulkDecompressedBlock {
+
+    private long offset = -1;
+    private ByteBuffer block;
+  }
+
   private static final ThreadLocal<Local> threadLocal = new ThreadLocal<Local>() {
     @Override
     public Local initialValue() {
@@ -107,6 +145,23 @@ public class CurlyReader implements Reader, ICurlyReader {
                      int offsetNumBytes,
                      int offsetInBlockNumBytes,
                      boolean cacheLastDecompressedBlock) throws IOException {
+    this(curlyFile, recordFileReadBufferBytes, keyFileReader, cacheCapacity, blockCompressionCodec,
+        offsetNumBytes, offsetInBlockNumBytes, cacheLastDecompressedBlock, new CurlyOptions(), null, -1, -1);
+  }
+
+  // Decompressed blocks are cached in the given block cache, when not null, under the given domain and partition
+  public CurlyReader(CurlyFilePath curlyFile,
+                     int recordFileReadBufferBytes,
+                     Reader keyFileReader,
+                     int cacheCapacity,
+                     CompressionCodec blockCompressionCodec,
+                     int offsetNumBytes,
+                     int offsetInBlockNumBytes,
+                     boolean cacheLastDecompressedBlock,
+                     CurlyOptions options,
+                     BlockCache decompressedBlockCache,
+                     int domainId,
+                     int partitionNumber) throws IOException {
     this.recordFile = new FileInputStream(curlyFile.getPath()).getChannel();
     this.keyFileReader = keyFileReader;
     this.readBufferSize = recordFileReadBufferBytes;
@@ -115,7 +170,21 @@ public class CurlyReader implements Reader, ICurlyReader {
     this.offsetNumBytes = offsetNumBytes;
     this.offsetInBlockNumBytes = offsetInBlockNumBytes;
     this.cacheLastDecompressedBlock = cacheLastDecompressedBlock;
-    this.cache = new SynchronizedCache<ByteBuffer, ByteBuffer>(cacheCapacity > 0, cacheCapacity);
+    // Decompressed blocks are only cached when using block compression
+    this.decompressedBlockCache = blockCompressionCodec == null ? null : decompressedBlockCache;
+    this.domainId = domainId;
+    this.partitionNumber = partitionNumber;
+    this.recordLengthNumBytes = blockCompressionCodec == null ? Math.max(0, options.getRecordLengthNumBytes()) : 0;
+    this.inlineValues = options.getInlineValueMaxNumBytes() > 0;
+    if (blockCompressionCodec == null) {
+      this.locationNumBytes = offsetNumBytes + this.recordLengthNumBytes;
+    } else {
+      this.locationNumBytes = offsetNumBytes + offsetInBlockNumBytes;
+    }
+    if (inlineValues && offsetNumBytes <= 0) {
+      throw new IllegalArgumentException("Number of offset bytes is required when inlining values");
+    }
+    this.cache = new ConcurrentCache<ByteBuffer, ByteBuffer>(cacheCapacity > 0, cacheCapacity);
     // Check that key file is at the same version
     if (keyFileReader != null &&
         keyFileReader.getVersionNumber() != null &&
@@ -126,11 +195,53 @@ public class CurlyReader implements Reader, ICurlyReader {
     if (cacheLastDecompressedBlock) {
       lastDecompressedBlock = ByteBuffer.allocate(1);
     }
+    if (options.getRecordFileMmap()) {
+      mappedRecordFile = new MemoryMappedFile(recordFile, recordFile.size(), MAPPED_SEGMENT_OVERLAP);
+    } else {
+      mappedRecordFile = null;
+    }
+    // Load the dictionary once. Decompressors are not thread safe, each thread gets its own.
+    File dictionaryFile = new File(Curly.getDictionaryPath(curlyFile.getPath()));
+    if (blockCompressionCodec != null && dictionaryFile.exists()) {
+      if (blockCompressionCodec.getMaxDictionaryNumBytes() == 0) {
+        throw new IOException("Found dictionary " + dictionaryFile.getPath()
+            + " but block compression codec " + blockCompressionCodec + " does not support dictionaries");
+      }
+      final CompressionFactory dictionaryCompressionFactory =
+          blockCompressionCodec.getFactory(FileUtils.readFileToByteArray(dictionaryFile));
+      dictionaryBlockDecompressor = new ThreadLocal<Decompressor>() {
+        @Override
+        public Decompressor initialValue() {
+          return dictionaryCompressionFactory.getDecompressor();
+        }
+      };
+    } else {
+      dictionaryBlockDecompressor = null;
+    }
   }
 
   @Override
   // Note: the buffer in result must be at least readBufferSize long
   public void readRecord(ByteBuffer location, ReaderResult result) throws IOException {
+    readRecord(location, result, null);
+  }
+
+  // Note: the buffer in result must be at least readBufferSize long
+  private void readRecord(ByteBuffer location,
+                          ReaderResult result,
+                          BulkDecompressedBlock bulkDecompressedBlock) throws IOException {
+    if (inlineValues) {
+      int tag = location.get(location.position()) & 0xff;
+      if (tag != Curly.RECORD_FILE_VALUE_TAG) {
+        // The value is inline, no need to read the record file
+        readInlineValue(location, tag - 1, result);
+        return;
+      }
+      // Skip the tag and padding. Do not modify the given location.
+      location = location.duplicate();
+      location.position(location.position() + 1);
+      location.limit(location.position() + locationNumBytes);
+    }
     // Attempt to load value from the cache
     if (loadValueFromCache(location, result)) {
       return;
@@ -138,10 +249,22 @@ public class CurlyReader implements Reader, ICurlyReader {
     // Deep copy the location if caching is active, since result might point to location and overwrite it
     ByteBuffer locationDeepCopy = cache.isEnabled() ? Bytes.byteBufferDeepCopy(location) : null;
     if (blockCompressionCodec == null) {
-      // When not using block compression, location just contains an offset. Decode it.
-      long recordFileOffset = EncodingHelper.decodeLittleEndianFixedWidthLong(location);
-      // Directly read record into result
-      readRecordAtOffset(recordFileOffset, result);
+      // When not using block compression, location contains an offset, optionally followed by the record length.
+      // Decode them.
+      long recordFileOffset = EncodingHelper.decodeLittleEndianFixedWidthLong(location.array(),
+          location.arrayOffset() + location.position(), location.remaining() - recordLengthNumBytes);
+      int recordLength = 0;
+      if (recordLengthNumBytes > 0) {
+        recordLength = (int) EncodingHelper.decodeLittleEndianFixedWidthLong(location.array(),
+            location.arrayOffset() + location.limit() - recordLengthNumBytes, recordLengthNumBytes);
+      }
+      if (recordLength > 0 && mappedRecordFile == null) {
+        // Read the exact record into result
+        readRecordAtOffset(recordFileOffset, recordLength, result);
+      } else {
+        // Directly read record into result
+        readRecordAtOffset(recordFileOffset, result);
+      }
     } else {
       // When using block compression, location contains the block's offset and an offset in the block. Decode them.
       long recordFileBlockOffset = EncodingHelper.decodeLittleEndianFixedWidthLong(location.array(),
@@ -150,20 +273,29 @@ public class CurlyReader implements Reader, ICurlyReader {
           location.arrayOffset() + location.position() + offsetNumBytes, offsetInBlockNumBytes);
 
       ByteBuffer decompressedBlockByteBuffer;
-      if (cacheLastDecompressedBlock && lastDecompressedBlockOffset == recordFileBlockOffset) {
+      if (bulkDecompressedBlock != null && bulkDecompressedBlock.offset == recordFileBlockOffset) {
+        // This block has been decompressed for the previous key of the same bulk lookup
+        decompressedBlockByteBuffer = bulkDecompressedBlock.block;
+      } else if (cacheLastDecompressedBlock && lastDecompressedBlockOffset == recordFileBlockOffset) {
         // This block has been decompressed just before, reuse it
         decompressedBlockByteBuffer = lastDecompressedBlock;
+      } else if (decompressedBlockCache != null) {
+        decompressedBlockByteBuffer = getDecompressedBlockFromCache(recordFileBlockOffset, result);
       } else {
         // Read in the compressed block into the result
         readRecordAtOffset(recordFileBlockOffset, result);
         // Decompress block
-        decompressedBlockByteBuffer = decompressBlock(result.getBuffer());
+        decompressedBlockByteBuffer = decompressBlock(result.getBuffer(), result);
         // Cache the decompressed block if requested
         if (cacheLastDecompressedBlock) {
           lastDecompressedBlockOffset = recordFileBlockOffset;
           lastDecompressedBlock = Bytes.byteBufferDeepCopy(decompressedBlockByteBuffer, lastDecompressedBlock);
         }
       }
+      if (bulkDecompressedBlock != null) {
+        bulkDecompressedBlock.offset = recordFileBlockOffset;
+        bulkDecompressedBlock.block = decompressedBlockByteBuffer;
+      }
 
       // Position ourselves at the beginning of the actual value
       decompressedBlockByteBuffer.position((int) offsetInBlock);
@@ -184,10 +316,44 @@ public class CurlyReader implements Reader, ICurlyReader {
     addValueToCache(locationDeepCopy, result.getBuffer());
   }
 
-  private ByteBuffer decompressBlock(ByteBuffer block) throws IOException {
+  private void readInlineValue(ByteBuffer keyFileValue, int valueSize, ReaderResult result) {
+    ByteBuffer value = keyFileValue.duplicate();
+    value.position(value.position() + 1);
+    value.limit(value.position() + valueSize);
+    // Note: the key file value might be the result buffer itself, copies are overlap safe
+    result.deepCopyIntoResultBuffer(value);
+  }
+
+  // Return the decompressed block at the given offset, from the shared cache if possible.
+  // The returned buffer is private to the caller but its content must not be modified.
+  private ByteBuffer getDecompressedBlockFromCache(long recordFileBlockOffset, ReaderResult result) throws IOException {
+    BlockCache.Key blockCacheKey = new BlockCache.Key(domainId, partitionNumber, versionNumber, recordFileBlockOffset);
+    ByteBuffer decompressedBlock = decompressedBlockCache.get(blockCacheKey);
+    if (decompressedBlock != null) {
+      result.setBlockCacheHit(true);
+    } else {
+      result.setBlockCacheMiss(true);
+      readRecordAtOffset(recordFileBlockOffset, result);
+      // The decompressed block is thread local, copy it before handing it to the cache
+      decompressedBlock = Bytes.byteBufferDeepCopy(decompressBlock(result.getBuffer(), result));
+      // Add to evictions that might have been caused by the key file Reader
+      result.setNumBlockCacheEvictions(result.getNumBlockCacheEvictions()
+          + decompressedBlockCache.put(blockCacheKey, decompressedBlock));
+    }
+    return decompressedBlock;
+  }
+
+  private ByteBuffer decompressBlock(ByteBuffer block, ReaderResult result) throws IOException {
+    // Decompressors need an array
+    if (!block.hasArray()) {
+      result.deepCopyIntoResultBuffer(block);
+      block = result.getBuffer();
+    }
     Local local = threadLocal.get();
     local.reset();
-    local.getBlockDecompressor(blockCompressionCodec).decompressBlock(
+    Decompressor blockDecompressor = dictionaryBlockDecompressor != null ?
+        dictionaryBlockDecompressor.get() : local.getBlockDecompressor(blockCompressionCodec);
+    blockDecompressor.decompressBlock(
         block.array(),
         block.arrayOffset() + block.position(),
         block.remaining(),
@@ -197,6 +363,9 @@ public class CurlyReader implements Reader, ICurlyReader {
 
   // Note: the buffer in result must be at least readBufferSize long
   private void readRecordAtOffset(long recordFileOffset, ReaderResult result) throws IOException {
+    if (mappedRecordFile != null && readMappedRecordAtOffset(recordFileOffset, result)) {
+      return;
+    }
     // Let's reset the buffer so we can do our read.
     result.getBuffer().rewind();
     // the buffer is already at least this big, so we'll extend it back out.
@@ -250,6 +419,48 @@ public class CurlyReader implements Reader, ICurlyReader {
     result.getBuffer().limit(recordSize + result.getBuffer().position());
   }
 
+  // Read a record of known length (including its size) with a single read
+  private void readRecordAtOffset(long recordFileOffset, int recordLength, ReaderResult result) throws IOException {
+    result.requiresBufferSize(recordLength);
+    ByteBuffer buffer = result.getBuffer();
+    buffer.clear();
+    buffer.limit(recordLength);
+    // The stateless version of read() might return fewer bytes than requested
+    int bytesRead = 0;
+    while (bytesRead < recordLength) {
+      int bytesReadTemp = recordFile.read(buffer, recordFileOffset + bytesRead);
+      if (bytesReadTemp == -1) {
+        throw new IOException("Failed to read record of length " + recordLength + " at offset " + recordFileOffset
+            + ": reached end of file after " + bytesRead + " bytes");
+      }
+      bytesRead += bytesReadTemp;
+    }
+    buffer.flip();
+    int recordSize = EncodingHelper.decodeLittleEndianVarInt(buffer);
+    if (recordSize != buffer.remaining()) {
+      throw new IOException("Record at offset " + recordFileOffset + " has size " + recordSize
+          + " but its stored length only leaves room for " + buffer.remaining() + " bytes");
+    }
+  }
+
+  // Point the result to the record in the mapping, without any copy. The mapping is unmapped
+  // when this reader is closed, so the result must be used or copied before then.
+  // Return false if the record cannot be accessed as a single slice.
+  private boolean readMappedRecordAtOffset(long recordFileOffset, ReaderResult result) {
+    int recordSizeLength = (int) Math.min(EncodingHelper.MAX_VARINT_SIZE, mappedRecordFile.getLength() - recordFileOffset);
+    if (!mappedRecordFile.isContiguous(recordFileOffset, recordSizeLength)) {
+      return false;
+    }
+    ByteBuffer recordSizeBuffer = mappedRecordFile.getSlice(recordFileOffset, recordSizeLength);
+    int recordSize = EncodingHelper.decodeLittleEndianVarInt(recordSizeBuffer);
+    long valueOffset = recordFileOffset + recordSizeBuffer.position();
+    if (!mappedRecordFile.isContiguous(valueOffset, recordSize)) {
+      return false;
+    }
+    result.borrowBuffer(mappedRecordFile.getSlice(valueOffset, recordSize));
+    return true;
+  }
+
   @Override
   public void get(ByteBuffer key, ReaderResult result) throws IOException {
     // we want at least readBufferSize bytes of available space. we might resize
@@ -266,6 +477,58 @@ public class CurlyReader implements Reader, ICurlyReader {
     }
   }
 
+  // Locations of all keys are looked up first, then records are read at ascending offsets
+  // in the record file. Consecutive records of a compressed block are decompressed once.
+  @Override
+  public void getBulk(List<ByteBuffer> keys, List<ReaderResult> results) throws IOException {
+    Readers.checkBulkArguments(keys, results);
+    for (ReaderResult result : results) {
+      result.requiresBufferSize(readBufferSize);
+    }
+    keyFileReader.getBulk(keys, results);
+
+    final long[] recordFileOffsets = new long[keys.size()];
+    List<Integer> foundKeys = new ArrayList<Integer>(keys.size());
+    for (int i = 0; i < keys.size(); ++i) {
+      if (results.get(i).isFound()) {
+        recordFileOffsets[i] = getRecordFileOffset(results.get(i).getBuffer());
+        foundKeys.add(i);
+      }
+    }
+    Collections.sort(foundKeys, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer a, Integer b) {
+        if (recordFileOffsets[a] != recordFileOffsets[b]) {
+          return recordFileOffsets[a] < recordFileOffsets[b] ? -1 : 1;
+        }
+        return a.compareTo(b);
+      }
+    });
+
+    BulkDecompressedBlock bulkDecompressedBlock = blockCompressionCodec == null ? null : new BulkDecompressedBlock();
+    for (int i : foundKeys) {
+      readRecord(results.get(i).getBuffer(), results.get(i), bulkDecompressedBlock);
+    }
+  }
+
+  // Offset of the record, or of its block, in the record file. Inline values are not read and come first.
+  private long getRecordFileOffset(ByteBuffer location) {
+    int offset = location.arrayOffset() + location.position();
+    int offsetLength;
+    if (inlineValues) {
+      if ((location.get(location.position()) & 0xff) != Curly.RECORD_FILE_VALUE_TAG) {
+        return -1;
+      }
+      offset += 1;
+      offsetLength = offsetNumBytes;
+    } else if (blockCompressionCodec == null) {
+      offsetLength = location.remaining() - recordLengthNumBytes;
+    } else {
+      offsetLength = offsetNumBytes;
+    }
+    return EncodingHelper.decodeLittleEndianFixedWidthLong(location.array(), offset, offsetLength);
+  }
+
   @Override
   public Integer getVersionNumber() {
     return versionNumber;
@@ -297,6 +560,9 @@ public class CurlyReader implements Reader, ICurlyReader {
     if (keyFileReader != null) {
       keyFileReader.close();
     }
+    if (mappedRecordFile != null) {
+      mappedRecordFile.unmap();
+    }
     cache = null;
   }
 }
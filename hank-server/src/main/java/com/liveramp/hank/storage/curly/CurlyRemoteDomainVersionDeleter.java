@@ -28,9 +28,11 @@ public class CurlyRemoteDomainVersionDeleter implements RemoteDomainVersionDelet
       PartitionRemoteFileOps fileOps = fileOpsFactory.getPartitionRemoteFileOps(remoteDomainRoot, partition);
       fileOps.attemptDelete(Cueball.getName(versionNumber, true));
       fileOps.attemptDelete(Cueball.getName(versionNumber, false));
+      fileOps.attemptDelete(Cueball.getBloomFilterName(versionNumber, true));
 
       fileOps.attemptDelete(Curly.getName(versionNumber, true));
       fileOps.attemptDelete(Curly.getName(versionNumber, false));
+      fileOps.attemptDelete(Curly.getDictionaryName(versionNumber, true));
     }
   }
 }
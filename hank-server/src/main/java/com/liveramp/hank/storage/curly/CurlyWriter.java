@@ -16,23 +16,38 @@
 package com.liveramp.hank.storage.curly;
 
 import com.liveramp.hank.compression.CompressionCodec;
+import com.liveramp.hank.compression.CompressionDictionaryTrainer;
+import com.liveramp.hank.compression.CompressionFactory;
 import com.liveramp.hank.hasher.Murmur64Hasher;
 import com.liveramp.hank.storage.Writer;
 import com.liveramp.hank.util.Bytes;
 import com.liveramp.hank.util.EncodingHelper;
 import com.liveramp.hank.util.IOStreamUtils;
 import com.liveramp.hank.util.LruHashMap;
+import com.liveramp.hank.util.UnsafeByteArrayOutputStream;
 
 import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
 
 public class CurlyWriter implements Writer {
 
   private static final int VALUE_FOLDING_HASH_NUM_BYTES = 16;
 
+  // Dictionaries are trained on a sample this many times larger than the dictionary
+  private static final int DICTIONARY_SAMPLE_SIZE_RATIO = 100;
+
   private static final Murmur64Hasher murmur64Hasher = new Murmur64Hasher();
 
   private long currentRecordOffset;
@@ -48,15 +63,96 @@ public class CurlyWriter implements Writer {
 
   // Compression
   private final CompressionCodec blockCompressionCodec;
+  private CompressionFactory blockCompressionFactory;
   private ByteArrayOutputStream compressedBlockOutputStream;
   private OutputStream compressionOutputStream;
   private final int compressedBlockSizeThreshold;
   private final int offsetInBlockNumBytes;
   private int offsetInDecompressedBlock = 0;
 
+  // Record length stored in the key file next to the offset (uncompressed mode only)
+  private final int recordLengthNumBytes;
+  private final long maxRecordLength;
+
+  // Values of at most this many bytes are stored inline in the key file
+  private final int inlineValueMaxNumBytes;
+  private final ByteBuffer keyFileValueBuffer;
+  private long numInlinedValues = 0;
+
+  // Buffered block compression. Blocks are cut on their uncompressed size, so that their boundaries
+  // do not depend on compression, and each block is compressed at once, either on the calling thread
+  // or by a pool of compression threads. The output is the same in both cases. Blocks are written in
+  // order, and key file writes are queued until the offset of their block in the record file is known.
+  private final int uncompressedBlockSizeThreshold;
+  private final ExecutorService compressionExecutor;
+  private final int maxNumPendingBlocks;
+  private Block currentBlock;
+  private final LinkedList<Block> pendingBlocks = new LinkedList<Block>();
+  private final LinkedList<PendingKeyFileWrite> pendingKeyFileWrites = new LinkedList<PendingKeyFileWrite>();
+  private final LruHashMap<ByteBuffer, BlockLocation> hashedValueToBlockLocationCache;
+
+  // Dictionary training. The first records are buffered until the sample is large enough, then the
+  // dictionary is trained and written, and the buffered records are written using it.
+  private CompressionDictionaryTrainer dictionaryTrainer;
+  private final OutputStream dictionaryStream;
+  private final int maxNumSampledRecordBytes;
+  private long numSampledRecordBytes = 0;
+  private final LinkedList<ByteBuffer> sampledKeys = new LinkedList<ByteBuffer>();
+  private final LinkedList<ByteBuffer> sampledValues = new LinkedList<ByteBuffer>();
+  private int numDictionaryBytes = 0;
+
   // Cache
   private final LruHashMap<ByteBuffer, ByteBuffer> hashedValueToEncodedRecordOffsetCache;
 
+  private static class Block {
+
+    private UnsafeByteArrayOutputStream uncompressedBlock = new UnsafeByteArrayOutputStream();
+    private Future<byte[]> compressedBlock;
+    private long recordFileOffset = -1;
+  }
+
+  private static class BlockLocation {
+
+    private final Block block;
+    private final int offsetInBlock;
+
+    public BlockLocation(Block block, int offsetInBlock) {
+      this.block = block;
+      this.offsetInBlock = offsetInBlock;
+    }
+  }
+
+  private static class PendingKeyFileWrite {
+
+    private final ByteBuffer key;
+    // Either the location of the value in a block, or the final key file value (inline values)
+    private final BlockLocation location;
+    private final ByteBuffer keyFileValue;
+
+    public PendingKeyFileWrite(ByteBuffer key, BlockLocation location, ByteBuffer keyFileValue) {
+      this.key = key;
+      this.location = location;
+      this.keyFileValue = keyFileValue;
+    }
+
+    public boolean isReady() {
+      return keyFileValue != null || location.block.recordFileOffset >= 0;
+    }
+  }
+
+  private static class CompressionThreadFactory implements ThreadFactory {
+
+    private int threadId = 0;
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "Curly Block Compressor #" + threadId++);
+      // Do not prevent the JVM from exiting if the writer is not closed
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+
   public CurlyWriter(OutputStream recordfileStream,
                      Writer keyfileWriter,
                      int offsetNumBytes,
@@ -71,26 +167,72 @@ public class CurlyWriter implements Writer {
                      CompressionCodec blockCompressionCodec,
                      int compressedBlockSizeThreshold,
                      int offsetInBlockNumBytes) throws IOException {
+    this(recordfileStream, keyfileWriter, offsetNumBytes, valueFoldingCacheCapacity,
+        blockCompressionCodec, compressedBlockSizeThreshold, offsetInBlockNumBytes, new CurlyOptions(), null);
+  }
+
+  // A block compression dictionary is trained and written to the given dictionary stream, when not null
+  public CurlyWriter(OutputStream recordfileStream,
+                     Writer keyfileWriter,
+                     int offsetNumBytes,
+                     int valueFoldingCacheCapacity,
+                     CompressionCodec blockCompressionCodec,
+                     int compressedBlockSizeThreshold,
+                     int offsetInBlockNumBytes,
+                     CurlyOptions options,
+                     OutputStream dictionaryStream) throws IOException {
+    if (options.getBlockCompressionNumThreads() > 0
+        && (blockCompressionCodec == null || options.getUncompressedBlockSizeThreshold() <= 0)) {
+      throw new IllegalArgumentException("Compression threads require block compression with an uncompressed block size threshold");
+    }
+    if (blockCompressionCodec != null && options.getRecordLengthNumBytes() > 0) {
+      throw new IllegalArgumentException("Record lengths cannot be stored when using block compression");
+    }
+    if (dictionaryStream != null && options.getBlockCompressionDictionaryNumBytes() > 0
+        && (blockCompressionCodec == null || blockCompressionCodec.getMaxDictionaryNumBytes() == 0)) {
+      throw new IllegalArgumentException("Dictionaries require a block compression codec that supports them");
+    }
     // Buffer output
     this.recordFileStream = new BufferedOutputStream(recordfileStream, IOStreamUtils.DEFAULT_BUFFER_SIZE);
     this.keyfileWriter = keyfileWriter;
     this.blockCompressionCodec = blockCompressionCodec;
+    this.blockCompressionFactory = blockCompressionCodec == null ? null : blockCompressionCodec.getFactory();
     this.offsetNumBytes = offsetNumBytes;
     this.maxOffset = 1L << (offsetNumBytes * 8);
     this.currentRecordOffset = 0;
     this.compressedBlockSizeThreshold = compressedBlockSizeThreshold;
     this.offsetInBlockNumBytes = offsetInBlockNumBytes;
+    this.recordLengthNumBytes = Math.max(0, options.getRecordLengthNumBytes());
+    this.maxRecordLength = this.recordLengthNumBytes >= 8 ? Long.MAX_VALUE : (1L << (this.recordLengthNumBytes * 8)) - 1;
+
+    this.uncompressedBlockSizeThreshold = blockCompressionCodec == null ? -1 : options.getUncompressedBlockSizeThreshold();
 
     // Initialize LRU cache only when needed
     if (valueFoldingCacheCapacity > 0) {
-      hashedValueToEncodedRecordOffsetCache = new LruHashMap<ByteBuffer, ByteBuffer>(valueFoldingCacheCapacity, valueFoldingCacheCapacity);
+      if (this.uncompressedBlockSizeThreshold > 0) {
+        hashedValueToBlockLocationCache = new LruHashMap<ByteBuffer, BlockLocation>(valueFoldingCacheCapacity, valueFoldingCacheCapacity);
+        hashedValueToEncodedRecordOffsetCache = null;
+      } else {
+        hashedValueToBlockLocationCache = null;
+        hashedValueToEncodedRecordOffsetCache = new LruHashMap<ByteBuffer, ByteBuffer>(valueFoldingCacheCapacity, valueFoldingCacheCapacity);
+      }
     } else {
+      hashedValueToBlockLocationCache = null;
       hashedValueToEncodedRecordOffsetCache = null;
     }
 
+    if (options.getBlockCompressionNumThreads() > 0) {
+      compressionExecutor = Executors.newFixedThreadPool(options.getBlockCompressionNumThreads(), new CompressionThreadFactory());
+      // Bound the number of blocks held in memory
+      maxNumPendingBlocks = 2 * options.getBlockCompressionNumThreads();
+    } else {
+      compressionExecutor = null;
+      maxNumPendingBlocks = 0;
+    }
+
     if (blockCompressionCodec == null) {
       // No block compression
-      valueOffsetBuffer = ByteBuffer.wrap(new byte[offsetNumBytes]);
+      valueOffsetBuffer = ByteBuffer.wrap(new byte[offsetNumBytes + this.recordLengthNumBytes]);
       compressedBlockOutputStream = null;
       compressionOutputStream = null;
     } else {
@@ -99,11 +241,48 @@ public class CurlyWriter implements Writer {
       compressedBlockOutputStream = new ByteArrayOutputStream();
       compressionOutputStream = null;
     }
+
+    if (dictionaryStream != null && options.getBlockCompressionDictionaryNumBytes() > 0) {
+      this.dictionaryStream = dictionaryStream;
+      this.maxNumSampledRecordBytes = DICTIONARY_SAMPLE_SIZE_RATIO * options.getBlockCompressionDictionaryNumBytes();
+      this.dictionaryTrainer = new CompressionDictionaryTrainer(options.getBlockCompressionDictionaryNumBytes(), maxNumSampledRecordBytes);
+    } else {
+      this.dictionaryStream = null;
+      this.maxNumSampledRecordBytes = 0;
+      this.dictionaryTrainer = null;
+    }
+
+    // Key file values are prefixed with a tag when inlining values
+    if (options.getInlineValueMaxNumBytes() > Curly.MAX_INLINE_VALUE_NUM_BYTES) {
+      throw new IllegalArgumentException("Inline values cannot be larger than " + Curly.MAX_INLINE_VALUE_NUM_BYTES
+          + " bytes: " + options.getInlineValueMaxNumBytes());
+    }
+    this.inlineValueMaxNumBytes = Math.max(0, options.getInlineValueMaxNumBytes());
+    if (this.inlineValueMaxNumBytes > 0) {
+      keyFileValueBuffer = ByteBuffer.wrap(new byte[
+          Curly.getInlineKeyFileValueNumBytes(valueOffsetBuffer.capacity(), this.inlineValueMaxNumBytes)]);
+    } else {
+      keyFileValueBuffer = null;
+    }
   }
 
   @Override
   public void close() throws IOException {
-    if (blockCompressionCodec != null) {
+    if (dictionaryTrainer != null) {
+      trainDictionary();
+    }
+    if (uncompressedBlockSizeThreshold > 0) {
+      try {
+        if (currentBlock != null) {
+          submitCurrentBlock();
+        }
+        writeCompletedBlocks(true);
+      } finally {
+        if (compressionExecutor != null) {
+          compressionExecutor.shutdownNow();
+        }
+      }
+    } else if (blockCompressionCodec != null) {
       flushCompressedBlock();
     }
     recordFileStream.flush();
@@ -116,12 +295,35 @@ public class CurlyWriter implements Writer {
 
   @Override
   public void write(ByteBuffer key, ByteBuffer value) throws IOException {
+    if (dictionaryTrainer != null) {
+      sampleRecord(key, value);
+      return;
+    }
+
     if (currentRecordOffset > maxOffset) {
       throw new IOException("Exceeded configured max recordfile size of "
           + maxOffset
           + ". Increase number of partitions to go back below this level.");
     }
 
+    // Small values are stored in the key file only
+    if (inlineValueMaxNumBytes > 0 && value.remaining() <= inlineValueMaxNumBytes) {
+      if (pendingKeyFileWrites.isEmpty()) {
+        keyfileWriter.write(key, getInlineKeyFileValue(value));
+      } else {
+        // Preserve the order of key file writes
+        pendingKeyFileWrites.add(new PendingKeyFileWrite(Bytes.byteBufferDeepCopy(key), null,
+            Bytes.byteBufferDeepCopy(getInlineKeyFileValue(value))));
+      }
+      numInlinedValues += 1;
+      return;
+    }
+
+    if (uncompressedBlockSizeThreshold > 0) {
+      writeToBufferedBlock(key, value);
+      return;
+    }
+
     ByteBuffer cachedValueRecordEncodedOffset = null;
     ByteBuffer hashedValue = null;
 
@@ -141,16 +343,25 @@ public class CurlyWriter implements Writer {
         //
         // Uncompressed mode
         //
-        EncodingHelper.encodeLittleEndianFixedWidthLong(currentRecordOffset, valueOffsetBuffer.array());
+        // Encode value size
+        int valueLength = value.remaining();
+        int valueLengthNumBytes = EncodingHelper.encodeLittleEndianVarInt(valueLength, valueLengthBuffer);
+        EncodingHelper.encodeLittleEndianFixedWidthLong(currentRecordOffset, valueOffsetBuffer.array(), 0, offsetNumBytes);
+        if (recordLengthNumBytes > 0) {
+          // Store the record length so that it can be read at once. Records too long to be
+          // represented are stored with a length of zero and read without knowing their length.
+          long recordLength = valueLengthNumBytes + valueLength;
+          EncodingHelper.encodeLittleEndianFixedWidthLong(recordLength <= maxRecordLength ? recordLength : 0,
+              valueOffsetBuffer.array(), offsetNumBytes, recordLengthNumBytes);
+        }
         // Write current offset in key file
-        keyfileWriter.write(key, valueOffsetBuffer);
+        ByteBuffer keyFileValue = getKeyFileValue(valueOffsetBuffer);
+        keyfileWriter.write(key, keyFileValue);
         // Value was not found in cache. Cache current value encoded offset buffer if needed
         if (hashedValueToEncodedRecordOffsetCache != null) {
-          hashedValueToEncodedRecordOffsetCache.put(hashedValue, Bytes.byteBufferDeepCopy(valueOffsetBuffer));
+          hashedValueToEncodedRecordOffsetCache.put(hashedValue, Bytes.byteBufferDeepCopy(keyFileValue));
         }
-        // Encode value size and write it
-        int valueLength = value.remaining();
-        int valueLengthNumBytes = EncodingHelper.encodeLittleEndianVarInt(valueLength, valueLengthBuffer);
+        // Write value size
         recordFileStream.write(valueLengthBuffer, 0, valueLengthNumBytes);
         currentRecordOffset += valueLengthNumBytes;
         // Write value
@@ -182,10 +393,11 @@ public class CurlyWriter implements Writer {
         EncodingHelper.encodeLittleEndianFixedWidthLong(currentRecordOffset, valueOffsetBuffer.array(), 0, offsetNumBytes);
         EncodingHelper.encodeLittleEndianFixedWidthLong(offsetInDecompressedBlock, valueOffsetBuffer.array(), offsetNumBytes, offsetInBlockNumBytes);
         // Write to key file
-        keyfileWriter.write(key, valueOffsetBuffer);
+        ByteBuffer keyFileValue = getKeyFileValue(valueOffsetBuffer);
+        keyfileWriter.write(key, keyFileValue);
         // Value was not found in cache. Cache current value encoded offset buffer if needed
         if (hashedValueToEncodedRecordOffsetCache != null) {
-          hashedValueToEncodedRecordOffsetCache.put(hashedValue, Bytes.byteBufferDeepCopy(valueOffsetBuffer));
+          hashedValueToEncodedRecordOffsetCache.put(hashedValue, Bytes.byteBufferDeepCopy(keyFileValue));
         }
         // Increment the offset
         offsetInDecompressedBlock += valueLengthNumBytes + valueLength;
@@ -193,12 +405,167 @@ public class CurlyWriter implements Writer {
     }
   }
 
+  // When inlining values, the location of a record is prefixed with a zero tag and padded
+  private ByteBuffer getKeyFileValue(ByteBuffer location) {
+    if (keyFileValueBuffer == null) {
+      return location;
+    }
+    byte[] keyFileValue = keyFileValueBuffer.array();
+    keyFileValue[0] = Curly.RECORD_FILE_VALUE_TAG;
+    System.arraycopy(location.array(), location.arrayOffset() + location.position(), keyFileValue, 1, location.remaining());
+    Arrays.fill(keyFileValue, 1 + location.remaining(), keyFileValue.length, (byte) 0);
+    return keyFileValueBuffer;
+  }
+
+  // Inline values are prefixed with a tag holding their size plus one, and padded
+  private ByteBuffer getInlineKeyFileValue(ByteBuffer value) {
+    byte[] keyFileValue = keyFileValueBuffer.array();
+    int valueLength = value.remaining();
+    keyFileValue[0] = (byte) (valueLength + 1);
+    System.arraycopy(value.array(), value.arrayOffset() + value.position(), keyFileValue, 1, valueLength);
+    Arrays.fill(keyFileValue, 1 + valueLength, keyFileValue.length, (byte) 0);
+    return keyFileValueBuffer;
+  }
+
+  private void writeToBufferedBlock(ByteBuffer key, ByteBuffer value) throws IOException {
+    BlockLocation location = null;
+    ByteBuffer hashedValue = null;
+
+    // Retrieve cached location if possible
+    if (hashedValueToBlockLocationCache != null) {
+      hashedValue = computeHash(value);
+      location = hashedValueToBlockLocationCache.get(hashedValue);
+    }
+
+    if (location != null) {
+      numFoldedValues += 1;
+      numFoldedBytesApproximate += value.remaining();
+    } else {
+      // Submit the current block for compression if needed
+      if (currentBlock != null && currentBlock.uncompressedBlock.size() >= uncompressedBlockSizeThreshold) {
+        submitCurrentBlock();
+      }
+      if (currentBlock == null) {
+        currentBlock = new Block();
+      }
+      location = new BlockLocation(currentBlock, currentBlock.uncompressedBlock.size());
+      // Encode value size and write it to the block, followed by the value
+      int valueLength = value.remaining();
+      int valueLengthNumBytes = EncodingHelper.encodeLittleEndianVarInt(valueLength, valueLengthBuffer);
+      currentBlock.uncompressedBlock.write(valueLengthBuffer, 0, valueLengthNumBytes);
+      currentBlock.uncompressedBlock.write(value.array(), value.arrayOffset() + value.position(), valueLength);
+      // Value was not found in cache. Cache its location if needed
+      if (hashedValueToBlockLocationCache != null) {
+        hashedValueToBlockLocationCache.put(hashedValue, location);
+      }
+    }
+    // The key file write is performed once the block has been written
+    pendingKeyFileWrites.add(new PendingKeyFileWrite(Bytes.byteBufferDeepCopy(key), location, null));
+    writeCompletedBlocks(false);
+  }
+
+  private void submitCurrentBlock() throws IOException {
+    final Block block = currentBlock;
+    currentBlock = null;
+    final CompressionFactory blockCompressionFactory = this.blockCompressionFactory;
+    Callable<byte[]> compressBlock = new Callable<byte[]>() {
+      @Override
+      public byte[] call() throws IOException {
+        ByteArrayOutputStream compressedBlockOutputStream = new ByteArrayOutputStream();
+        OutputStream compressionOutputStream =
+            blockCompressionFactory.getCompressor().getOutputStream(compressedBlockOutputStream);
+        compressionOutputStream.write(block.uncompressedBlock.array(), 0, block.uncompressedBlock.count());
+        compressionOutputStream.close();
+        return compressedBlockOutputStream.toByteArray();
+      }
+    };
+    if (compressionExecutor == null) {
+      FutureTask<byte[]> compressedBlock = new FutureTask<byte[]>(compressBlock);
+      compressedBlock.run();
+      block.compressedBlock = compressedBlock;
+    } else {
+      block.compressedBlock = compressionExecutor.submit(compressBlock);
+    }
+    pendingBlocks.add(block);
+  }
+
+  // Write compressed blocks in order, then the key file entries that point to them. Wait for
+  // compression when requested, or when too many blocks are pending.
+  private void writeCompletedBlocks(boolean waitForAll) throws IOException {
+    while (!pendingBlocks.isEmpty()) {
+      Block block = pendingBlocks.getFirst();
+      if (!block.compressedBlock.isDone() && !waitForAll && pendingBlocks.size() <= maxNumPendingBlocks) {
+        break;
+      }
+      writeCompressedBlock(pendingBlocks.removeFirst());
+    }
+    while (!pendingKeyFileWrites.isEmpty() && pendingKeyFileWrites.getFirst().isReady()) {
+      PendingKeyFileWrite pendingKeyFileWrite = pendingKeyFileWrites.removeFirst();
+      if (pendingKeyFileWrite.keyFileValue != null) {
+        keyfileWriter.write(pendingKeyFileWrite.key, pendingKeyFileWrite.keyFileValue);
+      } else {
+        BlockLocation location = pendingKeyFileWrite.location;
+        EncodingHelper.encodeLittleEndianFixedWidthLong(location.block.recordFileOffset, valueOffsetBuffer.array(), 0, offsetNumBytes);
+        EncodingHelper.encodeLittleEndianFixedWidthLong(location.offsetInBlock, valueOffsetBuffer.array(), offsetNumBytes, offsetInBlockNumBytes);
+        keyfileWriter.write(pendingKeyFileWrite.key, getKeyFileValue(valueOffsetBuffer));
+      }
+    }
+  }
+
+  private void writeCompressedBlock(Block block) throws IOException {
+    byte[] compressedBlock;
+    try {
+      compressedBlock = block.compressedBlock.get();
+    } catch (InterruptedException e) {
+      throw new IOException("Interrupted while waiting for block compression", e);
+    } catch (ExecutionException e) {
+      throw new IOException("Failed to compress block", e.getCause());
+    }
+    block.recordFileOffset = currentRecordOffset;
+    // Encode compressed block size and write it to record stream, followed by the compressed block
+    int valueLengthNumBytes = EncodingHelper.encodeLittleEndianVarInt(compressedBlock.length, valueLengthBuffer);
+    recordFileStream.write(valueLengthBuffer, 0, valueLengthNumBytes);
+    recordFileStream.write(compressedBlock);
+    currentRecordOffset += valueLengthNumBytes + compressedBlock.length;
+    // Only the offset is needed from now on, by cached locations
+    block.uncompressedBlock = null;
+    block.compressedBlock = null;
+  }
+
+  private void sampleRecord(ByteBuffer key, ByteBuffer value) throws IOException {
+    // Values stored inline are not compressed and are not sampled
+    if (inlineValueMaxNumBytes <= 0 || value.remaining() > inlineValueMaxNumBytes) {
+      dictionaryTrainer.addSample(value);
+    }
+    sampledKeys.add(Bytes.byteBufferDeepCopy(key));
+    sampledValues.add(Bytes.byteBufferDeepCopy(value));
+    // Bound the number of buffered bytes, even when most values are not sampled
+    numSampledRecordBytes += key.remaining() + value.remaining();
+    if (dictionaryTrainer.isSampleFull() || numSampledRecordBytes >= maxNumSampledRecordBytes) {
+      trainDictionary();
+    }
+  }
+
+  private void trainDictionary() throws IOException {
+    byte[] dictionary = dictionaryTrainer.train();
+    dictionaryTrainer = null;
+    dictionaryStream.write(dictionary);
+    dictionaryStream.close();
+    numDictionaryBytes = dictionary.length;
+    blockCompressionFactory = blockCompressionCodec.getFactory(dictionary);
+    // Write buffered records
+    while (!sampledKeys.isEmpty()) {
+      write(sampledKeys.removeFirst(), sampledValues.removeFirst());
+    }
+    numSampledRecordBytes = 0;
+  }
+
   private void initStreams() throws IOException {
     // Reset the byte array output stream and the offset in it
     compressedBlockOutputStream.reset();
     offsetInDecompressedBlock = 0;
     // Initialize new compression stream
-    compressionOutputStream = blockCompressionCodec.getFactory().getCompressor().getOutputStream(compressedBlockOutputStream);
+    compressionOutputStream = blockCompressionFactory.getCompressor().getOutputStream(compressedBlockOutputStream);
   }
 
   private void flushCompressedBlock() throws IOException {
@@ -243,6 +610,11 @@ public class CurlyWriter implements Writer {
         + ", blockCompressionCodec=" + blockCompressionCodec
         + ", compressedBlockSizeThreshold=" + compressedBlockSizeThreshold
         + ", offsetInBlockNumBytes=" + offsetInBlockNumBytes
+        + ", recordLengthNumBytes=" + recordLengthNumBytes
+        + ", inlineValueMaxNumBytes=" + inlineValueMaxNumBytes
+        + ", numInlinedValues=" + numInlinedValues
+        + ", uncompressedBlockSizeThreshold=" + uncompressedBlockSizeThreshold
+        + ", numDictionaryBytes=" + numDictionaryBytes
         + "]";
   }
 }
@@ -0,0 +1,301 @@
+/**
+ *  Copyright 2013 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.hank.storage.dense;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.liveramp.hank.config.DataDirectoriesConfigurator;
+import com.liveramp.hank.coordinator.Domain;
+import com.liveramp.hank.coordinator.DomainVersion;
+import com.liveramp.hank.coordinator.DomainVersionPropertiesSerialization;
+import com.liveramp.hank.partitioner.IntegerModuloPartitioner;
+import com.liveramp.hank.storage.Compactor;
+import com.liveramp.hank.storage.Deleter;
+import com.liveramp.hank.storage.PartitionRemoteFileOps;
+import com.liveramp.hank.storage.PartitionRemoteFileOpsFactory;
+import com.liveramp.hank.storage.PartitionUpdater;
+import com.liveramp.hank.storage.Reader;
+import com.liveramp.hank.storage.RemoteDomainCleaner;
+import com.liveramp.hank.storage.RemoteDomainVersionDeleter;
+import com.liveramp.hank.storage.StorageEngine;
+import com.liveramp.hank.storage.StorageEngineFactory;
+import com.liveramp.hank.storage.Writer;
+import com.liveramp.hank.storage.cueball.Cueball;
+import com.liveramp.hank.storage.cueball.CueballDeleter;
+import com.liveramp.hank.storage.cueball.CueballRemoteDomainCleaner;
+import com.liveramp.hank.storage.incremental.IncrementalDomainVersionProperties;
+import com.liveramp.hank.storage.incremental.IncrementalStorageEngine;
+import com.liveramp.hank.storage.incremental.IncrementalUpdatePlanner;
+import com.liveramp.hank.util.FsUtils;
+
+/**
+ * Dense is a storage engine for domains whose keys are dense integers. Values
+ * are stored in an array indexed by the key, so that lookups do not need any
+ * hashing or searching. Domains must be partitioned with the
+ * IntegerModuloPartitioner, and keys of a partition are stored at slot
+ * key / numPartitions.
+ */
+public class Dense extends IncrementalStorageEngine implements StorageEngine {
+
+  private static final Pattern BASE_OR_DELTA_PATTERN = Pattern.compile(".*(\\d{5})\\.((base)|(delta))\\.dense");
+  static final String BASE_REGEX = ".*\\d{5}\\.base\\.dense";
+  static final String DELTA_REGEX = ".*\\d{5}\\.delta\\.dense";
+
+  public static class Factory implements StorageEngineFactory {
+
+    public static final String REMOTE_DOMAIN_ROOT_KEY = "remote_domain_root";
+    public static final String VALUE_SIZE_KEY = "value_size";
+    public static final String FILE_OPS_FACTORY_KEY = "file_ops_factory";
+    public static final String NUM_REMOTE_LEAF_VERSIONS_TO_KEEP = "num_remote_leaf_versions_to_keep";
+    public static final String MMAP = "mmap";
+
+    private static final Set<String> REQUIRED_KEYS =
+        new HashSet<String>(Arrays.asList(REMOTE_DOMAIN_ROOT_KEY,
+            FILE_OPS_FACTORY_KEY,
+            NUM_REMOTE_LEAF_VERSIONS_TO_KEEP));
+
+    @Override
+    public StorageEngine getStorageEngine(Map<String, Object> options, Domain domain) throws IOException {
+      for (String requiredKey : REQUIRED_KEYS) {
+        if (options == null || options.get(requiredKey) == null) {
+          throw new IOException("Required key '" + requiredKey
+              + "' was not found!");
+        }
+      }
+
+      PartitionRemoteFileOpsFactory fileOpsFactory;
+      try {
+        fileOpsFactory = (PartitionRemoteFileOpsFactory)Class.forName((String)options.get(FILE_OPS_FACTORY_KEY)).newInstance();
+      } catch (Exception e) {
+        throw new IOException(e);
+      }
+
+      // Fixed value size (variable size values by default)
+      Integer valueSize = (Integer)options.get(VALUE_SIZE_KEY);
+      if (valueSize == null) {
+        valueSize = 0;
+      }
+
+      // Memory mapped reads
+      Boolean mmap = (Boolean)options.get(MMAP);
+      if (mmap == null) {
+        mmap = false;
+      }
+
+      return new Dense(valueSize,
+          (String)options.get(REMOTE_DOMAIN_ROOT_KEY),
+          fileOpsFactory,
+          domain,
+          (Integer)options.get(NUM_REMOTE_LEAF_VERSIONS_TO_KEEP),
+          mmap);
+    }
+
+    @Override
+    public String getPrettyName() {
+      return "Dense";
+    }
+
+    @Override
+    public String getDefaultOptions() {
+      return "";
+    }
+  }
+
+  private final Domain domain;
+
+  private final int valueSize;
+  private final String remoteDomainRoot;
+  private final PartitionRemoteFileOpsFactory partitionRemoteFileOpsFactory;
+  private final int numRemoteLeafVersionsToKeep;
+  private final boolean mmap;
+  private final ByteBuffer comparableKeyBuffer = ByteBuffer.allocate(8);
+
+  public Dense(int valueSize,
+               String remoteDomainRoot,
+               PartitionRemoteFileOpsFactory partitionRemoteFileOpsFactory,
+               Domain domain,
+               int numRemoteLeafVersionsToKeep,
+               boolean mmap) {
+    if (valueSize < 0) {
+      throw new IllegalArgumentException("Value size must not be negative: " + valueSize);
+    }
+    this.valueSize = valueSize;
+    this.remoteDomainRoot = remoteDomainRoot;
+    this.partitionRemoteFileOpsFactory = partitionRemoteFileOpsFactory;
+    this.domain = domain;
+    this.numRemoteLeafVersionsToKeep = numRemoteLeafVersionsToKeep;
+    this.mmap = mmap;
+  }
+
+  @Override
+  public Reader getReader(DataDirectoriesConfigurator configurator, int partitionNumber) throws IOException {
+    return new DenseReader(getTargetDirectory(configurator, partitionNumber), domain.getNumParts(), mmap);
+  }
+
+  @Override
+  public Writer getWriter(DomainVersion domainVersion,
+                          PartitionRemoteFileOps partitionRemoteFileOps,
+                          int partitionNumber) throws IOException {
+    IncrementalDomainVersionProperties domainVersionProperties = getDomainVersionProperties(domainVersion);
+    return new DenseWriter(partitionRemoteFileOps.getOutputStream(getName(domainVersion.getVersionNumber(),
+        domainVersionProperties.isBase())),
+        valueSize, domainVersionProperties.isBase(), partitionNumber, domain.getNumParts());
+  }
+
+  private IncrementalDomainVersionProperties getDomainVersionProperties(DomainVersion domainVersion) throws IOException {
+    IncrementalDomainVersionProperties result;
+    try {
+      result = (IncrementalDomainVersionProperties)domainVersion.getProperties();
+    } catch (ClassCastException e) {
+      throw new IOException("Failed to load properties of version " + domainVersion);
+    }
+    if (result == null) {
+      throw new IOException("Null properties for version " + domainVersion);
+    }
+    return result;
+  }
+
+  @Override
+  public IncrementalUpdatePlanner getUpdatePlanner(Domain domain) {
+    return new DenseUpdatePlanner(domain);
+  }
+
+  @Override
+  public PartitionUpdater getUpdater(DataDirectoriesConfigurator configurator, int partitionNumber) throws IOException {
+    String localDir = getTargetDirectory(configurator, partitionNumber);
+    return new DensePartitionUpdater(domain,
+        getPartitionRemoteFileOps(partitionNumber),
+        new DenseMerger(),
+        localDir);
+  }
+
+  @Override
+  public Compactor getCompactor(DataDirectoriesConfigurator configurator,
+                                int partitionNumber) throws IOException {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public Writer getCompactorWriter(DomainVersion domainVersion,
+                                   PartitionRemoteFileOps partitionRemoteFileOps,
+                                   int partitionNumber) throws IOException {
+    throw new UnsupportedOperationException();
+  }
+
+  // Keys are sorted by integer value, which is the order of their slots
+  @Override
+  public ByteBuffer getComparableKey(ByteBuffer key) {
+    comparableKeyBuffer.putLong(0, IntegerModuloPartitioner.decodeKey(key));
+    return comparableKeyBuffer;
+  }
+
+  @Override
+  public PartitionRemoteFileOpsFactory getPartitionRemoteFileOpsFactory() {
+    return partitionRemoteFileOpsFactory;
+  }
+
+  @Override
+  public PartitionRemoteFileOps getPartitionRemoteFileOps(int partitionNumber) throws IOException {
+    return partitionRemoteFileOpsFactory.getPartitionRemoteFileOps(remoteDomainRoot, partitionNumber);
+  }
+
+  @Override
+  public Deleter getDeleter(DataDirectoriesConfigurator configurator, int partitionNumber) throws IOException {
+    String localDir = getTargetDirectory(configurator, partitionNumber);
+    return new CueballDeleter(localDir);
+  }
+
+  public static SortedSet<DenseFilePath> getBases(String... dirs) throws IOException {
+    SortedSet<DenseFilePath> result = new TreeSet<DenseFilePath>();
+    Set<String> paths = FsUtils.getMatchingPaths(BASE_REGEX, dirs);
+    for (String path : paths) {
+      result.add(new DenseFilePath(path));
+    }
+    return result;
+  }
+
+  public static SortedSet<DenseFilePath> getDeltas(String... dirs) throws IOException {
+    SortedSet<DenseFilePath> result = new TreeSet<DenseFilePath>();
+    Set<String> paths = FsUtils.getMatchingPaths(DELTA_REGEX, dirs);
+    for (String path : paths) {
+      result.add(new DenseFilePath(path));
+    }
+    return result;
+  }
+
+  public static int parseVersionNumber(String name) {
+    Matcher matcher = BASE_OR_DELTA_PATTERN.matcher(name);
+    if (!matcher.matches()) {
+      throw new IllegalArgumentException("string " + name
+          + " isn't a path that parseVersionNumber can parse!");
+    }
+
+    return Integer.parseInt(matcher.group(1));
+  }
+
+  public static String getName(int versionNumber, boolean base) {
+    return Cueball.padVersionNumber(versionNumber) + "." + (base ? "base" : "delta") + ".dense";
+  }
+
+  public static String getName(DomainVersion domainVersion) throws IOException {
+    return getName(domainVersion.getVersionNumber(), IncrementalDomainVersionProperties.isBase(domainVersion));
+  }
+
+  @Override
+  public RemoteDomainVersionDeleter getRemoteDomainVersionDeleter() throws IOException {
+    return new DenseRemoteDomainVersionDeleter(domain, remoteDomainRoot, partitionRemoteFileOpsFactory);
+  }
+
+  @Override
+  public RemoteDomainCleaner getRemoteDomainCleaner() throws IOException {
+    return new CueballRemoteDomainCleaner(domain, numRemoteLeafVersionsToKeep);
+  }
+
+  @Override
+  public DomainVersionPropertiesSerialization getDomainVersionPropertiesSerialization() {
+    return new IncrementalDomainVersionProperties.Serialization();
+  }
+
+  private String getTargetDirectory(DataDirectoriesConfigurator configurator, int partitionNumber) {
+    return getDataDirectory(configurator, partitionNumber) + "/" + domain.getName() + "/" + partitionNumber;
+  }
+
+  @Override
+  public String getDataDirectory(DataDirectoriesConfigurator configurator, int partitionNumber) {
+    return Cueball.getDataDirectory(configurator, domain, partitionNumber);
+  }
+
+  @Override
+  public String toString() {
+    return "Dense [domainName=" + domain.getName()
+        + ", fileOpsFactory=" + partitionRemoteFileOpsFactory
+        + ", remoteDomainRoot=" + remoteDomainRoot
+        + ", valueSize=" + valueSize
+        + ", numRemoteLeafVersionsToKeep=" + numRemoteLeafVersionsToKeep
+        + ", mmap=" + mmap
+        + "]";
+  }
+}
@@ -0,0 +1,158 @@
+/**
+ *  Copyright 2013 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.hank.storage.dense;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+
+import com.liveramp.hank.util.EncodingHelper;
+
+/**
+ * Streams the present entries of a Dense base or delta in increasing slot
+ * order. The value buffer is only valid until the next call to next().
+ */
+class DenseFileIterator {
+
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private final String path;
+  private final boolean isBase;
+  private final int valueSize;
+  private final long firstSlot;
+  private final long numEntries;
+  private final DataInputStream dataStream;
+  // Slot table of bases with variable size values
+  private final DataInputStream slotTableStream;
+  private final byte[] entryBuffer = new byte[12];
+
+  private long entryIndex = 0;
+  private long slot;
+  private byte[] valueBuffer = new byte[0];
+  private ByteBuffer value;
+
+  DenseFileIterator(String path, boolean isBase) throws IOException {
+    this.path = path;
+    this.isBase = isBase;
+    FileInputStream dataFile = new FileInputStream(path);
+    DenseFooter footer;
+    try {
+      footer = DenseFooter.read(dataFile.getChannel());
+    } catch (IOException e) {
+      dataFile.close();
+      throw e;
+    }
+    valueSize = footer.getValueSize();
+    firstSlot = footer.getFirstSlot();
+    numEntries = footer.getNumEntries();
+    dataStream = getStream(dataFile.getChannel(), 0);
+    if (isBase && valueSize == 0) {
+      slotTableStream = getStream(new FileInputStream(path).getChannel(), footer.getDataLength());
+    } else {
+      slotTableStream = null;
+    }
+  }
+
+  private static DataInputStream getStream(FileChannel channel, long position) throws IOException {
+    channel.position(position);
+    InputStream stream = Channels.newInputStream(channel);
+    return new DataInputStream(new BufferedInputStream(stream, BUFFER_SIZE));
+  }
+
+  // Move to the next present entry. Return false when there is none left.
+  boolean next() throws IOException {
+    try {
+      while (entryIndex < numEntries) {
+        long index = entryIndex++;
+        if (isBase) {
+          if (readBaseEntry(index)) {
+            return true;
+          }
+        } else {
+          readDeltaRecord();
+          return true;
+        }
+      }
+    } catch (EOFException e) {
+      throw new IOException("Unexpected end of Dense file " + path, e);
+    }
+    value = null;
+    return false;
+  }
+
+  private boolean readBaseEntry(long index) throws IOException {
+    slot = firstSlot + index;
+    if (valueSize > 0) {
+      boolean present = dataStream.readByte() != 0;
+      readValue(valueSize);
+      return present;
+    } else {
+      slotTableStream.readFully(entryBuffer, 0, 12);
+      int valueLengthPlusOne = (int) EncodingHelper.decodeLittleEndianFixedWidthLong(entryBuffer, 8, 4);
+      if (valueLengthPlusOne == 0) {
+        return false;
+      }
+      // Values are stored in slot order
+      readValue(valueLengthPlusOne - 1);
+      return true;
+    }
+  }
+
+  private void readDeltaRecord() throws IOException {
+    dataStream.readFully(entryBuffer, 0, 8);
+    slot = EncodingHelper.decodeLittleEndianFixedWidthLong(entryBuffer, 0, 8);
+    int valueLength = valueSize;
+    if (valueSize == 0) {
+      dataStream.readFully(entryBuffer, 0, 4);
+      valueLength = (int) EncodingHelper.decodeLittleEndianFixedWidthLong(entryBuffer, 0, 4);
+    }
+    readValue(valueLength);
+  }
+
+  private void readValue(int valueLength) throws IOException {
+    if (valueBuffer.length < valueLength) {
+      valueBuffer = new byte[valueLength];
+    }
+    dataStream.readFully(valueBuffer, 0, valueLength);
+    value = ByteBuffer.wrap(valueBuffer, 0, valueLength);
+  }
+
+  long getSlot() {
+    return slot;
+  }
+
+  ByteBuffer getValue() {
+    return value;
+  }
+
+  int getValueSize() {
+    return valueSize;
+  }
+
+  void close() throws IOException {
+    dataStream.close();
+    if (slotTableStream != null) {
+      slotTableStream.close();
+    }
+  }
+}
@@ -0,0 +1,95 @@
+/**
+ *  Copyright 2013 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.hank.storage.dense;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import com.liveramp.hank.util.EncodingHelper;
+
+/**
+ * Fixed size footer ending all Dense files:
+ * first slot (8 bytes), number of entries (8 bytes), data length (8 bytes)
+ * and value size (4 bytes, 0 for variable size values), little endian.
+ *
+ * For bases, entries are the slots from the first slot on, present or not.
+ * For deltas, entries are the records.
+ */
+class DenseFooter {
+
+  static final int NUM_BYTES = 28;
+
+  private final long firstSlot;
+  private final long numEntries;
+  private final long dataLength;
+  private final int valueSize;
+
+  DenseFooter(long firstSlot, long numEntries, long dataLength, int valueSize) {
+    this.firstSlot = firstSlot;
+    this.numEntries = numEntries;
+    this.dataLength = dataLength;
+    this.valueSize = valueSize;
+  }
+
+  static DenseFooter read(FileChannel channel) throws IOException {
+    long fileSize = channel.size();
+    if (fileSize < NUM_BYTES) {
+      throw new IOException("Dense file is too short to hold a footer: " + fileSize + " bytes");
+    }
+    ByteBuffer buffer = ByteBuffer.allocate(NUM_BYTES);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, fileSize - NUM_BYTES + buffer.position()) < 0) {
+        throw new IOException("Unexpected end of file while reading Dense footer");
+      }
+    }
+    byte[] bytes = buffer.array();
+    DenseFooter footer = new DenseFooter(EncodingHelper.decodeLittleEndianFixedWidthLong(bytes, 0, 8),
+        EncodingHelper.decodeLittleEndianFixedWidthLong(bytes, 8, 8),
+        EncodingHelper.decodeLittleEndianFixedWidthLong(bytes, 16, 8),
+        (int) EncodingHelper.decodeLittleEndianFixedWidthLong(bytes, 24, 4));
+    if (footer.dataLength > fileSize - NUM_BYTES) {
+      throw new IOException("Dense footer data length " + footer.dataLength + " exceeds file size " + fileSize);
+    }
+    return footer;
+  }
+
+  byte[] toBytes() {
+    byte[] bytes = new byte[NUM_BYTES];
+    EncodingHelper.encodeLittleEndianFixedWidthLong(firstSlot, bytes, 0, 8);
+    EncodingHelper.encodeLittleEndianFixedWidthLong(numEntries, bytes, 8, 8);
+    EncodingHelper.encodeLittleEndianFixedWidthLong(dataLength, bytes, 16, 8);
+    EncodingHelper.encodeLittleEndianFixedWidthLong(valueSize, bytes, 24, 4);
+    return bytes;
+  }
+
+  long getFirstSlot() {
+    return firstSlot;
+  }
+
+  long getNumEntries() {
+    return numEntries;
+  }
+
+  long getDataLength() {
+    return dataLength;
+  }
+
+  int getValueSize() {
+    return valueSize;
+  }
+}
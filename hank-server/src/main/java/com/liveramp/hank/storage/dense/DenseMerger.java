@@ -0,0 +1,85 @@
+/**
+ *  Copyright 2013 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.hank.storage.dense;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Merges a Dense base with deltas into a new base. When a slot is present in
+ * several files, the value of the latest delta wins.
+ */
+public class DenseMerger {
+
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  // Deltas must be ordered from oldest to newest
+  public void merge(DenseFilePath base,
+                    List<DenseFilePath> deltas,
+                    String newBasePath) throws IOException {
+    List<DenseFileIterator> iterators = new ArrayList<DenseFileIterator>(deltas.size() + 1);
+    try {
+      iterators.add(new DenseFileIterator(base.getPath(), true));
+      for (DenseFilePath delta : deltas) {
+        iterators.add(new DenseFileIterator(delta.getPath(), false));
+      }
+      int valueSize = iterators.get(0).getValueSize();
+      for (DenseFileIterator iterator : iterators) {
+        if (iterator.getValueSize() != valueSize) {
+          throw new IOException("Dense files to merge have different value sizes: "
+              + valueSize + " and " + iterator.getValueSize());
+        }
+      }
+      // Position every iterator on its first entry. Exhausted iterators are removed.
+      List<DenseFileIterator> remaining = new ArrayList<DenseFileIterator>(iterators);
+      for (int i = remaining.size() - 1; i >= 0; --i) {
+        if (!remaining.get(i).next()) {
+          remaining.remove(i);
+        }
+      }
+
+      DenseWriter writer = new DenseWriter(new BufferedOutputStream(new FileOutputStream(newBasePath), BUFFER_SIZE),
+          valueSize, true, 0, 1);
+      while (!remaining.isEmpty()) {
+        // Iterators are ordered from oldest to newest, so the last one at the smallest slot wins
+        long slot = Long.MAX_VALUE;
+        DenseFileIterator latest = null;
+        for (DenseFileIterator iterator : remaining) {
+          if (iterator.getSlot() <= slot) {
+            slot = iterator.getSlot();
+            latest = iterator;
+          }
+        }
+        writer.writeSlot(slot, latest.getValue());
+        for (int i = remaining.size() - 1; i >= 0; --i) {
+          DenseFileIterator iterator = remaining.get(i);
+          if (iterator.getSlot() == slot && !iterator.next()) {
+            remaining.remove(i);
+          }
+        }
+      }
+      writer.close();
+    } finally {
+      for (DenseFileIterator iterator : iterators) {
+        iterator.close();
+      }
+    }
+  }
+}
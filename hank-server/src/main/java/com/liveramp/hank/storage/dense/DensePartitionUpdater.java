@@ -0,0 +1,150 @@
+/**
+ *  Copyright 2013 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.hank.storage.dense;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SortedSet;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.log4j.Logger;
+
+import com.liveramp.hank.coordinator.Domain;
+import com.liveramp.hank.coordinator.DomainVersion;
+import com.liveramp.hank.partition_server.PartitionUpdateTaskStatistics;
+import com.liveramp.hank.storage.PartitionRemoteFileOps;
+import com.liveramp.hank.storage.incremental.IncrementalPartitionUpdater;
+import com.liveramp.hank.storage.incremental.IncrementalUpdatePlan;
+import com.liveramp.hank.util.HankTimer;
+
+public class DensePartitionUpdater extends IncrementalPartitionUpdater {
+
+  private static final Logger LOG = Logger.getLogger(DensePartitionUpdater.class);
+
+  private final PartitionRemoteFileOps partitionRemoteFileOps;
+  private final DenseMerger merger;
+
+  public DensePartitionUpdater(Domain domain,
+                               PartitionRemoteFileOps partitionRemoteFileOps,
+                               DenseMerger merger,
+                               String localPartitionRoot) throws IOException {
+    super(domain, localPartitionRoot, new DenseUpdatePlanner(domain));
+    this.partitionRemoteFileOps = partitionRemoteFileOps;
+    this.merger = merger;
+  }
+
+  @Override
+  protected Integer detectCurrentVersionNumber() throws IOException {
+    SortedSet<DenseFilePath> localBases = Dense.getBases(localPartitionRoot);
+    if (localBases.size() > 0) {
+      return localBases.last().getVersion();
+    } else {
+      return null;
+    }
+  }
+
+  @Override
+  protected Set<DomainVersion> detectCachedBasesCore() throws IOException {
+    return detectCachedVersions(Dense.getBases(localPartitionRootCache));
+  }
+
+  @Override
+  protected Set<DomainVersion> detectCachedDeltasCore() throws IOException {
+    return detectCachedVersions(Dense.getDeltas(localPartitionRootCache));
+  }
+
+  private Set<DomainVersion> detectCachedVersions(SortedSet<DenseFilePath> cachedFiles) throws IOException {
+    Set<DomainVersion> cachedVersions = new HashSet<DomainVersion>();
+    for (DenseFilePath file : cachedFiles) {
+      DomainVersion version = domain.getVersion(file.getVersion());
+      if (version != null) {
+        cachedVersions.add(version);
+      }
+    }
+    return cachedVersions;
+  }
+
+  @Override
+  protected void cleanCachedVersions() throws IOException {
+    // Delete all cached versions
+    FileUtils.deleteDirectory(new File(localPartitionRootCache));
+  }
+
+  @Override
+  protected void fetchVersion(DomainVersion domainVersion, String fetchRoot) throws IOException {
+    String fileToFetch = Dense.getName(domainVersion);
+    LOG.info("Fetching from " + partitionRemoteFileOps + " file " + fileToFetch + " to " + fetchRoot);
+    getFetchRemoteFileOps(partitionRemoteFileOps).copyToLocalRoot(fileToFetch, fetchRoot);
+  }
+
+  @Override
+  protected void runUpdateCore(DomainVersion currentVersion,
+                               DomainVersion updatingToVersion,
+                               IncrementalUpdatePlan updatePlan,
+                               String updateWorkRoot,
+                               PartitionUpdateTaskStatistics statistics) throws IOException {
+    // Determine new base path
+    String newBasePath = updateWorkRoot + "/" + Dense.getName(updatingToVersion.getVersionNumber(), true);
+
+    // Determine files from versions
+    DenseFilePath base = getDenseFilePathForVersion(updatePlan.getBase(), currentVersion, true);
+    List<DenseFilePath> deltas = new ArrayList<DenseFilePath>();
+    for (DomainVersion delta : updatePlan.getDeltasOrdered()) {
+      deltas.add(getDenseFilePathForVersion(delta, currentVersion, false));
+    }
+
+    // Check that all required files are available
+    checkRequiredFileExists(base.getPath());
+    for (DenseFilePath delta : deltas) {
+      checkRequiredFileExists(delta.getPath());
+    }
+
+    HankTimer timer = new HankTimer();
+    // If there are no deltas, simply move the required base to the target version.
+    // Otherwise, perform merging.
+    if (deltas.size() == 0) {
+      if (!new File(base.getPath()).renameTo(new File(newBasePath))) {
+        throw new IOException("Failed to rename Dense base: " + base.getPath() + " to: " + newBasePath);
+      }
+    } else {
+      merger.merge(base, deltas, newBasePath);
+    }
+    statistics.getDurationsMs().put("Dense merge", timer.getDurationMs());
+  }
+
+  private DenseFilePath getDenseFilePathForVersion(DomainVersion version,
+                                                   DomainVersion currentVersion,
+                                                   boolean isBase) {
+    if (currentVersion != null && currentVersion.equals(version)) {
+      // If version is current version, data is in root
+      return new DenseFilePath(localPartitionRoot + "/" + Dense.getName(version.getVersionNumber(), isBase));
+    } else {
+      // Otherwise, version must be in cache
+      return new DenseFilePath(localPartitionRootCache + "/" + Dense.getName(version.getVersionNumber(), isBase));
+    }
+  }
+
+  private static void checkRequiredFileExists(String path) throws IOException {
+    if (!new File(path).exists()) {
+      throw new IOException("Could not find required file for merging: " + path);
+    }
+  }
+}
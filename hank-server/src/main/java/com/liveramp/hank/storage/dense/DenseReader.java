@@ -0,0 +1,199 @@
+/**
+ *  Copyright 2013 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.hank.storage.dense;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.SortedSet;
+
+import com.liveramp.hank.partitioner.IntegerModuloPartitioner;
+import com.liveramp.hank.storage.Reader;
+import com.liveramp.hank.storage.ReaderResult;
+import com.liveramp.hank.storage.Readers;
+import com.liveramp.hank.util.EncodingHelper;
+import com.liveramp.hank.util.MemoryMappedFile;
+
+/**
+ * Reads the latest Dense base of a partition. The position of a key's entry
+ * is computed from the key, so that a lookup is a single read with fixed size
+ * values, and two reads (slot entry, then value) with variable size values.
+ */
+public class DenseReader implements Reader {
+
+  private static final int SLOT_TABLE_ENTRY_NUM_BYTES = 12;
+
+  private final FileChannel channel;
+  private final int numPartitions;
+  private final Integer versionNumber;
+  private final long firstSlot;
+  private final long numSlots;
+  private final long dataLength;
+  private final int valueSize;
+  // Memory mapped mode
+  private final MemoryMappedFile mappedFile;
+
+  public DenseReader(String partitionRoot, int numPartitions) throws IOException {
+    this(partitionRoot, numPartitions, false);
+  }
+
+  public DenseReader(String partitionRoot, int numPartitions, boolean mmap) throws IOException {
+    SortedSet<DenseFilePath> bases = Dense.getBases(partitionRoot);
+    if (bases == null || bases.size() == 0) {
+      throw new IOException("Could not detect any Dense base in " + partitionRoot);
+    }
+    DenseFilePath latestBase = bases.last();
+    this.numPartitions = numPartitions;
+    this.versionNumber = latestBase.getVersion();
+    channel = new FileInputStream(latestBase.getPath()).getChannel();
+    DenseFooter footer = DenseFooter.read(channel);
+    firstSlot = footer.getFirstSlot();
+    numSlots = footer.getNumEntries();
+    dataLength = footer.getDataLength();
+    valueSize = footer.getValueSize();
+    if (mmap) {
+      // Fixed size entries and slot table entries can always be accessed contiguously
+      mappedFile = new MemoryMappedFile(channel, channel.size() - DenseFooter.NUM_BYTES,
+          valueSize > 0 ? 1 + valueSize : SLOT_TABLE_ENTRY_NUM_BYTES);
+    } else {
+      mappedFile = null;
+    }
+  }
+
+  @Override
+  public void get(ByteBuffer key, ReaderResult result) throws IOException {
+    long index = getSlotIndex(key);
+    if (index < 0) {
+      result.notFound();
+      return;
+    }
+    if (valueSize > 0) {
+      getFixedSizeValue(index, result);
+    } else {
+      getVariableSizeValue(index, result);
+    }
+  }
+
+  // Index of the key's entry in the base, or -1 if it cannot be stored in it
+  private long getSlotIndex(ByteBuffer key) {
+    long integerKey;
+    try {
+      integerKey = IntegerModuloPartitioner.decodeKey(key);
+    } catch (IllegalArgumentException e) {
+      return -1;
+    }
+    long index = integerKey / numPartitions - firstSlot;
+    if (index < 0 || index >= numSlots) {
+      return -1;
+    }
+    return index;
+  }
+
+  private void getFixedSizeValue(long index, ReaderResult result) throws IOException {
+    int entrySize = 1 + valueSize;
+    long offset = index * entrySize;
+    ByteBuffer entry;
+    if (mappedFile != null) {
+      entry = mappedFile.getSlice(offset, entrySize);
+    } else {
+      result.requiresBufferSize(entrySize);
+      entry = result.getBuffer();
+      entry.clear();
+      readFully(entry, offset, entrySize);
+      entry.flip();
+    }
+    if (entry.get(0) == 0) {
+      result.notFound();
+      return;
+    }
+    result.found();
+    entry.position(1);
+    if (mappedFile != null) {
+      result.borrowBuffer(entry.slice());
+    }
+  }
+
+  private void getVariableSizeValue(long index, ReaderResult result) throws IOException {
+    long slotEntryOffset = dataLength + index * SLOT_TABLE_ENTRY_NUM_BYTES;
+    long valueOffset;
+    int valueLengthPlusOne;
+    if (mappedFile != null) {
+      ByteBuffer slotEntry = mappedFile.getSlice(slotEntryOffset, SLOT_TABLE_ENTRY_NUM_BYTES);
+      valueOffset = slotEntry.order(ByteOrder.LITTLE_ENDIAN).getLong(0);
+      valueLengthPlusOne = slotEntry.getInt(8);
+    } else {
+      result.requiresBufferSize(SLOT_TABLE_ENTRY_NUM_BYTES);
+      ByteBuffer slotEntry = result.getBuffer();
+      slotEntry.clear();
+      readFully(slotEntry, slotEntryOffset, SLOT_TABLE_ENTRY_NUM_BYTES);
+      valueOffset = EncodingHelper.decodeLittleEndianFixedWidthLong(slotEntry.array(), 0, 8);
+      valueLengthPlusOne = (int) EncodingHelper.decodeLittleEndianFixedWidthLong(slotEntry.array(), 8, 4);
+    }
+    if (valueLengthPlusOne == 0) {
+      result.notFound();
+      return;
+    }
+    int valueLength = valueLengthPlusOne - 1;
+    result.found();
+    if (mappedFile != null && mappedFile.isContiguous(valueOffset, valueLength)) {
+      result.borrowBuffer(mappedFile.getSlice(valueOffset, valueLength));
+    } else {
+      result.requiresBufferSize(valueLength);
+      ByteBuffer value = result.getBuffer();
+      value.clear();
+      readFully(value, valueOffset, valueLength);
+      value.flip();
+    }
+  }
+
+  // Read the given number of bytes at the beginning of the (cleared) buffer
+  private void readFully(ByteBuffer buffer, long offset, int length) throws IOException {
+    buffer.limit(length);
+    int bytesRead = 0;
+    while (bytesRead < length) {
+      int numBytes = channel.read(buffer, offset + bytesRead);
+      if (numBytes < 0) {
+        throw new IOException("Unexpected end of file while reading entry at offset " + offset);
+      }
+      bytesRead += numBytes;
+    }
+  }
+
+  @Override
+  public void getBulk(List<ByteBuffer> keys, List<ReaderResult> results) throws IOException {
+    Readers.getBulk(this, keys, results);
+  }
+
+  @Override
+  public Integer getVersionNumber() {
+    return versionNumber;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (channel != null) {
+      channel.close();
+    }
+    // Values borrowed from the mapping must be used or copied before the reader is closed
+    if (mappedFile != null) {
+      mappedFile.unmap();
+    }
+  }
+}
@@ -0,0 +1,48 @@
+/**
+ *  Copyright 2013 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.hank.storage.dense;
+
+import java.io.IOException;
+
+import com.liveramp.hank.coordinator.Domain;
+import com.liveramp.hank.storage.PartitionRemoteFileOps;
+import com.liveramp.hank.storage.PartitionRemoteFileOpsFactory;
+import com.liveramp.hank.storage.RemoteDomainVersionDeleter;
+
+public class DenseRemoteDomainVersionDeleter implements RemoteDomainVersionDeleter {
+
+  private final Domain domain;
+  private final String remoteDomainRoot;
+  private final PartitionRemoteFileOpsFactory fileOpsFactory;
+
+  public DenseRemoteDomainVersionDeleter(Domain domain,
+                                         String remoteDomainRoot,
+                                         PartitionRemoteFileOpsFactory fileOpsFactory) {
+    this.domain = domain;
+    this.remoteDomainRoot = remoteDomainRoot;
+    this.fileOpsFactory = fileOpsFactory;
+  }
+
+  @Override
+  public void deleteVersion(int versionNumber) throws IOException {
+    for (int partition = 0; partition < domain.getNumParts(); ++partition) {
+      PartitionRemoteFileOps fileOps = fileOpsFactory.getPartitionRemoteFileOps(remoteDomainRoot, partition);
+      fileOps.attemptDelete(Dense.getName(versionNumber, true));
+      fileOps.attemptDelete(Dense.getName(versionNumber, false));
+    }
+  }
+}
@@ -0,0 +1,239 @@
+/**
+ *  Copyright 2013 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.hank.storage.dense;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import com.liveramp.hank.partitioner.IntegerModuloPartitioner;
+import com.liveramp.hank.storage.Writer;
+import com.liveramp.hank.util.Bytes;
+import com.liveramp.hank.util.EncodingHelper;
+
+/**
+ * Writes Dense bases and deltas. Keys must be written in increasing order,
+ * which is the order of their comparable keys.
+ *
+ * Bases store one entry per slot from the first written slot on. With fixed
+ * size values, entries are a presence byte followed by the value. With
+ * variable size values, values are written first, followed by one entry per
+ * slot: value offset (8 bytes) and value length + 1 (4 bytes, 0 when absent).
+ * Deltas only store written records: slot (8 bytes), followed by the value,
+ * prefixed with its length (4 bytes) when values are of variable size.
+ */
+public class DenseWriter implements Writer {
+
+  private static final int PADDING_BUFFER_SIZE = 1 << 16;
+  private static final byte[] PRESENT = new byte[]{1};
+
+  // Bases store every slot between the first and the last written one, so that
+  // sparse keys would make them arbitrarily large. Once they span more than
+  // MIN_NUM_SLOTS_CHECKED slots, bases may span at most MAX_NUM_SLOTS_PER_RECORD
+  // slots per record written.
+  static final long MIN_NUM_SLOTS_CHECKED = 1 << 16;
+  static final long MAX_NUM_SLOTS_PER_RECORD = 16;
+
+  private final OutputStream stream;
+  private final int valueSize;
+  private final boolean isBase;
+  private final int partitionNumber;
+  private final int numPartitions;
+  private final byte[] longBuffer = new byte[12];
+
+  private long firstSlot = -1;
+  private long previousSlot = -1;
+  private long dataLength = 0;
+  private long numBytesWritten = 0;
+  private long numRecordsWritten = 0;
+
+  // Slot table of bases with variable size values, indexed by slot - firstSlot
+  private long[] valueOffsets;
+  private int[] valueLengthsPlusOne;
+
+  public DenseWriter(OutputStream stream, int valueSize, boolean isBase, int partitionNumber, int numPartitions) {
+    if (valueSize < 0) {
+      throw new IllegalArgumentException("Value size must not be negative: " + valueSize);
+    }
+    this.stream = stream;
+    this.valueSize = valueSize;
+    this.isBase = isBase;
+    this.partitionNumber = partitionNumber;
+    this.numPartitions = numPartitions;
+    if (isBase && valueSize == 0) {
+      valueOffsets = new long[1024];
+      valueLengthsPlusOne = new int[1024];
+    }
+  }
+
+  @Override
+  public void write(ByteBuffer key, ByteBuffer value) throws IOException {
+    long integerKey;
+    try {
+      integerKey = IntegerModuloPartitioner.decodeKey(key);
+    } catch (IllegalArgumentException e) {
+      throw new IOException("Invalid key: " + Bytes.bytesToHexString(key), e);
+    }
+    if (integerKey % numPartitions != partitionNumber) {
+      throw new IOException("Key " + integerKey + " does not belong to partition " + partitionNumber
+          + " of " + numPartitions + ". Dense domains must use " + IntegerModuloPartitioner.class.getSimpleName());
+    }
+    writeSlot(integerKey / numPartitions, value);
+  }
+
+  // Write the value of the given slot. Slots must be written in increasing order.
+  void writeSlot(long slot, ByteBuffer value) throws IOException {
+    if (valueSize > 0 && value.remaining() != valueSize) {
+      throw new IOException("Size of value to be written is: "
+          + value.remaining() + ", but configured value size is: " + valueSize);
+    }
+    if (slot <= previousSlot) {
+      throw new IOException("Key ordering is incorrect. They should be ordered by increasing value (comparableKey)"
+          + " but slot " + slot + " was written after slot " + previousSlot);
+    }
+    if (firstSlot < 0) {
+      firstSlot = slot;
+    }
+    if (isBase) {
+      writeBaseSlot(slot, value);
+    } else {
+      writeDeltaRecord(slot, value);
+    }
+    previousSlot = slot;
+    numRecordsWritten++;
+  }
+
+  private void writeBaseSlot(long slot, ByteBuffer value) throws IOException {
+    long numSlots = slot - firstSlot + 1;
+    long numRecords = numRecordsWritten + 1;
+    if (numSlots > MIN_NUM_SLOTS_CHECKED && numSlots > MAX_NUM_SLOTS_PER_RECORD * numRecords) {
+      throw new IOException("Keys are too sparse for a Dense base: slot " + slot
+          + " would make it span " + numSlots + " slots for " + numRecords + " records,"
+          + " but Dense bases may only span " + MAX_NUM_SLOTS_PER_RECORD + " slots per record."
+          + " Sparse keys should use another storage engine, such as Cueball or Curly.");
+    }
+    if (valueSize > 0) {
+      // Absent slots since the previous one are left empty
+      long numEmptySlots = previousSlot < 0 ? 0 : slot - previousSlot - 1;
+      writePadding(numEmptySlots * (1 + valueSize));
+      writeBytes(PRESENT, 1);
+      writeValue(value);
+    } else {
+      long index = slot - firstSlot;
+      if (index >= Integer.MAX_VALUE) {
+        throw new IOException("Too many slots in Dense base: " + (index + 1));
+      }
+      if (index >= valueOffsets.length) {
+        int capacity = (int) Math.min(Integer.MAX_VALUE, Math.max(index + 1, 2L * valueOffsets.length));
+        valueOffsets = Arrays.copyOf(valueOffsets, capacity);
+        valueLengthsPlusOne = Arrays.copyOf(valueLengthsPlusOne, capacity);
+      }
+      valueOffsets[(int) index] = dataLength;
+      valueLengthsPlusOne[(int) index] = value.remaining() + 1;
+      writeValue(value);
+    }
+  }
+
+  private void writeDeltaRecord(long slot, ByteBuffer value) throws IOException {
+    EncodingHelper.encodeLittleEndianFixedWidthLong(slot, longBuffer, 0, 8);
+    if (valueSize > 0) {
+      writeBytes(longBuffer, 8);
+    } else {
+      EncodingHelper.encodeLittleEndianFixedWidthLong(value.remaining(), longBuffer, 8, 4);
+      writeBytes(longBuffer, 12);
+    }
+    writeValue(value);
+  }
+
+  private void writeValue(ByteBuffer value) throws IOException {
+    if (value.hasArray()) {
+      stream.write(value.array(), value.arrayOffset() + value.position(), value.remaining());
+    } else {
+      byte[] bytes = new byte[value.remaining()];
+      value.duplicate().get(bytes);
+      stream.write(bytes);
+    }
+    dataLength += value.remaining();
+    numBytesWritten += value.remaining();
+  }
+
+  private void writeBytes(byte[] bytes, int length) throws IOException {
+    stream.write(bytes, 0, length);
+    dataLength += length;
+    numBytesWritten += length;
+  }
+
+  private void writePadding(long numBytes) throws IOException {
+    if (numBytes <= 0) {
+      return;
+    }
+    byte[] padding = new byte[(int) Math.min(numBytes, PADDING_BUFFER_SIZE)];
+    while (numBytes > 0) {
+      int length = (int) Math.min(numBytes, padding.length);
+      writeBytes(padding, length);
+      numBytes -= length;
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    long numEntries;
+    long footerDataLength = dataLength;
+    if (isBase) {
+      numEntries = firstSlot < 0 ? 0 : previousSlot - firstSlot + 1;
+      if (valueSize == 0) {
+        // Write the slot table after the values
+        for (int i = 0; i < numEntries; ++i) {
+          EncodingHelper.encodeLittleEndianFixedWidthLong(valueOffsets[i], longBuffer, 0, 8);
+          EncodingHelper.encodeLittleEndianFixedWidthLong(valueLengthsPlusOne[i], longBuffer, 8, 4);
+          stream.write(longBuffer, 0, 12);
+          numBytesWritten += 12;
+        }
+      }
+    } else {
+      numEntries = numRecordsWritten;
+    }
+    byte[] footer = new DenseFooter(Math.max(0, firstSlot), numEntries, footerDataLength, valueSize).toBytes();
+    stream.write(footer);
+    numBytesWritten += footer.length;
+
+    // flush everything and close
+    stream.flush();
+    stream.close();
+    valueOffsets = null;
+    valueLengthsPlusOne = null;
+  }
+
+  @Override
+  public long getNumBytesWritten() {
+    return numBytesWritten;
+  }
+
+  @Override
+  public long getNumRecordsWritten() {
+    return numRecordsWritten;
+  }
+
+  @Override
+  public String toString() {
+    return "DenseWriter ["
+        + "numRecordsWritten=" + getNumRecordsWritten()
+        + ", numBytesWritten=" + getNumBytesWritten()
+        + "]";
+  }
+}
@@ -21,7 +21,10 @@ import com.liveramp.hank.coordinator.Coordinator;
 import com.liveramp.hank.coordinator.Domain;
 import com.liveramp.hank.coordinator.DomainVersion;
 import com.liveramp.hank.partition_server.PartitionUpdateTaskStatistics;
-import com.liveramp.hank.storage.PartitionUpdater;
+import com.liveramp.hank.storage.PartitionRemoteFileOps;
+import com.liveramp.hank.storage.PrefetchingPartitionUpdater;
+import com.liveramp.hank.storage.ThrottledPartitionRemoteFileOps;
+import com.liveramp.hank.util.BandwidthThrottle;
 import com.liveramp.hank.util.FormatUtils;
 import com.liveramp.hank.util.HankTimer;
 import org.apache.commons.io.FileUtils;
@@ -32,7 +35,7 @@ import java.io.IOException;
 import java.util.Set;
 import java.util.UUID;
 
-public abstract class IncrementalPartitionUpdater implements PartitionUpdater, CloseCoordinatorOpportunistically {
+public abstract class IncrementalPartitionUpdater implements PrefetchingPartitionUpdater, CloseCoordinatorOpportunistically {
 
   private static final Logger LOG = Logger.getLogger(IncrementalPartitionUpdater.class);
 
@@ -45,6 +48,8 @@ public abstract class IncrementalPartitionUpdater implements PartitionUpdater, C
   protected final String localPartitionRootCache;
   private final IncrementalUpdatePlanner updatePlanner;
   private Coordinator coordinatorToCloseOpportunistically;
+  // Set while prefetching
+  private BandwidthThrottle fetchThrottle;
 
   public IncrementalPartitionUpdater(Domain domain,
                                      String localPartitionRoot,
@@ -109,6 +114,41 @@ public abstract class IncrementalPartitionUpdater implements PartitionUpdater, C
     }
   }
 
+  // Fetch the versions needed to update to the given version into the cache, and leave them there
+  // for the update. The current version is left untouched, so that it can keep being served.
+  @Override
+  public void prefetch(DomainVersion updatingToVersion, BandwidthThrottle throttle) throws IOException {
+    ensureLocalPartitionRootExists();
+    ensureCacheExists();
+    DomainVersion currentVersion = detectCurrentVersion();
+    Set<DomainVersion> cachedBases = detectCachedBases();
+    Set<DomainVersion> cachedDeltas = detectCachedDeltas();
+    IncrementalUpdatePlan updatePlan = updatePlanner.computeUpdatePlan(currentVersion, cachedBases, updatingToVersion);
+    // The plan is empty, there is nothing to fetch
+    if (updatePlan == null) {
+      return;
+    }
+    LOG.info("Prefetching versions of update plan " + updatePlan + " to " + localPartitionRootCache);
+    fetchThrottle = throttle;
+    try {
+      HankTimer timer = new HankTimer();
+      cacheVersionsNeededToUpdate(currentVersion, cachedBases, cachedDeltas, updatePlan);
+      LOG.info("Prefetched versions needed to update " + localPartitionRoot + " to " + updatingToVersion
+          + " in " + FormatUtils.formatSecondsDuration(timer.getDurationMs() / 1000));
+    } finally {
+      fetchThrottle = null;
+    }
+  }
+
+  // Remote file operations to use when fetching versions. Copies are throttled while prefetching.
+  protected PartitionRemoteFileOps getFetchRemoteFileOps(PartitionRemoteFileOps partitionRemoteFileOps) {
+    if (fetchThrottle == null) {
+      return partitionRemoteFileOps;
+    } else {
+      return new ThrottledPartitionRemoteFileOps(partitionRemoteFileOps, fetchThrottle);
+    }
+  }
+
   private void closeCoordinatorOpportunistically() throws IOException {
     if (coordinatorToCloseOpportunistically != null) {
       coordinatorToCloseOpportunistically.close();
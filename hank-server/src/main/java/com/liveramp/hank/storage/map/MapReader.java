@@ -17,9 +17,11 @@ package com.liveramp.hank.storage.map;
 
 import com.liveramp.hank.storage.Reader;
 import com.liveramp.hank.storage.ReaderResult;
+import com.liveramp.hank.storage.Readers;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 
@@ -55,6 +57,11 @@ public class MapReader implements Reader {
     }
   }
 
+  @Override
+  public void getBulk(List<ByteBuffer> keys, List<ReaderResult> results) throws IOException {
+    Readers.getBulk(this, keys, results);
+  }
+
   @Override
   public Integer getVersionNumber() {
     return versionNumber;
@@ -0,0 +1,197 @@
+/**
+ *  Copyright 2013 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.hank.storage.memory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+
+import com.liveramp.hank.compression.cueball.CueballCompressionCodec;
+import com.liveramp.hank.hasher.Hasher;
+import com.liveramp.hank.storage.Reader;
+import com.liveramp.hank.storage.ReaderResult;
+import com.liveramp.hank.storage.Readers;
+import com.liveramp.hank.storage.cueball.CueballStreamBuffer;
+
+/**
+ * Serves a whole partition from an off-heap hash table, loaded from the
+ * partition's files when the Reader is opened. Meant for small domains that
+ * take a lot of traffic: lookups never touch the file system.
+ *
+ * The table is loaded by streaming the latest Cueball base (which is the key
+ * file of Curly partitions). If the partition does not fit in what remains of
+ * the given memory budget, which the domain's partitions share, the file backed
+ * Reader is used instead. Closing the Reader gives its bytes back to the budget.
+ */
+public class InMemoryReader implements Reader {
+
+  private static final Logger LOG = Logger.getLogger(InMemoryReader.class);
+
+  private static final KeyHashBufferThreadLocal keyHashBufferThreadLocal = new KeyHashBufferThreadLocal();
+
+  private final Hasher hasher;
+  private final int keyHashSize;
+  private final Integer versionNumber;
+  private OffHeapHashTable table;
+
+  // Reads the value to serve from the value stored in the Cueball file (e.g. a Curly record location)
+  public interface ValueReader {
+
+    public void readValue(ByteBuffer keyFileValue, ReaderResult result) throws IOException;
+  }
+
+  private static class KeyHashBufferThreadLocal extends ThreadLocal<byte[]> {
+
+    private static int KEY_HASH_BUFFER_INITIAL_SIZE = 8;
+
+    @Override
+    protected byte[] initialValue() {
+      return new byte[KEY_HASH_BUFFER_INITIAL_SIZE];
+    }
+
+    protected byte[] getAndRequireBufferSize(int size) {
+      byte[] buffer = this.get();
+      if (buffer.length < size) {
+        buffer = new byte[size];
+        this.set(buffer);
+      }
+      return buffer;
+    }
+  }
+
+  public InMemoryReader(Hasher hasher, int keyHashSize, OffHeapHashTable table, Integer versionNumber) {
+    this.hasher = hasher;
+    this.keyHashSize = keyHashSize;
+    this.table = table;
+    this.versionNumber = versionNumber;
+  }
+
+  // Load the given Cueball base into memory and close the file backed Reader. If the base does not fit
+  // in the memory budget, return the file backed Reader instead. Values are copied as is when valueReader is null.
+  public static Reader load(Reader fileReader,
+                            String cueballBasePath,
+                            Hasher hasher,
+                            int keyHashSize,
+                            int cueballValueSize,
+                            int hashIndexBits,
+                            CueballCompressionCodec compressionCodec,
+                            ValueReader valueReader,
+                            MemoryBudget budget) throws IOException {
+    // Count keys first, so that slots are allocated once
+    int numKeys = 0;
+    CueballStreamBuffer stream = new CueballStreamBuffer(cueballBasePath, 0, keyHashSize, cueballValueSize,
+        hashIndexBits, compressionCodec);
+    try {
+      while (stream.anyRemaining()) {
+        ++numKeys;
+        stream.consume();
+      }
+    } finally {
+      stream.close();
+    }
+    long slotsNumBytes = OffHeapHashTable.getSlotsNumBytes(keyHashSize, numKeys);
+    long availableNumBytes = budget.getNumAvailableBytes();
+    if (slotsNumBytes > availableNumBytes || slotsNumBytes > Integer.MAX_VALUE) {
+      LOG.warn("Slots for " + numKeys + " keys of " + cueballBasePath + " need " + slotsNumBytes
+          + " bytes, more than the " + availableNumBytes + " bytes left in the in memory budget of "
+          + budget.getMaxNumBytes() + " bytes. Using the file backed Reader.");
+      return fileReader;
+    }
+
+    // Values are copied as is when their total size is known
+    long valuesNumBytes = (long) numKeys * cueballValueSize;
+    int valuesCapacity = valueReader == null && valuesNumBytes <= availableNumBytes - slotsNumBytes ? (int) valuesNumBytes : 0;
+    final OffHeapHashTable table;
+    try {
+      table = new OffHeapHashTable(keyHashSize, numKeys, valuesCapacity, budget);
+    } catch (IllegalArgumentException e) {
+      // Another partition of the domain took the budget in the meantime
+      LOG.warn("Slots for " + numKeys + " keys of " + cueballBasePath + " do not fit in the in memory budget of "
+          + budget.getMaxNumBytes() + " bytes. Using the file backed Reader.");
+      return fileReader;
+    }
+    ReaderResult result = new ReaderResult();
+    byte[] keyHash = new byte[keyHashSize];
+    boolean loaded = false;
+    stream = new CueballStreamBuffer(cueballBasePath, 0, keyHashSize, cueballValueSize, hashIndexBits, compressionCodec);
+    try {
+      while (stream.anyRemaining()) {
+        byte[] buffer = stream.getBuffer();
+        int offset = stream.getCurrentOffset();
+        System.arraycopy(buffer, offset, keyHash, 0, keyHashSize);
+        ByteBuffer value = ByteBuffer.wrap(buffer, offset + keyHashSize, cueballValueSize).slice();
+        if (valueReader != null) {
+          result.clear();
+          valueReader.readValue(value, result);
+          value = result.getBuffer();
+        }
+        if (!table.put(keyHash, value)) {
+          LOG.warn("Values of " + cueballBasePath + " do not fit in the in memory budget of "
+              + budget.getMaxNumBytes() + " bytes. Using the file backed Reader.");
+          return fileReader;
+        }
+        stream.consume();
+      }
+      loaded = true;
+    } finally {
+      stream.close();
+      if (!loaded) {
+        table.release();
+      }
+    }
+
+    LOG.info("Loaded " + table.size() + " entries of " + cueballBasePath + " in memory ("
+        + table.getNumManagedBytes() + " bytes)");
+    Integer versionNumber = fileReader.getVersionNumber();
+    fileReader.close();
+    return new InMemoryReader(hasher, keyHashSize, table, versionNumber);
+  }
+
+  @Override
+  public void get(ByteBuffer key, ReaderResult result) throws IOException {
+    byte[] keyHash = keyHashBufferThreadLocal.getAndRequireBufferSize(keyHashSize);
+    hasher.hash(key, keyHashSize, keyHash);
+    ByteBuffer value = table.get(keyHash);
+    if (value == null) {
+      result.notFound();
+    } else {
+      result.found();
+      result.borrowBuffer(value);
+    }
+  }
+
+  @Override
+  public void getBulk(List<ByteBuffer> keys, List<ReaderResult> results) throws IOException {
+    Readers.getBulk(this, keys, results);
+  }
+
+  @Override
+  public Integer getVersionNumber() {
+    return versionNumber;
+  }
+
+  @Override
+  public void close() throws IOException {
+    // Off-heap memory is freed once the table is garbage collected
+    if (table != null) {
+      table.release();
+      table = null;
+    }
+  }
+}
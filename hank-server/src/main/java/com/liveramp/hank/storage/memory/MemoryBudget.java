@@ -0,0 +1,57 @@
+/**
+ *  Copyright 2013 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.hank.storage.memory;
+
+/**
+ * Number of bytes that in memory partitions may allocate outside of the heap.
+ * Storage engines share one budget between all the partitions of their domain
+ * that a host serves, so that memory use does not grow with the number of
+ * partitions.
+ *
+ * Bytes are reserved before they are allocated, and released once their
+ * buffers are dropped.
+ */
+public class MemoryBudget {
+
+  private final long maxNumBytes;
+  private long numReservedBytes = 0;
+
+  public MemoryBudget(long maxNumBytes) {
+    this.maxNumBytes = maxNumBytes;
+  }
+
+  // Return false, and reserve nothing, if the given number of bytes does not fit in the budget
+  public synchronized boolean reserve(long numBytes) {
+    if (numBytes > maxNumBytes - numReservedBytes) {
+      return false;
+    }
+    numReservedBytes += numBytes;
+    return true;
+  }
+
+  public synchronized void release(long numBytes) {
+    numReservedBytes -= numBytes;
+  }
+
+  public synchronized long getNumAvailableBytes() {
+    return maxNumBytes - numReservedBytes;
+  }
+
+  public long getMaxNumBytes() {
+    return maxNumBytes;
+  }
+}
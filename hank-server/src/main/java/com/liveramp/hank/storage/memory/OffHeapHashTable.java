@@ -0,0 +1,198 @@
+/**
+ *  Copyright 2013 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.hank.storage.memory;
+
+import java.nio.ByteBuffer;
+
+import com.liveramp.hank.util.Bytes;
+
+/**
+ * Open addressing (linear probing) hash table from fixed size key hashes to
+ * variable size values, held in direct buffers outside of the Java heap.
+ *
+ * Slots are laid out as: key hash, value offset (4 bytes), value length + 1
+ * (4 bytes). A value length field of 0 marks an empty slot, which is what
+ * direct buffers are initialized with. Values are appended to a separate
+ * region that grows as needed, within the given memory budget. Growing
+ * briefly holds both the old and the new region, and reserves both.
+ *
+ * The table is built by a single thread, and can then be read concurrently.
+ */
+public class OffHeapHashTable {
+
+  private static final double MAX_LOAD_FACTOR = 0.5;
+  private static final int INITIAL_VALUES_CAPACITY = 1 << 20;
+
+  private final int keyHashSize;
+  private final int slotSize;
+  private final int numSlots;
+  private final MemoryBudget budget;
+  private final ByteBuffer slots;
+  private ByteBuffer values;
+  private int numEntries = 0;
+  private boolean released = false;
+
+  // Size of the slot region of a table that can hold the given number of keys
+  public static long getSlotsNumBytes(int keyHashSize, int numKeys) {
+    return (long) getNumSlots(numKeys) * (keyHashSize + 8);
+  }
+
+  private static int getNumSlots(int numKeys) {
+    int numSlots = 1;
+    while (numSlots < numKeys / MAX_LOAD_FACTOR) {
+      numSlots <<= 1;
+    }
+    return numSlots;
+  }
+
+  // When the values size is known in advance, it should be given as valuesCapacity (0 otherwise).
+  // Allocated bytes are reserved from the given budget, until the table is released.
+  public OffHeapHashTable(int keyHashSize, int numKeys, int valuesCapacity, MemoryBudget budget) {
+    long slotsNumBytes = getSlotsNumBytes(keyHashSize, numKeys);
+    if (slotsNumBytes > Integer.MAX_VALUE || !budget.reserve(slotsNumBytes)) {
+      throw new IllegalArgumentException("A table of " + numKeys + " keys needs " + slotsNumBytes
+          + " bytes of slots, which does not fit in " + budget.getNumAvailableBytes() + " bytes");
+    }
+    this.keyHashSize = keyHashSize;
+    this.slotSize = keyHashSize + 8;
+    this.numSlots = getNumSlots(numKeys);
+    this.budget = budget;
+    this.slots = ByteBuffer.allocateDirect((int) slotsNumBytes);
+    if (valuesCapacity <= 0) {
+      valuesCapacity = INITIAL_VALUES_CAPACITY;
+    }
+    // Start empty when the values region does not fit, it then grows to what does
+    if (!budget.reserve(valuesCapacity)) {
+      valuesCapacity = 0;
+    }
+    this.values = ByteBuffer.allocateDirect(valuesCapacity);
+  }
+
+  // Insert the remaining bytes of the given value. Return false if it does not fit in the memory budget.
+  public boolean put(byte[] keyHash, ByteBuffer value) {
+    if (numEntries >= numSlots * MAX_LOAD_FACTOR) {
+      throw new IllegalStateException("Table is full: " + numEntries + " entries in " + numSlots + " slots");
+    }
+    int valueLength = value.remaining();
+    if (values.remaining() < valueLength && !growValues(valueLength)) {
+      return false;
+    }
+    int valueOffset = values.position();
+    values.put(value.duplicate());
+
+    int slot = findSlot(keyHash);
+    int slotOffset = slot * slotSize;
+    if (slots.getInt(slotOffset + keyHashSize + 4) == 0) {
+      for (int i = 0; i < keyHashSize; ++i) {
+        slots.put(slotOffset + i, keyHash[i]);
+      }
+      ++numEntries;
+    }
+    // Existing keys are overwritten. Their previous value is not reclaimed.
+    slots.putInt(slotOffset + keyHashSize, valueOffset);
+    slots.putInt(slotOffset + keyHashSize + 4, valueLength + 1);
+    return true;
+  }
+
+  // Return a read-only buffer holding the value of the given key hash, or null if it is absent
+  public ByteBuffer get(byte[] keyHash) {
+    int slotOffset = findSlot(keyHash) * slotSize;
+    int valueLengthPlusOne = slots.getInt(slotOffset + keyHashSize + 4);
+    if (valueLengthPlusOne == 0) {
+      return null;
+    }
+    int valueOffset = slots.getInt(slotOffset + keyHashSize);
+    // Duplicate so that concurrent readers do not share position and limit
+    ByteBuffer value = values.duplicate();
+    value.limit(valueOffset + valueLengthPlusOne - 1);
+    value.position(valueOffset);
+    return value.slice().asReadOnlyBuffer();
+  }
+
+  // Return the slot holding the given key hash, or the empty slot where it would be inserted
+  private int findSlot(byte[] keyHash) {
+    int mask = numSlots - 1;
+    int slot = hash(keyHash) & mask;
+    while (true) {
+      int slotOffset = slot * slotSize;
+      if (slots.getInt(slotOffset + keyHashSize + 4) == 0
+          || Bytes.compareBytesUnsigned(slots, slotOffset, keyHash, 0, keyHashSize) == 0) {
+        return slot;
+      }
+      slot = (slot + 1) & mask;
+    }
+  }
+
+  // Key hashes are already well distributed, but they might be short, or
+  // share their leading bytes in a partition. Mix all of their bytes.
+  private int hash(byte[] keyHash) {
+    int h = 0;
+    for (int i = 0; i < keyHashSize; ++i) {
+      h = 31 * h + keyHash[i];
+    }
+    h ^= h >>> 16;
+    h *= 0x85ebca6b;
+    h ^= h >>> 13;
+    h *= 0xc2b2ae35;
+    h ^= h >>> 16;
+    return h;
+  }
+
+  // Double the values region until the given number of bytes fits, or grow it to exactly the required
+  // capacity when doubling does not fit in the memory budget. The old region is released once copied.
+  private boolean growValues(int numBytes) {
+    long requiredCapacity = (long) values.position() + numBytes;
+    if (requiredCapacity > Integer.MAX_VALUE) {
+      return false;
+    }
+    long capacity = Math.max(values.capacity(), 1);
+    while (capacity < requiredCapacity) {
+      capacity <<= 1;
+    }
+    capacity = Math.min(capacity, Integer.MAX_VALUE);
+    if (!budget.reserve(capacity)) {
+      capacity = requiredCapacity;
+      if (!budget.reserve(capacity)) {
+        return false;
+      }
+    }
+    ByteBuffer grown = ByteBuffer.allocateDirect((int) capacity);
+    values.flip();
+    grown.put(values);
+    budget.release(values.capacity());
+    values = grown;
+    return true;
+  }
+
+  public int size() {
+    return numEntries;
+  }
+
+  // Number of bytes allocated outside of the heap
+  public long getNumManagedBytes() {
+    return (long) slots.capacity() + values.capacity();
+  }
+
+  // Give the allocated bytes back to the memory budget. The table must not be used anymore,
+  // and its direct buffers are freed once it is garbage collected.
+  public synchronized void release() {
+    if (!released) {
+      released = true;
+      budget.release(getNumManagedBytes());
+    }
+  }
+}
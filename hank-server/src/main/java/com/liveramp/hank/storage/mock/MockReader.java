@@ -18,9 +18,11 @@ package com.liveramp.hank.storage.mock;
 import com.liveramp.hank.config.DataDirectoriesConfigurator;
 import com.liveramp.hank.storage.Reader;
 import com.liveramp.hank.storage.ReaderResult;
+import com.liveramp.hank.storage.Readers;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.List;
 
 public class MockReader implements Reader {
 
@@ -52,6 +54,11 @@ public class MockReader implements Reader {
     }
   }
 
+  @Override
+  public void getBulk(List<ByteBuffer> keys, List<ReaderResult> results) throws IOException {
+    Readers.getBulk(this, keys, results);
+  }
+
   public Integer getVersionNumber() {
     return versionNumber;
   }
@@ -0,0 +1,110 @@
+/**
+ *  Copyright 2013 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.hank.storage.sorted;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+
+/**
+ * Streams the records of a Sorted base or delta in increasing key order.
+ * The key and value buffers are only valid until the next call to next().
+ */
+class SortedFileIterator {
+
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private final String path;
+  private final long numRecords;
+  private final DataInputStream dataStream;
+
+  private long recordIndex = 0;
+  private byte[] keyBuffer = new byte[0];
+  private byte[] valueBuffer = new byte[0];
+  private ByteBuffer key;
+  private ByteBuffer value;
+
+  SortedFileIterator(String path) throws IOException {
+    this.path = path;
+    FileInputStream dataFile = new FileInputStream(path);
+    try {
+      numRecords = SortedFooter.read(dataFile.getChannel()).getNumRecords();
+      dataFile.getChannel().position(0);
+    } catch (IOException e) {
+      dataFile.close();
+      throw e;
+    }
+    // Records are stored contiguously from the beginning of the file, across blocks
+    dataStream = new DataInputStream(new BufferedInputStream(Channels.newInputStream(dataFile.getChannel()), BUFFER_SIZE));
+  }
+
+  // Move to the next record. Return false when there is none left.
+  boolean next() throws IOException {
+    if (recordIndex >= numRecords) {
+      key = null;
+      value = null;
+      return false;
+    }
+    try {
+      int keyLength = readVarInt();
+      int valueLength = readVarInt();
+      if (keyBuffer.length < keyLength) {
+        keyBuffer = new byte[keyLength];
+      }
+      dataStream.readFully(keyBuffer, 0, keyLength);
+      key = ByteBuffer.wrap(keyBuffer, 0, keyLength);
+      if (valueBuffer.length < valueLength) {
+        valueBuffer = new byte[valueLength];
+      }
+      dataStream.readFully(valueBuffer, 0, valueLength);
+      value = ByteBuffer.wrap(valueBuffer, 0, valueLength);
+    } catch (EOFException e) {
+      throw new IOException("Unexpected end of Sorted file " + path, e);
+    }
+    ++recordIndex;
+    return true;
+  }
+
+  // Little endian varint, as encoded by EncodingHelper
+  private int readVarInt() throws IOException {
+    int result = 0;
+    for (int shift = 0; shift < 35; shift += 7) {
+      byte b = dataStream.readByte();
+      result |= (b & 0x7f) << shift;
+      if ((b & 0x80) == 0) {
+        return result;
+      }
+    }
+    throw new IOException("Invalid varint in Sorted file " + path);
+  }
+
+  ByteBuffer getKey() {
+    return key;
+  }
+
+  ByteBuffer getValue() {
+    return value;
+  }
+
+  void close() throws IOException {
+    dataStream.close();
+  }
+}
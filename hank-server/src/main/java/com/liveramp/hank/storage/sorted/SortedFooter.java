@@ -0,0 +1,84 @@
+/**
+ *  Copyright 2013 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.hank.storage.sorted;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import com.liveramp.hank.util.EncodingHelper;
+
+/**
+ * Fixed size footer ending all Sorted files:
+ * index offset (8 bytes), number of blocks (4 bytes) and number of records
+ * (8 bytes), little endian.
+ */
+class SortedFooter {
+
+  static final int NUM_BYTES = 20;
+
+  private final long indexOffset;
+  private final int numBlocks;
+  private final long numRecords;
+
+  SortedFooter(long indexOffset, int numBlocks, long numRecords) {
+    this.indexOffset = indexOffset;
+    this.numBlocks = numBlocks;
+    this.numRecords = numRecords;
+  }
+
+  static SortedFooter read(FileChannel channel) throws IOException {
+    long fileSize = channel.size();
+    if (fileSize < NUM_BYTES) {
+      throw new IOException("Sorted file is too short to hold a footer: " + fileSize + " bytes");
+    }
+    ByteBuffer buffer = ByteBuffer.allocate(NUM_BYTES);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, fileSize - NUM_BYTES + buffer.position()) < 0) {
+        throw new IOException("Unexpected end of file while reading Sorted footer");
+      }
+    }
+    byte[] bytes = buffer.array();
+    SortedFooter footer = new SortedFooter(EncodingHelper.decodeLittleEndianFixedWidthLong(bytes, 0, 8),
+        (int) EncodingHelper.decodeLittleEndianFixedWidthLong(bytes, 8, 4),
+        EncodingHelper.decodeLittleEndianFixedWidthLong(bytes, 12, 8));
+    if (footer.indexOffset > fileSize - NUM_BYTES) {
+      throw new IOException("Sorted footer index offset " + footer.indexOffset + " exceeds file size " + fileSize);
+    }
+    return footer;
+  }
+
+  byte[] toBytes() {
+    byte[] bytes = new byte[NUM_BYTES];
+    EncodingHelper.encodeLittleEndianFixedWidthLong(indexOffset, bytes, 0, 8);
+    EncodingHelper.encodeLittleEndianFixedWidthLong(numBlocks, bytes, 8, 4);
+    EncodingHelper.encodeLittleEndianFixedWidthLong(numRecords, bytes, 12, 8);
+    return bytes;
+  }
+
+  long getIndexOffset() {
+    return indexOffset;
+  }
+
+  int getNumBlocks() {
+    return numBlocks;
+  }
+
+  long getNumRecords() {
+    return numRecords;
+  }
+}
@@ -0,0 +1,88 @@
+/**
+ *  Copyright 2013 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.hank.storage.sorted;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.liveramp.hank.util.Bytes;
+
+/**
+ * Merges a Sorted base with deltas into a new base. When a key is present in
+ * several files, the value of the latest delta wins.
+ */
+public class SortedMerger {
+
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private final int blockSize;
+
+  public SortedMerger(int blockSize) {
+    this.blockSize = blockSize;
+  }
+
+  // Deltas must be ordered from oldest to newest
+  public void merge(SortedFilePath base,
+                    List<SortedFilePath> deltas,
+                    String newBasePath) throws IOException {
+    List<SortedFileIterator> iterators = new ArrayList<SortedFileIterator>(deltas.size() + 1);
+    try {
+      iterators.add(new SortedFileIterator(base.getPath()));
+      for (SortedFilePath delta : deltas) {
+        iterators.add(new SortedFileIterator(delta.getPath()));
+      }
+      // Position every iterator on its first record. Exhausted iterators are removed.
+      List<SortedFileIterator> remaining = new ArrayList<SortedFileIterator>(iterators);
+      for (int i = remaining.size() - 1; i >= 0; --i) {
+        if (!remaining.get(i).next()) {
+          remaining.remove(i);
+        }
+      }
+
+      SortedWriter writer = new SortedWriter(new BufferedOutputStream(new FileOutputStream(newBasePath), BUFFER_SIZE),
+          blockSize);
+      ByteBuffer key = null;
+      while (!remaining.isEmpty()) {
+        // Iterators are ordered from oldest to newest, so the last one at the smallest key wins
+        SortedFileIterator latest = null;
+        for (SortedFileIterator iterator : remaining) {
+          if (latest == null || Bytes.compareLexicographicUnsigned(iterator.getKey(), latest.getKey()) <= 0) {
+            latest = iterator;
+          }
+        }
+        writer.write(latest.getKey(), latest.getValue());
+        // Iterator buffers are reused, keep a copy of the key while advancing them
+        key = Bytes.byteBufferDeepCopy(latest.getKey(), key);
+        for (int i = remaining.size() - 1; i >= 0; --i) {
+          SortedFileIterator iterator = remaining.get(i);
+          if (Bytes.compareLexicographicUnsigned(iterator.getKey(), key) == 0 && !iterator.next()) {
+            remaining.remove(i);
+          }
+        }
+      }
+      writer.close();
+    } finally {
+      for (SortedFileIterator iterator : iterators) {
+        iterator.close();
+      }
+    }
+  }
+}
@@ -0,0 +1,217 @@
+/**
+ *  Copyright 2013 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.hank.storage.sorted;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.SortedSet;
+
+import com.liveramp.hank.storage.RangeReader;
+import com.liveramp.hank.storage.ReaderResult;
+import com.liveramp.hank.storage.Readers;
+import com.liveramp.hank.util.Bytes;
+import com.liveramp.hank.util.EncodingHelper;
+
+/**
+ * Reads the latest Sorted base of a partition. The sparse block index is held
+ * in memory, so that a lookup is a binary search in the index followed by a
+ * single block read, and a range scan reads consecutive blocks.
+ */
+public class SortedReader implements RangeReader {
+
+  private static final int INDEX_ENTRY_HEADER_NUM_BYTES = 16;
+
+  private final FileChannel channel;
+  private final Integer versionNumber;
+  private final long[] blockOffsets;
+  private final int[] blockLengths;
+  private final byte[][] blockFirstKeys;
+
+  public SortedReader(String partitionRoot) throws IOException {
+    SortedSet<SortedFilePath> bases = Sorted.getBases(partitionRoot);
+    if (bases == null || bases.size() == 0) {
+      throw new IOException("Could not detect any Sorted base in " + partitionRoot);
+    }
+    SortedFilePath latestBase = bases.last();
+    this.versionNumber = latestBase.getVersion();
+    channel = new FileInputStream(latestBase.getPath()).getChannel();
+    SortedFooter footer = SortedFooter.read(channel);
+
+    // Load the index
+    long indexLength = channel.size() - SortedFooter.NUM_BYTES - footer.getIndexOffset();
+    if (indexLength > Integer.MAX_VALUE) {
+      throw new IOException("Sorted index is too large: " + indexLength + " bytes");
+    }
+    ByteBuffer index = ByteBuffer.allocate((int) indexLength);
+    readFully(index, footer.getIndexOffset(), (int) indexLength);
+    int numBlocks = footer.getNumBlocks();
+    blockOffsets = new long[numBlocks];
+    blockLengths = new int[numBlocks];
+    blockFirstKeys = new byte[numBlocks][];
+    byte[] indexBytes = index.array();
+    int position = 0;
+    for (int i = 0; i < numBlocks; ++i) {
+      if (position + INDEX_ENTRY_HEADER_NUM_BYTES > indexBytes.length) {
+        throw new IOException("Unexpected end of Sorted index at block " + i + " of " + numBlocks);
+      }
+      blockOffsets[i] = EncodingHelper.decodeLittleEndianFixedWidthLong(indexBytes, position, 8);
+      blockLengths[i] = (int) EncodingHelper.decodeLittleEndianFixedWidthLong(indexBytes, position + 8, 4);
+      int firstKeyLength = (int) EncodingHelper.decodeLittleEndianFixedWidthLong(indexBytes, position + 12, 4);
+      position += INDEX_ENTRY_HEADER_NUM_BYTES;
+      if (position + firstKeyLength > indexBytes.length) {
+        throw new IOException("Unexpected end of Sorted index at block " + i + " of " + numBlocks);
+      }
+      blockFirstKeys[i] = new byte[firstKeyLength];
+      System.arraycopy(indexBytes, position, blockFirstKeys[i], 0, firstKeyLength);
+      position += firstKeyLength;
+    }
+  }
+
+  @Override
+  public void get(ByteBuffer key, ReaderResult result) throws IOException {
+    int block = getBlock(key);
+    if (block < 0) {
+      result.notFound();
+      return;
+    }
+    // Read the block in the result buffer, and point the result to the value
+    result.requiresBufferSize(blockLengths[block]);
+    ByteBuffer buffer = result.getBuffer();
+    buffer.clear();
+    readFully(buffer, blockOffsets[block], blockLengths[block]);
+    buffer.flip();
+    byte[] bytes = buffer.array();
+    while (buffer.hasRemaining()) {
+      int keyLength = EncodingHelper.decodeLittleEndianVarInt(buffer);
+      int valueLength = EncodingHelper.decodeLittleEndianVarInt(buffer);
+      int keyOffset = buffer.position();
+      int comparison = compareKey(bytes, keyOffset, keyLength, key);
+      if (comparison == 0) {
+        result.found();
+        buffer.position(keyOffset + keyLength);
+        buffer.limit(keyOffset + keyLength + valueLength);
+        return;
+      } else if (comparison > 0) {
+        // Keys are sorted, the key is not in this block
+        break;
+      }
+      buffer.position(keyOffset + keyLength + valueLength);
+    }
+    result.notFound();
+  }
+
+  @Override
+  public void getBulk(List<ByteBuffer> keys, List<ReaderResult> results) throws IOException {
+    Readers.getBulk(this, keys, results);
+  }
+
+  @Override
+  public void getRange(ByteBuffer startKey,
+                       ByteBuffer endKey,
+                       int maxNumResults,
+                       List<ByteBuffer> keys,
+                       List<ByteBuffer> values) throws IOException {
+    int numResults = 0;
+    int block = startKey == null ? 0 : Math.max(0, getBlock(startKey));
+    ByteBuffer buffer = null;
+    for (; block < blockOffsets.length && numResults < maxNumResults; ++block) {
+      if (buffer == null || buffer.capacity() < blockLengths[block]) {
+        buffer = ByteBuffer.allocate(blockLengths[block]);
+      }
+      buffer.clear();
+      readFully(buffer, blockOffsets[block], blockLengths[block]);
+      buffer.flip();
+      byte[] bytes = buffer.array();
+      while (buffer.hasRemaining() && numResults < maxNumResults) {
+        int keyLength = EncodingHelper.decodeLittleEndianVarInt(buffer);
+        int valueLength = EncodingHelper.decodeLittleEndianVarInt(buffer);
+        int keyOffset = buffer.position();
+        buffer.position(keyOffset + keyLength + valueLength);
+        if (startKey != null && compareKey(bytes, keyOffset, keyLength, startKey) < 0) {
+          continue;
+        }
+        if (endKey != null && compareKey(bytes, keyOffset, keyLength, endKey) >= 0) {
+          return;
+        }
+        keys.add(ByteBuffer.wrap(copyOfRange(bytes, keyOffset, keyLength)));
+        values.add(ByteBuffer.wrap(copyOfRange(bytes, keyOffset + keyLength, valueLength)));
+        ++numResults;
+      }
+    }
+  }
+
+  // Index of the last block whose first key is lower than or equal to the given key, or -1 if there is none
+  private int getBlock(ByteBuffer key) {
+    int low = 0;
+    int high = blockFirstKeys.length - 1;
+    int result = -1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      byte[] firstKey = blockFirstKeys[middle];
+      if (compareKey(firstKey, 0, firstKey.length, key) <= 0) {
+        result = middle;
+        low = middle + 1;
+      } else {
+        high = middle - 1;
+      }
+    }
+    return result;
+  }
+
+  private static int compareKey(byte[] bytes, int offset, int length, ByteBuffer key) {
+    if (key.hasArray()) {
+      return Bytes.compareLexicographicUnsigned(bytes, offset, length,
+          key.array(), key.arrayOffset() + key.position(), key.remaining());
+    } else {
+      return Bytes.compareLexicographicUnsigned(ByteBuffer.wrap(bytes, offset, length), key);
+    }
+  }
+
+  private static byte[] copyOfRange(byte[] bytes, int offset, int length) {
+    byte[] result = new byte[length];
+    System.arraycopy(bytes, offset, result, 0, length);
+    return result;
+  }
+
+  // Read the given number of bytes at the beginning of the (cleared) buffer
+  private void readFully(ByteBuffer buffer, long offset, int length) throws IOException {
+    buffer.limit(length);
+    int bytesRead = 0;
+    while (bytesRead < length) {
+      int numBytes = channel.read(buffer, offset + bytesRead);
+      if (numBytes < 0) {
+        throw new IOException("Unexpected end of file while reading block at offset " + offset);
+      }
+      bytesRead += numBytes;
+    }
+  }
+
+  @Override
+  public Integer getVersionNumber() {
+    return versionNumber;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (channel != null) {
+      channel.close();
+    }
+  }
+}
@@ -0,0 +1,141 @@
+/**
+ *  Copyright 2013 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.hank.storage.sorted;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.liveramp.hank.storage.Writer;
+import com.liveramp.hank.util.Bytes;
+import com.liveramp.hank.util.EncodingHelper;
+
+/**
+ * Writes Sorted bases and deltas. Keys must be written in strictly increasing
+ * (unsigned lexicographic) order, which is the order of their comparable keys.
+ *
+ * Records are: key length (varint), value length (varint), key and value.
+ * They are grouped in blocks of about the given size, which are the unit of
+ * I/O when reading. The data is followed by a sparse index holding one entry
+ * per block: offset (8 bytes), length (4 bytes), first key length (4 bytes)
+ * and first key, and then by the footer.
+ */
+public class SortedWriter implements Writer {
+
+  private final OutputStream stream;
+  private final int blockSize;
+  private final byte[] encodingBuffer = new byte[16];
+
+  private final List<Long> blockOffsets = new ArrayList<Long>();
+  private final List<ByteBuffer> blockFirstKeys = new ArrayList<ByteBuffer>();
+  private ByteBuffer previousKey = null;
+  private long blockOffset = 0;
+  private long dataLength = 0;
+  private long numBytesWritten = 0;
+  private long numRecordsWritten = 0;
+
+  public SortedWriter(OutputStream stream, int blockSize) {
+    if (blockSize <= 0) {
+      throw new IllegalArgumentException("Block size must be positive: " + blockSize);
+    }
+    this.stream = stream;
+    this.blockSize = blockSize;
+  }
+
+  @Override
+  public void write(ByteBuffer key, ByteBuffer value) throws IOException {
+    if (previousKey != null && Bytes.compareLexicographicUnsigned(key, previousKey) <= 0) {
+      throw new IOException("Key ordering is incorrect. They should be ordered by increasing value (comparableKey)"
+          + " but key " + Bytes.bytesToHexString(key) + " was written after key " + Bytes.bytesToHexString(previousKey));
+    }
+    // Start a new block
+    if (blockFirstKeys.isEmpty() || dataLength - blockOffset >= blockSize) {
+      blockOffset = dataLength;
+      blockOffsets.add(blockOffset);
+      blockFirstKeys.add(Bytes.byteBufferDeepCopy(key));
+    }
+    int keyLengthSize = EncodingHelper.encodeLittleEndianVarInt(key.remaining(), encodingBuffer);
+    writeBytes(encodingBuffer, 0, keyLengthSize);
+    int valueLengthSize = EncodingHelper.encodeLittleEndianVarInt(value.remaining(), encodingBuffer);
+    writeBytes(encodingBuffer, 0, valueLengthSize);
+    writeBuffer(key);
+    writeBuffer(value);
+    previousKey = Bytes.byteBufferDeepCopy(key, previousKey);
+    numRecordsWritten++;
+  }
+
+  private void writeBuffer(ByteBuffer buffer) throws IOException {
+    if (buffer.hasArray()) {
+      writeBytes(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+    } else {
+      byte[] bytes = new byte[buffer.remaining()];
+      buffer.duplicate().get(bytes);
+      writeBytes(bytes, 0, bytes.length);
+    }
+  }
+
+  private void writeBytes(byte[] bytes, int offset, int length) throws IOException {
+    stream.write(bytes, offset, length);
+    dataLength += length;
+    numBytesWritten += length;
+  }
+
+  @Override
+  public void close() throws IOException {
+    long indexOffset = dataLength;
+    int numBlocks = blockOffsets.size();
+    for (int i = 0; i < numBlocks; ++i) {
+      long offset = blockOffsets.get(i);
+      long end = i + 1 < numBlocks ? blockOffsets.get(i + 1) : indexOffset;
+      ByteBuffer firstKey = blockFirstKeys.get(i);
+      EncodingHelper.encodeLittleEndianFixedWidthLong(offset, encodingBuffer, 0, 8);
+      EncodingHelper.encodeLittleEndianFixedWidthLong(end - offset, encodingBuffer, 8, 4);
+      EncodingHelper.encodeLittleEndianFixedWidthLong(firstKey.remaining(), encodingBuffer, 12, 4);
+      writeBytes(encodingBuffer, 0, 16);
+      writeBuffer(firstKey);
+    }
+    byte[] footer = new SortedFooter(indexOffset, numBlocks, numRecordsWritten).toBytes();
+    stream.write(footer);
+    numBytesWritten += footer.length;
+
+    // flush everything and close
+    stream.flush();
+    stream.close();
+    blockOffsets.clear();
+    blockFirstKeys.clear();
+  }
+
+  @Override
+  public long getNumBytesWritten() {
+    return numBytesWritten;
+  }
+
+  @Override
+  public long getNumRecordsWritten() {
+    return numRecordsWritten;
+  }
+
+  @Override
+  public String toString() {
+    return "SortedWriter ["
+        + "numRecordsWritten=" + getNumRecordsWritten()
+        + ", numBytesWritten=" + getNumBytesWritten()
+        + "]";
+  }
+}
@@ -63,6 +63,8 @@
   DomainGroup domainGroup = ringGroup.getDomainGroup();
 
   long updateETA = Hosts.computeUpdateETA(host);
+
+  PrefetchProgress prefetchProgress = Hosts.computePrefetchProgress(host);
 %>
 
     <div>
@@ -81,6 +83,16 @@
     <td>
       <%= FormatUtils.formatSecondsDuration(updateETA) %>
     </td>
+    </tr>
+      <% } %>
+
+      <% if (prefetchProgress != null) { %>
+    <tr>
+    <td>Prefetch:</td>
+    <td>
+      <%= prefetchProgress.getNumPartitionsPrefetched() %>/<%= prefetchProgress.getNumPartitions() %> partitions
+      (<%= FormatUtils.formatNumBytes(prefetchProgress.getNumBytesFetched()) %> fetched)
+    </td>
     </tr>
       <% } %>
 
@@ -12,6 +12,8 @@ Coordinator coord = (Coordinator)getServletContext().getAttribute("coordinator")
 List<StorageEngineFactory> knownStorageEngineFactories = Arrays.asList((StorageEngineFactory)
     new Cueball.Factory(),
     new com.liveramp.hank.storage.curly.Curly.Factory(),
+    new com.liveramp.hank.storage.dense.Dense.Factory(),
+    new com.liveramp.hank.storage.sorted.Sorted.Factory(),
     new com.liveramp.hank.storage.echo.Echo.Factory());
 
 %>
@@ -76,7 +78,7 @@ List<StorageEngineFactory> knownStorageEngineFactories = Arrays.asList((StorageE
       <td>
         <div>
           <select id="partitionerSelect" name="partitionerSelect">
-            <% for (Class<? extends Partitioner> klass : Arrays.asList((Class<? extends Partitioner>)Murmur64Partitioner.class)) { %>
+            <% for (Class<? extends Partitioner> klass : Arrays.asList((Class<? extends Partitioner>)Murmur64Partitioner.class, IntegerModuloPartitioner.class)) { %>
             <option value="<%= klass.getName() %>"><%= klass.getSimpleName() %></option>
             <% } %>
             <option value="__other__">Other (specify fully qualified class name below)</option>
@@ -46,4 +46,18 @@ public class TestGzipCueballCompressionCodec extends BaseTestCase {
       assertEquals(ByteBuffer.wrap(testcase), ByteBuffer.wrap(decompressedBytes, 0, decompressedLength));
     }
   }
+
+  public void testDecompressAtOffset() throws Exception {
+    GzipCueballCompressionCodec codec = new GzipCueballCompressionCodec();
+    byte[] testcase = lotsOfBytes(1024);
+    byte[] compressedBytes = new byte[codec.getMaxCompressBufferSize(testcase.length)];
+    int compressedLength = codec.compress(testcase, 0, testcase.length, compressedBytes, 0);
+
+    // Decompressed length should not include the destination offset
+    int dstOff = 100;
+    byte[] decompressedBytes = new byte[dstOff + testcase.length + 1];
+    int decompressedLength = codec.decompress(compressedBytes, 0, compressedLength, decompressedBytes, dstOff);
+    assertEquals(testcase.length, decompressedLength);
+    assertEquals(ByteBuffer.wrap(testcase), ByteBuffer.wrap(decompressedBytes, dstOff, decompressedLength));
+  }
 }
@@ -0,0 +1,99 @@
+package com.liveramp.hank.compression.cueball;
+
+import com.liveramp.hank.test.BaseTestCase;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+public class TestSnappyCueballCompressionCodec extends BaseTestCase {
+  private static final List<byte[]> TESTCASES = Arrays.asList(
+      new byte[]{},
+      new byte[]{0, 1, 2, 3, 4, 5, 6},
+      new byte[100],
+      repeatedBytes(1000, 3),
+      repeatedBytes(300 * 1024, 17),
+      randomBytes(4 * 1024),
+      randomBytes(128 * 1024),
+      lotsOfBytes(16 * 1024),
+      lotsOfBytes(128 * 1024)
+  );
+
+  private static byte[] lotsOfBytes(int i) {
+    Random r = new Random(i);
+    byte[] bytes = new byte[i];
+    int start = r.nextInt(255);
+    for (int off = 0; off < i; off++) {
+      bytes[off] = (byte) start;
+      start = start + r.nextInt(127);
+    }
+    return bytes;
+  }
+
+  private static byte[] randomBytes(int i) {
+    byte[] bytes = new byte[i];
+    new Random(i).nextBytes(bytes);
+    return bytes;
+  }
+
+  // A random pattern repeated over and over, which produces overlapping matches
+  private static byte[] repeatedBytes(int i, int patternLength) {
+    byte[] pattern = randomBytes(patternLength);
+    byte[] bytes = new byte[i];
+    for (int off = 0; off < i; off++) {
+      bytes[off] = pattern[off % patternLength];
+    }
+    return bytes;
+  }
+
+  public void testIt() throws Exception {
+    SnappyCueballCompressionCodec codec = new SnappyCueballCompressionCodec();
+
+    for (int i = 0; i < TESTCASES.size(); i++) {
+      byte[] testcase = TESTCASES.get(i);
+
+      byte[] compressedBytes = new byte[codec.getMaxCompressBufferSize(testcase.length)];
+
+      int compressedLength = codec.compress(testcase, 0, testcase.length, compressedBytes, 0);
+
+      byte[] decompressedBytes = new byte[testcase.length + 1];
+      int decompressedLength = codec.decompress(compressedBytes, 0, compressedLength, decompressedBytes, 0);
+      assertEquals("Testcase #" + i, testcase.length, decompressedLength);
+
+      assertEquals(ByteBuffer.wrap(testcase), ByteBuffer.wrap(decompressedBytes, 0, decompressedLength));
+    }
+  }
+
+  public void testAtOffsets() throws Exception {
+    SnappyCueballCompressionCodec codec = new SnappyCueballCompressionCodec();
+    byte[] testcase = lotsOfBytes(1024);
+    int srcOff = 50;
+    byte[] src = new byte[srcOff + testcase.length + 50];
+    System.arraycopy(testcase, 0, src, srcOff, testcase.length);
+
+    int compressedOff = 10;
+    byte[] compressedBytes = new byte[compressedOff + codec.getMaxCompressBufferSize(testcase.length)];
+    int compressedLength = codec.compress(src, srcOff, testcase.length, compressedBytes, compressedOff);
+
+    // Decompressed length should not include the destination offset
+    int dstOff = 100;
+    byte[] decompressedBytes = new byte[dstOff + testcase.length + 1];
+    int decompressedLength = codec.decompress(compressedBytes, compressedOff, compressedLength, decompressedBytes, dstOff);
+    assertEquals(testcase.length, decompressedLength);
+    assertEquals(ByteBuffer.wrap(testcase), ByteBuffer.wrap(decompressedBytes, dstOff, decompressedLength));
+  }
+
+  public void testDestinationTooSmall() throws Exception {
+    SnappyCueballCompressionCodec codec = new SnappyCueballCompressionCodec();
+    byte[] testcase = repeatedBytes(1024, 5);
+    byte[] compressedBytes = new byte[codec.getMaxCompressBufferSize(testcase.length)];
+    int compressedLength = codec.compress(testcase, 0, testcase.length, compressedBytes, 0);
+    try {
+      codec.decompress(compressedBytes, 0, compressedLength, new byte[testcase.length - 1], 0);
+      fail("Should have failed to decompress into a buffer that is too small");
+    } catch (RuntimeException e) {
+      // expected
+    }
+  }
+}
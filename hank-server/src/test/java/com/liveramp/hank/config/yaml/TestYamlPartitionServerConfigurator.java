@@ -37,9 +37,11 @@ public class TestYamlPartitionServerConfigurator extends BaseTestCase {
     pw.println("    num_concurrent_get_bulk_tasks: 1");
     pw.println("    get_bulk_task_size: 2");
     pw.println("    get_timer_aggregator_window: 1000");
+    pw.println("    block_cache_capacity: 4294967296");
     pw.println("  update_daemon:");
     pw.println("    num_concurrent_updates: 5");
     pw.println("    max_concurrent_updates_per_data_directory: 2");
+    pw.println("    prefetch_max_bytes_per_second: 1048576");
     pw.println("coordinator:");
     pw.println("  factory: " + MockCoordinator.Factory.class.getName());
     pw.println("  options:");
@@ -53,5 +55,7 @@ public class TestYamlPartitionServerConfigurator extends BaseTestCase {
     assertEquals(5, conf.getNumConcurrentUpdates());
     assertEquals(2, conf.getMaxConcurrentUpdatesPerDataDirectory());
     assertEquals(5, conf.getNumConcurrentQueries());
+    assertEquals(4294967296L, conf.getBlockCacheCapacity());
+    assertEquals(1048576L, conf.getPrefetchMaxBytesPerSecond());
   }
 }
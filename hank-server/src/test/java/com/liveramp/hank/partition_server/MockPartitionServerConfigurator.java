@@ -79,6 +79,16 @@ public class MockPartitionServerConfigurator implements PartitionServerConfigura
     return 10;
   }
 
+  @Override
+  public long getBlockCacheCapacity() {
+    return 0;
+  }
+
+  @Override
+  public long getPrefetchMaxBytesPerSecond() {
+    return 0;
+  }
+
   @Override
   public int getNumConcurrentUpdates() {
     return 10;
@@ -0,0 +1,112 @@
+/**
+ *  Copyright 2013 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.hank.partition_server;
+
+import com.liveramp.hank.generated.HankResponse;
+import com.liveramp.hank.storage.ReaderResult;
+import com.liveramp.hank.storage.mock.MockReader;
+import com.liveramp.hank.test.BaseTestCase;
+import com.liveramp.hank.test.coordinator.MockHostDomainPartition;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+
+public class TestPartitionAccessor extends BaseTestCase {
+
+  private static final ByteBuffer KEY = ByteBuffer.wrap("key".getBytes());
+
+  private static class ClosableReader extends MockReader {
+
+    private final CountDownLatch getStarted = new CountDownLatch(1);
+    private final CountDownLatch getAllowed;
+    private volatile boolean closed = false;
+
+    public ClosableReader(byte[] returnValue, Integer versionNumber, CountDownLatch getAllowed) {
+      super(null, 0, returnValue, versionNumber);
+      this.getAllowed = getAllowed;
+    }
+
+    @Override
+    public void get(ByteBuffer key, ReaderResult result) throws IOException {
+      if (closed) {
+        throw new IOException("Reader is closed");
+      }
+      getStarted.countDown();
+      try {
+        getAllowed.await();
+      } catch (InterruptedException e) {
+        throw new IOException(e);
+      }
+      super.get(key, result);
+    }
+
+    @Override
+    public void close() {
+      closed = true;
+    }
+  }
+
+  public void testSwapReader() throws Exception {
+    CountDownLatch getAllowed = new CountDownLatch(1);
+    final ClosableReader reader1 = new ClosableReader("v1".getBytes(), 1, getAllowed);
+    ClosableReader reader2 = new ClosableReader("v2".getBytes(), 2, new CountDownLatch(0));
+    final PartitionAccessor partitionAccessor = new PartitionAccessor(new MockHostDomainPartition(0, 1), reader1);
+    assertEquals(Integer.valueOf(1), partitionAccessor.getReaderVersionNumber());
+
+    // Start a request on the first Reader
+    final HankResponse[] inFlightResponse = new HankResponse[1];
+    Thread inFlightGet = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          inFlightResponse[0] = partitionAccessor.get(KEY.duplicate(), new ReaderResult());
+        } catch (IOException e) {
+          throw new RuntimeException(e);
+        }
+      }
+    });
+    inFlightGet.start();
+    reader1.getStarted.await();
+
+    // Swap while the request is in flight. The first Reader is not closed yet.
+    partitionAccessor.swapReader(reader2);
+    assertEquals(Integer.valueOf(2), partitionAccessor.getReaderVersionNumber());
+    assertFalse(reader1.closed);
+
+    // New requests are served by the second Reader
+    assertEquals(HankResponse.value(ByteBuffer.wrap("v2".getBytes())),
+        partitionAccessor.get(KEY.duplicate(), new ReaderResult()));
+
+    // The request in flight completes on the first Reader, which is then closed
+    getAllowed.countDown();
+    inFlightGet.join();
+    assertEquals(HankResponse.value(ByteBuffer.wrap("v1".getBytes())), inFlightResponse[0]);
+    assertTrue(reader1.closed);
+    assertFalse(reader2.closed);
+
+    // Shutting down closes the current Reader, and requests fail from then on
+    partitionAccessor.shutDown();
+    assertTrue(reader2.closed);
+    try {
+      partitionAccessor.get(KEY.duplicate(), new ReaderResult());
+      fail("Should have thrown an IOException");
+    } catch (IOException e) {
+      // expected
+    }
+  }
+}
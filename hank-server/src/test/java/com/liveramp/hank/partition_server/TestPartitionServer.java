@@ -20,6 +20,8 @@ import com.liveramp.hank.config.PartitionServerConfigurator;
 import com.liveramp.hank.coordinator.*;
 import com.liveramp.hank.coordinator.mock.MockCoordinator;
 import com.liveramp.hank.generated.HankBulkResponse;
+import com.liveramp.hank.generated.HankRange;
+import com.liveramp.hank.generated.HankRangeResponse;
 import com.liveramp.hank.generated.HankResponse;
 import com.liveramp.hank.test.coordinator.MockHost;
 import com.liveramp.hank.test.coordinator.MockRing;
@@ -126,6 +128,11 @@ public class TestPartitionServer extends BaseTestCase {
           return HankBulkResponse.responses(Collections.singletonList(HankResponse.not_found(true)));
         }
 
+        @Override
+        public HankRangeResponse getRange(int domainId, int partitionNumber, ByteBuffer startKey, ByteBuffer endKey, int maxNumResults) throws TException {
+          return HankRangeResponse.range(new HankRange(Collections.<ByteBuffer>emptyList(), Collections.<ByteBuffer>emptyList()));
+        }
+
         @Override
         public void shutDown() throws InterruptedException {
         }
@@ -274,6 +281,78 @@ public class TestPartitionServer extends BaseTestCase {
     assertEquals("Still IDLE after failed update.", HostState.IDLE, fixtures.host.getState());
   }
 
+  public void testLiveUpdate() throws Exception {
+    final SleepingUpdateManager updateManager = new SleepingUpdateManager();
+    final boolean[] readersReloaded = new boolean[]{false};
+    final PartitionServer partitionServer = new MockPartitionServer(fixtures.CONFIGURATOR1, "localhost") {
+      @Override
+      protected IUpdateManager getLiveUpdateManager(IfaceWithShutdown handler) {
+        return updateManager;
+      }
+
+      @Override
+      protected void reloadReaders(IfaceWithShutdown handler) {
+        readersReloaded[0] = true;
+      }
+    };
+
+    Thread thread = createPartitionServerThread(partitionServer);
+
+    thread.start();
+    waitUntilHost(HostState.IDLE, fixtures.host);
+    fixtures.host.enqueueCommand(HostCommand.SERVE_DATA);
+    waitUntilHost(HostState.SERVING, fixtures.host);
+
+    fixtures.host.enqueueCommand(HostCommand.EXECUTE_LIVE_UPDATE);
+    WaitUntil.orDie(new Condition() {
+      @Override
+      public boolean test() {
+        try {
+          return updateManager.updateCalled
+              && readersReloaded[0]
+              && fixtures.host.getCurrentCommand() == null;
+        } catch (IOException e) {
+          throw new RuntimeException(e);
+        }
+      }
+    });
+
+    assertTrue("Readers reloaded", readersReloaded[0]);
+    assertEquals("Still SERVING after live update.", HostState.SERVING, fixtures.host.getState());
+
+    partitionServer.stopSynchronized();
+
+    thread.join();
+    assertEquals(HostState.OFFLINE, fixtures.host.getState());
+  }
+
+  public void testLiveUpdateFailure() throws Exception {
+    final FailingUpdateManager updateManager = new FailingUpdateManager();
+    final PartitionServer partitionServer = new MockPartitionServer(fixtures.CONFIGURATOR1, "localhost") {
+      @Override
+      protected IUpdateManager getLiveUpdateManager(IfaceWithShutdown handler) {
+        return updateManager;
+      }
+    };
+
+    Thread thread = createPartitionServerThread(partitionServer);
+
+    thread.start();
+    waitUntilHost(HostState.IDLE, fixtures.host);
+    fixtures.host.enqueueCommand(HostCommand.SERVE_DATA);
+    waitUntilHost(HostState.SERVING, fixtures.host);
+
+    fixtures.host.enqueueCommand(HostCommand.EXECUTE_LIVE_UPDATE);
+    waitUntilHost(HostState.IDLE, fixtures.host);
+    assertEquals("Went IDLE after failed live update.", HostState.IDLE, fixtures.host.getState());
+    assertTrue("Update failed", updateManager.updateFailed);
+
+    partitionServer.stopSynchronized();
+
+    thread.join();
+    assertEquals(HostState.OFFLINE, fixtures.host.getState());
+  }
+
   public void testHostSetStateFailure() throws Exception {
     final PartitionServer partitionServer = new MockPartitionServer(fixtures.CONFIGURATOR2, "localhost");
     Thread thread = createPartitionServerThread(partitionServer);
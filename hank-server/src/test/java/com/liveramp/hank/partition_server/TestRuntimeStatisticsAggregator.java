@@ -0,0 +1,41 @@
+package com.liveramp.hank.partition_server;
+
+import com.liveramp.hank.test.BaseTestCase;
+
+public class TestRuntimeStatisticsAggregator extends BaseTestCase {
+
+  public void testToStringAndParse() {
+    RuntimeStatisticsAggregator aggregator = new RuntimeStatisticsAggregator(
+        10.0, 20.0, 100, 50, 5, 3, 7, 2, 1,
+        new DoublePopulationStatisticsAggregator(1.0, 9.0, 4, 16.0, new double[]{1.0, 2.0, 4.0, 9.0}));
+    RuntimeStatisticsAggregator parsed = RuntimeStatisticsAggregator.parse(RuntimeStatisticsAggregator.toString(aggregator));
+
+    assertEquals(10.0, parsed.getThroughput());
+    assertEquals(20.0, parsed.getResponseDataThroughput());
+    assertEquals(0.5, parsed.getHitRate());
+    assertEquals(7L, parsed.getNumBlockCacheHits());
+    assertEquals(2L, parsed.getNumBlockCacheMisses());
+    assertEquals(1L, parsed.getNumBlockCacheEvictions());
+    assertEquals(1.0, parsed.getGetRequestsPopulationStatistics().getMinimum());
+    assertEquals(9.0, parsed.getGetRequestsPopulationStatistics().getMaximum());
+    assertEquals(4.0, parsed.getGetRequestsPopulationStatistics().getMean());
+    assertEquals(RuntimeStatisticsAggregator.toString(aggregator), RuntimeStatisticsAggregator.toString(parsed));
+  }
+
+  public void testParsePreviousFormat() {
+    // Throughputs, requests, hits, L1 and L2 cache hits, then population statistics and random sample
+    RuntimeStatisticsAggregator parsed = RuntimeStatisticsAggregator.parse("10.0 20.0 100 50 5 3 1.0 9.0 4 16.0 1.0 2.0 4.0 9.0");
+
+    assertEquals(10.0, parsed.getThroughput());
+    assertEquals(20.0, parsed.getResponseDataThroughput());
+    assertEquals(0.5, parsed.getHitRate());
+    assertEquals(0L, parsed.getNumBlockCacheHits());
+    assertEquals(0L, parsed.getNumBlockCacheMisses());
+    assertEquals(0L, parsed.getNumBlockCacheEvictions());
+    assertEquals(1.0, parsed.getGetRequestsPopulationStatistics().getMinimum());
+    assertEquals(9.0, parsed.getGetRequestsPopulationStatistics().getMaximum());
+    assertEquals(4.0, parsed.getGetRequestsPopulationStatistics().getMean());
+    assertEquals("10.0 20.0 100 50 5 3 1.0 9.0 4 16.0 1.0 2.0 4.0 9.0 b 0 0 0",
+        RuntimeStatisticsAggregator.toString(parsed));
+  }
+}
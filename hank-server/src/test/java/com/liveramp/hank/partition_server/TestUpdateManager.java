@@ -294,6 +294,71 @@ public class TestUpdateManager extends BaseTestCase {
     }
   }
 
+  public void testLiveUpdate() throws Exception {
+    final MockPartitionUpdater mockUpdater = new MockPartitionUpdater();
+
+    StorageEngine mockStorageEngine = fixtures.getMockStorageEngine(mockUpdater);
+    Domain mockDomain = fixtures.getMockDomain(mockStorageEngine);
+    HostDomain mockHostDomain = fixtures.getMockHostDomain(mockDomain);
+    Host mockHost = fixtures.getMockHost(mockHostDomain);
+    DomainGroup mockDomainGroup = fixtures.getMockDomainGroup(mockDomain);
+    Fixtures.MockRingGroupLocal mockRingGroup = fixtures.getMockRingGroup(mockDomainGroup);
+    Ring mockRing = fixtures.getMockRing(mockHost, mockRingGroup);
+    mockRingGroup.setRing(mockRing);
+
+    final List<Integer> versionsWhenSwapped = new ArrayList<Integer>();
+    ReaderSwapper readerSwapper = new ReaderSwapper() {
+      @Override
+      public void swapReader(Domain domain, int partitionNumber, int versionNumber) {
+        assertEquals(2, versionNumber);
+        versionsWhenSwapped.add(fixtures.HOST_DOMAIN_PARTITION.getCurrentDomainVersion());
+      }
+    };
+    fixtures.HOST_DOMAIN_PARTITION.setCurrentDomainVersion(1);
+    UpdateManager ud = new UpdateManager(new MockPartitionServerConfigurator(1,
+        null, "myRingGroup", "/local/data/dir"), mockHost,
+        mockRingGroup, readerSwapper);
+    ud.update();
+
+    // The Reader was swapped while the previous version was still published
+    assertEquals(Arrays.asList(1), versionsWhenSwapped);
+    assertEquals(Integer.valueOf(2), fixtures.HOST_DOMAIN_PARTITION.getCurrentDomainVersion());
+  }
+
+  public void testFailedLiveUpdateSwap() throws Exception {
+    final MockPartitionUpdater mockUpdater = new MockPartitionUpdater();
+
+    StorageEngine mockStorageEngine = fixtures.getMockStorageEngine(mockUpdater);
+    Domain mockDomain = fixtures.getMockDomain(mockStorageEngine);
+    HostDomain mockHostDomain = fixtures.getMockHostDomain(mockDomain);
+    Host mockHost = fixtures.getMockHost(mockHostDomain);
+    DomainGroup mockDomainGroup = fixtures.getMockDomainGroup(mockDomain);
+    Fixtures.MockRingGroupLocal mockRingGroup = fixtures.getMockRingGroup(mockDomainGroup);
+    Ring mockRing = fixtures.getMockRing(mockHost, mockRingGroup);
+    mockRingGroup.setRing(mockRing);
+
+    ReaderSwapper failingReaderSwapper = new ReaderSwapper() {
+      @Override
+      public void swapReader(Domain domain, int partitionNumber, int versionNumber) {
+        throw new IllegalStateException("Failed to swap Reader.");
+      }
+    };
+    fixtures.HOST_DOMAIN_PARTITION.setCurrentDomainVersion(1);
+    UpdateManager ud = new UpdateManager(new MockPartitionServerConfigurator(1,
+        null, "myRingGroup", "/local/data/dir"), mockHost,
+        mockRingGroup, failingReaderSwapper);
+
+    try {
+      ud.update();
+      fail("Should throw an IOException when a Reader swap fails.");
+    } catch (IOException e) {
+      // Correct behavior
+    }
+    // The new version was committed but is not served, so the current version is unknown
+    assertTrue(mockUpdater.isUpdated());
+    assertNull(fixtures.HOST_DOMAIN_PARTITION.getCurrentDomainVersion());
+  }
+
   public void testInterruptedUpdateTask() throws Exception {
     final MockPartitionUpdater mockUpdater = new MockPartitionUpdater();
 
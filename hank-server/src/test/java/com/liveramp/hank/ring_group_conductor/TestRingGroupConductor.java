@@ -116,6 +116,11 @@ public class TestRingGroupConductor extends TestCase {
         return 0;
       }
 
+      @Override
+      public boolean getLiveUpdates() {
+        return false;
+      }
+
       @Override
       public String getRingGroupName() {
         return "myRingGroup";
@@ -170,6 +175,11 @@ public class TestRingGroupConductor extends TestCase {
         return 0;
       }
 
+      @Override
+      public boolean getLiveUpdates() {
+        return false;
+      }
+
       @Override
       public String getRingGroupName() {
         return "myRingGroup";
@@ -335,6 +335,46 @@ public class TestRingGroupUpdateTransitionFunctionImpl extends BaseTestCase {
     assertNull(r2h1.getAndClearLastEnqueuedCommand());
   }
 
+  public void testUpdatesFirstRingLiveWhenLiveUpdatesAreEnabled() throws IOException {
+    RingGroupUpdateTransitionFunctionImpl transitionFunction =
+        new RingGroupUpdateTransitionFunctionImpl(partitionAssigner, 0, true);
+    domainGroup.setDomainVersions(versionsMap2);
+
+    setUpRing(r0, v1, v2, HostState.SERVING);
+    setUpRing(r1, v1, v2, HostState.SERVING);
+    setUpRing(r2, v1, v2, HostState.SERVING);
+
+    transitionFunction.manageTransitions(rg);
+
+    // All serving hosts in r0 should have received execute live update
+    assertEquals(HostCommand.EXECUTE_LIVE_UPDATE, r0h0.getAndClearLastEnqueuedCommand());
+    assertEquals(HostCommand.EXECUTE_LIVE_UPDATE, r0h1.getAndClearLastEnqueuedCommand());
+
+    // No commands should have been issued to other rings
+    assertNull(r1h0.getAndClearLastEnqueuedCommand());
+    assertNull(r1h1.getAndClearLastEnqueuedCommand());
+    assertNull(r2h0.getAndClearLastEnqueuedCommand());
+    assertNull(r2h1.getAndClearLastEnqueuedCommand());
+
+    // Complete the live update of r0. Hosts stay serving.
+    r0h0.nextCommand();
+    r0h1.nextCommand();
+    r0h0.setCurrentVersion(v2);
+    r0h1.setCurrentVersion(v2);
+    r0h0.nextCommand();
+    r0h1.nextCommand();
+
+    transitionFunction.manageTransitions(rg);
+
+    // r0 is up-to-date and should be left alone, while r1 is updated live
+    assertNull(r0h0.getAndClearLastEnqueuedCommand());
+    assertNull(r0h1.getAndClearLastEnqueuedCommand());
+    assertEquals(HostCommand.EXECUTE_LIVE_UPDATE, r1h0.getAndClearLastEnqueuedCommand());
+    assertEquals(HostCommand.EXECUTE_LIVE_UPDATE, r1h1.getAndClearLastEnqueuedCommand());
+    assertNull(r2h0.getAndClearLastEnqueuedCommand());
+    assertNull(r2h1.getAndClearLastEnqueuedCommand());
+  }
+
   public void testAssignWhenOneHostIsServing() throws IOException {
     domainGroup.setDomainVersions(versionsMap3);
 
@@ -0,0 +1,119 @@
+/**
+ *  Copyright 2013 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.liveramp.hank.storage.cueball;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.liveramp.hank.test.BaseTestCase;
+
+public class TestCompactKeyHashCache extends BaseTestCase {
+
+  private static final int KEY_HASH_SIZE = 4;
+  private static final int VALUE_SIZE = 2;
+
+  public void testGetPut() {
+    CompactKeyHashCache cache = new CompactKeyHashCache(KEY_HASH_SIZE, VALUE_SIZE, 16);
+    byte[] value = new byte[VALUE_SIZE];
+
+    assertEquals(CompactKeyHashCache.NOT_CACHED, cache.get(keyHash(1), value, 0));
+
+    cache.putFound(keyHash(1), new byte[]{0, 1, 2}, 1);
+    cache.putNotFound(keyHash(2));
+    assertEquals(2, cache.size());
+
+    assertEquals(CompactKeyHashCache.CACHED_FOUND, cache.get(keyHash(1), value, 0));
+    assertEquals(1, value[0]);
+    assertEquals(2, value[1]);
+    assertEquals(CompactKeyHashCache.CACHED_NOT_FOUND, cache.get(keyHash(2), value, 0));
+
+    // Replace
+    cache.putFound(keyHash(2), new byte[]{3, 4}, 0);
+    assertEquals(2, cache.size());
+    byte[] valueAtOffset = new byte[1 + VALUE_SIZE];
+    assertEquals(CompactKeyHashCache.CACHED_FOUND, cache.get(keyHash(2), valueAtOffset, 1));
+    assertEquals(3, valueAtOffset[1]);
+    assertEquals(4, valueAtOffset[2]);
+  }
+
+  public void testCapacity() {
+    CompactKeyHashCache cache = new CompactKeyHashCache(KEY_HASH_SIZE, VALUE_SIZE, 20);
+    // Rounded up to full buckets
+    assertEquals(24, cache.getNumItemsCapacity());
+    assertEquals(24 * (1 + KEY_HASH_SIZE + VALUE_SIZE) + 3, cache.getNumManagedBytes());
+    for (int i = 0; i < 1000; ++i) {
+      cache.putNotFound(keyHash(i));
+    }
+    assertEquals(24, cache.size());
+  }
+
+  public void testClockEviction() {
+    // A single bucket
+    CompactKeyHashCache cache = new CompactKeyHashCache(KEY_HASH_SIZE, VALUE_SIZE,
+        CompactKeyHashCache.NUM_SLOTS_PER_BUCKET);
+    byte[] value = new byte[VALUE_SIZE];
+    for (int i = 0; i < CompactKeyHashCache.NUM_SLOTS_PER_BUCKET; ++i) {
+      cache.putNotFound(keyHash(i));
+    }
+    // Referenced entries get a second chance
+    assertEquals(CompactKeyHashCache.CACHED_NOT_FOUND, cache.get(keyHash(0), value, 0));
+    cache.putNotFound(keyHash(100));
+    assertEquals(CompactKeyHashCache.CACHED_NOT_FOUND, cache.get(keyHash(0), value, 0));
+    assertEquals(CompactKeyHashCache.NOT_CACHED, cache.get(keyHash(1), value, 0));
+    assertEquals(CompactKeyHashCache.CACHED_NOT_FOUND, cache.get(keyHash(100), value, 0));
+  }
+
+  public void testConcurrentAccess() throws Exception {
+    final CompactKeyHashCache cache = new CompactKeyHashCache(KEY_HASH_SIZE, VALUE_SIZE, 100);
+    final AtomicReference<String> error = new AtomicReference<String>();
+    List<Thread> threads = new ArrayList<Thread>();
+    for (int t = 0; t < 8; ++t) {
+      final int seed = t;
+      threads.add(new Thread(new Runnable() {
+        @Override
+        public void run() {
+          Random random = new Random(seed);
+          byte[] value = new byte[VALUE_SIZE];
+          for (int i = 0; i < 100000; ++i) {
+            int key = random.nextInt(500);
+            if (cache.get(keyHash(key), value, 0) == CompactKeyHashCache.CACHED_FOUND) {
+              if (value[0] != (byte) key || value[1] != (byte) (key >>> 8)) {
+                error.set("Unexpected value for key " + key);
+              }
+            } else {
+              cache.putFound(keyHash(key), new byte[]{(byte) key, (byte) (key >>> 8)}, 0);
+            }
+          }
+        }
+      }));
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertNull(error.get());
+  }
+
+  private static byte[] keyHash(int i) {
+    return new byte[]{(byte) (i >>> 24), (byte) (i >>> 16), (byte) (i >>> 8), (byte) i};
+  }
+}
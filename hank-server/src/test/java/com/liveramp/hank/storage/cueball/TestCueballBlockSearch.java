@@ -0,0 +1,135 @@
+/**
+ *  Copyright 2013 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.hank.storage.cueball;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+import com.liveramp.hank.test.BaseTestCase;
+import com.liveramp.hank.util.Bytes;
+
+public class TestCueballBlockSearch extends BaseTestCase {
+
+  private static final int VALUE_SIZE = 3;
+
+  public void testEmptyBlock() throws Exception {
+    ByteBuffer block = ByteBuffer.wrap(new byte[10]);
+    assertEquals(-1, CueballBlockSearch.search(block, 0, 0, 13, new byte[10], 10));
+    // Trailing bytes that do not form a whole record are ignored
+    assertEquals(-1, CueballBlockSearch.search(block, 0, 10, 13, new byte[10], 10));
+  }
+
+  public void testSmallBlock() throws Exception {
+    ByteBuffer block = ByteBuffer.wrap(new byte[]{
+        0x01, 0x10, 1, 1, 1,
+        0x02, 0x20, 2, 2, 2,
+        (byte) 0xf0, 0x00, 3, 3, 3});
+    assertEquals(0, CueballBlockSearch.search(block, 0, 15, 5, new byte[]{0x01, 0x10}, 2));
+    assertEquals(5, CueballBlockSearch.search(block, 0, 15, 5, new byte[]{0x02, 0x20}, 2));
+    assertEquals(10, CueballBlockSearch.search(block, 0, 15, 5, new byte[]{(byte) 0xf0, 0x00}, 2));
+    assertEquals(-1, CueballBlockSearch.search(block, 0, 15, 5, new byte[]{0x00, 0x00}, 2));
+    assertEquals(-1, CueballBlockSearch.search(block, 0, 15, 5, new byte[]{0x02, 0x21}, 2));
+    assertEquals(-1, CueballBlockSearch.search(block, 0, 15, 5, new byte[]{(byte) 0xff, 0x00}, 2));
+    // Search a sub range
+    assertEquals(5, CueballBlockSearch.search(block, 5, 10, 5, new byte[]{0x02, 0x20}, 2));
+    assertEquals(-1, CueballBlockSearch.search(block, 5, 10, 5, new byte[]{0x01, 0x10}, 2));
+  }
+
+  public void testUniformKeyHashes() throws Exception {
+    Random random = new Random(0);
+    for (int keyHashSize : new int[]{1, 4, 8, 10, 20}) {
+      for (int numRecords : new int[]{1, 2, 3, 17, 1000}) {
+        checkAgainstLinearSearch(randomKeyHashes(random, numRecords, keyHashSize, false), keyHashSize, random);
+      }
+    }
+  }
+
+  public void testSkewedKeyHashes() throws Exception {
+    Random random = new Random(1);
+    for (int keyHashSize : new int[]{4, 10}) {
+      checkAgainstLinearSearch(randomKeyHashes(random, 1000, keyHashSize, true), keyHashSize, random);
+    }
+  }
+
+  private void checkAgainstLinearSearch(byte[][] keyHashes, int keyHashSize, Random random) {
+    int fullRecordSize = keyHashSize + VALUE_SIZE;
+    // Offset the block in the buffer and add trailing bytes
+    int off = 7;
+    int limit = off + keyHashes.length * fullRecordSize;
+    byte[] bytes = new byte[limit + fullRecordSize / 2];
+    for (int i = 0; i < keyHashes.length; ++i) {
+      System.arraycopy(keyHashes[i], 0, bytes, off + i * fullRecordSize, keyHashSize);
+    }
+    ByteBuffer heapBlock = ByteBuffer.wrap(bytes);
+    ByteBuffer directBlock = ByteBuffer.allocateDirect(bytes.length);
+    directBlock.put(bytes);
+    directBlock.clear();
+
+    for (int i = 0; i < keyHashes.length; ++i) {
+      int expected = off + i * fullRecordSize;
+      assertEquals(expected, CueballBlockSearch.search(heapBlock, off, limit, fullRecordSize, keyHashes[i], keyHashSize));
+      assertEquals(expected, CueballBlockSearch.search(directBlock, off, limit, fullRecordSize, keyHashes[i], keyHashSize));
+    }
+    for (int i = 0; i < 1000; ++i) {
+      byte[] keyHash = new byte[keyHashSize];
+      random.nextBytes(keyHash);
+      int expected = CueballBlockSearch.linearSearch(heapBlock, off, limit, fullRecordSize, keyHash, keyHashSize);
+      assertEquals(expected, CueballBlockSearch.search(heapBlock, off, limit, fullRecordSize, keyHash, keyHashSize));
+      assertEquals(expected, CueballBlockSearch.search(directBlock, off, limit, fullRecordSize, keyHash, keyHashSize));
+    }
+  }
+
+  // Generate distinct sorted key hashes. Skewed key hashes are mostly packed near zero.
+  private static byte[][] randomKeyHashes(Random random, int numRecords, int keyHashSize, boolean skewed) {
+    byte[][] keyHashes = new byte[numRecords][];
+    int numGenerated = 0;
+    while (numGenerated < numRecords) {
+      byte[] keyHash = new byte[keyHashSize];
+      random.nextBytes(keyHash);
+      if (skewed && random.nextInt(10) != 0) {
+        Arrays.fill(keyHash, 0, keyHashSize / 2, (byte) 0);
+      }
+      boolean duplicate = false;
+      for (int i = 0; i < numGenerated; ++i) {
+        if (Bytes.compareBytesUnsigned(keyHashes[i], 0, keyHash, 0, keyHashSize) == 0) {
+          duplicate = true;
+          break;
+        }
+      }
+      if (!duplicate) {
+        keyHashes[numGenerated++] = keyHash;
+      }
+      if (keyHashSize == 1 && numGenerated == 256) {
+        break;
+      }
+    }
+    keyHashes = Arrays.copyOf(keyHashes, numGenerated);
+    sort(keyHashes, keyHashSize);
+    return keyHashes;
+  }
+
+  private static void sort(byte[][] keyHashes, final int keyHashSize) {
+    Arrays.sort(keyHashes, new Comparator<byte[]>() {
+      @Override
+      public int compare(byte[] a, byte[] b) {
+        return Bytes.compareBytesUnsigned(a, 0, b, 0, keyHashSize);
+      }
+    });
+  }
+}
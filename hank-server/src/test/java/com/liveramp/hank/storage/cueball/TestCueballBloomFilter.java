@@ -0,0 +1,148 @@
+/**
+ *  Copyright 2013 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.liveramp.hank.storage.cueball;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import com.liveramp.hank.compression.cueball.NoCueballCompressionCodec;
+import com.liveramp.hank.hasher.IdentityHasher;
+import com.liveramp.hank.storage.ReaderResult;
+import com.liveramp.hank.test.BaseTestCase;
+
+public class TestCueballBloomFilter extends BaseTestCase {
+
+  private static final int KEY_HASH_SIZE = 8;
+  private static final int VALUE_SIZE = 2;
+  private static final int HASH_INDEX_BITS = 4;
+  private static final int BITS_PER_KEY = 10;
+  private static final int NUM_KEYS = 2000;
+
+  private final String root = localTmpDir + "/1";
+  private final String basePath = root + "/00000.base.cueball";
+  private final Random random = new Random(42);
+
+  public void testNoFalseNegatives() throws Exception {
+    SortedSet<Long> keys = writeBase(NUM_KEYS);
+    CueballBloomFilter bloomFilter = new CueballBloomFilter(CueballBloomFilter.getPath(basePath), HASH_INDEX_BITS);
+    assertEquals(BITS_PER_KEY, bloomFilter.getBitsPerKey());
+    assertEquals(CueballBloomFilter.getNumHashFunctions(BITS_PER_KEY), bloomFilter.getNumHashFunctions());
+    for (long key : keys) {
+      assertTrue(bloomFilter.mayContain(toBytes(key), 0, KEY_HASH_SIZE));
+    }
+  }
+
+  public void testFalsePositiveRate() throws Exception {
+    SortedSet<Long> keys = writeBase(NUM_KEYS);
+    CueballBloomFilter bloomFilter = new CueballBloomFilter(CueballBloomFilter.getPath(basePath), HASH_INDEX_BITS);
+    int numFalsePositives = 0;
+    int numAbsentKeys = 0;
+    for (int i = 0; i < 10000; ++i) {
+      long key = random.nextLong();
+      if (!keys.contains(key)) {
+        ++numAbsentKeys;
+        if (bloomFilter.mayContain(toBytes(key), 0, KEY_HASH_SIZE)) {
+          ++numFalsePositives;
+        }
+      }
+    }
+    // About 1% is expected with 10 bits per key
+    assertTrue("False positive rate is too high: " + numFalsePositives + " / " + numAbsentKeys,
+        numFalsePositives < numAbsentKeys * 0.03);
+  }
+
+  public void testEmptyBlocks() throws Exception {
+    // A single key leaves all other blocks empty
+    long key = writeBase(1).first();
+    int keyPrefix = (int) (key >>> (64 - HASH_INDEX_BITS));
+    CueballBloomFilter bloomFilter = new CueballBloomFilter(CueballBloomFilter.getPath(basePath), HASH_INDEX_BITS);
+    assertTrue(bloomFilter.mayContain(toBytes(key), 0, KEY_HASH_SIZE));
+    for (int prefix = 0; prefix < (1 << HASH_INDEX_BITS); ++prefix) {
+      if (prefix != keyPrefix) {
+        byte[] keyHash = toBytes(((long) prefix) << (64 - HASH_INDEX_BITS));
+        assertFalse(bloomFilter.mayContain(keyHash, 0, KEY_HASH_SIZE));
+      }
+    }
+  }
+
+  public void testReaderShortCircuitsAbsentKeys() throws Exception {
+    SortedSet<Long> keys = writeBase(NUM_KEYS);
+    CueballReader reader = new CueballReader(root, KEY_HASH_SIZE, new IdentityHasher(), VALUE_SIZE, HASH_INDEX_BITS,
+        new NoCueballCompressionCodec(), 100);
+    ReaderResult result = new ReaderResult();
+    for (long key : keys) {
+      reader.get(ByteBuffer.wrap(toBytes(key)), result);
+      assertTrue(result.isFound());
+      assertEquals(ByteBuffer.wrap(getValue(key)), result.getBuffer());
+      result.clear();
+    }
+    int numRejectedKeys = 0;
+    for (int i = 0; i < 1000; ++i) {
+      long key = random.nextLong();
+      if (keys.contains(key)) {
+        continue;
+      }
+      reader.get(ByteBuffer.wrap(toBytes(key)), result);
+      assertFalse(result.isFound());
+      result.clear();
+      // Keys rejected by the filter are not even looked up in the cache
+      reader.get(ByteBuffer.wrap(toBytes(key)), result);
+      assertFalse(result.isFound());
+      if (!result.getL1CacheHit()) {
+        ++numRejectedKeys;
+      }
+      result.clear();
+    }
+    assertTrue(numRejectedKeys > 900);
+    reader.close();
+  }
+
+  // Write a base of random keys, along with its Bloom filter
+  private SortedSet<Long> writeBase(int numKeys) throws Exception {
+    new File(root).mkdirs();
+    // Sort keys as unsigned values, which is the key hash order
+    SortedSet<Long> sortedKeys = new TreeSet<Long>();
+    while (sortedKeys.size() < numKeys) {
+      sortedKeys.add(random.nextLong() ^ Long.MIN_VALUE);
+    }
+    CueballWriter writer = new CueballWriter(new FileOutputStream(basePath), KEY_HASH_SIZE, new IdentityHasher(),
+        VALUE_SIZE, new NoCueballCompressionCodec(), HASH_INDEX_BITS, new CueballOptions(),
+        new CueballBloomFilterWriter(new FileOutputStream(CueballBloomFilter.getPath(basePath)),
+            HASH_INDEX_BITS, BITS_PER_KEY));
+    SortedSet<Long> keys = new TreeSet<Long>();
+    for (long sortedKey : sortedKeys) {
+      long key = sortedKey ^ Long.MIN_VALUE;
+      writer.write(ByteBuffer.wrap(toBytes(key)), ByteBuffer.wrap(getValue(key)));
+      keys.add(key);
+    }
+    writer.close();
+    return keys;
+  }
+
+  private static byte[] getValue(long key) {
+    return new byte[]{(byte) key, (byte) (key >>> 8)};
+  }
+
+  private static byte[] toBytes(long value) {
+    return ByteBuffer.allocate(8).putLong(value).array();
+  }
+}
@@ -15,11 +15,20 @@
  */
 package com.liveramp.hank.storage.cueball;
 
+import com.liveramp.hank.compression.cueball.CueballCompressionCodec;
+import com.liveramp.hank.compression.cueball.GzipCueballCompressionCodec;
 import com.liveramp.hank.compression.cueball.NoCueballCompressionCodec;
+import com.liveramp.hank.storage.LocalPartitionRemoteFileOps;
+import com.liveramp.hank.storage.PartitionRemoteFileOps;
 
 import java.io.*;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
 
 public class TestCueballMerger extends AbstractCueballTest {
   private final String LOCAL_ROOT = localTmpDir;
@@ -183,4 +192,305 @@ public class TestCueballMerger extends AbstractCueballTest {
 
     assertEquals(ByteBuffer.wrap(EXPECTED_MERGED_DATA), ByteBuffer.wrap(actualMergedData));
   }
+
+  public void testMergeCarriesBloomFilter() throws Exception {
+    new File(LOCAL_ROOT).mkdirs();
+    // Write the base along with its Bloom filter
+    CueballWriter baseWriter = new CueballWriter(new FileOutputStream(BASE.getPath()), 1, null, 1,
+        new NoCueballCompressionCodec(), 1, new CueballOptions(),
+        new CueballBloomFilterWriter(new FileOutputStream(CueballBloomFilter.getPath(BASE.getPath())), 1, 8));
+    for (int i = 0; i < BASE_DATA.length - 24; i += 2) {
+      baseWriter.writeHash(ByteBuffer.wrap(BASE_DATA, i, 1).slice(), ByteBuffer.wrap(BASE_DATA, i + 1, 1).slice());
+    }
+    baseWriter.close();
+
+    OutputStream s = new FileOutputStream(DELTA_1.getPath());
+    s.write(DELTA_1_DATA);
+    s.flush();
+    s.close();
+
+    new CueballMerger().merge(BASE,
+        Arrays.asList(DELTA_1),
+        NEW_BASE_PATH,
+        1,
+        1,
+        null,
+        1,
+        new NoCueballCompressionCodec());
+
+    CueballBloomFilter bloomFilter = new CueballBloomFilter(CueballBloomFilter.getPath(NEW_BASE_PATH), 1);
+    assertEquals(8, bloomFilter.getBitsPerKey());
+    for (byte keyHash : new byte[]{0x01, 0x02, 0x05, (byte) 0x8a, (byte) 0x8c}) {
+      assertTrue(bloomFilter.mayContain(new byte[]{keyHash}, 0, 1));
+    }
+  }
+
+  public void testMergeWritesConfiguredBloomFilter() throws Exception {
+    new File(LOCAL_ROOT).mkdirs();
+    // Write the base without a Bloom filter
+    CueballWriter baseWriter = new CueballWriter(new FileOutputStream(BASE.getPath()), 1, null, 1,
+        new NoCueballCompressionCodec(), 1);
+    for (int i = 0; i < BASE_DATA.length - 24; i += 2) {
+      baseWriter.writeHash(ByteBuffer.wrap(BASE_DATA, i, 1).slice(), ByteBuffer.wrap(BASE_DATA, i + 1, 1).slice());
+    }
+    baseWriter.close();
+    assertFalse(new File(CueballBloomFilter.getPath(BASE.getPath())).exists());
+
+    OutputStream s = new FileOutputStream(DELTA_1.getPath());
+    s.write(DELTA_1_DATA);
+    s.flush();
+    s.close();
+
+    for (ICueballMerger merger : new ICueballMerger[]{new CueballMerger(8), new ParallelCueballMerger(2, 8)}) {
+      new File(CueballBloomFilter.getPath(NEW_BASE_PATH)).delete();
+      merger.merge(BASE,
+          Arrays.asList(DELTA_1),
+          NEW_BASE_PATH,
+          1,
+          1,
+          null,
+          1,
+          new NoCueballCompressionCodec());
+
+      CueballBloomFilter bloomFilter = new CueballBloomFilter(CueballBloomFilter.getPath(NEW_BASE_PATH), 1);
+      assertEquals(8, bloomFilter.getBitsPerKey());
+      for (byte keyHash : new byte[]{0x01, 0x02, 0x05, (byte) 0x8a, (byte) 0x8c}) {
+        assertTrue(bloomFilter.mayContain(new byte[]{keyHash}, 0, 1));
+      }
+    }
+  }
+
+  public void testMergeKeepsFormatV2() throws Exception {
+    new File(LOCAL_ROOT).mkdirs();
+    CueballWriter baseWriter = new CueballWriter(new FileOutputStream(BASE.getPath()), 1, null, 1,
+        new NoCueballCompressionCodec(), 1, new CueballOptions().setBlockSize(4), null);
+    for (int i = 0; i < BASE_DATA.length - 24; i += 2) {
+      baseWriter.writeHash(ByteBuffer.wrap(BASE_DATA, i, 1).slice(), ByteBuffer.wrap(BASE_DATA, i + 1, 1).slice());
+    }
+    baseWriter.close();
+
+    OutputStream s = new FileOutputStream(DELTA_1.getPath());
+    s.write(DELTA_1_DATA);
+    s.flush();
+    s.close();
+
+    s = new FileOutputStream(DELTA_2.getPath());
+    s.write(DELTA_2_DATA);
+    s.flush();
+    s.close();
+
+    new CueballMerger().merge(BASE,
+        Arrays.asList(DELTA_1, DELTA_2),
+        NEW_BASE_PATH,
+        1,
+        1,
+        null,
+        1,
+        new NoCueballCompressionCodec());
+
+    assertEquals(4, Footer.readBlockSize(NEW_BASE_PATH));
+    // Same records as a version 1 merge
+    CueballStreamBuffer merged = new CueballStreamBuffer(NEW_BASE_PATH, 0, 1, 1, 1, new NoCueballCompressionCodec());
+    for (int i = 0; i < EXPECTED_MERGED_DATA.length - 24; i += 2) {
+      assertTrue(merged.anyRemaining());
+      assertEquals(ByteBuffer.wrap(EXPECTED_MERGED_DATA, i, 2), ByteBuffer.wrap(merged.getBuffer(), merged.getCurrentOffset(), 2));
+      merged.consume();
+    }
+    assertFalse(merged.anyRemaining());
+    merged.close();
+  }
+
+  public void testParallelMerge() throws Exception {
+    new File(LOCAL_ROOT).mkdirs();
+    // Ranges are read through the hash index, so blocks must match hash prefixes
+    CueballWriter baseWriter = new CueballWriter(new FileOutputStream(BASE.getPath()), 1, null, 1,
+        new NoCueballCompressionCodec(), 1);
+    for (int i = 0; i < BASE_DATA.length - 24; i += 2) {
+      baseWriter.writeHash(ByteBuffer.wrap(BASE_DATA, i, 1).slice(), ByteBuffer.wrap(BASE_DATA, i + 1, 1).slice());
+    }
+    baseWriter.close();
+
+    OutputStream s = new FileOutputStream(DELTA_1.getPath());
+    s.write(DELTA_1_DATA);
+    s.flush();
+    s.close();
+
+    s = new FileOutputStream(DELTA_2.getPath());
+    s.write(DELTA_2_DATA);
+    s.flush();
+    s.close();
+
+    new ParallelCueballMerger(2).merge(BASE,
+        Arrays.asList(DELTA_1, DELTA_2),
+        NEW_BASE_PATH,
+        1,
+        1,
+        null,
+        1,
+        new NoCueballCompressionCodec());
+
+    assertEquals(ByteBuffer.wrap(EXPECTED_MERGED_DATA), ByteBuffer.wrap(readFile(NEW_BASE_PATH)));
+    // Segments are cleaned up
+    assertEquals(4, new File(LOCAL_ROOT).list().length);
+  }
+
+  public void testParallelMergeIsIdenticalToSequentialMerge() throws Exception {
+    new File(LOCAL_ROOT).mkdirs();
+    final int keyHashSize = 8;
+    final int valueSize = 4;
+    final int hashIndexBits = 6;
+    Random random = new Random(0);
+    // Key hashes only use the lower half of hash prefixes, so that some ranges are empty
+    long[] baseKeyHashes = getSortedKeyHashes(random, 5000);
+    long[] delta1KeyHashes = getSortedKeyHashes(random, 500);
+    // Overwrite some keys of the base
+    System.arraycopy(baseKeyHashes, 1000, delta1KeyHashes, 0, 100);
+    Arrays.sort(delta1KeyHashes);
+    long[] delta2KeyHashes = getSortedKeyHashes(random, 500);
+    System.arraycopy(delta1KeyHashes, 200, delta2KeyHashes, 0, 100);
+    Arrays.sort(delta2KeyHashes);
+
+    for (CueballCompressionCodec compressionCodec : new CueballCompressionCodec[]{
+        new NoCueballCompressionCodec(), new GzipCueballCompressionCodec()}) {
+      writeFile(BASE.getPath(), baseKeyHashes, 0, compressionCodec,
+          new CueballBloomFilterWriter(new FileOutputStream(CueballBloomFilter.getPath(BASE.getPath())), hashIndexBits, 10));
+      writeFile(DELTA_1.getPath(), delta1KeyHashes, 1, compressionCodec, null);
+      // Deltas can be in format version 2, whose blocks span hash prefix ranges
+      CueballWriter delta2Writer = new CueballWriter(new FileOutputStream(DELTA_2.getPath()), keyHashSize, null,
+          valueSize, compressionCodec, hashIndexBits, new CueballOptions().setBlockSize(64), null);
+      writeHashes(delta2Writer, delta2KeyHashes, 2);
+
+      String sequentialPath = LOCAL_ROOT + "/sequential.cueball";
+      new CueballMerger().merge(BASE, Arrays.asList(DELTA_1, DELTA_2), sequentialPath,
+          keyHashSize, valueSize, null, hashIndexBits, compressionCodec);
+      for (int numThreads : new int[]{2, 3, 64, 100}) {
+        new ParallelCueballMerger(numThreads).merge(BASE, Arrays.asList(DELTA_1, DELTA_2), NEW_BASE_PATH,
+            keyHashSize, valueSize, null, hashIndexBits, compressionCodec);
+        assertEquals(ByteBuffer.wrap(readFile(sequentialPath)), ByteBuffer.wrap(readFile(NEW_BASE_PATH)));
+        assertEquals(ByteBuffer.wrap(readFile(CueballBloomFilter.getPath(sequentialPath))),
+            ByteBuffer.wrap(readFile(CueballBloomFilter.getPath(NEW_BASE_PATH))));
+      }
+    }
+  }
+
+  public void testMergeManyDeltasKeepsLatestValues() throws Exception {
+    new File(LOCAL_ROOT).mkdirs();
+    Random random = new Random(0);
+    // Expected latest version of each key hash
+    Map<Long, Integer> expected = new TreeMap<Long, Integer>();
+    long[] baseKeyHashes = getSortedKeyHashes(random, 2000);
+    writeFile(BASE.getPath(), baseKeyHashes, 0, new NoCueballCompressionCodec(), null);
+    for (long keyHash : baseKeyHashes) {
+      expected.put(keyHash, 0);
+    }
+    List<CueballFilePath> deltas = new ArrayList<CueballFilePath>();
+    for (int version = 1; version <= 20; ++version) {
+      long[] deltaKeyHashes = getSortedKeyHashes(random, 200);
+      // Overwrite keys of the base and of the previous deltas
+      for (int i = 0; i < 50; ++i) {
+        deltaKeyHashes[i] = baseKeyHashes[random.nextInt(baseKeyHashes.length)];
+      }
+      Arrays.sort(deltaKeyHashes);
+      CueballFilePath delta = new CueballFilePath(LOCAL_ROOT + "/" + String.format("%05d", version) + ".delta.cueball");
+      writeFile(delta.getPath(), deltaKeyHashes, version, new NoCueballCompressionCodec(), null);
+      deltas.add(delta);
+      for (long keyHash : deltaKeyHashes) {
+        expected.put(keyHash, version);
+      }
+    }
+
+    new CueballMerger().merge(BASE, deltas, NEW_BASE_PATH, 8, 4, null, 6, new NoCueballCompressionCodec());
+
+    CueballStreamBuffer merged = new CueballStreamBuffer(NEW_BASE_PATH, 0, 8, 4, 6, new NoCueballCompressionCodec());
+    for (Map.Entry<Long, Integer> entry : expected.entrySet()) {
+      assertTrue(merged.anyRemaining());
+      ByteBuffer record = ByteBuffer.wrap(merged.getBuffer(), merged.getCurrentOffset(), 12);
+      assertEquals(entry.getKey().longValue(), record.getLong());
+      assertEquals(entry.getValue().intValue(), record.getInt());
+      merged.consume();
+    }
+    assertFalse(merged.anyRemaining());
+    merged.close();
+  }
+
+  public void testMergeStreamsRemoteDeltas() throws Exception {
+    new File(LOCAL_ROOT).mkdirs();
+    final int keyHashSize = 8;
+    final int valueSize = 4;
+    final int hashIndexBits = 6;
+    Random random = new Random(0);
+    long[] baseKeyHashes = getSortedKeyHashes(random, 5000);
+    long[] delta1KeyHashes = getSortedKeyHashes(random, 500);
+    System.arraycopy(baseKeyHashes, 1000, delta1KeyHashes, 0, 100);
+    Arrays.sort(delta1KeyHashes);
+    long[] delta2KeyHashes = getSortedKeyHashes(random, 500);
+    System.arraycopy(delta1KeyHashes, 200, delta2KeyHashes, 0, 100);
+    Arrays.sort(delta2KeyHashes);
+
+    PartitionRemoteFileOps remoteFileOps = new LocalPartitionRemoteFileOps(LOCAL_ROOT + "/remote", 0);
+    for (CueballCompressionCodec compressionCodec : new CueballCompressionCodec[]{
+        new NoCueballCompressionCodec(), new GzipCueballCompressionCodec()}) {
+      writeFile(BASE.getPath(), baseKeyHashes, 0, compressionCodec, null);
+      // Deltas are written both locally and remotely, one of them in format version 2
+      writeFile(DELTA_1.getPath(), delta1KeyHashes, 1, compressionCodec, null);
+      writeHashes(new CueballWriter(new FileOutputStream(DELTA_2.getPath()), keyHashSize, null, valueSize,
+          compressionCodec, hashIndexBits, new CueballOptions().setBlockSize(64), null), delta2KeyHashes, 2);
+      for (CueballFilePath delta : Arrays.asList(DELTA_1, DELTA_2)) {
+        OutputStream outputStream = remoteFileOps.getOutputStream(delta.getName());
+        outputStream.write(readFile(delta.getPath()));
+        outputStream.close();
+      }
+      List<CueballFilePath> remoteDeltas = Arrays.<CueballFilePath>asList(
+          new RemoteCueballFilePath(remoteFileOps, DELTA_1.getName()),
+          new RemoteCueballFilePath(remoteFileOps, DELTA_2.getName()));
+
+      String localPath = LOCAL_ROOT + "/local.cueball";
+      new CueballMerger().merge(BASE, Arrays.asList(DELTA_1, DELTA_2), localPath,
+          keyHashSize, valueSize, null, hashIndexBits, compressionCodec);
+      new CueballMerger().merge(BASE, remoteDeltas, NEW_BASE_PATH,
+          keyHashSize, valueSize, null, hashIndexBits, compressionCodec);
+      assertEquals(ByteBuffer.wrap(readFile(localPath)), ByteBuffer.wrap(readFile(NEW_BASE_PATH)));
+      new ParallelCueballMerger(3).merge(BASE, remoteDeltas, NEW_BASE_PATH,
+          keyHashSize, valueSize, null, hashIndexBits, compressionCodec);
+      assertEquals(ByteBuffer.wrap(readFile(localPath)), ByteBuffer.wrap(readFile(NEW_BASE_PATH)));
+    }
+  }
+
+  private long[] getSortedKeyHashes(Random random, int numKeyHashes) {
+    long[] keyHashes = new long[numKeyHashes];
+    for (int i = 0; i < numKeyHashes; ++i) {
+      keyHashes[i] = random.nextLong() >>> 1;
+    }
+    Arrays.sort(keyHashes);
+    return keyHashes;
+  }
+
+  private void writeFile(String path,
+                         long[] keyHashes,
+                         int version,
+                         CueballCompressionCodec compressionCodec,
+                         CueballBloomFilterWriter bloomFilterWriter) throws IOException {
+    writeHashes(new CueballWriter(new FileOutputStream(path), 8, null, 4, compressionCodec, 6, new CueballOptions(),
+        bloomFilterWriter), keyHashes, version);
+  }
+
+  private void writeHashes(CueballWriter writer, long[] keyHashes, int version) throws IOException {
+    for (int i = 0; i < keyHashes.length; ++i) {
+      // Skip duplicates
+      if (i > 0 && keyHashes[i] == keyHashes[i - 1]) {
+        continue;
+      }
+      writer.writeHash(ByteBuffer.wrap(ByteBuffer.allocate(8).putLong(keyHashes[i]).array()),
+          ByteBuffer.wrap(ByteBuffer.allocate(4).putInt(version).array()));
+    }
+    writer.close();
+  }
+
+  private byte[] readFile(String path) throws IOException {
+    DataInputStream in = new DataInputStream(new FileInputStream(path));
+    byte[] data = new byte[(int) new File(path).length()];
+    in.readFully(data);
+    in.close();
+    return data;
+  }
 }
@@ -25,10 +25,13 @@ import com.liveramp.hank.coordinator.mock.MockDomainVersion;
 import com.liveramp.hank.partition_server.PartitionUpdateTaskStatistics;
 import com.liveramp.hank.storage.LocalPartitionRemoteFileOps;
 import com.liveramp.hank.storage.incremental.IncrementalDomainVersionProperties;
+import com.liveramp.hank.storage.incremental.IncrementalPartitionUpdater;
 import com.liveramp.hank.storage.incremental.IncrementalPartitionUpdaterTestCase;
 import com.liveramp.hank.storage.incremental.IncrementalUpdatePlan;
+import com.liveramp.hank.util.BandwidthThrottle;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.*;
 
@@ -158,6 +161,31 @@ public class TestCueballPartitionUpdater extends IncrementalPartitionUpdaterTest
     assertTrue(existsLocalFile(fetchRootName + "/00000.base.cueball"));
   }
 
+  public void testPrefetch() throws IOException {
+    // Prefetching from v0 to v2
+    makeLocalFile("00000.base.cueball");
+    makeRemoteFile("0/00001.base.cueball");
+    makeRemoteFile("0/00002.delta.cueball");
+    FileOutputStream outputStream = new FileOutputStream(getRemoteFilePath("0/00002.delta.cueball"));
+    outputStream.write(new byte[]{1, 2, 3, 4, 5});
+    outputStream.close();
+
+    BandwidthThrottle throttle = new BandwidthThrottle(1 << 20);
+    updater.prefetch(v2, throttle);
+    // Versions needed to update are cached
+    assertTrue(existsCacheFile("00001.base.cueball"));
+    assertTrue(existsCacheFile("00002.delta.cueball"));
+    assertEquals(5, new File(localPartitionRoot + "/" + IncrementalPartitionUpdater.CACHE_ROOT_NAME + "/00002.delta.cueball").length());
+    assertEquals(5, throttle.getNumBytes());
+    // Current version is intact
+    assertTrue(existsLocalFile("00000.base.cueball"));
+    assertFalse(existsLocalFile("00001.base.cueball"));
+
+    // Cached versions are not fetched again
+    updater.prefetch(v2, throttle);
+    assertEquals(5, throttle.getNumBytes());
+  }
+
   public void testUpdateNoDelta() throws IOException {
     // Updating from null to v0
     // Fail when missing files
@@ -208,6 +236,57 @@ public class TestCueballPartitionUpdater extends IncrementalPartitionUpdaterTest
     assertTrue(existsLocalFile("00000.base.cueball"));
   }
 
+  public void testStreamDeltas() throws IOException {
+    MockCueballMerger cueballMerger = new MockCueballMerger();
+    CueballPartitionUpdater streamingUpdater = new CueballPartitionUpdater(domain,
+        new LocalPartitionRemoteFileOps(remotePartitionRoot, 0),
+        cueballMerger,
+        12,
+        5,
+        1,
+        new NoCueballCompressionCodec(),
+        localPartitionRoot,
+        true);
+    String fetchRootName = "_fetch";
+    String fetchRoot = localPartitionRoot + "/" + fetchRootName;
+    new File(fetchRoot).mkdir();
+
+    // Deltas are not fetched
+    makeRemoteFile("0/00002.delta.cueball");
+    streamingUpdater.fetchVersion(v2, fetchRoot);
+    assertFalse(existsLocalFile(fetchRootName + "/00002.delta.cueball"));
+    // Bases are fetched
+    makeRemoteFile("0/00000.base.cueball");
+    streamingUpdater.fetchVersion(v0, fetchRoot);
+    deleteRemoteFile("0/00000.base.cueball");
+    assertTrue(existsLocalFile(fetchRootName + "/00000.base.cueball"));
+
+    // Updating from v0 to v2, streaming the deltas that are not cached
+    List<DomainVersion> deltas = new ArrayList<DomainVersion>();
+    deltas.add(v1);
+    deltas.add(v2);
+    makeLocalFile("00000.base.cueball");
+    makeLocalCacheFile("00001.delta.cueball");
+    streamingUpdater.runUpdateCore(v0, v2, new IncrementalUpdatePlan(v0, deltas), updateWorkRoot,
+        new PartitionUpdateTaskStatistics());
+    assertTrue(cueballMerger.called);
+    assertEquals(2, cueballMerger.deltas.size());
+    assertFalse(cueballMerger.deltas.get(0) instanceof RemoteCueballFilePath);
+    assertTrue(cueballMerger.deltas.get(1) instanceof RemoteCueballFilePath);
+    assertEquals("00002.delta.cueball", cueballMerger.deltas.get(1).getPath());
+    assertTrue(existsUpdateWorkFile("00002.base.cueball"));
+
+    // Fail when a streamed delta is missing remotely
+    deleteRemoteFile("0/00002.delta.cueball");
+    try {
+      streamingUpdater.runUpdateCore(v0, v2, new IncrementalUpdatePlan(v0, deltas), updateWorkRoot,
+          new PartitionUpdateTaskStatistics());
+      fail("Should fail");
+    } catch (IOException e) {
+      // Good
+    }
+  }
+
   public void testGetRemotePartitionFilePaths() throws IOException {
     CueballUpdatePlanner updatePlanner = new CueballUpdatePlanner(domain);
     List<String> paths = updatePlanner.getRemotePartitionFilePaths(new IncrementalUpdatePlan(v1, v2),
@@ -15,13 +15,26 @@
  */
 package com.liveramp.hank.storage.cueball;
 
+import com.liveramp.hank.compression.cueball.CueballCompressionCodec;
+import com.liveramp.hank.compression.cueball.GzipCueballCompressionCodec;
+import com.liveramp.hank.compression.cueball.Lz4CueballCompressionCodec;
 import com.liveramp.hank.compression.cueball.NoCueballCompressionCodec;
+import com.liveramp.hank.compression.cueball.SnappyCueballCompressionCodec;
+import com.liveramp.hank.hasher.IdentityHasher;
+import com.liveramp.hank.storage.BlockCache;
 import com.liveramp.hank.storage.ReaderResult;
 
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 public class TestCueballReader extends AbstractCueballTest {
   public void testRead() throws Exception {
@@ -100,4 +113,334 @@ public class TestCueballReader extends AbstractCueballTest {
     assertEquals(false, result.getL2CacheHit());
     result.clear();
   }
+
+  public void testReadBulk() throws Exception {
+    String root = localTmpDir + "/1";
+    new File(root).mkdir();
+    OutputStream os = new FileOutputStream(root + "/00000.base.cueball");
+    os.write(EXPECTED_DATA);
+    os.flush();
+    os.close();
+
+    CueballReader reader = new CueballReader(root, 10, HASHER, 5, 1, new NoCueballCompressionCodec(), 1);
+
+    List<ByteBuffer> keys = Arrays.asList(ByteBuffer.wrap(KEY3), ByteBuffer.wrap(KEY10), ByteBuffer.wrap(KEY1),
+        ByteBuffer.wrap(KEY4), ByteBuffer.wrap(KEY2), ByteBuffer.wrap(KEY1));
+    List<ReaderResult> results = new ArrayList<ReaderResult>();
+    for (int i = 0; i < keys.size(); ++i) {
+      results.add(new ReaderResult());
+    }
+    reader.getBulk(keys, results);
+
+    assertTrue(results.get(0).isFound());
+    assertEquals(ByteBuffer.wrap(new byte[]{(byte) 0x8f, 1, 2, 1, 2}), results.get(0).getBuffer());
+    assertFalse(results.get(1).isFound());
+    assertTrue(results.get(2).isFound());
+    assertEquals(ByteBuffer.wrap(new byte[]{1, 2, 1, 2, 1}), results.get(2).getBuffer());
+    assertFalse(results.get(3).isFound());
+    assertTrue(results.get(4).isFound());
+    assertEquals(ByteBuffer.wrap(new byte[]{2, 1, 2, 1, 2}), results.get(4).getBuffer());
+    assertTrue(results.get(5).isFound());
+    assertEquals(ByteBuffer.wrap(new byte[]{1, 2, 1, 2, 1}), results.get(5).getBuffer());
+
+    // Results must match keys
+    try {
+      reader.getBulk(keys, results.subList(0, 1));
+      fail("Should fail");
+    } catch (IllegalArgumentException e) {
+      // Good
+    }
+  }
+
+  public void testReadMemoryMapped() throws Exception {
+    String root = localTmpDir + "/1";
+    new File(root).mkdir();
+    OutputStream os = new FileOutputStream(root + "/00000.base.cueball");
+    os.write(EXPECTED_DATA);
+    os.flush();
+    os.close();
+
+    CueballReader reader = new CueballReader(root, 10, HASHER, 5, 1, new NoCueballCompressionCodec(), 1,
+        new CueballOptions().setMmap(true).setCompactHashIndex(true), null, 0, 0);
+
+    ReaderResult result = new ReaderResult();
+    reader.get(ByteBuffer.wrap(KEY1), result);
+    assertTrue(result.isFound());
+    assertEquals(ByteBuffer.wrap(new byte[]{1, 2, 1, 2, 1}), result.getBuffer());
+    result.clear();
+
+    reader.get(ByteBuffer.wrap(KEY2), result);
+    assertTrue(result.isFound());
+    assertEquals(ByteBuffer.wrap(new byte[]{2, 1, 2, 1, 2}), result.getBuffer());
+    result.clear();
+
+    reader.get(ByteBuffer.wrap(KEY3), result);
+    assertTrue(result.isFound());
+    assertEquals(ByteBuffer.wrap(new byte[]{(byte) 0x8f, 1, 2, 1, 2}), result.getBuffer());
+    result.clear();
+
+    // non-existent key in occupied bucket
+    reader.get(ByteBuffer.wrap(KEY4), result);
+    assertFalse(result.isFound());
+    result.clear();
+
+    reader.get(ByteBuffer.wrap(KEY10), result);
+    assertFalse(result.isFound());
+    result.clear();
+
+    reader.close();
+  }
+
+  public void testReadCompactCache() throws Exception {
+    String root = localTmpDir + "/1";
+    new File(root).mkdir();
+    OutputStream os = new FileOutputStream(root + "/00000.base.cueball");
+    os.write(EXPECTED_DATA);
+    os.flush();
+    os.close();
+
+    CueballReader reader = new CueballReader(root, 10, HASHER, 5, 1, new NoCueballCompressionCodec(), 8,
+        new CueballOptions().setCompactPartitionCache(true), null, 0, 0);
+    // 8 slots of 1 + 10 + 5 bytes, and one clock hand
+    assertEquals(8 * 16 + 1, reader.getCompactCacheNumManagedBytes());
+
+    ReaderResult result = new ReaderResult();
+    for (int i = 0; i < 2; ++i) {
+      // Second round is served by the cache
+      boolean cached = i > 0;
+
+      reader.get(ByteBuffer.wrap(KEY1), result);
+      assertTrue(result.isFound());
+      assertEquals(ByteBuffer.wrap(new byte[]{1, 2, 1, 2, 1}), result.getBuffer());
+      assertEquals(cached, result.getL1CacheHit());
+      result.clear();
+
+      reader.get(ByteBuffer.wrap(KEY3), result);
+      assertTrue(result.isFound());
+      assertEquals(ByteBuffer.wrap(new byte[]{(byte) 0x8f, 1, 2, 1, 2}), result.getBuffer());
+      assertEquals(cached, result.getL1CacheHit());
+      result.clear();
+
+      reader.get(ByteBuffer.wrap(KEY4), result);
+      assertFalse(result.isFound());
+      assertEquals(cached, result.getL1CacheHit());
+      result.clear();
+    }
+
+    reader.close();
+  }
+
+  public void testReadBlockCache() throws Exception {
+    String root = localTmpDir + "/1";
+    new File(root).mkdir();
+    OutputStream os = new FileOutputStream(root + "/00000.base.cueball");
+    os.write(EXPECTED_DATA);
+    os.flush();
+    os.close();
+
+    // Disable the key cache so that every lookup goes to the block cache
+    BlockCache blockCache = new BlockCache(1 << 20);
+    CueballReader reader = new CueballReader(root, 10, HASHER, 5, 1, new NoCueballCompressionCodec(), 0,
+        new CueballOptions(), blockCache, 0, 1);
+
+    ReaderResult result = new ReaderResult();
+    reader.get(ByteBuffer.wrap(KEY1), result);
+    assertTrue(result.isFound());
+    assertEquals(ByteBuffer.wrap(new byte[]{1, 2, 1, 2, 1}), result.getBuffer());
+    assertEquals(false, result.getBlockCacheHit());
+    assertEquals(true, result.getBlockCacheMiss());
+    assertEquals(0, result.getNumBlockCacheEvictions());
+    result.clear();
+
+    // Same block
+    reader.get(ByteBuffer.wrap(KEY2), result);
+    assertTrue(result.isFound());
+    assertEquals(ByteBuffer.wrap(new byte[]{2, 1, 2, 1, 2}), result.getBuffer());
+    assertEquals(true, result.getBlockCacheHit());
+    assertEquals(false, result.getBlockCacheMiss());
+    result.clear();
+
+    reader.get(ByteBuffer.wrap(KEY4), result);
+    assertFalse(result.isFound());
+    assertEquals(true, result.getBlockCacheHit());
+    result.clear();
+
+    // Other block
+    reader.get(ByteBuffer.wrap(KEY3), result);
+    assertTrue(result.isFound());
+    assertEquals(ByteBuffer.wrap(new byte[]{(byte) 0x8f, 1, 2, 1, 2}), result.getBuffer());
+    assertEquals(true, result.getBlockCacheMiss());
+    result.clear();
+
+    reader.get(ByteBuffer.wrap(KEY10), result);
+    assertFalse(result.isFound());
+    assertEquals(true, result.getBlockCacheHit());
+    result.clear();
+
+    // Each block is cached exactly once, with its exact size
+    assertEquals(2, blockCache.size());
+    reader.close();
+
+    // A cache that can only hold one block
+    blockCache = new BlockCache(80, 1);
+    reader = new CueballReader(root, 10, HASHER, 5, 1, new NoCueballCompressionCodec(), 0,
+        new CueballOptions(), blockCache, 0, 1);
+
+    reader.get(ByteBuffer.wrap(KEY1), result);
+    assertTrue(result.isFound());
+    assertEquals(0, result.getNumBlockCacheEvictions());
+    result.clear();
+
+    reader.get(ByteBuffer.wrap(KEY3), result);
+    assertTrue(result.isFound());
+    assertEquals(1, result.getNumBlockCacheEvictions());
+    result.clear();
+
+    reader.get(ByteBuffer.wrap(KEY2), result);
+    assertTrue(result.isFound());
+    assertEquals(true, result.getBlockCacheMiss());
+    assertEquals(1, result.getNumBlockCacheEvictions());
+    result.clear();
+
+    reader.close();
+  }
+
+  public void testReadFormatV2() throws Exception {
+    String root = localTmpDir + "/2";
+    new File(root).mkdir();
+    String basePath = root + "/00000.base.cueball";
+    Random random = new Random(0);
+    SortedMap<Long, Long> keys = writeFormatV2Base(basePath, random, new NoCueballCompressionCodec());
+
+    BlockCache blockCache = new BlockCache(1 << 20);
+    CueballReader[] readers = {
+        new CueballReader(root, 8, new IdentityHasher(), 2, 4, new NoCueballCompressionCodec(), 0),
+        new CueballReader(root, 8, new IdentityHasher(), 2, 4, new NoCueballCompressionCodec(), 0,
+            new CueballOptions().setMmap(true), null, 0, 0),
+        new CueballReader(root, 8, new IdentityHasher(), 2, 4, new NoCueballCompressionCodec(), 0,
+            new CueballOptions(), blockCache, 0, 0)
+    };
+    for (CueballReader reader : readers) {
+      checkReads(reader, keys, random);
+      reader.close();
+    }
+
+    keys = writeFormatV2Base(basePath, random, new Lz4CueballCompressionCodec());
+    readers = new CueballReader[]{
+        new CueballReader(root, 8, new IdentityHasher(), 2, 4, new Lz4CueballCompressionCodec(), 0),
+        new CueballReader(root, 8, new IdentityHasher(), 2, 4, new Lz4CueballCompressionCodec(), 0,
+            new CueballOptions().setMmap(true), null, 0, 0),
+        new CueballReader(root, 8, new IdentityHasher(), 2, 4, new Lz4CueballCompressionCodec(), 0,
+            new CueballOptions(), blockCache, 1, 0)
+    };
+    for (CueballReader reader : readers) {
+      checkReads(reader, keys, random);
+      reader.close();
+    }
+  }
+
+  // Write 2000 random 8 byte key hashes with 2 byte values in blocks of 100 bytes
+  private static SortedMap<Long, Long> writeFormatV2Base(String path,
+                                                         Random random,
+                                                         CueballCompressionCodec compressionCodec) throws Exception {
+    // Unsigned order is the key hash order
+    SortedMap<Long, Long> sortedKeys = new TreeMap<Long, Long>();
+    while (sortedKeys.size() < 2000) {
+      sortedKeys.put(random.nextLong() ^ Long.MIN_VALUE, random.nextLong());
+    }
+    CueballWriter writer = new CueballWriter(new FileOutputStream(path), 8, new IdentityHasher(), 2,
+        compressionCodec, 4, new CueballOptions().setBlockSize(100), null);
+    SortedMap<Long, Long> keys = new TreeMap<Long, Long>();
+    for (Map.Entry<Long, Long> entry : sortedKeys.entrySet()) {
+      long key = entry.getKey() ^ Long.MIN_VALUE;
+      writer.write(ByteBuffer.allocate(8).putLong(0, key), ByteBuffer.allocate(2).putShort(0, entry.getValue().shortValue()));
+      keys.put(key, entry.getValue());
+    }
+    writer.close();
+    return keys;
+  }
+
+  // Blocks of version 1 files are followed by the next block, which codecs such as LZ4 and Snappy
+  // do not ignore, so readers must decompress exactly one block
+  public void testReadFormatV1Codecs() throws Exception {
+    String root = localTmpDir + "/3";
+    new File(root).mkdir();
+    String basePath = root + "/00000.base.cueball";
+    Random random = new Random(0);
+    BlockCache blockCache = new BlockCache(1 << 20);
+    int domainId = 0;
+    for (CueballCompressionCodec compressionCodec : new CueballCompressionCodec[]{
+        new NoCueballCompressionCodec(),
+        new GzipCueballCompressionCodec(),
+        new Lz4CueballCompressionCodec(),
+        new SnappyCueballCompressionCodec()}) {
+      SortedMap<Long, Long> keys = writeFormatV1Base(basePath, random, compressionCodec);
+      CueballReader[] readers = {
+          new CueballReader(root, 8, new IdentityHasher(), 2, 4, compressionCodec, 0),
+          new CueballReader(root, 8, new IdentityHasher(), 2, 4, compressionCodec, 0,
+              new CueballOptions().setMmap(true), null, 0, 0),
+          new CueballReader(root, 8, new IdentityHasher(), 2, 4, compressionCodec, 0,
+              new CueballOptions(), blockCache, domainId++, 0)
+      };
+      for (CueballReader reader : readers) {
+        checkReads(reader, keys, random);
+        checkBulkReads(reader, keys);
+        reader.close();
+      }
+    }
+  }
+
+  // Write 2000 random 8 byte key hashes with 2 byte values, in one block per hash prefix
+  private static SortedMap<Long, Long> writeFormatV1Base(String path,
+                                                         Random random,
+                                                         CueballCompressionCodec compressionCodec) throws Exception {
+    SortedMap<Long, Long> sortedKeys = new TreeMap<Long, Long>();
+    while (sortedKeys.size() < 2000) {
+      sortedKeys.put(random.nextLong() ^ Long.MIN_VALUE, random.nextLong());
+    }
+    CueballWriter writer = new CueballWriter(new FileOutputStream(path), 8, new IdentityHasher(), 2,
+        compressionCodec, 4);
+    SortedMap<Long, Long> keys = new TreeMap<Long, Long>();
+    for (Map.Entry<Long, Long> entry : sortedKeys.entrySet()) {
+      long key = entry.getKey() ^ Long.MIN_VALUE;
+      writer.write(ByteBuffer.allocate(8).putLong(0, key), ByteBuffer.allocate(2).putShort(0, entry.getValue().shortValue()));
+      keys.put(key, entry.getValue());
+    }
+    writer.close();
+    return keys;
+  }
+
+  private static void checkReads(CueballReader reader, SortedMap<Long, Long> keys, Random random) throws Exception {
+    ReaderResult result = new ReaderResult();
+    for (Map.Entry<Long, Long> entry : keys.entrySet()) {
+      reader.get(ByteBuffer.allocate(8).putLong(0, entry.getKey()), result);
+      assertTrue(result.isFound());
+      assertEquals(entry.getValue().shortValue(), result.getBuffer().getShort(result.getBuffer().position()));
+      result.clear();
+    }
+    for (int i = 0; i < 1000; ++i) {
+      long key = random.nextLong();
+      if (!keys.containsKey(key)) {
+        reader.get(ByteBuffer.allocate(8).putLong(0, key), result);
+        assertFalse(result.isFound());
+        result.clear();
+      }
+    }
+  }
+
+  private static void checkBulkReads(CueballReader reader, SortedMap<Long, Long> keys) throws Exception {
+    List<ByteBuffer> bulkKeys = new ArrayList<ByteBuffer>();
+    List<ReaderResult> results = new ArrayList<ReaderResult>();
+    for (Long key : keys.keySet()) {
+      bulkKeys.add(ByteBuffer.allocate(8).putLong(0, key));
+      results.add(new ReaderResult());
+    }
+    reader.getBulk(bulkKeys, results);
+    int i = 0;
+    for (Long value : keys.values()) {
+      assertTrue(results.get(i).isFound());
+      assertEquals(value.shortValue(), results.get(i).getBuffer().getShort(results.get(i).getBuffer().position()));
+      ++i;
+    }
+  }
 }
@@ -120,4 +120,26 @@ public class TestCueballStreamBuffer extends BaseTestCase {
 
     assertFalse(sb.anyRemaining());
   }
+
+  public void testFormatV2() throws Exception {
+    final String path = localTmpDir + "/format_v2_file.cueball";
+    // 2 byte key hashes and values, 1000 records per block
+    CueballWriter writer = new CueballWriter(new FileOutputStream(path), 2, null, 2,
+        new NoCueballCompressionCodec(), 2, new CueballOptions().setBlockSize(4000), null);
+    for (int i = 0; i < 5000; ++i) {
+      writer.writeHash(ByteBuffer.wrap(new byte[]{(byte) (i >>> 8), (byte) i}),
+          ByteBuffer.wrap(new byte[]{(byte) i, (byte) (i >>> 8)}));
+    }
+    writer.close();
+
+    final CueballStreamBuffer sb = new CueballStreamBuffer(path, 0, 2, 2, 2, new NoCueballCompressionCodec());
+    for (int i = 0; i < 5000; ++i) {
+      assertTrue(sb.anyRemaining());
+      assertEquals(ByteBuffer.wrap(new byte[]{(byte) (i >>> 8), (byte) i, (byte) i, (byte) (i >>> 8)}),
+          ByteBuffer.wrap(sb.getBuffer(), sb.getCurrentOffset(), 4));
+      sb.consume();
+    }
+    assertFalse(sb.anyRemaining());
+    sb.close();
+  }
 }
@@ -2,10 +2,17 @@ package com.liveramp.hank.storage.cueball;
 
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.List;
 
+import com.liveramp.hank.compression.cueball.NoCueballCompressionCodec;
+import com.liveramp.hank.storage.LocalPartitionRemoteFileOps;
 import com.liveramp.hank.test.BaseTestCase;
+import com.liveramp.hank.util.Bytes;
+import com.liveramp.hank.util.EncodingHelper;
 
 public class TestFooter extends BaseTestCase {
   private final String filePath = localTmpDir + "/testfile";
@@ -29,7 +36,159 @@ public class TestFooter extends BaseTestCase {
     assertEquals(40, footer.getFileSize());
     assertEquals(250, footer.getMaxCompressedBufferSize());
     assertEquals(130, footer.getMaxUncompressedBufferSize());
-    assertTrue(Arrays.equals(new long[]{5, 25, 125, 255}, footer.getHashIndex()));
+    assertTrue(Arrays.equals(new long[]{5, 25, 125, 255}, toArray(footer.getHashIndex())));
+
+    final Footer compactFooter = new Footer(new FileInputStream(filePath).getChannel(), 2, true);
+    assertTrue(compactFooter.getHashIndex() instanceof CompactHashIndex);
+    assertTrue(Arrays.equals(new long[]{5, 25, 125, 255}, toArray(compactFooter.getHashIndex())));
+  }
+
+  public void testCompactHashIndex() throws Exception {
+    int size = 1 << 12;
+    long[] offsets = new long[size];
+    long offset = 0;
+    for (int i = 0; i < size; ++i) {
+      if (i % 3 == 0) {
+        offsets[i] = -1;
+      } else {
+        offsets[i] = offset;
+        // Large blocks so that offsets in a group do not fit in 32 bits with the default anchor interval
+        offset += 1L << 25;
+      }
+    }
+    byte[] serialized = new byte[size * 8];
+    for (int i = 0; i < size; ++i) {
+      EncodingHelper.encodeLittleEndianFixedWidthLong(offsets[i], serialized, i * 8, 8);
+    }
+    CompactHashIndex hashIndex = new CompactHashIndex(serialized, 0, size, offset);
+    assertTrue(hashIndex.getAnchorIntervalBits() < CompactHashIndex.DEFAULT_ANCHOR_INTERVAL_BITS);
+    assertEquals(size, hashIndex.size());
+    assertTrue(Arrays.equals(offsets, toArray(hashIndex)));
+
+    // Every block is 2^25 bytes long
+    for (int i = 0; i < size; ++i) {
+      int expectedBlockLength = i % 3 == 0 ? 0 : 1 << 25;
+      assertEquals(expectedBlockLength, hashIndex.getBlockLength(i));
+    }
+    LongArrayHashIndex longArrayHashIndex = new LongArrayHashIndex(offsets.clone(), offset);
+    assertTrue(Arrays.equals(offsets, toArray(longArrayHashIndex)));
+    assertTrue(Arrays.equals(toBlockLengths(hashIndex), toBlockLengths(longArrayHashIndex)));
+  }
+
+  public void testFormatV2() throws Exception {
+    // 4 byte key hashes and values, 12 records per block
+    CueballWriter writer = new CueballWriter(new FileOutputStream(filePath), 4, null, 4,
+        new NoCueballCompressionCodec(), 2, new CueballOptions().setBlockSize(100), null);
+    for (int i = 0; i < 1000; ++i) {
+      writer.writeHash(ByteBuffer.wrap(Bytes.intToBytes(i * 3000000)), ByteBuffer.wrap(Bytes.intToBytes(i)));
+    }
+    writer.close();
+
+    final Footer footer = new Footer(new FileInputStream(filePath).getChannel(), 2);
+    assertEquals(Footer.FORMAT_VERSION_2, footer.getFormatVersion());
+    assertEquals(100, footer.getBlockSize());
+    assertEquals(100, Footer.readBlockSize(filePath));
+    assertNull(footer.getHashIndex());
+    assertEquals(96, footer.getMaxUncompressedBufferSize());
+    assertEquals(96, footer.getMaxCompressedBufferSize());
+
+    CueballBlockIndex blockIndex = footer.getBlockIndex();
+    assertEquals(84, blockIndex.getNumBlocks());
+    assertEquals(4, blockIndex.getNumHashPrefixes());
+    for (int i = 0; i < blockIndex.getNumBlocks(); ++i) {
+      // Blocks do not cross page boundaries
+      long offset = blockIndex.getBlockOffset(i);
+      assertEquals(offset / CueballWriter.PAGE_SIZE,
+          (offset + blockIndex.getBlockLength(i) - 1) / CueballWriter.PAGE_SIZE);
+    }
+    // Padding was needed
+    assertTrue(footer.getDataLength() > 1000 * 8);
+
+    // Key hash 2 * 3000000 is the third record of block 0
+    assertEquals(0, blockIndex.findBlock(0, Bytes.intToBytes(2 * 3000000)));
+    // Key hash 12 * 3000000 is the first record of block 1
+    assertEquals(1, blockIndex.findBlock(0, Bytes.intToBytes(12 * 3000000)));
+    assertEquals(0, blockIndex.findBlock(0, Bytes.intToBytes(12 * 3000000 - 1)));
+    // Hash prefix 1 (key hashes from 0x40000000) starts in block 29, with key hash 358 * 3000000
+    assertEquals(29, blockIndex.findBlock(1, Bytes.intToBytes(0x40000000)));
+    assertEquals(29, blockIndex.findBlock(1, Bytes.intToBytes(358 * 3000000)));
+    assertEquals(30, blockIndex.findBlock(1, Bytes.intToBytes(360 * 3000000)));
+    // No key hash starts with 11
+    assertEquals(-1, blockIndex.findBlock(3, Bytes.intToBytes(0xc0000000)));
+  }
+
+  private static class CountingPartitionRemoteFileOps extends LocalPartitionRemoteFileOps {
+
+    private int numOpenedStreams = 0;
+
+    public CountingPartitionRemoteFileOps(String remoteDomainRoot, int partitionNumber) throws IOException {
+      super(remoteDomainRoot, partitionNumber);
+    }
+
+    @Override
+    public InputStream getInputStream(String remoteRelativePath) throws IOException {
+      ++numOpenedStreams;
+      return super.getInputStream(remoteRelativePath);
+    }
+  }
+
+  public void testRemoteFormatV2() throws Exception {
+    CountingPartitionRemoteFileOps fileOps = new CountingPartitionRemoteFileOps(localTmpDir, 0);
+    for (int numRecords : new int[]{1000, 100000}) {
+      String remotePath = localTmpDir + "/0/" + numRecords + ".base.cueball";
+      CueballWriter writer = new CueballWriter(fileOps.getOutputStream(numRecords + ".base.cueball"), 4, null, 4,
+          new NoCueballCompressionCodec(), 2, new CueballOptions().setBlockSize(100), null);
+      for (int i = 0; i < numRecords; ++i) {
+        writer.writeHash(ByteBuffer.wrap(Bytes.intToBytes(i * 30000)), ByteBuffer.wrap(Bytes.intToBytes(i)));
+      }
+      writer.close();
+
+      fileOps.numOpenedStreams = 0;
+      Footer remoteFooter = new Footer(fileOps, numRecords + ".base.cueball", 2);
+      Footer footer = new Footer(new FileInputStream(remotePath).getChannel(), 2);
+      assertEquals(footer.getFooterLength(), remoteFooter.getFooterLength());
+      assertEquals(footer.getBlockIndex().getNumBlocks(), remoteFooter.getBlockIndex().getNumBlocks());
+      for (int i = 0; i < footer.getBlockIndex().getNumBlocks(); ++i) {
+        assertEquals(footer.getBlockIndex().getBlockOffset(i), remoteFooter.getBlockIndex().getBlockOffset(i));
+      }
+      if (footer.getFooterLength() < Footer.REMOTE_BLOCK_ENTRIES_READ_AHEAD) {
+        // The whole footer is read with a single stream
+        assertEquals(1, fileOps.numOpenedStreams);
+      } else {
+        assertEquals(2, fileOps.numOpenedStreams);
+      }
+    }
+  }
+
+  public void testFormatV2UnsupportedVersion() throws Exception {
+    final FileOutputStream out = new FileOutputStream(filePath);
+    out.write(new byte[]{
+        3, 0, 0, 0,
+        0x1f, (byte) 0xa1, (byte) 0xeb, (byte) 0xc0,
+    });
+    out.flush();
+    out.close();
+    try {
+      new Footer(new FileInputStream(filePath).getChannel(), 2);
+      fail("should have thrown an exception");
+    } catch (IOException e) {
+    }
+  }
+
+  private static long[] toArray(HashIndex hashIndex) {
+    long[] result = new long[hashIndex.size()];
+    for (int i = 0; i < result.length; ++i) {
+      result[i] = hashIndex.getBlockOffset(i);
+    }
+    return result;
+  }
+
+  private static int[] toBlockLengths(HashIndex hashIndex) {
+    int[] result = new int[hashIndex.size()];
+    for (int i = 0; i < result.length; ++i) {
+      result[i] = hashIndex.getBlockLength(i);
+    }
+    return result;
   }
 
   private static final List<byte[]> INVALID_CASES = Arrays.asList(
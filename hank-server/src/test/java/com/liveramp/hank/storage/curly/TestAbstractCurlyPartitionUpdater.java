@@ -208,4 +208,17 @@ public class TestAbstractCurlyPartitionUpdater extends IncrementalPartitionUpdat
     Collections.sort(expectedPaths);
     assertEquals(expectedPaths, paths);
   }
+
+  public void testOffsetTransformerInlineValues() {
+    AbstractCurlyPartitionUpdater.OffsetTransformer transformer =
+        new AbstractCurlyPartitionUpdater.OffsetTransformer(2, new long[]{0, 10}, true);
+    // Tagged record file location
+    byte[] location = new byte[]{0, 5, 0, 0};
+    transformer.transform(location, 0, 1);
+    assertTrue(Arrays.equals(new byte[]{0, 15, 0, 0}, location));
+    // Inline value
+    byte[] inlineValue = new byte[]{3, 5, 6, 0};
+    transformer.transform(inlineValue, 0, 1);
+    assertTrue(Arrays.equals(new byte[]{3, 5, 6, 0}, inlineValue));
+  }
 }
@@ -113,6 +113,11 @@ public class TestCurlyCompactingMerger extends BaseTestCase {
             throw new NotImplementedException();
           }
 
+          @Override
+          public void getBulk(List<ByteBuffer> keys, List<ReaderResult> results) throws IOException {
+            throw new NotImplementedException();
+          }
+
           @Override
           public Integer getVersionNumber() {
             throw new NotImplementedException();
@@ -16,14 +16,22 @@
 package com.liveramp.hank.storage.curly;
 
 import com.liveramp.hank.compression.CompressionCodec;
+import com.liveramp.hank.storage.BlockCache;
 import com.liveramp.hank.storage.ReaderResult;
 import com.liveramp.hank.storage.map.MapReader;
+import com.liveramp.hank.storage.map.MapWriter;
+import com.liveramp.hank.util.Bytes;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 
 public class TestCurlyReader extends AbstractCurlyTestBase {
   private static final String TMP_TEST_CURLY_READER = "/tmp/TestCurlyReader";
@@ -107,6 +115,59 @@ public class TestCurlyReader extends AbstractCurlyTestBase {
     result.clear();
   }
 
+  public void testReaderMemoryMapped() throws Exception {
+    new File(TMP_TEST_CURLY_READER).mkdirs();
+    OutputStream s = new FileOutputStream(TMP_TEST_CURLY_READER + "/00000.base.curly");
+    s.write(EXPECTED_RECORD_FILE);
+    s.write(new byte[]{(byte) 0x80, (byte) 0xa0, 1});
+    s.write(TWENTYK_BLOB);
+    s.flush();
+    s.close();
+
+    MapReader keyfileReader = new MapReader(0,
+        KEY1.array(), new byte[]{0, 0, 0},
+        KEY2.array(), new byte[]{5, 0, 0},
+        KEY3.array(), new byte[]{10, 0, 0},
+        KEY5.array(), new byte[]{15, 0, 0}
+    );
+
+    CurlyReader reader = new CurlyReader(CurlyReader.getLatestBase(TMP_TEST_CURLY_READER), 1024, keyfileReader, -1,
+        null, -1, -1, false, new CurlyOptions().setRecordFileMmap(true), null, -1, -1);
+
+    ReaderResult result = new ReaderResult();
+
+    reader.get(KEY1, result);
+    assertTrue(result.isFound());
+    assertTrue(result.isBufferBorrowed());
+    assertTrue(result.getBuffer().isReadOnly());
+    assertEquals(VALUE1, result.getBuffer());
+    result.clear();
+    assertFalse(result.isBufferBorrowed());
+
+    reader.get(KEY4, result);
+    assertFalse(result.isFound());
+    result.clear();
+
+    reader.get(KEY3, result);
+    assertTrue(result.isFound());
+    assertEquals(VALUE3, result.getBuffer());
+    result.clear();
+
+    reader.get(KEY5, result);
+    assertTrue(result.isFound());
+    assertEquals(20 * 1024, result.getBuffer().remaining());
+    assertEquals(ByteBuffer.wrap(TWENTYK_BLOB), result.getBuffer());
+
+    // Copying a borrowed value makes it array backed, and it remains readable after the reader is closed
+    reader.get(KEY2, result);
+    assertTrue(result.isBufferBorrowed());
+    result.deepCopyIntoResultBuffer(result.getBuffer());
+    assertFalse(result.isBufferBorrowed());
+    assertTrue(result.getBuffer().hasArray());
+    reader.close();
+    assertEquals(VALUE2, result.getBuffer());
+  }
+
   private void doTestBlockCompression(CompressionCodec blockCompressionCodec, byte[] compressedBlock) throws IOException {
     new File(TMP_TEST_CURLY_READER).mkdirs();
     OutputStream s = new FileOutputStream(TMP_TEST_CURLY_READER + "/00000.base.curly");
@@ -145,6 +206,248 @@ public class TestCurlyReader extends AbstractCurlyTestBase {
     result.clear();
   }
 
+  public void testReaderRecordLength() throws Exception {
+    new File(TMP_TEST_CURLY_READER).mkdirs();
+    OutputStream s = new FileOutputStream(TMP_TEST_CURLY_READER + "/00000.base.curly");
+    s.write(EXPECTED_RECORD_FILE);
+    s.write(new byte[]{(byte) 0x80, (byte) 0xa0, 1});
+    s.write(TWENTYK_BLOB);
+    s.flush();
+    s.close();
+
+    // Offsets followed by 2 bytes of record length. Zero means unknown.
+    MapReader keyfileReader = new MapReader(0,
+        KEY1.array(), new byte[]{0, 0, 0, 5, 0},
+        KEY2.array(), new byte[]{5, 0, 0, 5, 0},
+        KEY3.array(), new byte[]{10, 0, 0, 0, 0},
+        KEY5.array(), new byte[]{15, 0, 0, 0x03, 0x50}
+    );
+
+    CurlyReader reader = new CurlyReader(CurlyReader.getLatestBase(TMP_TEST_CURLY_READER), 1024, keyfileReader, -1,
+        null, 3, -1, false, new CurlyOptions().setRecordLengthNumBytes(2), null, -1, -1);
+
+    ReaderResult result = new ReaderResult();
+
+    reader.get(KEY1, result);
+    assertTrue(result.isFound());
+    assertEquals(VALUE1, result.getBuffer());
+    result.clear();
+
+    reader.get(KEY2, result);
+    assertTrue(result.isFound());
+    assertEquals(VALUE2, result.getBuffer());
+    result.clear();
+
+    reader.get(KEY3, result);
+    assertTrue(result.isFound());
+    assertEquals(VALUE3, result.getBuffer());
+    result.clear();
+
+    reader.get(KEY4, result);
+    assertFalse(result.isFound());
+    result.clear();
+
+    // Larger than the read buffer, read at once
+    reader.get(KEY5, result);
+    assertTrue(result.isFound());
+    assertEquals(20 * 1024, result.getBuffer().remaining());
+    assertEquals(ByteBuffer.wrap(TWENTYK_BLOB), result.getBuffer());
+    result.clear();
+  }
+
+  public void testReaderInlineValues() throws Exception {
+    new File(TMP_TEST_CURLY_READER).mkdirs();
+    OutputStream s = new FileOutputStream(TMP_TEST_CURLY_READER + "/00000.base.curly");
+    s.write(new byte[]{5, 1, 2, 3, 4, 5});
+    s.flush();
+    s.close();
+
+    // Tagged values: inline values of at most 4 bytes, or offsets
+    MapReader keyfileReader = new MapReader(0,
+        KEY1.array(), new byte[]{5, 4, 3, 2, 1},
+        KEY2.array(), new byte[]{0, 0, 0, 0, 0},
+        KEY3.array(), new byte[]{1, 0, 0, 0, 0}
+    );
+
+    CurlyReader reader = new CurlyReader(CurlyReader.getLatestBase(TMP_TEST_CURLY_READER), 1024, keyfileReader, 1,
+        null, 3, -1, false, new CurlyOptions().setInlineValueMaxNumBytes(4), null, -1, -1);
+
+    ReaderResult result = new ReaderResult();
+
+    reader.get(KEY1, result);
+    assertTrue(result.isFound());
+    assertEquals(VALUE1, result.getBuffer());
+    result.clear();
+
+    reader.get(KEY2, result);
+    assertTrue(result.isFound());
+    assertEquals(ByteBuffer.wrap(new byte[]{1, 2, 3, 4, 5}), result.getBuffer());
+    result.clear();
+
+    reader.get(KEY3, result);
+    assertTrue(result.isFound());
+    assertEquals(0, result.getBuffer().remaining());
+    result.clear();
+
+    reader.get(KEY4, result);
+    assertFalse(result.isFound());
+    result.clear();
+
+    // Record file values are cached
+    reader.get(KEY2, result);
+    assertTrue(result.isFound());
+    assertEquals(ByteBuffer.wrap(new byte[]{1, 2, 3, 4, 5}), result.getBuffer());
+    assertEquals(true, result.getL2CacheHit());
+    result.clear();
+  }
+
+  public void testReaderDictionary() throws Exception {
+    final int numRecords = 500;
+    byte[][] values = new byte[numRecords][];
+    for (int i = 0; i < numRecords; ++i) {
+      values[i] = Bytes.stringToBytes("{\"user_id\":" + i + ",\"email\":\"user" + i
+          + "@example.com\",\"country\":\"" + (i % 3 == 0 ? "US" : "FR") + "\",\"segments\":[" + (i % 7) + "]}");
+    }
+
+    // Write the same records with and without a dictionary, using small blocks
+    ByteArrayOutputStream withoutDictionary = new ByteArrayOutputStream();
+    CurlyWriter writer = new CurlyWriter(withoutDictionary, new MapWriter(), 3, -1, CompressionCodec.DEFLATE, 256, 2);
+    for (int i = 0; i < numRecords; ++i) {
+      writer.write(ByteBuffer.wrap(Bytes.intToBytes(i)), ByteBuffer.wrap(values[i]));
+    }
+    writer.close();
+
+    new File(TMP_TEST_CURLY_READER).mkdirs();
+    String recordFilePath = TMP_TEST_CURLY_READER + "/00000.base.curly";
+    File dictionaryFile = new File(Curly.getDictionaryPath(recordFilePath));
+    OutputStream s = new FileOutputStream(recordFilePath);
+    MapWriter keyfileWriter = new MapWriter();
+    writer = new CurlyWriter(s, keyfileWriter, 3, -1, CompressionCodec.DEFLATE, 256, 2,
+        new CurlyOptions().setBlockCompressionDictionaryNumBytes(1024), new FileOutputStream(dictionaryFile));
+    for (int i = 0; i < numRecords; ++i) {
+      writer.write(ByteBuffer.wrap(Bytes.intToBytes(i)), ByteBuffer.wrap(values[i]));
+    }
+    writer.close();
+    assertEquals(numRecords, writer.getNumRecordsWritten());
+
+    try {
+      assertTrue(dictionaryFile.exists());
+      assertTrue(dictionaryFile.length() > 0 && dictionaryFile.length() <= 1024);
+      assertTrue(new File(recordFilePath).length() < withoutDictionary.size());
+
+      byte[][] keysAndValues = new byte[2 * keyfileWriter.entries.size()][];
+      int i = 0;
+      for (Map.Entry<ByteBuffer, ByteBuffer> entry : keyfileWriter.entries.entrySet()) {
+        keysAndValues[i++] = entry.getKey().array();
+        keysAndValues[i++] = entry.getValue().array();
+      }
+      MapReader keyfileReader = new MapReader(0, keysAndValues);
+      CurlyReader reader = new CurlyReader(CurlyReader.getLatestBase(TMP_TEST_CURLY_READER), 1024, keyfileReader, -1,
+          CompressionCodec.DEFLATE, 3, 2, false);
+      ReaderResult result = new ReaderResult();
+      for (int j = 0; j < numRecords; ++j) {
+        reader.get(ByteBuffer.wrap(Bytes.intToBytes(j)), result);
+        assertTrue(result.isFound());
+        assertEquals(ByteBuffer.wrap(values[j]), result.getBuffer());
+        result.clear();
+      }
+    } finally {
+      // Other tests share this directory
+      dictionaryFile.delete();
+    }
+  }
+
+  public void testReaderBulk() throws Exception {
+    new File(TMP_TEST_CURLY_READER).mkdirs();
+    OutputStream s = new FileOutputStream(TMP_TEST_CURLY_READER + "/00000.base.curly");
+    s.write(EXPECTED_RECORD_FILE_BLOCK_COMPRESSED_DEFLATE);
+    s.flush();
+    s.close();
+
+    MapReader keyfileReader = new MapReader(0,
+        KEY1.array(), new byte[]{0, 0, 0, 0, 0},
+        KEY2.array(), new byte[]{0, 0, 0, 5, 0},
+        KEY3.array(), new byte[]{0, 0, 0, 10, 0}
+    );
+
+    CurlyReader reader = new CurlyReader(CurlyReader.getLatestBase(TMP_TEST_CURLY_READER), 1024, keyfileReader, -1,
+        CompressionCodec.DEFLATE, 3, 2, false);
+
+    List<ByteBuffer> keys = Arrays.asList(KEY3, KEY4, KEY1, KEY2);
+    List<ReaderResult> results = new ArrayList<ReaderResult>();
+    for (int i = 0; i < keys.size(); ++i) {
+      results.add(new ReaderResult());
+    }
+    reader.getBulk(keys, results);
+
+    assertTrue(results.get(0).isFound());
+    assertEquals(VALUE3, results.get(0).getBuffer());
+    assertFalse(results.get(1).isFound());
+    assertTrue(results.get(2).isFound());
+    assertEquals(VALUE1, results.get(2).getBuffer());
+    assertTrue(results.get(3).isFound());
+    assertEquals(VALUE2, results.get(3).getBuffer());
+  }
+
+  public void testDecompressedBlockCache() throws Exception {
+    new File(TMP_TEST_CURLY_READER).mkdirs();
+    OutputStream s = new FileOutputStream(TMP_TEST_CURLY_READER + "/00000.base.curly");
+    s.write(EXPECTED_RECORD_FILE_BLOCK_COMPRESSED_DEFLATE);
+    s.flush();
+    s.close();
+
+    MapReader keyfileReader = new MapReader(0,
+        KEY1.array(), new byte[]{0, 0, 0, 0, 0},
+        KEY2.array(), new byte[]{0, 0, 0, 5, 0},
+        KEY3.array(), new byte[]{0, 0, 0, 10, 0}
+    );
+
+    BlockCache decompressedBlockCache = new BlockCache(1 << 20);
+    CurlyReader reader = new CurlyReader(CurlyReader.getLatestBase(TMP_TEST_CURLY_READER), 1024, keyfileReader, -1,
+        CompressionCodec.DEFLATE, 3, 2, false, new CurlyOptions(), decompressedBlockCache, 0, 0);
+
+    ReaderResult result = new ReaderResult();
+
+    // Miss
+    reader.get(KEY1, result);
+    assertTrue(result.isFound());
+    assertEquals(VALUE1, result.getBuffer());
+    assertEquals(false, result.getBlockCacheHit());
+    assertEquals(true, result.getBlockCacheMiss());
+    assertEquals(1, decompressedBlockCache.size());
+    result.clear();
+
+    // Hits, all values are in the same block
+    reader.get(KEY3, result);
+    assertTrue(result.isFound());
+    assertEquals(VALUE3, result.getBuffer());
+    assertEquals(true, result.getBlockCacheHit());
+    assertEquals(false, result.getBlockCacheMiss());
+    result.clear();
+
+    reader.get(KEY2, result);
+    assertTrue(result.isFound());
+    assertEquals(VALUE2, result.getBuffer());
+    assertEquals(true, result.getBlockCacheHit());
+    result.clear();
+
+    reader.get(KEY4, result);
+    assertFalse(result.isFound());
+    assertEquals(false, result.getBlockCacheHit());
+    assertEquals(false, result.getBlockCacheMiss());
+    result.clear();
+
+    // Another partition does not share the cached block
+    CurlyReader otherReader = new CurlyReader(CurlyReader.getLatestBase(TMP_TEST_CURLY_READER), 1024, keyfileReader, -1,
+        CompressionCodec.DEFLATE, 3, 2, false, new CurlyOptions(), decompressedBlockCache, 0, 1);
+    otherReader.get(KEY1, result);
+    assertTrue(result.isFound());
+    assertEquals(VALUE1, result.getBuffer());
+    assertEquals(true, result.getBlockCacheMiss());
+    assertEquals(2, decompressedBlockCache.size());
+    result.clear();
+  }
+
   public void testBlockCompressionSlowNoCompression() throws Exception {
     doTestBlockCompression(CompressionCodec.SLOW_NO_COMPRESSION, EXPECTED_RECORD_FILE_BLOCK_COMPRESSED_SLOW_NO_COMPRESSION);
   }
@@ -16,12 +16,17 @@
 package com.liveramp.hank.storage.curly;
 
 import com.liveramp.hank.compression.CompressionCodec;
+import com.liveramp.hank.compression.Decompressor;
 import com.liveramp.hank.storage.map.MapWriter;
 import com.liveramp.hank.util.Bytes;
+import com.liveramp.hank.util.EncodingHelper;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
 
 public class TestCurlyWriter extends AbstractCurlyTestBase {
 
@@ -77,6 +82,113 @@ public class TestCurlyWriter extends AbstractCurlyTestBase {
     assertEquals(ByteBuffer.wrap(EXPECTED_FOLDED_RECORD_FILE), ByteBuffer.wrap(s.toByteArray()));
   }
 
+  public void testRecordLength() throws IOException {
+    ByteArrayOutputStream s = new ByteArrayOutputStream();
+    MapWriter keyfileWriter = new MapWriter();
+    CurlyWriter writer = new CurlyWriter(s, keyfileWriter, 3, -1, null, -1, -1,
+        new CurlyOptions().setRecordLengthNumBytes(1), null);
+
+    ByteBuffer largeValue = ByteBuffer.wrap(new byte[300]);
+    writer.write(KEY1, VALUE1);
+    writer.write(KEY2, VALUE2);
+    writer.write(KEY3, VALUE3);
+    writer.write(KEY4, largeValue);
+    writer.close();
+
+    // verify the keyfile holds offsets followed by record lengths
+    assertEquals(ByteBuffer.wrap(new byte[]{0, 0, 0, 5}), keyfileWriter.entries.get(KEY1));
+    assertEquals(ByteBuffer.wrap(new byte[]{5, 0, 0, 5}), keyfileWriter.entries.get(KEY2));
+    assertEquals(ByteBuffer.wrap(new byte[]{10, 0, 0, 5}), keyfileWriter.entries.get(KEY3));
+    // record is too long for its length to be stored
+    assertEquals(ByteBuffer.wrap(new byte[]{15, 0, 0, 0}), keyfileWriter.entries.get(KEY4));
+
+    // verify that the record stream is unchanged
+    assertEquals(ByteBuffer.wrap(EXPECTED_RECORD_FILE), ByteBuffer.wrap(s.toByteArray(), 0, EXPECTED_RECORD_FILE.length));
+    assertEquals(EXPECTED_RECORD_FILE.length + 2 + 300, s.size());
+  }
+
+  public void testInlineValues() throws IOException {
+    ByteArrayOutputStream s = new ByteArrayOutputStream();
+    MapWriter keyfileWriter = new MapWriter();
+    CurlyWriter writer = new CurlyWriter(s, keyfileWriter, 3, -1, null, -1, -1,
+        new CurlyOptions().setInlineValueMaxNumBytes(4), null);
+
+    writer.write(KEY1, VALUE1);
+    writer.write(KEY2, ByteBuffer.wrap(new byte[]{1, 2, 3, 4, 5}));
+    writer.write(KEY3, ByteBuffer.wrap(new byte[0]));
+    writer.write(KEY4, ByteBuffer.wrap(new byte[]{1, 2, 3, 4, 5, 6}));
+    assertEquals(4, writer.getNumRecordsWritten());
+    writer.close();
+
+    // verify the keyfile holds tagged inline values and record offsets
+    assertEquals(ByteBuffer.wrap(new byte[]{5, 4, 3, 2, 1}), keyfileWriter.entries.get(KEY1));
+    assertEquals(ByteBuffer.wrap(new byte[]{0, 0, 0, 0, 0}), keyfileWriter.entries.get(KEY2));
+    assertEquals(ByteBuffer.wrap(new byte[]{1, 0, 0, 0, 0}), keyfileWriter.entries.get(KEY3));
+    assertEquals(ByteBuffer.wrap(new byte[]{0, 6, 0, 0, 0}), keyfileWriter.entries.get(KEY4));
+
+    // verify that only large values are in the record stream
+    assertEquals(ByteBuffer.wrap(new byte[]{5, 1, 2, 3, 4, 5, 6, 1, 2, 3, 4, 5, 6}), ByteBuffer.wrap(s.toByteArray()));
+  }
+
+  public void testParallelBlockCompression() throws IOException {
+    final int numRecords = 2000;
+    Random random = new Random(42);
+    byte[][] values = new byte[numRecords][];
+    for (int i = 0; i < numRecords; ++i) {
+      if (i % 10 == 9) {
+        // Repeat a recent value so that some records are folded
+        values[i] = values[i - 5];
+      } else {
+        values[i] = new byte[random.nextInt(200)];
+        for (int j = 0; j < values[i].length; ++j) {
+          values[i][j] = (byte) ('a' + random.nextInt(4));
+        }
+      }
+    }
+
+    byte[] sequentialRecordFile = null;
+    Map<ByteBuffer, ByteBuffer> sequentialKeyFile = null;
+    for (int numCompressionThreads : new int[]{0, 1, 4}) {
+      ByteArrayOutputStream s = new ByteArrayOutputStream();
+      MapWriter keyfileWriter = new MapWriter();
+      CurlyWriter writer = new CurlyWriter(s, keyfileWriter, 4, 16, CompressionCodec.DEFLATE, -1, 3,
+          new CurlyOptions().setUncompressedBlockSizeThreshold(1024).setBlockCompressionNumThreads(numCompressionThreads), null);
+      for (int i = 0; i < numRecords; ++i) {
+        writer.write(ByteBuffer.wrap(Bytes.intToBytes(i)), ByteBuffer.wrap(values[i]));
+      }
+      writer.close();
+      assertEquals(numRecords, writer.getNumRecordsWritten());
+      assertEquals(s.size(), writer.getNumBytesWritten());
+
+      if (sequentialRecordFile == null) {
+        sequentialRecordFile = s.toByteArray();
+        sequentialKeyFile = keyfileWriter.entries;
+      } else {
+        // verify that output does not depend on the number of compression threads
+        assertTrue(Arrays.equals(sequentialRecordFile, s.toByteArray()));
+        assertEquals(sequentialKeyFile, keyfileWriter.entries);
+      }
+    }
+
+    // verify that every value can be read back from its block
+    Decompressor decompressor = CompressionCodec.DEFLATE.getFactory().getDecompressor();
+    for (int i = 0; i < numRecords; ++i) {
+      byte[] location = sequentialKeyFile.get(ByteBuffer.wrap(Bytes.intToBytes(i))).array();
+      int blockOffset = (int) EncodingHelper.decodeLittleEndianFixedWidthLong(location, 0, 4);
+      int offsetInBlock = (int) EncodingHelper.decodeLittleEndianFixedWidthLong(location, 4, 3);
+      ByteBuffer recordFile = ByteBuffer.wrap(sequentialRecordFile);
+      recordFile.position(blockOffset);
+      int blockSize = EncodingHelper.decodeLittleEndianVarInt(recordFile);
+      ByteArrayOutputStream block = new ByteArrayOutputStream();
+      decompressor.decompressBlock(sequentialRecordFile, recordFile.position(), blockSize, block);
+      ByteBuffer blockBuffer = ByteBuffer.wrap(block.toByteArray());
+      assertTrue(blockBuffer.remaining() < 1024 + 200 + EncodingHelper.MAX_VARINT_SIZE);
+      blockBuffer.position(offsetInBlock);
+      int valueSize = EncodingHelper.decodeLittleEndianVarInt(blockBuffer);
+      assertEquals(ByteBuffer.wrap(values[i]), ByteBuffer.wrap(blockBuffer.array(), blockBuffer.position(), valueSize));
+    }
+  }
+
   private void doTestBlockCompression(CompressionCodec blockCompressionCodec, byte[] expectedBlock) throws IOException {
     ByteArrayOutputStream s = new ByteArrayOutputStream();
     MapWriter keyfileWriter = new MapWriter();
@@ -0,0 +1,82 @@
+/**
+ *  Copyright 2013 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.hank.storage.dense;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import com.liveramp.hank.storage.ReaderResult;
+import com.liveramp.hank.test.BaseTestCase;
+
+public class TestDenseMerger extends BaseTestCase {
+
+  private static ByteBuffer key(long key) {
+    return ByteBuffer.allocate(8).putLong(0, key);
+  }
+
+  private static ByteBuffer value(String value) {
+    return ByteBuffer.wrap(value.getBytes());
+  }
+
+  private DenseFilePath write(String name, int valueSize, boolean isBase, long[] keys, String[] values) throws IOException {
+    String path = localTmpDir + "/" + name;
+    DenseWriter writer = new DenseWriter(new FileOutputStream(path), valueSize, isBase, 0, 1);
+    for (int i = 0; i < keys.length; ++i) {
+      writer.write(key(keys[i]), value(values[i]));
+    }
+    writer.close();
+    return new DenseFilePath(path);
+  }
+
+  public void testMergeFixedSizeValues() throws Exception {
+    DenseFilePath base = write("00000.base.dense", 2, true, new long[]{1, 2, 5}, new String[]{"b1", "b2", "b5"});
+    DenseFilePath delta1 = write("00001.delta.dense", 2, false, new long[]{0, 2, 7}, new String[]{"x0", "x2", "x7"});
+    DenseFilePath delta2 = write("00002.delta.dense", 2, false, new long[]{2, 8}, new String[]{"y2", "y8"});
+    new DenseMerger().merge(base, Arrays.asList(delta1, delta2), localTmpDir + "/00002.base.dense");
+
+    checkMergedBase(new long[]{0, 1, 2, 5, 7, 8}, new String[]{"x0", "b1", "y2", "b5", "x7", "y8"},
+        new long[]{3, 4, 6, 9});
+  }
+
+  public void testMergeVariableSizeValues() throws Exception {
+    DenseFilePath base = write("00000.base.dense", 0, true, new long[]{3, 4}, new String[]{"base3", ""});
+    DenseFilePath delta = write("00001.delta.dense", 0, false, new long[]{4, 100}, new String[]{"d4", "delta100"});
+    new DenseMerger().merge(base, Arrays.asList(delta), localTmpDir + "/00001.base.dense");
+
+    checkMergedBase(new long[]{3, 4, 100}, new String[]{"base3", "d4", "delta100"}, new long[]{0, 5, 99, 101});
+  }
+
+  private void checkMergedBase(long[] keys, String[] values, long[] absentKeys) throws IOException {
+    // The merged base is the latest one
+    DenseReader reader = new DenseReader(localTmpDir, 1);
+    ReaderResult result = new ReaderResult();
+    for (int i = 0; i < keys.length; ++i) {
+      reader.get(key(keys[i]), result);
+      assertTrue(result.isFound());
+      assertEquals(value(values[i]), result.getBuffer());
+      result.clear();
+    }
+    for (long absentKey : absentKeys) {
+      reader.get(key(absentKey), result);
+      assertFalse(result.isFound());
+      result.clear();
+    }
+    reader.close();
+  }
+}
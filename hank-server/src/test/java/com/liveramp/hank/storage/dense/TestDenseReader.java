@@ -0,0 +1,148 @@
+/**
+ *  Copyright 2013 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.hank.storage.dense;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import com.liveramp.hank.storage.ReaderResult;
+import com.liveramp.hank.test.BaseTestCase;
+
+public class TestDenseReader extends BaseTestCase {
+
+  private static final int NUM_PARTITIONS = 3;
+  private static final int PARTITION_NUMBER = 1;
+
+  private static ByteBuffer key(long key) {
+    return ByteBuffer.allocate(8).putLong(0, key);
+  }
+
+  private static ByteBuffer value(int length, int seed) {
+    byte[] value = new byte[length];
+    for (int i = 0; i < length; ++i) {
+      value[i] = (byte) (seed + i);
+    }
+    return ByteBuffer.wrap(value);
+  }
+
+  private String writeBase(int valueSize, long[] keys, ByteBuffer[] values) throws IOException {
+    String root = localTmpDir + "/" + valueSize;
+    new File(root).mkdirs();
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DenseWriter writer = new DenseWriter(bytes, valueSize, true, PARTITION_NUMBER, NUM_PARTITIONS);
+    for (int i = 0; i < keys.length; ++i) {
+      writer.write(key(keys[i]), values[i]);
+    }
+    writer.close();
+    assertEquals(keys.length, writer.getNumRecordsWritten());
+    assertEquals(bytes.size(), writer.getNumBytesWritten());
+    FileOutputStream os = new FileOutputStream(root + "/00003.base.dense");
+    os.write(bytes.toByteArray());
+    os.close();
+    return root;
+  }
+
+  public void testFixedSizeValues() throws Exception {
+    long[] keys = new long[]{4, 7, 16, 301};
+    ByteBuffer[] values = new ByteBuffer[]{value(4, 0), value(4, 10), value(4, 20), value(4, 30)};
+    String root = writeBase(4, keys, values);
+    checkReader(new DenseReader(root, NUM_PARTITIONS), keys, values);
+    checkReader(new DenseReader(root, NUM_PARTITIONS, true), keys, values);
+  }
+
+  public void testVariableSizeValues() throws Exception {
+    long[] keys = new long[]{4, 10, 13, 1000};
+    ByteBuffer[] values = new ByteBuffer[]{value(3, 0), value(0, 10), value(17, 20), value(1, 30)};
+    String root = writeBase(0, keys, values);
+    checkReader(new DenseReader(root, NUM_PARTITIONS), keys, values);
+    checkReader(new DenseReader(root, NUM_PARTITIONS, true), keys, values);
+  }
+
+  private void checkReader(DenseReader reader, long[] keys, ByteBuffer[] values) throws IOException {
+    assertEquals(Integer.valueOf(3), reader.getVersionNumber());
+    ReaderResult result = new ReaderResult();
+    for (int i = 0; i < keys.length; ++i) {
+      reader.get(key(keys[i]), result);
+      assertTrue(result.isFound());
+      assertEquals(values[i], result.getBuffer());
+      result.clear();
+    }
+
+    // Absent slots, before, between and after written keys
+    for (long key : new long[]{1, 22, 3001, Long.MAX_VALUE - 2}) {
+      reader.get(key(key), result);
+      assertFalse(result.isFound());
+      result.clear();
+    }
+
+    // Keys that are not integers are not found
+    reader.get(ByteBuffer.wrap(new byte[0]), result);
+    assertFalse(result.isFound());
+    result.clear();
+
+    List<ReaderResult> results = Arrays.asList(new ReaderResult(), new ReaderResult());
+    reader.getBulk(Arrays.asList(key(keys[1]), key(19)), results);
+    assertTrue(results.get(0).isFound());
+    assertEquals(values[1], results.get(0).getBuffer());
+    assertFalse(results.get(1).isFound());
+    reader.close();
+  }
+
+  public void testWriterRejectsInvalidKeys() throws Exception {
+    DenseWriter writer = new DenseWriter(new ByteArrayOutputStream(), 1, true, PARTITION_NUMBER, NUM_PARTITIONS);
+    try {
+      writer.write(key(3), value(1, 0));
+      fail("Key of another partition should be rejected");
+    } catch (IOException e) {
+      // Expected
+    }
+    writer.write(key(7), value(1, 0));
+    try {
+      writer.write(key(4), value(1, 0));
+      fail("Keys out of order should be rejected");
+    } catch (IOException e) {
+      // Expected
+    }
+    try {
+      writer.write(key(10), value(2, 0));
+      fail("Value of the wrong size should be rejected");
+    } catch (IOException e) {
+      // Expected
+    }
+  }
+
+  public void testWriterRejectsSparseKeys() throws Exception {
+    long maxSlot = DenseWriter.MIN_NUM_SLOTS_CHECKED * 2;
+    for (int valueSize : new int[]{0, 1}) {
+      DenseWriter writer = new DenseWriter(new ByteArrayOutputStream(), valueSize, true, PARTITION_NUMBER, NUM_PARTITIONS);
+      writer.write(key(PARTITION_NUMBER), value(1, 0));
+      // Gaps are fine as long as the base spans few enough slots
+      writer.write(key((DenseWriter.MIN_NUM_SLOTS_CHECKED - 1) * NUM_PARTITIONS + PARTITION_NUMBER), value(1, 0));
+      try {
+        writer.write(key(maxSlot * NUM_PARTITIONS + PARTITION_NUMBER), value(1, 0));
+        fail("Keys too sparse for a Dense base should be rejected");
+      } catch (IOException e) {
+        // Expected
+      }
+    }
+  }
+}
@@ -0,0 +1,144 @@
+/**
+ *  Copyright 2013 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.hank.storage.memory;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+import com.liveramp.hank.compression.cueball.NoCueballCompressionCodec;
+import com.liveramp.hank.storage.Reader;
+import com.liveramp.hank.storage.ReaderResult;
+import com.liveramp.hank.storage.cueball.AbstractCueballTest;
+import com.liveramp.hank.storage.cueball.CueballReader;
+
+public class TestInMemoryReader extends AbstractCueballTest {
+
+  private String writeBase() throws IOException {
+    String root = localTmpDir + "/1";
+    new File(root).mkdir();
+    OutputStream os = new FileOutputStream(root + "/00000.base.cueball");
+    os.write(EXPECTED_DATA);
+    os.flush();
+    os.close();
+    return root;
+  }
+
+  public void testLoad() throws Exception {
+    String root = writeBase();
+    CueballReader fileReader = new CueballReader(root, 10, HASHER, 5, 1, new NoCueballCompressionCodec(), 1);
+
+    Reader reader = InMemoryReader.load(fileReader, root + "/00000.base.cueball", HASHER, 10, 5, 1,
+        new NoCueballCompressionCodec(), null, new MemoryBudget(1 << 20));
+    assertTrue(reader instanceof InMemoryReader);
+    assertEquals(Integer.valueOf(0), reader.getVersionNumber());
+
+    ReaderResult result = new ReaderResult();
+    reader.get(ByteBuffer.wrap(KEY1), result);
+    assertTrue(result.isFound());
+    assertEquals(ByteBuffer.wrap(new byte[]{1, 2, 1, 2, 1}), result.getBuffer());
+    result.clear();
+
+    reader.get(ByteBuffer.wrap(KEY2), result);
+    assertTrue(result.isFound());
+    assertEquals(ByteBuffer.wrap(new byte[]{2, 1, 2, 1, 2}), result.getBuffer());
+    result.clear();
+
+    reader.get(ByteBuffer.wrap(KEY3), result);
+    assertTrue(result.isFound());
+    assertEquals(ByteBuffer.wrap(new byte[]{(byte) 0x8f, 1, 2, 1, 2}), result.getBuffer());
+    result.clear();
+
+    reader.get(ByteBuffer.wrap(KEY4), result);
+    assertFalse(result.isFound());
+    result.clear();
+
+    reader.get(ByteBuffer.wrap(KEY10), result);
+    assertFalse(result.isFound());
+    result.clear();
+  }
+
+  public void testLoadWithValueReader() throws Exception {
+    String root = writeBase();
+    CueballReader fileReader = new CueballReader(root, 10, HASHER, 5, 1, new NoCueballCompressionCodec(), 1);
+
+    // Serve the first byte of stored values only
+    InMemoryReader.ValueReader valueReader = new InMemoryReader.ValueReader() {
+      @Override
+      public void readValue(ByteBuffer keyFileValue, ReaderResult result) throws IOException {
+        result.requiresBufferSize(1);
+        result.getBuffer().put(keyFileValue.get(keyFileValue.position()));
+        result.getBuffer().flip();
+        result.found();
+      }
+    };
+    Reader reader = InMemoryReader.load(fileReader, root + "/00000.base.cueball", HASHER, 10, 5, 1,
+        new NoCueballCompressionCodec(), valueReader, new MemoryBudget(1 << 20));
+    assertTrue(reader instanceof InMemoryReader);
+
+    ReaderResult result = new ReaderResult();
+    reader.get(ByteBuffer.wrap(KEY2), result);
+    assertTrue(result.isFound());
+    assertEquals(ByteBuffer.wrap(new byte[]{2}), result.getBuffer());
+  }
+
+  public void testFallBackWhenOverBudget() throws Exception {
+    String root = writeBase();
+    CueballReader fileReader = new CueballReader(root, 10, HASHER, 5, 1, new NoCueballCompressionCodec(), 1);
+    long slotsNumBytes = OffHeapHashTable.getSlotsNumBytes(10, 3);
+
+    // Slots do not fit
+    assertSame(fileReader, InMemoryReader.load(fileReader, root + "/00000.base.cueball", HASHER, 10, 5, 1,
+        new NoCueballCompressionCodec(), null, new MemoryBudget(slotsNumBytes - 1)));
+
+    // Values do not fit, and the partially loaded table is given back to the budget
+    MemoryBudget budget = new MemoryBudget(slotsNumBytes + 14);
+    assertSame(fileReader, InMemoryReader.load(fileReader, root + "/00000.base.cueball", HASHER, 10, 5, 1,
+        new NoCueballCompressionCodec(), null, budget));
+    assertEquals(slotsNumBytes + 14, budget.getNumAvailableBytes());
+
+    // The file backed reader is still usable
+    ReaderResult result = new ReaderResult();
+    fileReader.get(ByteBuffer.wrap(KEY1), result);
+    assertTrue(result.isFound());
+    assertEquals(ByteBuffer.wrap(new byte[]{1, 2, 1, 2, 1}), result.getBuffer());
+  }
+
+  public void testSharedBudget() throws Exception {
+    String root = writeBase();
+    // Room for one copy of the partition only
+    long numBytes = OffHeapHashTable.getSlotsNumBytes(10, 3) + 3 * 5;
+    MemoryBudget budget = new MemoryBudget(numBytes + numBytes / 2);
+
+    Reader first = InMemoryReader.load(new CueballReader(root, 10, HASHER, 5, 1, new NoCueballCompressionCodec(), 1),
+        root + "/00000.base.cueball", HASHER, 10, 5, 1, new NoCueballCompressionCodec(), null, budget);
+    assertTrue(first instanceof InMemoryReader);
+    assertEquals(numBytes / 2, budget.getNumAvailableBytes());
+
+    CueballReader fileReader = new CueballReader(root, 10, HASHER, 5, 1, new NoCueballCompressionCodec(), 1);
+    assertSame(fileReader, InMemoryReader.load(fileReader, root + "/00000.base.cueball", HASHER, 10, 5, 1,
+        new NoCueballCompressionCodec(), null, budget));
+
+    // Closing the first reader gives its bytes back
+    first.close();
+    assertEquals(numBytes + numBytes / 2, budget.getNumAvailableBytes());
+    assertTrue(InMemoryReader.load(fileReader, root + "/00000.base.cueball", HASHER, 10, 5, 1,
+        new NoCueballCompressionCodec(), null, budget) instanceof InMemoryReader);
+  }
+}
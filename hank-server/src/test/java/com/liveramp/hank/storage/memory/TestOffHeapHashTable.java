@@ -0,0 +1,81 @@
+/**
+ *  Copyright 2013 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.hank.storage.memory;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import com.liveramp.hank.test.BaseTestCase;
+
+public class TestOffHeapHashTable extends BaseTestCase {
+
+  public void testPutAndGet() throws Exception {
+    Random random = new Random(42);
+    int numKeys = 1000;
+    byte[][] keyHashes = new byte[numKeys][];
+    byte[][] values = new byte[numKeys][];
+    OffHeapHashTable table = new OffHeapHashTable(4, numKeys, 0, new MemoryBudget(1 << 20));
+    for (int i = 0; i < numKeys; ++i) {
+      // Keys share their leading bytes
+      keyHashes[i] = new byte[]{0, 0, (byte) (i >> 8), (byte) i};
+      values[i] = new byte[random.nextInt(20)];
+      random.nextBytes(values[i]);
+      assertTrue(table.put(keyHashes[i], ByteBuffer.wrap(values[i])));
+    }
+    assertEquals(numKeys, table.size());
+    for (int i = 0; i < numKeys; ++i) {
+      ByteBuffer value = table.get(keyHashes[i]);
+      assertNotNull(value);
+      assertTrue(value.isReadOnly());
+      assertEquals(ByteBuffer.wrap(values[i]), value);
+    }
+    assertNull(table.get(new byte[]{1, 0, 0, 0}));
+
+    // Overwrite
+    assertTrue(table.put(keyHashes[0], ByteBuffer.wrap(new byte[]{7})));
+    assertEquals(numKeys, table.size());
+    assertEquals(ByteBuffer.wrap(new byte[]{7}), table.get(keyHashes[0]));
+  }
+
+  public void testMemoryBudget() throws Exception {
+    long slotsNumBytes = OffHeapHashTable.getSlotsNumBytes(4, 10);
+    assertEquals(32 * 12, slotsNumBytes);
+    MemoryBudget budget = new MemoryBudget(slotsNumBytes - 1);
+    try {
+      new OffHeapHashTable(4, 10, 0, budget);
+      fail("Should fail");
+    } catch (IllegalArgumentException e) {
+      // Good
+    }
+    assertEquals(slotsNumBytes - 1, budget.getNumAvailableBytes());
+
+    // Room for 20 bytes of values, the values region grows from nothing
+    budget = new MemoryBudget(slotsNumBytes + 20);
+    OffHeapHashTable table = new OffHeapHashTable(4, 10, 0, budget);
+    assertTrue(table.put(new byte[]{0, 0, 0, 1}, ByteBuffer.wrap(new byte[6])));
+    // Growing holds both regions, so doubling to 16 bytes does not fit but growing to 11 bytes does
+    assertTrue(table.put(new byte[]{0, 0, 0, 2}, ByteBuffer.wrap(new byte[5])));
+    assertFalse(table.put(new byte[]{0, 0, 0, 3}, ByteBuffer.wrap(new byte[10])));
+    assertTrue(table.getNumManagedBytes() <= slotsNumBytes + 20);
+    assertEquals(slotsNumBytes + 20 - table.getNumManagedBytes(), budget.getNumAvailableBytes());
+
+    // Released tables give their bytes back, once
+    table.release();
+    table.release();
+    assertEquals(slotsNumBytes + 20, budget.getNumAvailableBytes());
+  }
+}
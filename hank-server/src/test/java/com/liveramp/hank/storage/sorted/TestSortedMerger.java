@@ -0,0 +1,77 @@
+/**
+ *  Copyright 2013 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.hank.storage.sorted;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.liveramp.hank.storage.ReaderResult;
+import com.liveramp.hank.test.BaseTestCase;
+
+public class TestSortedMerger extends BaseTestCase {
+
+  private static ByteBuffer bytes(String s) {
+    return ByteBuffer.wrap(s.getBytes());
+  }
+
+  private SortedFilePath write(String name, String[] keys, String[] values) throws IOException {
+    String path = localTmpDir + "/" + name;
+    SortedWriter writer = new SortedWriter(new FileOutputStream(path), 8);
+    for (int i = 0; i < keys.length; ++i) {
+      writer.write(bytes(keys[i]), bytes(values[i]));
+    }
+    writer.close();
+    return new SortedFilePath(path);
+  }
+
+  public void testMerge() throws Exception {
+    SortedFilePath base = write("00000.base.sorted", new String[]{"b", "c", "e"}, new String[]{"b0", "c0", "e0"});
+    SortedFilePath delta1 = write("00001.delta.sorted", new String[]{"a", "c", "f"}, new String[]{"a1", "c1", "f1"});
+    SortedFilePath delta2 = write("00002.delta.sorted", new String[]{"c", "ff"}, new String[]{"c2", "ff2"});
+    new SortedMerger(8).merge(base, Arrays.asList(delta1, delta2), localTmpDir + "/00002.base.sorted");
+
+    // The merged base is the latest one
+    SortedReader reader = new SortedReader(localTmpDir);
+    assertEquals(Integer.valueOf(2), reader.getVersionNumber());
+    String[] keys = {"a", "b", "c", "e", "f", "ff"};
+    String[] values = {"a1", "b0", "c2", "e0", "f1", "ff2"};
+    ReaderResult result = new ReaderResult();
+    for (int i = 0; i < keys.length; ++i) {
+      reader.get(bytes(keys[i]), result);
+      assertTrue(result.isFound());
+      assertEquals(bytes(values[i]), result.getBuffer());
+      result.clear();
+    }
+    reader.get(bytes("d"), result);
+    assertFalse(result.isFound());
+
+    // Merged keys are in order
+    List<ByteBuffer> rangeKeys = new ArrayList<ByteBuffer>();
+    List<ByteBuffer> rangeValues = new ArrayList<ByteBuffer>();
+    reader.getRange(null, null, 100, rangeKeys, rangeValues);
+    assertEquals(keys.length, rangeKeys.size());
+    for (int i = 0; i < keys.length; ++i) {
+      assertEquals(bytes(keys[i]), rangeKeys.get(i));
+      assertEquals(bytes(values[i]), rangeValues.get(i));
+    }
+    reader.close();
+  }
+}
@@ -0,0 +1,125 @@
+/**
+ *  Copyright 2013 LiveRamp
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.liveramp.hank.storage.sorted;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.liveramp.hank.storage.ReaderResult;
+import com.liveramp.hank.test.BaseTestCase;
+
+public class TestSortedReader extends BaseTestCase {
+
+  private static final String[] KEYS = {"a", "ab", "abc", "abd", "b", "ba", "c", "d"};
+
+  private static ByteBuffer bytes(String s) {
+    return ByteBuffer.wrap(s.getBytes());
+  }
+
+  private void write(int blockSize, String... keys) throws IOException {
+    SortedWriter writer = new SortedWriter(new FileOutputStream(localTmpDir + "/00001.base.sorted"), blockSize);
+    for (String key : keys) {
+      writer.write(bytes(key), bytes("v" + key));
+    }
+    writer.close();
+    assertEquals(keys.length, writer.getNumRecordsWritten());
+  }
+
+  public void testGet() throws IOException {
+    // Small blocks so that keys span several blocks
+    for (int blockSize : new int[]{1, 8, 1 << 16}) {
+      write(blockSize, KEYS);
+      SortedReader reader = new SortedReader(localTmpDir);
+      assertEquals(Integer.valueOf(1), reader.getVersionNumber());
+      ReaderResult result = new ReaderResult();
+      for (String key : KEYS) {
+        reader.get(bytes(key), result);
+        assertTrue(result.isFound());
+        assertEquals(bytes("v" + key), result.getBuffer());
+        result.clear();
+      }
+      for (String absentKey : new String[]{"", "0", "aa", "abe", "bb", "e"}) {
+        reader.get(bytes(absentKey), result);
+        assertFalse(result.isFound());
+        result.clear();
+      }
+      reader.close();
+    }
+  }
+
+  public void testGetRange() throws IOException {
+    write(8, KEYS);
+    SortedReader reader = new SortedReader(localTmpDir);
+
+    // Whole partition
+    assertEquals(KEYS.length, getRange(reader, null, null, 100).size());
+    // Bounded range, start inclusive and end exclusive
+    assertRange(getRange(reader, "ab", "b", 100), "ab", "abc", "abd");
+    assertRange(getRange(reader, "aa", "ba", 100), "ab", "abc", "abd", "b");
+    // Prefix "ab"
+    assertRange(getRange(reader, "ab", "ac", 100), "ab", "abc", "abd");
+    // Maximum number of results
+    assertRange(getRange(reader, null, null, 2), "a", "ab");
+    assertRange(getRange(reader, "abc", null, 3), "abc", "abd", "b");
+    // Empty ranges
+    assertRange(getRange(reader, "e", null, 100));
+    assertRange(getRange(reader, "b", "b", 100));
+    reader.close();
+  }
+
+  public void testKeyOrdering() throws IOException {
+    SortedWriter writer = new SortedWriter(new FileOutputStream(localTmpDir + "/00001.base.sorted"), 8);
+    writer.write(bytes("b"), bytes("1"));
+    try {
+      writer.write(bytes("a"), bytes("2"));
+      fail("Should fail on unordered keys");
+    } catch (IOException e) {
+      // expected
+    }
+    try {
+      writer.write(bytes("b"), bytes("2"));
+      fail("Should fail on duplicate keys");
+    } catch (IOException e) {
+      // expected
+    }
+    writer.close();
+  }
+
+  private List<String> getRange(SortedReader reader, String startKey, String endKey, int maxNumResults) throws IOException {
+    List<ByteBuffer> keys = new ArrayList<ByteBuffer>();
+    List<ByteBuffer> values = new ArrayList<ByteBuffer>();
+    reader.getRange(startKey == null ? null : bytes(startKey), endKey == null ? null : bytes(endKey),
+        maxNumResults, keys, values);
+    List<String> result = new ArrayList<String>();
+    for (int i = 0; i < keys.size(); ++i) {
+      String key = new String(keys.get(i).array());
+      assertEquals(bytes("v" + key), values.get(i));
+      result.add(key);
+    }
+    return result;
+  }
+
+  private void assertRange(List<String> actual, String... expected) {
+    assertEquals(expected.length, actual.size());
+    for (int i = 0; i < expected.length; ++i) {
+      assertEquals(expected[i], actual.get(i));
+    }
+  }
+}